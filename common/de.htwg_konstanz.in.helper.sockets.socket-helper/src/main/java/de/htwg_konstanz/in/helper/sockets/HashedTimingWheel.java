@@ -0,0 +1,266 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.helper.sockets;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Timer that is able to handle a large number of timeouts with one thread. The
+ * timeouts are hashed into a wheel of buckets. With every tick the worker
+ * thread advances to the next bucket and expires the timeouts of this bucket
+ * whose deadline is reached. Scheduling and cancelling a timeout costs O(1),
+ * independent of the number of pending timeouts. The accuracy of a timeout is
+ * the tick duration.
+ * <p>
+ * The tasks of expired timeouts are executed by the worker thread, so they
+ * should return quickly.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+public final class HashedTimingWheel {
+
+    private static final Logger logger = LoggerFactory.getLogger(HashedTimingWheel.class);
+    private final long tickDurationNanos;
+    // only accessed by the worker thread
+    private final List<Set<Timeout>> wheel;
+    private final int mask;
+    private final Queue<Timeout> newTimeouts = new ConcurrentLinkedQueue<Timeout>();
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<Timeout>();
+    private final long startTime;
+    private final Thread worker;
+    private volatile boolean stopped;
+    // only accessed by the worker thread
+    private long tick;
+
+    /**
+     * Creates a new {@link HashedTimingWheel} and starts its worker thread.
+     * 
+     * @param tickDuration
+     *            the duration of one tick
+     * @param unit
+     *            the time unit of the tick duration
+     * @param ticksPerWheel
+     *            the number of buckets of the wheel. Gets rounded up to the
+     *            next power of two.
+     * @param threadName
+     *            the name of the worker thread
+     * @throws IllegalArgumentException
+     *             if tickDuration or ticksPerWheel is not positive
+     */
+    public HashedTimingWheel(long tickDuration, TimeUnit unit, int ticksPerWheel,
+            String threadName) {
+        if (tickDuration <= 0 || ticksPerWheel <= 0 || ticksPerWheel > (1 << 30)) {
+            throw new IllegalArgumentException("Illegal wheel configuration: tickDuration "
+                    + tickDuration + ", ticksPerWheel " + ticksPerWheel);
+        }
+        this.tickDurationNanos = unit.toNanos(tickDuration);
+        int size = 1;
+        while (size < ticksPerWheel) {
+            size <<= 1;
+        }
+        this.wheel = new ArrayList<Set<Timeout>>(size);
+        for (int i = 0; i < size; i++) {
+            wheel.add(new HashSet<Timeout>());
+        }
+        this.mask = size - 1;
+        this.startTime = System.nanoTime();
+        this.worker = new Thread(new Worker(), threadName);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Schedules the given task for execution after the given delay.
+     * 
+     * @param task
+     *            the task to be executed
+     * @param delay
+     *            the delay after that the task gets executed
+     * @param unit
+     *            the time unit of the delay
+     * @return the handle of the timeout
+     * @throws NullPointerException
+     *             if the given task or unit is null
+     * @throws IllegalStateException
+     *             if the timing wheel is already stopped
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        if (task == null || unit == null) {
+            throw new NullPointerException();
+        } else if (stopped) {
+            throw new IllegalStateException("Timing wheel is stopped");
+        }
+        long deadline = System.nanoTime() - startTime + unit.toNanos(Math.max(delay, 0));
+        Timeout timeout = new Timeout(task, deadline);
+        newTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Stops the worker thread. Pending timeouts do not expire anymore.
+     */
+    public void stop() {
+        stopped = true;
+        worker.interrupt();
+    }
+
+    /**
+     * Handle of a scheduled task.
+     */
+    public final class Timeout {
+        private static final int PENDING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+
+        private final Runnable task;
+        private final long deadline;
+        private volatile int state = PENDING;
+        // only accessed by the worker thread
+        private long remainingRounds;
+        private Set<Timeout> bucket;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels this timeout. The task does not get executed if it was not
+         * executed before.
+         * 
+         * @return true if the timeout got cancelled, false if it was already
+         *         expired or cancelled
+         */
+        public boolean cancel() {
+            synchronized (this) {
+                if (state != PENDING) {
+                    return false;
+                }
+                state = CANCELLED;
+            }
+            cancelledTimeouts.add(this);
+            return true;
+        }
+
+        /**
+         * Returns whether this timeout was cancelled.
+         * 
+         * @return true if this timeout was cancelled
+         */
+        public boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        /**
+         * Returns whether this timeout expired and its task was executed.
+         * 
+         * @return true if this timeout expired
+         */
+        public boolean isExpired() {
+            return state == EXPIRED;
+        }
+
+        private void expire() {
+            synchronized (this) {
+                if (state != PENDING) {
+                    return;
+                }
+                state = EXPIRED;
+            }
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.error("Task of timeout threw exception: {}", e);
+            }
+        }
+    }
+
+    /**
+     * Advances the wheel with every tick and expires the timeouts.
+     */
+    private final class Worker implements Runnable {
+
+        public void run() {
+            while (!stopped) {
+                long deadline = tickDurationNanos * (tick + 1);
+                long sleepNanos = deadline - (System.nanoTime() - startTime);
+                if (sleepNanos > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                    } catch (InterruptedException e) {
+                        continue;
+                    }
+                }
+                removeCancelledTimeouts();
+                transferNewTimeouts();
+                expireTimeouts(wheel.get((int) (tick & mask)));
+                tick++;
+            }
+        }
+
+        private void removeCancelledTimeouts() {
+            Timeout timeout;
+            while ((timeout = cancelledTimeouts.poll()) != null) {
+                if (timeout.bucket != null) {
+                    timeout.bucket.remove(timeout);
+                    timeout.bucket = null;
+                }
+            }
+        }
+
+        private void transferNewTimeouts() {
+            Timeout timeout;
+            while ((timeout = newTimeouts.poll()) != null) {
+                if (timeout.state != Timeout.PENDING) {
+                    continue;
+                }
+                long calculatedTick = timeout.deadline / tickDurationNanos;
+                timeout.remainingRounds = (calculatedTick - tick) / wheel.size();
+                // timeouts in the past are expired with the current tick
+                long ticks = Math.max(calculatedTick, tick);
+                timeout.bucket = wheel.get((int) (ticks & mask));
+                timeout.bucket.add(timeout);
+            }
+        }
+
+        private void expireTimeouts(Set<Timeout> bucket) {
+            Iterator<Timeout> it = bucket.iterator();
+            while (it.hasNext()) {
+                Timeout timeout = it.next();
+                if (timeout.remainingRounds <= 0) {
+                    it.remove();
+                    timeout.bucket = null;
+                    timeout.expire();
+                } else {
+                    timeout.remainingRounds--;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,225 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.helper.sockets;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.channels.DatagramChannel;
+import java.util.BitSet;
+
+import javax.net.ServerSocketFactory;
+
+/**
+ * Allocator for the ports of a fixed port range. The free ports are kept in a
+ * FIFO free list, so reserving and releasing a port costs O(1) and a released
+ * port is reused as late as possible. A bit set records which ports are
+ * reserved to detect releases of ports that are not reserved.
+ * <p>
+ * The allocator counts how often a port was requested while the range was
+ * exhausted, so the remaining capacity and the rejected allocations can be
+ * monitored. All methods are thread safe.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+public final class PortAllocator {
+
+    private final int minPort;
+    private final int maxPort;
+    // ring buffer of free ports
+    private final int[] freePorts;
+    private final BitSet reserved;
+    private int head;
+    private int freeCount;
+    private long insufficientCapacityCount;
+
+    /**
+     * Creates a new {@link PortAllocator} for the given port range. Initially
+     * all ports of the range are free.
+     * 
+     * @param minPort
+     *            the lowest port of the range
+     * @param maxPort
+     *            the highest port of the range
+     * @throws IllegalArgumentException
+     *             if the port range is empty or not within 1 and 65535
+     */
+    public PortAllocator(int minPort, int maxPort) {
+        if (minPort < 1 || maxPort > 0xFFFF || minPort > maxPort) {
+            throw new IllegalArgumentException("Illegal port range " + minPort + "-" + maxPort);
+        }
+        this.minPort = minPort;
+        this.maxPort = maxPort;
+        this.freePorts = new int[maxPort - minPort + 1];
+        this.reserved = new BitSet(freePorts.length);
+        for (int i = 0; i < freePorts.length; i++) {
+            freePorts[i] = minPort + i;
+        }
+        this.freeCount = freePorts.length;
+    }
+
+    /**
+     * Reserves a free port of the range.
+     * 
+     * @return the reserved port, or -1 if all ports of the range are reserved
+     */
+    public synchronized int reserve() {
+        if (freeCount == 0) {
+            insufficientCapacityCount++;
+            return -1;
+        }
+        int port = freePorts[head];
+        head = (head + 1) % freePorts.length;
+        freeCount--;
+        reserved.set(port - minPort);
+        return port;
+    }
+
+    /**
+     * Releases a reserved port. The port can be reserved again afterwards.
+     * 
+     * @param port
+     *            the port to be released
+     * @return true if the port was released, false if the port is not within
+     *         the range or was not reserved
+     */
+    public synchronized boolean release(int port) {
+        if (port < minPort || port > maxPort || !reserved.get(port - minPort)) {
+            return false;
+        }
+        reserved.clear(port - minPort);
+        freePorts[(head + freeCount) % freePorts.length] = port;
+        freeCount++;
+        return true;
+    }
+
+    /**
+     * Creates a server socket that is bound to a reserved port of the range.
+     * If a free port is already in use by another process, it is put back at
+     * the end of the free list and the next free port is tried, at most once
+     * for every free port. The port of the returned server socket stays
+     * reserved until it is {@link #release(int) released}.
+     * 
+     * @param factory
+     *            the factory that creates the server socket
+     * @return a bound server socket, or null if no port of the range could be
+     *         bound
+     * @throws IOException
+     *             if an I/O error other than a failed bind occurs
+     */
+    public ServerSocket createServerSocket(ServerSocketFactory factory) throws IOException {
+        int attempts = getFreePorts();
+        for (int i = 0; i < attempts; i++) {
+            int port = reserve();
+            if (port == -1) {
+                // rejection is already counted by reserve()
+                return null;
+            }
+            try {
+                return factory.createServerSocket(port);
+            } catch (BindException e) {
+                release(port);
+            } catch (IOException e) {
+                release(port);
+                throw e;
+            }
+        }
+        synchronized (this) {
+            insufficientCapacityCount++;
+        }
+        return null;
+    }
+
+    /**
+     * Opens a datagram channel that is bound to a reserved port of the range.
+     * Ports that are already in use are skipped as in
+     * {@link #createServerSocket(ServerSocketFactory)}. The port of the
+     * returned channel stays reserved until it is {@link #release(int)
+     * released}.
+     * 
+     * @return a bound datagram channel, or null if no port of the range could
+     *         be bound
+     * @throws IOException
+     *             if an I/O error other than a failed bind occurs
+     */
+    public DatagramChannel openDatagramChannel() throws IOException {
+        int attempts = getFreePorts();
+        for (int i = 0; i < attempts; i++) {
+            int port = reserve();
+            if (port == -1) {
+                // rejection is already counted by reserve()
+                return null;
+            }
+            DatagramChannel channel = DatagramChannel.open();
+            try {
+                channel.socket().bind(new InetSocketAddress(port));
+                return channel;
+            } catch (BindException e) {
+                channel.close();
+                release(port);
+            } catch (IOException e) {
+                channel.close();
+                release(port);
+                throw e;
+            }
+        }
+        synchronized (this) {
+            insufficientCapacityCount++;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of ports of the range.
+     * 
+     * @return the number of ports of the range
+     */
+    public int getCapacity() {
+        return freePorts.length;
+    }
+
+    /**
+     * Returns the number of ports that are currently free.
+     * 
+     * @return the number of free ports
+     */
+    public synchronized int getFreePorts() {
+        return freeCount;
+    }
+
+    /**
+     * Returns the number of ports that are currently reserved.
+     * 
+     * @return the number of reserved ports
+     */
+    public synchronized int getReservedPorts() {
+        return freePorts.length - freeCount;
+    }
+
+    /**
+     * Returns how often a port was requested while no port of the range was
+     * available.
+     * 
+     * @return the number of rejected requests due to insufficient capacity
+     */
+    public synchronized long getInsufficientCapacityCount() {
+        return insufficientCapacityCount;
+    }
+}
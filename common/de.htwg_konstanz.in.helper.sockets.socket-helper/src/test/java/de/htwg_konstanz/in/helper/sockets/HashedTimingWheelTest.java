@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.helper.sockets;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.htwg_konstanz.in.helper.sockets.HashedTimingWheel.Timeout;
+
+public class HashedTimingWheelTest {
+
+    private HashedTimingWheel wheel;
+
+    @Before
+    public void setUp() {
+        wheel = new HashedTimingWheel(10, TimeUnit.MILLISECONDS, 8, "test-timing-wheel");
+    }
+
+    @After
+    public void tearDown() {
+        wheel.stop();
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testScheduleNullTask() {
+        wheel.schedule(null, 1, TimeUnit.SECONDS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalTickDuration() {
+        new HashedTimingWheel(0, TimeUnit.MILLISECONDS, 8, "test");
+    }
+
+    @Test
+    public void testExpire() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        Timeout timeout = wheel.schedule(new Runnable() {
+            public void run() {
+                latch.countDown();
+            }
+        }, 50, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(latch.await(2, TimeUnit.SECONDS));
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        Assert.assertTrue(timeout.isExpired());
+        Assert.assertFalse(timeout.cancel());
+    }
+
+    @Test
+    public void testExpireAfterSeveralRounds() throws InterruptedException {
+        // 8 buckets with 10 ms ticks -> 250 ms needs three rounds
+        final CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+        wheel.schedule(new Runnable() {
+            public void run() {
+                latch.countDown();
+            }
+        }, 250, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(latch.await(2, TimeUnit.SECONDS));
+        Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(250));
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        final AtomicInteger runs = new AtomicInteger();
+        Timeout timeout = wheel.schedule(new Runnable() {
+            public void run() {
+                runs.incrementAndGet();
+            }
+        }, 50, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(timeout.cancel());
+        Assert.assertTrue(timeout.isCancelled());
+        Assert.assertFalse(timeout.cancel());
+        Thread.sleep(200);
+        Assert.assertEquals(0, runs.get());
+        Assert.assertFalse(timeout.isExpired());
+    }
+
+    @Test
+    public void testManyTimeouts() throws InterruptedException {
+        int count = 10000;
+        final CountDownLatch latch = new CountDownLatch(count);
+        for (int i = 0; i < count; i++) {
+            wheel.schedule(new Runnable() {
+                public void run() {
+                    latch.countDown();
+                }
+            }, i % 100, TimeUnit.MILLISECONDS);
+        }
+        Assert.assertTrue(latch.await(2, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testExceptionInTaskDoesNotStopWheel() throws InterruptedException {
+        wheel.schedule(new Runnable() {
+            public void run() {
+                throw new IllegalStateException("test");
+            }
+        }, 0, TimeUnit.MILLISECONDS);
+        final CountDownLatch latch = new CountDownLatch(1);
+        wheel.schedule(new Runnable() {
+            public void run() {
+                latch.countDown();
+            }
+        }, 30, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(latch.await(2, TimeUnit.SECONDS));
+    }
+}
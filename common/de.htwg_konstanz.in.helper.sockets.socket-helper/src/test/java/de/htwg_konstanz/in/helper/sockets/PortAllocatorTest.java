@@ -0,0 +1,89 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.helper.sockets;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+
+import javax.net.ServerSocketFactory;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+public class PortAllocatorTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalRange() {
+        new PortAllocator(20000, 19999);
+    }
+
+    @Test
+    public void testReserveAndRelease() {
+        PortAllocator allocator = new PortAllocator(20000, 20002);
+        Assert.assertEquals(3, allocator.getCapacity());
+        Assert.assertEquals(20000, allocator.reserve());
+        Assert.assertEquals(20001, allocator.reserve());
+        Assert.assertEquals(20002, allocator.reserve());
+        Assert.assertEquals(0, allocator.getFreePorts());
+        Assert.assertEquals(3, allocator.getReservedPorts());
+        Assert.assertEquals(-1, allocator.reserve());
+        Assert.assertEquals(1, allocator.getInsufficientCapacityCount());
+
+        Assert.assertTrue(allocator.release(20001));
+        Assert.assertFalse(allocator.release(20001));
+        Assert.assertFalse(allocator.release(30000));
+        Assert.assertEquals(1, allocator.getFreePorts());
+        Assert.assertEquals(20001, allocator.reserve());
+    }
+
+    @Test
+    public void testReleasedPortIsReusedLast() {
+        PortAllocator allocator = new PortAllocator(20000, 20002);
+        int first = allocator.reserve();
+        allocator.release(first);
+        Assert.assertEquals(20001, allocator.reserve());
+        Assert.assertEquals(20002, allocator.reserve());
+        Assert.assertEquals(first, allocator.reserve());
+    }
+
+    @Test
+    public void testCreateServerSocketSkipsPortInUse() throws IOException {
+        ServerSocket blocker = new ServerSocket(0);
+        int port = blocker.getLocalPort();
+        try {
+            PortAllocator allocator = new PortAllocator(port, port + 1);
+            ServerSocket ss = allocator.createServerSocket(ServerSocketFactory.getDefault());
+            if (ss == null) {
+                // the neighbour port is in use too
+                Assert.assertEquals(1, allocator.getInsufficientCapacityCount());
+                return;
+            }
+            try {
+                Assert.assertEquals(port + 1, ss.getLocalPort());
+                Assert.assertEquals(1, allocator.getReservedPorts());
+                Assert.assertNull(allocator.createServerSocket(ServerSocketFactory.getDefault()));
+                Assert.assertEquals(1, allocator.getInsufficientCapacityCount());
+            } finally {
+                ss.close();
+            }
+        } finally {
+            blocker.close();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.messages;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link OutputStream} that writes directly to a {@link ByteBuffer}. Used to
+ * let {@link UceAttribute UceAttributes} write their values into the buffer of
+ * an encoded message without intermediate streams.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+final class ByteBufferOutputStream extends OutputStream {
+
+    private final ByteBuffer buffer;
+
+    /**
+     * Creates a new {@link ByteBufferOutputStream}.
+     * 
+     * @param buffer
+     *            the buffer to that the bytes get written, beginning at its
+     *            current position
+     */
+    ByteBufferOutputStream(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    @Override
+    public void write(int b) {
+        buffer.put((byte) b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        buffer.put(b, off, len);
+    }
+}
@@ -18,8 +18,6 @@
 package de.htwg_konstanz.in.uce.messages;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * Enum to represent common uce attribute types.
@@ -87,15 +85,19 @@ public enum CommonUceAttributeType implements UceAttributeType {
             return UniqueUserName.fromBytes(encoded, header);
         }
 
-    };
+    },
 
-    private static final Map<Integer, CommonUceAttributeType> intToEnum = new HashMap<Integer, CommonUceAttributeType>();
+    /**
+     * The payload of this {@link UceAttributeType} is represented by the class
+     * {@link ListCursor}.
+     */
+    LIST_CURSOR(0x5) {
 
-    static {
-        for (CommonUceAttributeType l : values()) {
-            intToEnum.put(l.encoded, l);
+        public UceAttribute fromBytes(byte[] encoded, UceAttributeHeader header)
+                throws MessageFormatException, IOException {
+            return ListCursor.fromBytes(encoded, header);
         }
-    }
+    };
 
     private final int encoded;
 
@@ -112,15 +114,4 @@ public enum CommonUceAttributeType implements UceAttributeType {
     public int encode() {
         return encoded;
     }
-
-    /**
-     * Decodes the specified byte encoded {@link CommonUceAttributeType}.
-     * 
-     * @param encoded
-     *            the byte encoded common uce attribute type
-     * @return the decoded {@link CommonUceAttributeType}
-     */
-    static CommonUceAttributeType fromEncoded(int encoded) {
-        return intToEnum.get(encoded);
-    }
 }
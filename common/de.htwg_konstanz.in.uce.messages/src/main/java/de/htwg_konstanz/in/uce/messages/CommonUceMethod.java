@@ -17,9 +17,6 @@
 
 package de.htwg_konstanz.in.uce.messages;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * Enum to represent common uce methods.
  * 
@@ -30,14 +27,6 @@ public enum CommonUceMethod implements UceMethod {
     AUTHENTICATE(0x0), LIST(0x1), REGISTER(0x2), DEREGISTER(0x3), CONNECTION_REQUEST(0x4), KEEP_ALIVE(
             0x5);
 
-    private static final Map<Integer, CommonUceMethod> intToEnum = new HashMap<Integer, CommonUceMethod>();
-
-    static {
-        for (CommonUceMethod l : values()) {
-            intToEnum.put(l.encoded, l);
-        }
-    }
-
     private final int encoded;
 
     /**
@@ -54,15 +43,4 @@ public enum CommonUceMethod implements UceMethod {
         return encoded;
     }
 
-    /**
-     * Decodes the specified byte encoded uce method.
-     * 
-     * @param encoded
-     *            the encoded uce method
-     * @return the decoded {@link CommonUceMethod}
-     */
-    static CommonUceMethod fromEncoded(int encoded) {
-        return intToEnum.get(encoded);
-    }
-
 }
@@ -0,0 +1,298 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.messages;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.GatheringByteChannel;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import de.htwg_konstanz.in.uce.messages.UceMessageHeaderDecoder.UceMessageHeaderImpl;
+
+/**
+ * An immutable {@link UceMessage} whose wire form is encoded only once, when
+ * it gets created via {@link UceMessageStaticFactory#freeze(UceMessage)}.
+ * Writing a {@link FrozenUceMessage} copies the encoded bytes and never
+ * encodes the attributes again. It is intended for messages that are sent
+ * over and over, like keep-alive or refresh requests.
+ * <p>
+ * The encoded header and the encoded attributes are kept separately. The
+ * transaction id in the header can be patched: a copy with another
+ * transaction id only re-encodes the header and shares the encoded attributes
+ * with this message. Both parts can be sent in one system call via
+ * {@link #writeTo(GatheringByteChannel)}.
+ * <p>
+ * Attributes can not be appended to a {@link FrozenUceMessage}.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+public final class FrozenUceMessage implements UceMessage {
+
+    private static final int TRANSACTION_ID_OFFSET = 4;
+    private final UceMessage message;
+    private final UUID transactionId;
+    private final byte[] header;
+    // shared with all copies that have another transaction id
+    private final byte[] body;
+    // header and body in one array, created on demand
+    private volatile byte[] encoded;
+
+    /**
+     * Creates a new {@link FrozenUceMessage} with the method, semantic level,
+     * transaction id and attributes of the given message.
+     * 
+     * @param message
+     *            the message to be frozen
+     */
+    FrozenUceMessage(UceMessage message) {
+        UceMessage snapshot = new UceMessageImpl(message.getMethod(),
+                message.getSemanticLevel(), message.getTransactionId());
+        for (UceAttribute a : message.getAttributes()) {
+            snapshot.addAttribute(a);
+        }
+        byte[] all = snapshot.toByteArray();
+        this.message = snapshot;
+        this.transactionId = snapshot.getTransactionId();
+        this.header = Arrays.copyOfRange(all, 0, UceMessageReader.HEADER_LENGTH);
+        this.body = Arrays.copyOfRange(all, UceMessageReader.HEADER_LENGTH, all.length);
+        this.encoded = all;
+    }
+
+    /**
+     * Creates a copy of the given {@link FrozenUceMessage} with another
+     * transaction id.
+     * 
+     * @param frozen
+     *            the message to be copied
+     * @param transactionId
+     *            the transaction id of the copy
+     */
+    private FrozenUceMessage(FrozenUceMessage frozen, UUID transactionId) {
+        this.message = frozen.message;
+        this.transactionId = transactionId;
+        this.body = frozen.body;
+        this.header = new byte[UceMessageReader.HEADER_LENGTH];
+        UceMessageHeaderDecoder.encodeUceMessageHeader(ByteBuffer.wrap(header), getMethod(),
+                getSemanticLevel(), body.length, transactionId);
+    }
+
+    /**
+     * Returns a copy of this message with the given transaction id. Only the
+     * header of the copy gets encoded, the encoded attributes are shared.
+     * 
+     * @param transactionId
+     *            the transaction id of the copy
+     * @return a copy of this message with the given transaction id
+     * @throws NullPointerException
+     *             if the given transaction id is null
+     */
+    public FrozenUceMessage withTransactionId(UUID transactionId) {
+        if (transactionId == null) {
+            throw new NullPointerException();
+        }
+        return new FrozenUceMessage(this, transactionId);
+    }
+
+    public UceMethod getMethod() {
+        return message.getMethod();
+    }
+
+    public SemanticLevel getSemanticLevel() {
+        return message.getSemanticLevel();
+    }
+
+    public UUID getTransactionId() {
+        return transactionId;
+    }
+
+    public UceMessageHeader getHeader() {
+        return new UceMessageHeaderImpl(getMethod(), getSemanticLevel(), body.length,
+                transactionId);
+    }
+
+    public int getLength() {
+        return body.length;
+    }
+
+    /**
+     * Not supported, a {@link FrozenUceMessage} is immutable.
+     * 
+     * @throws UnsupportedOperationException
+     *             always
+     */
+    public UceMessage addAttribute(UceAttribute attribute) {
+        throw new UnsupportedOperationException("Message is frozen");
+    }
+
+    public List<UceAttribute> getAttributes() {
+        return message.getAttributes();
+    }
+
+    public <T extends UceAttribute> List<T> getAttributes(Class<T> attributeClass) {
+        return message.getAttributes(attributeClass);
+    }
+
+    public <T extends UceAttribute> T getAttribute(Class<T> attributeClass) {
+        return message.getAttribute(attributeClass);
+    }
+
+    public <T extends UceAttribute> boolean hasAttribute(Class<T> attributeClass) {
+        return message.hasAttribute(attributeClass);
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        // one write, so header and attributes go out in the same segment
+        out.write(toEncoded());
+        out.flush();
+    }
+
+    public byte[] toByteArray() {
+        return toEncoded().clone();
+    }
+
+    public void writeTo(ByteBuffer buffer) {
+        if (buffer.remaining() < header.length + body.length) {
+            throw new BufferOverflowException();
+        }
+        buffer.put(header);
+        buffer.put(body);
+    }
+
+    /**
+     * Writes this message with the given transaction id to the given buffer,
+     * beginning at its current position. Equivalent to
+     * <code>withTransactionId(transactionId).writeTo(buffer)</code>, but the
+     * transaction id is patched directly in the buffer without creating a
+     * copy of this message.
+     * 
+     * @param buffer
+     *            the buffer to that this message gets written to
+     * @param transactionId
+     *            the transaction id that gets written instead of the
+     *            transaction id of this message
+     * @throws BufferOverflowException
+     *             if the remaining bytes of the buffer are not sufficient for
+     *             this message. Nothing is written to the buffer in this case.
+     * @throws NullPointerException
+     *             if the given transaction id is null
+     */
+    public void writeTo(ByteBuffer buffer, UUID transactionId) {
+        if (transactionId == null) {
+            throw new NullPointerException();
+        }
+        int start = buffer.position();
+        writeTo(buffer);
+        buffer.putLong(start + TRANSACTION_ID_OFFSET, transactionId.getMostSignificantBits());
+        buffer.putLong(start + TRANSACTION_ID_OFFSET + 8,
+                transactionId.getLeastSignificantBits());
+    }
+
+    /**
+     * Writes the encoded header and the encoded attributes of this message
+     * with one gathering write to the given channel. Blocks until the whole
+     * message is written, so the channel has to be in blocking mode.
+     * 
+     * @param channel
+     *            the channel to that this message gets written to
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    public void writeTo(GatheringByteChannel channel) throws IOException {
+        ByteBuffer[] buffers = { ByteBuffer.wrap(header), ByteBuffer.wrap(body) };
+        while (buffers[0].hasRemaining() || buffers[1].hasRemaining()) {
+            channel.write(buffers);
+        }
+    }
+
+    public UceMessage buildErrorResponse() {
+        return new UceMessageImpl(getMethod(), SemanticLevel.ERROR_RESPONSE, transactionId);
+    }
+
+    public UceMessage buildErrorResponse(int errorNumber, String reasonPhrase)
+            throws UnsupportedEncodingException {
+        return buildErrorResponse().addAttribute(new ErrorCode(errorNumber, reasonPhrase));
+    }
+
+    public UceMessage buildSuccessResponse() {
+        return new UceMessageImpl(getMethod(), SemanticLevel.SUCCESS_RESPONSE, transactionId);
+    }
+
+    public boolean isRequest() {
+        return message.isRequest();
+    }
+
+    public boolean isIndication() {
+        return message.isIndication();
+    }
+
+    public boolean isSuccessResponse() {
+        return message.isSuccessResponse();
+    }
+
+    public boolean isErrorResponse() {
+        return message.isErrorResponse();
+    }
+
+    public boolean isMethod(UceMethod method) {
+        return message.isMethod(method);
+    }
+
+    /**
+     * Returns the header and the attributes of this message encoded in one
+     * array. Must not be modified.
+     * 
+     * @return the encoded message
+     */
+    private byte[] toEncoded() {
+        byte[] result = encoded;
+        if (result == null) {
+            result = new byte[header.length + body.length];
+            System.arraycopy(header, 0, result, 0, header.length);
+            System.arraycopy(body, 0, result, header.length, body.length);
+            encoded = result;
+        }
+        return result;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + Arrays.hashCode(header);
+        result = prime * result + Arrays.hashCode(body);
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof FrozenUceMessage)) {
+            return false;
+        }
+        FrozenUceMessage other = (FrozenUceMessage) obj;
+        return Arrays.equals(header, other.header) && Arrays.equals(body, other.body);
+    }
+}
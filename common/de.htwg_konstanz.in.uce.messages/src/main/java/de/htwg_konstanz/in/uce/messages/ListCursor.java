@@ -0,0 +1,106 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.htwg_konstanz.in.uce.messages;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Uce attribute to represent the position of a paged list. A response that
+ * holds only one page of a list carries a {@link ListCursor} if further pages
+ * follow. The next request carries the cursor unchanged to get the next page.
+ * The token of the cursor is opaque to the client.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+public final class ListCursor implements UceAttribute {
+
+    private final byte[] token;
+
+    /**
+     * Creates a new {@link ListCursor}.
+     * 
+     * @param token
+     *            the token that identifies the position in the list
+     * @throws NullPointerException
+     *             if the token is null
+     */
+    public ListCursor(byte[] token) {
+        if (token == null) {
+            throw new NullPointerException();
+        }
+        this.token = token.clone();
+    }
+
+    public UceAttributeType getType() {
+        return CommonUceAttributeType.LIST_CURSOR;
+    }
+
+    public int getLength() {
+        return token.length;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(token);
+    }
+
+    /**
+     * Returns the token that identifies the position in the list.
+     * 
+     * @return a copy of the token
+     */
+    public byte[] getToken() {
+        return token.clone();
+    }
+
+    /**
+     * Decodes an encoded {@link ListCursor}.
+     * 
+     * @param encoded
+     *            the value of the {@link ListCursor} encoded as a byte array
+     * @param header
+     *            the header of the encoded {@link ListCursor}
+     * @return the decoded {@link ListCursor}
+     */
+    static UceAttribute fromBytes(byte[] encoded, UceAttributeHeader header) {
+        return new ListCursor(encoded);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(token);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (!(obj instanceof ListCursor)) {
+            return false;
+        }
+        ListCursor other = (ListCursor) obj;
+        return Arrays.equals(token, other.token);
+    }
+}
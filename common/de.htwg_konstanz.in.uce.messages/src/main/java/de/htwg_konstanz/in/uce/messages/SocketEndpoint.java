@@ -17,30 +17,34 @@
 
 package de.htwg_konstanz.in.uce.messages;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.net.Inet4Address;
 import java.net.Inet6Address;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
 /**
- * {@link UceAttribute} to represent a socket endpoint (IP address and port).
+ * {@link UceAttribute} to represent a socket endpoint (IP address and port). A
+ * decoded endpoint keeps the raw address bytes; the {@link InetSocketAddress}
+ * is created when it is requested for the first time.
  * 
  * @author Daniel Maier
  * 
  */
 public final class SocketEndpoint implements UceAttribute {
 
-    private final InetSocketAddress endpoint;
+    private final byte[] addressBytes;
+    private final int port;
     private final EndpointClass endpointClass;
     private final int length;
+    // created from the address bytes on first access if the endpoint was decoded
+    private volatile InetSocketAddress endpoint;
 
     /**
      * Creates a new {@link SocketEndpoint}.
@@ -59,17 +63,46 @@ public final class SocketEndpoint implements UceAttribute {
             throw new IllegalArgumentException("Unknown address familiy "
                     + endpoint.getAddress().getClass());
         }
+        this.addressBytes = endpoint.getAddress().getAddress();
+        this.port = endpoint.getPort();
         this.endpoint = endpoint;
         this.endpointClass = endpointClass;
     }
 
+    /**
+     * Creates a new {@link SocketEndpoint} from the raw address bytes.
+     * 
+     * @param addressBytes
+     *            the IP address, 4 bytes for IPv4 or 16 bytes for IPv6
+     * @param port
+     *            the port
+     * @param endpointClass
+     *            the type of endpoint
+     */
+    private SocketEndpoint(byte[] addressBytes, int port, EndpointClass endpointClass) {
+        this.addressBytes = addressBytes;
+        this.port = port;
+        this.endpointClass = endpointClass;
+        this.length = 4 + addressBytes.length;
+    }
+
     /**
      * Returns the endpoint.
      * 
      * @return the endpoint
      */
     public InetSocketAddress getEndpoint() {
-        return endpoint;
+        InetSocketAddress result = endpoint;
+        if (result == null) {
+            try {
+                result = new InetSocketAddress(InetAddress.getByAddress(addressBytes), port);
+            } catch (UnknownHostException e) {
+                // the length of the address bytes is checked while decoding
+                throw new AssertionError(e);
+            }
+            endpoint = result;
+        }
+        return result;
     }
 
     /**
@@ -104,47 +137,42 @@ public final class SocketEndpoint implements UceAttribute {
      */
     static SocketEndpoint fromBytes(byte[] encoded, UceAttributeHeader header) throws IOException,
             MessageFormatException {
-        ByteArrayInputStream bin = new ByteArrayInputStream(encoded);
-        DataInputStream din = new DataInputStream(bin);
-        int endpointClassBits = din.readUnsignedByte();
+        if (encoded.length < 4) {
+            throw new EOFException();
+        }
+        int endpointClassBits = encoded[0] & 0xFF;
         // endpoint class
         EndpointClass endpointClass = EndpointClass.fromEncoded(endpointClassBits);
         if (endpointClass == null) {
             throw new MessageFormatException("Unknown endpoint class " + endpointClassBits);
         }
-        int familyBits = din.readUnsignedByte();
+        int familyBits = encoded[1] & 0xFF;
         // ip address
-        byte[] ipBytes;
+        int ipLength;
         if (familyBits == 4) {
-            ipBytes = new byte[4];
+            ipLength = 4;
         } else if (familyBits == 6) {
-            ipBytes = new byte[16];
+            ipLength = 16;
         } else {
             throw new MessageFormatException("Unknown address family " + familyBits);
         }
         // port
-        int port = din.readUnsignedShort();
+        int port = ((encoded[2] & 0xFF) << 8) | (encoded[3] & 0xFF);
         // ip continue
-        din.readFully(ipBytes);
-        InetAddress addr = InetAddress.getByAddress(ipBytes);
-        return new SocketEndpoint(new InetSocketAddress(addr, port), endpointClass);
+        if (encoded.length < 4 + ipLength) {
+            throw new EOFException();
+        }
+        byte[] ipBytes = Arrays.copyOfRange(encoded, 4, 4 + ipLength);
+        return new SocketEndpoint(ipBytes, port, endpointClass);
     }
 
     public void writeTo(OutputStream out) throws IOException {
-        ByteArrayOutputStream bout = new ByteArrayOutputStream();
-        DataOutputStream dout = new DataOutputStream(bout);
-        dout.writeByte(endpointClass.encoded);
-        if (endpoint.getAddress() instanceof Inet4Address) {
-            dout.writeByte(4);
-        } else if (endpoint.getAddress() instanceof Inet6Address) {
-            dout.writeByte(6);
-        } else {
-            throw new AssertionError("Unknown address familiy " + endpoint.getAddress().getClass());
-        }
-        dout.writeShort(endpoint.getPort());
-        dout.write(endpoint.getAddress().getAddress());
-
-        out.write(bout.toByteArray());
+        // written directly, the stream is usually the buffer of the message
+        out.write(endpointClass.encoded);
+        out.write(addressBytes.length == 4 ? 4 : 6);
+        out.write(port >>> 8);
+        out.write(port);
+        out.write(addressBytes);
         out.flush();
     }
 
@@ -152,7 +180,8 @@ public final class SocketEndpoint implements UceAttribute {
     public int hashCode() {
         final int prime = 31;
         int result = 1;
-        result = prime * result + ((endpoint == null) ? 0 : endpoint.hashCode());
+        result = prime * result + Arrays.hashCode(addressBytes);
+        result = prime * result + port;
         result = prime * result + ((endpointClass == null) ? 0 : endpointClass.hashCode());
         result = prime * result + length;
         return result;
@@ -170,11 +199,11 @@ public final class SocketEndpoint implements UceAttribute {
             return false;
         }
         SocketEndpoint other = (SocketEndpoint) obj;
-        if (endpoint == null) {
-            if (other.endpoint != null) {
-                return false;
-            }
-        } else if (!endpoint.equals(other.endpoint)) {
+        // compares the raw address bytes to avoid creating the endpoints
+        if (port != other.port) {
+            return false;
+        }
+        if (!Arrays.equals(addressBytes, other.addressBytes)) {
             return false;
         }
         if (endpointClass != other.endpointClass) {
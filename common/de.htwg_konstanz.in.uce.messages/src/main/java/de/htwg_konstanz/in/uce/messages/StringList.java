@@ -17,19 +17,21 @@
 
 package de.htwg_konstanz.in.uce.messages;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Vector;
 
 /**
- * {@link UceAttribute} that holds a list of strings.
+ * {@link UceAttribute} that holds a list of strings. A decoded list keeps
+ * only its encoded bytes; the strings are built when they are requested for
+ * the first time.
  * 
  * @author Daniel Maier
  * 
@@ -37,8 +39,10 @@ import java.util.Vector;
 public final class StringList implements UceAttribute {
 
     private static final String STRING_ENCODING = "UTF-8";
-    private final List<String> strings;
+    private static final Charset CHARSET = Charset.forName(STRING_ENCODING);
     private final byte[] stringBytes;
+    // built from the bytes on first access if the list was decoded
+    private volatile List<String> strings;
 
     /**
      * Creates a new {@link StringList}.
@@ -70,6 +74,16 @@ public final class StringList implements UceAttribute {
         this.stringBytes = stringBytes;
     }
 
+    /**
+     * Creates a new {@link StringList} from its encoded bytes.
+     * 
+     * @param stringBytes
+     *            the list of strings encoded as UTF-8
+     */
+    private StringList(byte[] stringBytes) {
+        this.stringBytes = stringBytes;
+    }
+
     /**
      * Encodes the given strings in UTF-8 as a byte array.
      * 
@@ -118,16 +132,36 @@ public final class StringList implements UceAttribute {
      * @return the list of strings of this {@link StringList}
      */
     public List<String> getStrings() {
+        List<String> decoded = strings;
+        if (decoded == null) {
+            decoded = decodeStrings(stringBytes);
+            strings = decoded;
+        }
+        return decoded;
+    }
+
+    /**
+     * Decodes the strings of a well-formed encoded list of strings.
+     * 
+     * @param stringBytes
+     *            the encoded strings
+     * @return the decoded strings
+     */
+    private static List<String> decodeStrings(byte[] stringBytes) {
+        List<String> strings = new Vector<String>();
+        int position = 0;
+        while (position < stringBytes.length) {
+            int length = stringBytes[position++] & 0xFF;
+            strings.add(new String(stringBytes, position, length, CHARSET));
+            position += length;
+        }
         return strings;
     }
 
     @Override
     public int hashCode() {
-        final int prime = 31;
-        int result = 1;
-        result = prime * result + Arrays.hashCode(stringBytes);
-        result = prime * result + ((strings == null) ? 0 : strings.hashCode());
-        return result;
+        // the bytes determine the strings, so the strings are not built here
+        return Arrays.hashCode(stringBytes);
     }
 
     @Override
@@ -145,18 +179,13 @@ public final class StringList implements UceAttribute {
         if (!Arrays.equals(stringBytes, other.stringBytes)) {
             return false;
         }
-        if (strings == null) {
-            if (other.strings != null) {
-                return false;
-            }
-        } else if (!strings.equals(other.strings)) {
-            return false;
-        }
         return true;
     }
 
     /**
-     * Decodes a list of strings.
+     * Decodes a list of strings. Only the lengths of the strings are checked
+     * here, the strings are built when they are requested. The given array is
+     * not copied and must not be changed afterwards.
      * 
      * @param encoded
      *            the encoded {@link StringList} (without header)
@@ -164,19 +193,17 @@ public final class StringList implements UceAttribute {
      *            the header of this attribute
      * @return the decoded attribute
      * @throws IOException
-     *             if an I/O error occurs
+     *             if an I/O error occurs or a string exceeds the attribute
      */
     static UceAttribute fromBytes(byte[] encoded, UceAttributeHeader header) throws IOException {
-        List<String> strings = new Vector<String>();
-        ByteArrayInputStream bin = new ByteArrayInputStream(encoded);
-        DataInputStream din = new DataInputStream(bin);
-        while (bin.available() > 0) {
-            int length = din.readUnsignedByte();
-            byte[] stringBytes = new byte[length];
-            din.readFully(stringBytes);
-            strings.add(new String(stringBytes, STRING_ENCODING));
+        int position = 0;
+        while (position < encoded.length) {
+            position += 1 + (encoded[position] & 0xFF);
+        }
+        if (position > encoded.length) {
+            throw new EOFException("String exceeds the string list");
         }
-        return new StringList(strings, encoded);
+        return new StringList(encoded);
     }
 
 }
@@ -17,9 +17,8 @@
 
 package de.htwg_konstanz.in.uce.messages;
 
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Vector;
 
@@ -59,6 +58,20 @@ final class UceAttributeDecoder {
         this.headerDecoder = new UceAttributeHeaderDecoder(customAttributeTypeDecoder);
     }
 
+    /**
+     * Creates a new {@link UceAttributeDecoder} that decodes the uce attribute
+     * types registered in the given registry.
+     * 
+     * @param registry
+     *            the registry that gets used to decode uce attribute types
+     * @throws NullPointerException
+     *             if the specified registry is null
+     */
+    UceAttributeDecoder(UceCodeRegistry registry) {
+        this.headerDecoder = new UceAttributeHeaderDecoder(registry,
+                UceAttributeHeaderDecoder.NO_ATTRIBUTE_TYPES);
+    }
+
     /**
      * Decodes and returns the uce attributes from an array with byte encoded
      * uce attributes.
@@ -73,19 +86,42 @@ final class UceAttributeDecoder {
      */
     List<UceAttribute> decodeUceAttributes(byte[] uceAttributesBytes) throws IOException,
             MessageFormatException {
-        ByteArrayInputStream bin = new ByteArrayInputStream(uceAttributesBytes);
-        DataInputStream din = new DataInputStream(bin);
+        ByteBuffer buffer = ByteBuffer.wrap(uceAttributesBytes);
         List<UceAttribute> attributes = new Vector<UceAttribute>();
         // read all attributes
-        while (bin.available() > 0) {
-            byte[] headerBits = new byte[UceAttributeHeaderDecoder.HEADER_LENGTH];
-            din.readFully(headerBits);
-            UceAttributeHeader header = headerDecoder.decodeUceAttributeHeader(headerBits);
-            byte[] value = new byte[header.getLength()];
-            din.readFully(value);
-            UceAttribute attribute = header.getType().fromBytes(value, header);
-            attributes.add(attribute);
+        while (buffer.hasRemaining()) {
+            attributes.add(decodeUceAttribute(buffer));
         }
         return attributes;
     }
+
+    /**
+     * Decodes the uce attribute at the current position of the given buffer.
+     * The position of the buffer is advanced by the length of the attribute.
+     * The value of the attribute is copied out of the buffer only once, for
+     * {@link UceAttributeType#fromBytes(byte[], UceAttributeHeader)}.
+     * 
+     * @param buffer
+     *            the buffer with the byte encoded attribute (header and value)
+     *            between its position and its limit
+     * @return the decoded uce attribute
+     * @throws IOException
+     *             if an I/O error occurs
+     * @throws MessageFormatException
+     *             if the attribute is malformed or exceeds the limit of the
+     *             buffer
+     */
+    UceAttribute decodeUceAttribute(ByteBuffer buffer) throws IOException,
+            MessageFormatException {
+        if (buffer.remaining() < UceAttributeHeaderDecoder.HEADER_LENGTH) {
+            throw new MessageFormatException("Truncated attribute header");
+        }
+        UceAttributeHeader header = headerDecoder.decodeUceAttributeHeader(buffer);
+        if (buffer.remaining() < header.getLength()) {
+            throw new MessageFormatException("Truncated attribute value");
+        }
+        byte[] value = new byte[header.getLength()];
+        buffer.get(value);
+        return header.getType().fromBytes(value, header);
+    }
 }
\ No newline at end of file
@@ -17,12 +17,11 @@
 
 package de.htwg_konstanz.in.uce.messages;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
-import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Class to decode byte encoded uce attribute headers.
@@ -33,21 +32,27 @@ import java.io.OutputStream;
 final class UceAttributeHeaderDecoder {
 
     static final int HEADER_LENGTH = 4;
-    private final UceAttributeTypeDecoder commonAttributeTypeDecoder;
+    /**
+     * Decoder that decodes no attribute type at all.
+     */
+    static final UceAttributeTypeDecoder NO_ATTRIBUTE_TYPES =
+            new UceAttributeTypeDecoder() {
+
+        public UceAttributeType decode(int encoded) {
+            return null;
+        }
+    };
+    private final UceCodeRegistry registry;
     private final UceAttributeTypeDecoder customAttributeTypeDecoder;
 
     /**
      * Creates a new {@link UceAttributeHeaderDecoder}.
      */
     UceAttributeHeaderDecoder() {
-        this(new UceAttributeTypeDecoder() {
-
-            public UceAttributeType decode(int encoded) {
-                return null;
-            }
-        });
+        this(NO_ATTRIBUTE_TYPES);
     }
 
+
     /**
      * Creates a new {@link UceAttributeHeaderDecoder} with the specified
      * {@link UceAttributeTypeDecoder} to decode custom attribute types.
@@ -59,10 +64,29 @@ final class UceAttributeHeaderDecoder {
      *             if the specified {@link UceAttributeTypeDecoder} is null
      */
     UceAttributeHeaderDecoder(UceAttributeTypeDecoder customAttributeTypeDecoder) {
-        if (customAttributeTypeDecoder == null) {
+        this(UceCodeRegistry.getCommonRegistry(), customAttributeTypeDecoder);
+    }
+
+    /**
+     * Creates a new {@link UceAttributeHeaderDecoder} that decodes the
+     * attribute types registered in the given registry. The specified
+     * {@link UceAttributeTypeDecoder} is only used for attribute types that
+     * are not registered.
+     * 
+     * @param registry
+     *            the registry that gets used to decode attribute types
+     * @param customAttributeTypeDecoder
+     *            {@link UceAttributeTypeDecoder} to decode unregistered
+     *            attribute types
+     * @throws NullPointerException
+     *             if one of the parameters is null
+     */
+    UceAttributeHeaderDecoder(UceCodeRegistry registry,
+            UceAttributeTypeDecoder customAttributeTypeDecoder) {
+        if (registry == null || customAttributeTypeDecoder == null) {
             throw new NullPointerException();
         }
-        this.commonAttributeTypeDecoder = new CommonUceAttributeTypeDecoder();
+        this.registry = registry;
         this.customAttributeTypeDecoder = customAttributeTypeDecoder;
     }
 
@@ -87,14 +111,29 @@ final class UceAttributeHeaderDecoder {
         } else if (encoded.length != HEADER_LENGTH) {
             throw new MessageFormatException("Header has not the expected length");
         }
-        ByteArrayInputStream bin = new ByteArrayInputStream(encoded);
-        DataInputStream din = new DataInputStream(bin);
+        return decodeUceAttributeHeader(ByteBuffer.wrap(encoded));
+    }
+
+    /**
+     * Decodes the attribute header at the current position of the given
+     * buffer. The position of the buffer is advanced by the length of the
+     * header.
+     * 
+     * @param buffer
+     *            the buffer with at least 4 remaining bytes
+     * @return the decoded attribute header
+     * @throws MessageFormatException
+     *             if the type of the attribute is unknown
+     * @throws java.nio.BufferUnderflowException
+     *             if less than 4 bytes are remaining in the buffer
+     */
+    UceAttributeHeader decodeUceAttributeHeader(ByteBuffer buffer) throws MessageFormatException {
         // type
-        int typeBits = din.readUnsignedShort();
-        // is it common type?
-        UceAttributeType type = commonAttributeTypeDecoder.decode(typeBits);
+        int typeBits = buffer.getShort() & 0xFFFF;
+        // is it registered type?
+        UceAttributeType type = registry.decodeAttributeType(typeBits);
         if (type == null) {
-            // no common type
+            // no registered type
             type = customAttributeTypeDecoder.decode(typeBits);
             // still not found -> type is unknown
             if (type == null) {
@@ -102,7 +141,7 @@ final class UceAttributeHeaderDecoder {
             }
         }
         // length
-        int length = din.readUnsignedShort();
+        int length = buffer.getShort() & 0xFFFF;
         return new UceAttributeHeaderImpl(type, length);
     }
 
@@ -0,0 +1,205 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.htwg_konstanz.in.uce.messages;
+
+import java.util.Arrays;
+
+/**
+ * Registry of all known uce methods and uce attribute types of an
+ * application. The {@link CommonUceMethod CommonUceMethods} and
+ * {@link CommonUceAttributeType CommonUceAttributeTypes} are always
+ * registered, the methods and attribute types of other protocols (for example
+ * the relay protocol) are registered with a {@link Builder}.
+ * <p>
+ * All codes are compiled into flat lookup tables when the registry is built,
+ * so decoding a method or an attribute type is a single array access. Codes
+ * that are registered twice for different methods or attribute types are
+ * detected when the registry is built.
+ * <p>
+ * A {@link UceCodeRegistry} is immutable and can be shared by many
+ * {@link UceMessageReader UceMessageReaders}.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+public final class UceCodeRegistry {
+
+    /**
+     * Highest encoded uce method. The method is encoded in 10 bits of the
+     * message header.
+     */
+    public static final int MAX_METHOD_CODE = 0x3FF;
+    /**
+     * Highest encoded uce attribute type.
+     */
+    public static final int MAX_ATTRIBUTE_TYPE_CODE = 0xFFFF;
+    private static final UceCodeRegistry commonRegistry = new Builder().build();
+    private final UceMethod[] methods;
+    private final UceAttributeType[] attributeTypes;
+
+    /**
+     * Creates a new {@link UceCodeRegistry} from the given builder.
+     * 
+     * @param builder
+     *            the builder with the registered codes
+     */
+    private UceCodeRegistry(Builder builder) {
+        this.methods = Arrays.copyOf(builder.methods, builder.maxMethodCode + 1);
+        this.attributeTypes = Arrays.copyOf(builder.attributeTypes,
+                builder.maxAttributeTypeCode + 1);
+    }
+
+    /**
+     * Returns the registry that contains only the common uce methods and
+     * attribute types.
+     * 
+     * @return the registry of the common codes
+     */
+    public static UceCodeRegistry getCommonRegistry() {
+        return commonRegistry;
+    }
+
+    /**
+     * Decodes the given encoded uce method.
+     * 
+     * @param encoded
+     *            the encoded uce method
+     * @return the decoded {@link UceMethod} or null if the method is unknown
+     */
+    public UceMethod decodeMethod(int encoded) {
+        if (encoded < 0 || encoded >= methods.length) {
+            return null;
+        }
+        return methods[encoded];
+    }
+
+    /**
+     * Decodes the given encoded uce attribute type.
+     * 
+     * @param encoded
+     *            the encoded uce attribute type
+     * @return the decoded {@link UceAttributeType} or null if the attribute
+     *         type is unknown
+     */
+    public UceAttributeType decodeAttributeType(int encoded) {
+        if (encoded < 0 || encoded >= attributeTypes.length) {
+            return null;
+        }
+        return attributeTypes[encoded];
+    }
+
+    /**
+     * Builder for a {@link UceCodeRegistry}. The common uce methods and
+     * attribute types are registered when the builder is created. Each
+     * protocol module adds its own methods and attribute types, usually the
+     * values of its enums.
+     * 
+     * @author Daniel Maier
+     * 
+     */
+    public static final class Builder {
+
+        private final UceMethod[] methods = new UceMethod[MAX_METHOD_CODE + 1];
+        private final UceAttributeType[] attributeTypes =
+                new UceAttributeType[MAX_ATTRIBUTE_TYPE_CODE + 1];
+        private int maxMethodCode = -1;
+        private int maxAttributeTypeCode = -1;
+
+        /**
+         * Creates a new {@link Builder} with the common uce methods and
+         * attribute types.
+         */
+        public Builder() {
+            addMethods(CommonUceMethod.values());
+            addAttributeTypes(CommonUceAttributeType.values());
+        }
+
+        /**
+         * Registers the given uce methods. Registering a method that is
+         * already registered has no effect.
+         * 
+         * @param methods
+         *            the methods to register
+         * @return this builder
+         * @throws NullPointerException
+         *             if one of the methods is null
+         * @throws IllegalArgumentException
+         *             if the code of a method is out of range or is already
+         *             registered for another method
+         */
+        public Builder addMethods(UceMethod... methods) {
+            for (UceMethod method : methods) {
+                int code = method.encode();
+                if (code < 0 || code > MAX_METHOD_CODE) {
+                    throw new IllegalArgumentException("Method code out of range: " + method
+                            + " (0x" + Integer.toHexString(code) + ")");
+                }
+                UceMethod registered = this.methods[code];
+                if (registered != null && !registered.equals(method)) {
+                    throw new IllegalArgumentException("Duplicate method code 0x"
+                            + Integer.toHexString(code) + ": " + registered + " and " + method);
+                }
+                this.methods[code] = method;
+                maxMethodCode = Math.max(maxMethodCode, code);
+            }
+            return this;
+        }
+
+        /**
+         * Registers the given uce attribute types. Registering an attribute
+         * type that is already registered has no effect.
+         * 
+         * @param attributeTypes
+         *            the attribute types to register
+         * @return this builder
+         * @throws NullPointerException
+         *             if one of the attribute types is null
+         * @throws IllegalArgumentException
+         *             if the code of an attribute type is out of range or is
+         *             already registered for another attribute type
+         */
+        public Builder addAttributeTypes(UceAttributeType... attributeTypes) {
+            for (UceAttributeType type : attributeTypes) {
+                int code = type.encode();
+                if (code < 0 || code > MAX_ATTRIBUTE_TYPE_CODE) {
+                    throw new IllegalArgumentException("Attribute type code out of range: " + type
+                            + " (0x" + Integer.toHexString(code) + ")");
+                }
+                UceAttributeType registered = this.attributeTypes[code];
+                if (registered != null && !registered.equals(type)) {
+                    throw new IllegalArgumentException("Duplicate attribute type code 0x"
+                            + Integer.toHexString(code) + ": " + registered + " and " + type);
+                }
+                this.attributeTypes[code] = type;
+                maxAttributeTypeCode = Math.max(maxAttributeTypeCode, code);
+            }
+            return this;
+        }
+
+        /**
+         * Compiles the registered codes into a new {@link UceCodeRegistry}.
+         * The builder can be used further afterwards.
+         * 
+         * @return the new registry
+         */
+        public UceCodeRegistry build() {
+            return new UceCodeRegistry(this);
+        }
+    }
+}
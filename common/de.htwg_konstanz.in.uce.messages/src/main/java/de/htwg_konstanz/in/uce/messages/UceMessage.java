@@ -20,6 +20,8 @@ package de.htwg_konstanz.in.uce.messages;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.UUID;
 
@@ -79,9 +81,10 @@ public interface UceMessage {
     UceMessage addAttribute(UceAttribute attribute);
 
     /**
-     * Returns all {@link UceAttribute} of this uce message.
+     * Returns all {@link UceAttribute} of this uce message. Attributes have
+     * to be appended via {@link #addAttribute(UceAttribute)}.
      * 
-     * @return all attributes of this message as a list
+     * @return all attributes of this message as an unmodifiable list
      */
     List<UceAttribute> getAttributes();
 
@@ -139,6 +142,21 @@ public interface UceMessage {
      */
     byte[] toByteArray();
 
+    /**
+     * Encodes and writes this {@link UceMessage} to the given buffer,
+     * beginning at its current position. The position of the buffer is
+     * advanced by the length of the encoded message, i.e.
+     * {@link UceMessageReader#HEADER_LENGTH} plus {@link #getLength()}. No
+     * intermediate buffers or streams are used.
+     * 
+     * @param buffer
+     *            the buffer to that this message gets written to
+     * @throws BufferOverflowException
+     *             if the remaining bytes of the buffer are not sufficient for
+     *             this message. Nothing is written to the buffer in this case.
+     */
+    void writeTo(ByteBuffer buffer);
+
     /**
      * Creates and returns a corresponding error response to this
      * {@link UceMessage}. The {@link UceMethod} and transaction id of this
@@ -0,0 +1,169 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.htwg_konstanz.in.uce.messages;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Container that packs several {@link UceMessage uce messages} into one
+ * datagram. Encoded uce messages carry their length in the header, so the
+ * messages of a batch are simply written one after the other and can be read
+ * again with {@link UceMessageReader#readUceMessages(ByteBuffer)}. A batch
+ * with only one message is identical to the encoded message itself.
+ * <p>
+ * Receivers that read only one message per datagram ignore all but the first
+ * message of a batch, so batches should only be sent to peers that are known
+ * to read them.
+ * <p>
+ * A {@link UceMessageBatch} is not thread-safe.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+public final class UceMessageBatch {
+
+    /**
+     * Default maximum length of a batch in bytes. Fits into one datagram on a
+     * path with an MTU of 1500 bytes, even with IPv6 (1500 - 40 bytes IPv6
+     * header - 8 bytes UDP header).
+     */
+    public static final int DEFAULT_MAX_LENGTH = 1452;
+    private final ByteBuffer buffer;
+    private int size;
+
+    /**
+     * Creates a new empty {@link UceMessageBatch} with the
+     * {@link #DEFAULT_MAX_LENGTH default maximum length}.
+     */
+    public UceMessageBatch() {
+        this(DEFAULT_MAX_LENGTH);
+    }
+
+    /**
+     * Creates a new empty {@link UceMessageBatch}.
+     * 
+     * @param maxLength
+     *            the maximum length of the batch in bytes, usually the path
+     *            MTU minus the IP and UDP headers
+     * @throws IllegalArgumentException
+     *             if the maximum length is shorter than a message header
+     */
+    public UceMessageBatch(int maxLength) {
+        if (maxLength < UceMessageReader.HEADER_LENGTH) {
+            throw new IllegalArgumentException("Maximum length too short: " + maxLength);
+        }
+        this.buffer = ByteBuffer.allocate(maxLength);
+    }
+
+    /**
+     * Adds the given message to this batch if it fits into the remaining
+     * space. The message is encoded immediately, later changes of the message
+     * do not affect the batch.
+     * 
+     * @param message
+     *            the message to add
+     * @return true if the message was added, false if it does not fit into
+     *         the batch. A message that does not even fit into an empty batch
+     *         has to be sent on its own.
+     * @throws NullPointerException
+     *             if the message is null
+     */
+    public boolean add(UceMessage message) {
+        if (message == null) {
+            throw new NullPointerException();
+        }
+        try {
+            message.writeTo(buffer);
+        } catch (BufferOverflowException e) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * Adds the given encoded message, for example a message that was written
+     * by a {@link UceMessageEncoder}, if it fits into the remaining space.
+     * 
+     * @param encodedMessage
+     *            the encoded message between position and limit. The
+     *            position of the buffer is not changed.
+     * @return true if the message was added, false if it does not fit into
+     *         the batch
+     * @throws NullPointerException
+     *             if the encoded message is null
+     */
+    public boolean add(ByteBuffer encodedMessage) {
+        if (encodedMessage == null) {
+            throw new NullPointerException();
+        }
+        if (encodedMessage.remaining() > buffer.remaining()) {
+            return false;
+        }
+        buffer.put(encodedMessage.duplicate());
+        size++;
+        return true;
+    }
+
+    /**
+     * Returns the number of messages in this batch.
+     * 
+     * @return the number of messages
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns whether this batch contains no messages.
+     * 
+     * @return true if the batch is empty
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the length in bytes of all messages in this batch.
+     * 
+     * @return the length of the encoded batch
+     */
+    public int getLength() {
+        return buffer.position();
+    }
+
+    /**
+     * Returns the encoded messages of this batch as payload for one datagram.
+     * 
+     * @return the encoded batch
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    /**
+     * Removes all messages from this batch.
+     */
+    public void clear() {
+        buffer.clear();
+        size = 0;
+    }
+}
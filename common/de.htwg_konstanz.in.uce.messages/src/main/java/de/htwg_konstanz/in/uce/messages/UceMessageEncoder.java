@@ -0,0 +1,288 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.htwg_konstanz.in.uce.messages;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.UUID;
+
+/**
+ * Builder that encodes a uce message directly into a {@link ByteBuffer} in a
+ * single pass. The length fields of the message and of each attribute are
+ * written as placeholders and back-patched as soon as the value is complete,
+ * so the lengths of the attributes need not be known in advance. Strings are
+ * encoded into the buffer without temporary byte arrays.
+ * <p>
+ * If an attribute does not fit into the remaining space of the buffer, a
+ * {@link BufferOverflowException} is thrown and the buffer is reset to the end
+ * of the previous attribute. The message encoded so far stays valid and can
+ * still be {@link #finish() finished}.
+ * <p>
+ * A {@link UceMessageEncoder} is not thread-safe.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+public final class UceMessageEncoder {
+
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+    private static final int MAX_LENGTH = 0xFFFF;
+    private static final int MAX_STRING_LENGTH = 0xFF;
+    private final ByteBuffer buffer;
+    private final OutputStream out;
+    private final int start;
+    // created when the first string is encoded
+    private CharsetEncoder charsetEncoder;
+    private boolean finished;
+
+    /**
+     * Creates a new {@link UceMessageEncoder} and writes the header of the
+     * message at the current position of the given buffer.
+     * 
+     * @param buffer
+     *            the buffer to that the message gets written
+     * @param method
+     *            the method of the message
+     * @param semanticLevel
+     *            the semantic level of the message
+     * @param transactionId
+     *            the transaction id of the message
+     * @throws NullPointerException
+     *             if one of the parameters is null
+     * @throws BufferOverflowException
+     *             if the header does not fit into the buffer
+     */
+    public UceMessageEncoder(ByteBuffer buffer, UceMethod method, SemanticLevel semanticLevel,
+            UUID transactionId) {
+        if (buffer == null || method == null || semanticLevel == null || transactionId == null) {
+            throw new NullPointerException();
+        }
+        if (buffer.remaining() < UceMessageReader.HEADER_LENGTH) {
+            throw new BufferOverflowException();
+        }
+        this.buffer = buffer;
+        this.out = new ByteBufferOutputStream(buffer);
+        this.start = buffer.position();
+        // the length gets patched by finish
+        UceMessageHeaderDecoder.encodeUceMessageHeader(buffer, method, semanticLevel, 0,
+                transactionId);
+    }
+
+    /**
+     * Appends the given attribute. The attribute writes its value directly
+     * into the buffer.
+     * 
+     * @param attribute
+     *            the attribute to append
+     * @return this encoder
+     * @throws BufferOverflowException
+     *             if the attribute does not fit into the buffer or the message
+     */
+    public UceMessageEncoder addAttribute(UceAttribute attribute) {
+        int attributeStart = beginAttribute(attribute.getType());
+        try {
+            attribute.writeTo(out);
+        } catch (BufferOverflowException e) {
+            buffer.position(attributeStart);
+            throw e;
+        } catch (IOException e) {
+            // can't happen because we write on a ByteBuffer
+            throw new AssertionError();
+        }
+        endAttribute(attributeStart);
+        return this;
+    }
+
+    /**
+     * Appends a {@link UniqueUserName} attribute with the given user name
+     * without creating the attribute.
+     * 
+     * @param uniqueUserName
+     *            the user name
+     * @return this encoder
+     * @throws BufferOverflowException
+     *             if the attribute does not fit into the buffer or the message
+     */
+    public UceMessageEncoder addUniqueUserName(String uniqueUserName) {
+        int attributeStart = beginAttribute(CommonUceAttributeType.UNIQUE_USER_NAME);
+        if (!encodeString(uniqueUserName, buffer.limit())) {
+            buffer.position(attributeStart);
+            throw new BufferOverflowException();
+        }
+        endAttribute(attributeStart);
+        return this;
+    }
+
+    /**
+     * Appends a {@link StringList} attribute with the given strings without
+     * creating the attribute. Like in {@link StringList}, strings that are
+     * longer than 255 bytes get truncated.
+     * 
+     * @param strings
+     *            the strings of the list
+     * @return this encoder
+     * @throws BufferOverflowException
+     *             if the attribute does not fit into the buffer or the message
+     */
+    public UceMessageEncoder addStringList(Iterable<String> strings) {
+        int attributeStart = beginAttribute(CommonUceAttributeType.STRING_LIST);
+        int limit = buffer.limit();
+        for (String s : strings) {
+            if (!buffer.hasRemaining()) {
+                buffer.position(attributeStart);
+                throw new BufferOverflowException();
+            }
+            // the length of the string gets patched after encoding
+            int lengthPosition = buffer.position();
+            buffer.put((byte) 0);
+            int stringLimit = Math.min(limit, buffer.position() + MAX_STRING_LENGTH);
+            boolean complete = encodeString(s, stringLimit);
+            if (!complete && stringLimit == limit) {
+                buffer.position(attributeStart);
+                throw new BufferOverflowException();
+            }
+            buffer.put(lengthPosition, (byte) (buffer.position() - lengthPosition - 1));
+        }
+        endAttribute(attributeStart);
+        return this;
+    }
+
+    /**
+     * Removes the attributes that were added after the message had the given
+     * length. Used to take back attributes that fit into the buffer but leave
+     * no room for something that has to follow them.
+     * 
+     * @param length
+     *            a length of this message that was returned by
+     *            {@link #getLength()}
+     * @throws IllegalArgumentException
+     *             if the length is shorter than the header or longer than the
+     *             current length of the message
+     */
+    public void truncate(int length) {
+        if (finished) {
+            throw new IllegalStateException("Message is finished");
+        }
+        if (length < UceMessageReader.HEADER_LENGTH || length > getLength()) {
+            throw new IllegalArgumentException("Illegal length " + length);
+        }
+        buffer.position(start + length);
+    }
+
+    /**
+     * Returns the length of the message encoded so far, including the header.
+     * 
+     * @return the current length of the encoded message
+     */
+    public int getLength() {
+        return buffer.position() - start;
+    }
+
+    /**
+     * Writes the length of the message into its header. Afterwards the
+     * complete message lies between the start position and the current
+     * position of the buffer. Further attributes must not be added.
+     * 
+     * @return the length of the encoded message, including the header
+     */
+    public int finish() {
+        int length = getLength();
+        buffer.putShort(start + 2, (short) (length - UceMessageReader.HEADER_LENGTH));
+        finished = true;
+        return length;
+    }
+
+    /**
+     * Writes the header of an attribute with a placeholder for the length.
+     * 
+     * @param type
+     *            the type of the attribute
+     * @return the position of the attribute header
+     * @throws BufferOverflowException
+     *             if the header does not fit into the buffer
+     */
+    private int beginAttribute(UceAttributeType type) {
+        if (finished) {
+            throw new IllegalStateException("Message is finished");
+        }
+        if (buffer.remaining() < UceAttributeHeaderDecoder.HEADER_LENGTH) {
+            throw new BufferOverflowException();
+        }
+        int attributeStart = buffer.position();
+        buffer.putShort((short) type.encode());
+        buffer.putShort((short) 0);
+        return attributeStart;
+    }
+
+    /**
+     * Writes the length of the attribute into its header.
+     * 
+     * @param attributeStart
+     *            the position of the attribute header
+     * @throws BufferOverflowException
+     *             if the attribute or the message exceeds the maximum length
+     *             of 65535 bytes. The attribute is removed in this case.
+     */
+    private void endAttribute(int attributeStart) {
+        int length = buffer.position() - attributeStart - UceAttributeHeaderDecoder.HEADER_LENGTH;
+        if (length > MAX_LENGTH || getLength() - UceMessageReader.HEADER_LENGTH > MAX_LENGTH) {
+            buffer.position(attributeStart);
+            throw new BufferOverflowException();
+        }
+        buffer.putShort(attributeStart + 2, (short) length);
+    }
+
+    /**
+     * Encodes the given string as UTF-8 into the buffer up to the given
+     * limit. Malformed characters are replaced like in
+     * {@link String#getBytes(Charset)}.
+     * 
+     * @param s
+     *            the string to encode
+     * @param limit
+     *            the position up to that the string may be written
+     * @return true if the complete string was written, false if it was cut
+     *         at the limit
+     */
+    private boolean encodeString(String s, int limit) {
+        if (charsetEncoder == null) {
+            charsetEncoder = CHARSET.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+        int originalLimit = buffer.limit();
+        buffer.limit(limit);
+        try {
+            charsetEncoder.reset();
+            CoderResult result = charsetEncoder.encode(CharBuffer.wrap(s), buffer, true);
+            if (result.isOverflow()) {
+                return false;
+            }
+            return !charsetEncoder.flush(buffer).isOverflow();
+        } finally {
+            buffer.limit(originalLimit);
+        }
+    }
+}
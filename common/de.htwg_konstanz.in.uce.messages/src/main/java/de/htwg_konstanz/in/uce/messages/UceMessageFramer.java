@@ -0,0 +1,168 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.messages;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * A {@link UceMessageFramer} decodes uce messages incrementally from partial
+ * reads, e.g. from a non-blocking {@link ReadableByteChannel}. It never blocks,
+ * so many connections can be served by one selector thread with one framer per
+ * connection.
+ * <p>
+ * The bytes are collected in an internal buffer either by
+ * {@link #read(ReadableByteChannel)} or by {@link #feed(ByteBuffer)}. After
+ * each read or feed, {@link #next()} has to be called until it returns null,
+ * in order to take all complete messages out of the buffer. An incomplete
+ * message stays in the buffer until the rest of it arrives. The buffer grows
+ * up to the size of the largest possible message.
+ * <p>
+ * A {@link UceMessageFramer} is not thread safe.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+public final class UceMessageFramer {
+
+    private static final int LENGTH_OFFSET = 2;
+    private static final int INITIAL_BUFFER_SIZE = 512;
+    private static final int MAX_MESSAGE_LENGTH = UceMessageReader.HEADER_LENGTH + 0xFFFF;
+    private final UceMessageReader reader;
+    // always in fill mode between calls
+    private ByteBuffer buffer = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    // length of the current message, or -1 if its header is not complete yet
+    private int messageLength = -1;
+
+    /**
+     * Creates a new {@link UceMessageFramer}.
+     * 
+     * @param reader
+     *            the reader that gets used to decode the complete messages
+     * @throws NullPointerException
+     *             if the given reader is null
+     */
+    public UceMessageFramer(UceMessageReader reader) {
+        if (reader == null) {
+            throw new NullPointerException();
+        }
+        this.reader = reader;
+    }
+
+    /**
+     * Reads the available bytes from the given channel into the internal
+     * buffer. Blocks only if the channel is in blocking mode.
+     * 
+     * @param channel
+     *            the channel to be read from
+     * @return the number of bytes read, possibly zero, or -1 if the channel
+     *         has reached end-of-stream
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    public int read(ReadableByteChannel channel) throws IOException {
+        return channel.read(buffer);
+    }
+
+    /**
+     * Copies as many bytes from the given buffer into the internal buffer as
+     * fit into it. The position of the given buffer is advanced by the number
+     * of copied bytes. If not all bytes could be copied, {@link #next()} has
+     * to be called before the rest is fed.
+     * 
+     * @param src
+     *            the buffer with the received bytes between its position and
+     *            its limit
+     * @return the number of copied bytes
+     */
+    public int feed(ByteBuffer src) {
+        int count = Math.min(src.remaining(), buffer.remaining());
+        int limit = src.limit();
+        src.limit(src.position() + count);
+        buffer.put(src);
+        src.limit(limit);
+        return count;
+    }
+
+    /**
+     * Takes the next complete message out of the internal buffer and decodes
+     * it. Never blocks.
+     * 
+     * @return the next complete message, or null if no complete message is in
+     *         the buffer
+     * @throws MessageFormatException
+     *             if the next message is malformed, also if decoding one of
+     *             its attributes fails with a runtime exception. The
+     *             malformed message is skipped, so the following messages
+     *             can be decoded nevertheless.
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    public UceMessage next() throws IOException {
+        if (messageLength < 0) {
+            if (buffer.position() < UceMessageReader.HEADER_LENGTH) {
+                return null;
+            }
+            messageLength = UceMessageReader.HEADER_LENGTH
+                    + (buffer.getShort(LENGTH_OFFSET) & 0xFFFF);
+            if (buffer.capacity() < messageLength) {
+                grow(messageLength);
+            }
+        }
+        if (buffer.position() < messageLength) {
+            return null;
+        }
+        buffer.flip();
+        try {
+            return reader.readUceMessage(buffer);
+        } catch (RuntimeException e) {
+            throw new MessageFormatException("Malformed message", e);
+        } finally {
+            // skips the message also if its decoding failed
+            buffer.position(messageLength);
+            buffer.compact();
+            messageLength = -1;
+        }
+    }
+
+    /**
+     * Returns the number of bytes in the internal buffer that do not belong
+     * to a message that was returned by {@link #next()} yet.
+     * 
+     * @return the number of buffered bytes
+     */
+    public int getBufferedBytes() {
+        return buffer.position();
+    }
+
+    /**
+     * Replaces the internal buffer by a larger one.
+     * 
+     * @param minCapacity
+     *            the minimal capacity of the new buffer
+     */
+    private void grow(int minCapacity) {
+        int capacity = Math.min(Math.max(minCapacity, buffer.capacity() * 2),
+                MAX_MESSAGE_LENGTH);
+        ByteBuffer larger = ByteBuffer.allocate(capacity);
+        buffer.flip();
+        larger.put(buffer);
+        buffer = larger;
+    }
+}
@@ -17,12 +17,9 @@
 
 package de.htwg_konstanz.in.uce.messages;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.UUID;
 
 /**
@@ -32,32 +29,35 @@ import java.util.UUID;
  * 
  */
 final class UceMessageHeaderDecoder {
-    private static final int HEADER_LENGTH = 20;
+    private static final int HEADER_LENGTH = UceMessageReader.HEADER_LENGTH;
     private static final int MAGIC_MASK = 0xF000;
     private static final int MAGIC = 0x5;
     private static final int MAGIC_SHIFT = 0xC;
     private static final int METHOD_MASK = 0x0FFC;
     private static final int METHOD_SHIFT = 0x2;
     private static final int SEMANTIC_LEVEL_MASK = 0x0003;
-    private static final int TRANSACTION_ID_LENGTH = 16;
-    private final UceMethodDecoder commonMethodDecoder;
+    /**
+     * Decoder that decodes no method at all.
+     */
+    static final UceMethodDecoder NO_METHODS = new UceMethodDecoder() {
+
+        public UceMethod decode(int encoded) {
+            return null;
+        }
+    };
+    private final UceCodeRegistry registry;
     private final UceMethodDecoder customMethodDecoder;
 
     /**
      * Creates a new {@link UceMessageHeaderDecoder}.
      */
     UceMessageHeaderDecoder() {
-        this(new UceMethodDecoder() {
-
-            public UceMethod decode(int encoded) {
-                return null;
-            }
-        });
+        this(NO_METHODS);
     }
 
     /**
      * Creates a new {@link UceMessageHeaderDecoder} that uses additionally to
-     * the {@link CommonUceMethodDecoder} the given
+     * the {@link UceCodeRegistry#getCommonRegistry() common methods} the given
      * <code>customMethodDecoder</code> to decode the method of the message.
      * 
      * @param customMethodDecoder
@@ -66,10 +66,29 @@ final class UceMessageHeaderDecoder {
      *             if the given <code>customMethodDecoder</code> is null
      */
     UceMessageHeaderDecoder(UceMethodDecoder customMethodDecoder) {
-        if (customMethodDecoder == null) {
+        this(UceCodeRegistry.getCommonRegistry(), customMethodDecoder);
+    }
+
+    /**
+     * Creates a new {@link UceMessageHeaderDecoder} that decodes the methods
+     * registered in the given registry. The given
+     * <code>customMethodDecoder</code> is only used for methods that are not
+     * registered.
+     * 
+     * @param registry
+     *            the registry that gets used to decode the method of the
+     *            message
+     * @param customMethodDecoder
+     *            the decoder that gets used to decode unregistered uce
+     *            methods
+     * @throws NullPointerException
+     *             if one of the parameters is null
+     */
+    UceMessageHeaderDecoder(UceCodeRegistry registry, UceMethodDecoder customMethodDecoder) {
+        if (registry == null || customMethodDecoder == null) {
             throw new NullPointerException();
         }
-        this.commonMethodDecoder = new CommonUceMethodDecoder();
+        this.registry = registry;
         this.customMethodDecoder = customMethodDecoder;
     }
 
@@ -93,9 +112,24 @@ final class UceMessageHeaderDecoder {
         } else if (encoded.length != HEADER_LENGTH) {
             throw new MessageFormatException("Header has not the expected length");
         }
-        ByteArrayInputStream bin = new ByteArrayInputStream(encoded);
-        DataInputStream din = new DataInputStream(bin);
-        int leading16Bits = din.readUnsignedShort();
+        return decodeUceMessageHeader(ByteBuffer.wrap(encoded));
+    }
+
+    /**
+     * Decodes the uce message header at the current position of the given
+     * buffer. The position of the buffer is advanced by the length of the
+     * header.
+     * 
+     * @param buffer
+     *            the buffer with at least 20 remaining bytes
+     * @return the decoded uce message header
+     * @throws MessageFormatException
+     *             if the uce message header is malformed
+     * @throws java.nio.BufferUnderflowException
+     *             if less than 20 bytes are remaining in the buffer
+     */
+    UceMessageHeader decodeUceMessageHeader(ByteBuffer buffer) throws MessageFormatException {
+        int leading16Bits = buffer.getShort() & 0xFFFF;
         // magic
         int magic = (leading16Bits & MAGIC_MASK) >> MAGIC_SHIFT;
         if (magic != MAGIC) {
@@ -103,10 +137,10 @@ final class UceMessageHeaderDecoder {
         }
         // method
         int methodBits = (leading16Bits & METHOD_MASK) >> METHOD_SHIFT;
-        // is it common method?
-        UceMethod method = commonMethodDecoder.decode(methodBits);
+        // is it registered method?
+        UceMethod method = registry.decodeMethod(methodBits);
         if (method == null) {
-            // no common method
+            // no registered method
             method = customMethodDecoder.decode(methodBits);
             // still not found -> method is unknown
             if (method == null) {
@@ -117,14 +151,39 @@ final class UceMessageHeaderDecoder {
         int semanticLevelBits = (leading16Bits & SEMANTIC_LEVEL_MASK);
         SemanticLevel semanticLevel = SemanticLevel.fromEncoded(semanticLevelBits);
         // length
-        int length = din.readUnsignedShort();
+        int length = buffer.getShort() & 0xFFFF;
         // transaction id
-        byte[] transactionIdBytes = new byte[TRANSACTION_ID_LENGTH];
-        din.readFully(transactionIdBytes);
-        UUID transactionId = UUIDCoder.toUUID(transactionIdBytes);
+        UUID transactionId = new UUID(buffer.getLong(), buffer.getLong());
         return new UceMessageHeaderImpl(method, semanticLevel, length, transactionId);
     }
 
+    /**
+     * Encodes a uce message header at the current position of the given
+     * buffer. The position of the buffer is advanced by the length of the
+     * header.
+     * 
+     * @param buffer
+     *            the buffer with at least 20 remaining bytes
+     * @param method
+     *            the method of the message
+     * @param semanticLevel
+     *            the semantic level of the message
+     * @param length
+     *            the length of the rest of the message (without message
+     *            header)
+     * @param transactionId
+     *            the transaction id of the message
+     */
+    static void encodeUceMessageHeader(ByteBuffer buffer, UceMethod method,
+            SemanticLevel semanticLevel, int length, UUID transactionId) {
+        int leading16Bits = (MAGIC << MAGIC_SHIFT) | (method.encode() << METHOD_SHIFT)
+                | semanticLevel.encode();
+        buffer.putShort((short) leading16Bits);
+        buffer.putShort((short) length);
+        buffer.putLong(transactionId.getMostSignificantBits());
+        buffer.putLong(transactionId.getLeastSignificantBits());
+    }
+
     /**
      * A implementation of a {@link UceMessageHeader}.
      * 
@@ -196,17 +255,10 @@ final class UceMessageHeaderDecoder {
         }
 
         public void writeTo(OutputStream out) throws IOException {
-            int methodBits = method.encode();
-            int semanticLevelBits = semanticLevel.encode();
-            ByteArrayOutputStream bout = new ByteArrayOutputStream();
-            DataOutputStream dout = new DataOutputStream(bout);
-            byte[] transactionIdBytes = UUIDCoder.asByteArray(transactionId);
-            int leading16Bits = (MAGIC << MAGIC_SHIFT) | (methodBits << METHOD_SHIFT)
-                    | semanticLevelBits;
-            dout.writeShort(leading16Bits);
-            dout.writeShort(length);
-            dout.write(transactionIdBytes);
-            out.write(bout.toByteArray());
+            byte[] encoded = new byte[HEADER_LENGTH];
+            encodeUceMessageHeader(ByteBuffer.wrap(encoded), method, semanticLevel, length,
+                    transactionId);
+            out.write(encoded);
             out.flush();
         }
 
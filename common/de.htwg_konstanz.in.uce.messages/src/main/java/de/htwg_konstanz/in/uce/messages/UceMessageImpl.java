@@ -17,29 +17,42 @@
 
 package de.htwg_konstanz.in.uce.messages;
 
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import java.util.Vector;
 
 import de.htwg_konstanz.in.uce.messages.UceMessageHeaderDecoder.UceMessageHeaderImpl;
 
 /**
- * An implementation of a {@link UceMessage}.
+ * An implementation of a {@link UceMessage}. The attributes are additionally
+ * indexed by their class, so looking up an attribute by its type does not
+ * scan all attributes. The length of the message is maintained while
+ * attributes are appended. A message is not thread safe; it is built by one
+ * thread before it is sent or handed over. Decoded messages are taken from a
+ * {@link UceMessagePool} and can be reset to be reused for the next message.
  * 
  * @author Daniel Maier
  * 
  */
 final class UceMessageImpl implements UceMessage {
 
-    private final UceMethod method;
-    private final SemanticLevel semanticLevel;
-    private final UUID transactionID;
+    private UceMethod method;
+    private SemanticLevel semanticLevel;
+    private UUID transactionID;
     private final List<UceAttribute> attributes;
+    // first attribute of each class
+    private final Map<Class<?>, UceAttribute> firstAttributes;
+    private int length;
+    // true while this message is idle in a pool
+    private boolean pooled;
 
     /**
      * Creates a new {@link UceMessageImpl} with the given header.
@@ -73,7 +86,50 @@ final class UceMessageImpl implements UceMessage {
         this.method = method;
         this.semanticLevel = semanticLevel;
         this.transactionID = transactionID;
-        this.attributes = new Vector<UceAttribute>();
+        this.attributes = new ArrayList<UceAttribute>();
+        this.firstAttributes = new HashMap<Class<?>, UceAttribute>();
+    }
+
+    /**
+     * Resets this message to the given header and removes all attributes. The
+     * attribute lists keep their capacity.
+     * 
+     * @param header
+     *            the new header of the message
+     * @throws NullPointerException
+     *             if the method, semantic level or transaction id of the
+     *             header is null
+     */
+    void reset(UceMessageHeader header) {
+        if (header.getMethod() == null || header.getSemanticLevel() == null
+                || header.getTransactionId() == null) {
+            throw new NullPointerException();
+        }
+        this.method = header.getMethod();
+        this.semanticLevel = header.getSemanticLevel();
+        this.transactionID = header.getTransactionId();
+        this.attributes.clear();
+        this.firstAttributes.clear();
+        this.length = 0;
+    }
+
+    /**
+     * Returns whether this message is idle in a pool.
+     * 
+     * @return true if this message is idle in a pool
+     */
+    boolean isPooled() {
+        return pooled;
+    }
+
+    /**
+     * Marks this message as idle in a pool or as in use.
+     * 
+     * @param pooled
+     *            true if this message gets idle in a pool
+     */
+    void setPooled(boolean pooled) {
+        this.pooled = pooled;
     }
 
     public UceMethod getMethod() {
@@ -93,11 +149,6 @@ final class UceMessageImpl implements UceMessage {
     }
 
     public int getLength() {
-        int length = 0;
-        for (UceAttribute a : attributes) {
-            length += UceAttributeHeaderDecoder.HEADER_LENGTH;
-            length += a.getLength();
-        }
         return length;
     }
 
@@ -107,39 +158,42 @@ final class UceMessageImpl implements UceMessage {
     }
 
     public byte[] toByteArray() {
-        // first write to local buffer to prevent half sent messages caused by
-        // exceptions
-        ByteArrayOutputStream bout = new ByteArrayOutputStream();
-        DataOutputStream dout = new DataOutputStream(bout);
-        // header
-        try {
-            getHeader().writeTo(bout);
-            // write attributes
-            for (UceAttribute a : attributes) {
-                // header
-                dout.writeShort(a.getType().encode());
-                dout.writeShort(a.getLength());
-                // value
-                a.writeTo(bout);
-            }
-            return bout.toByteArray();
-        } catch (IOException e) {
-            // can't happen because we write on ByteArrayOutputStream
-            throw new AssertionError();
+        byte[] encoded = new byte[UceMessageReader.HEADER_LENGTH + getLength()];
+        writeTo(ByteBuffer.wrap(encoded));
+        return encoded;
+    }
+
+    public void writeTo(ByteBuffer buffer) {
+        int length = getLength();
+        if (buffer.remaining() < UceMessageReader.HEADER_LENGTH + length) {
+            throw new BufferOverflowException();
         }
+        UceMessageEncoder encoder = new UceMessageEncoder(buffer, method, semanticLevel,
+                transactionID);
+        for (UceAttribute a : attributes) {
+            encoder.addAttribute(a);
+        }
+        encoder.finish();
     }
 
     public UceMessage addAttribute(UceAttribute attribute) {
         attributes.add(attribute);
+        if (!firstAttributes.containsKey(attribute.getClass())) {
+            firstAttributes.put(attribute.getClass(), attribute);
+        }
+        length += UceAttributeHeaderDecoder.HEADER_LENGTH + attribute.getLength();
         return this;
     }
 
     public List<UceAttribute> getAttributes() {
-        return attributes;
+        return Collections.unmodifiableList(attributes);
     }
 
     public <T extends UceAttribute> List<T> getAttributes(Class<T> attributeClass) {
-        List<T> reAttributes = new Vector<T>();
+        List<T> reAttributes = new ArrayList<T>();
+        if (!firstAttributes.containsKey(attributeClass)) {
+            return reAttributes;
+        }
         for (UceAttribute a : attributes) {
             if (a.getClass() == attributeClass) {
                 // this is safe because we check for class equality before
@@ -152,24 +206,14 @@ final class UceMessageImpl implements UceMessage {
     }
 
     public <T extends UceAttribute> T getAttribute(Class<T> attributeClass) {
-        for (UceAttribute a : attributes) {
-            if (a.getClass() == attributeClass) {
-                // this is safe because we check for class equality before
-                @SuppressWarnings("unchecked")
-                T toReturn = (T) a;
-                return toReturn;
-            }
-        }
-        return null;
+        // this is safe because the index is keyed by the class of the attribute
+        @SuppressWarnings("unchecked")
+        T toReturn = (T) firstAttributes.get(attributeClass);
+        return toReturn;
     }
 
     public <T extends UceAttribute> boolean hasAttribute(Class<T> attributeClass) {
-        for (UceAttribute a : attributes) {
-            if (a.getClass() == attributeClass) {
-                return true;
-            }
-        }
-        return false;
+        return firstAttributes.containsKey(attributeClass);
     }
 
     public UceMessage buildErrorResponse() {
@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.htwg_konstanz.in.uce.messages;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-thread pool of {@link UceMessageImpl} shells. The {@link UceMessageReader}
+ * takes the shells of decoded messages from the pool of the decoding thread,
+ * and a message handler that has finished with a message gives it back with
+ * {@link UceMessageStaticFactory#recycle(UceMessage)}. A shell keeps its
+ * attribute list and index, so decoding a message on a thread that recycles
+ * its messages does not allocate them again. Each pool holds at most
+ * {@link #MAX_POOLED_MESSAGES} idle shells; further released shells are left
+ * to the garbage collector.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+final class UceMessagePool {
+
+    /**
+     * Maximum number of idle messages per thread.
+     */
+    static final int MAX_POOLED_MESSAGES = 16;
+    private static final ThreadLocal<List<UceMessageImpl>> idleMessages =
+            new ThreadLocal<List<UceMessageImpl>>() {
+        @Override
+        protected List<UceMessageImpl> initialValue() {
+            return new ArrayList<UceMessageImpl>(MAX_POOLED_MESSAGES);
+        }
+    };
+
+    private UceMessagePool() {
+    }
+
+    /**
+     * Returns an empty message with the given header. The message is taken
+     * from the pool of the current thread or created if the pool is empty.
+     * 
+     * @param header
+     *            the header of the message
+     * @return an empty message with the given header
+     */
+    static UceMessageImpl obtain(UceMessageHeader header) {
+        List<UceMessageImpl> idle = idleMessages.get();
+        if (idle.isEmpty()) {
+            return new UceMessageImpl(header);
+        }
+        UceMessageImpl message = idle.remove(idle.size() - 1);
+        message.setPooled(false);
+        message.reset(header);
+        return message;
+    }
+
+    /**
+     * Gives the given message back to the pool of the current thread. The
+     * message must not be used afterwards. Releasing a message that is
+     * already idle in a pool has no effect.
+     * 
+     * @param message
+     *            the message to be released
+     */
+    static void release(UceMessageImpl message) {
+        if (message.isPooled()) {
+            return;
+        }
+        List<UceMessageImpl> idle = idleMessages.get();
+        if (idle.size() < MAX_POOLED_MESSAGES) {
+            message.setPooled(true);
+            idle.add(message);
+        }
+    }
+
+    /**
+     * Returns the number of idle messages in the pool of the current thread.
+     * 
+     * @return the number of idle messages
+     */
+    static int size() {
+        return idleMessages.get().size();
+    }
+}
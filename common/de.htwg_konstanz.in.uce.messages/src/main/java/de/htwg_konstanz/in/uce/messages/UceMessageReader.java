@@ -17,10 +17,13 @@
 
 package de.htwg_konstanz.in.uce.messages;
 
-import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -31,6 +34,11 @@ import java.util.List;
  */
 public final class UceMessageReader {
 
+    /**
+     * Length of the header of an encoded uce message in bytes.
+     */
+    public static final int HEADER_LENGTH = 20;
+    private static final int LENGTH_OFFSET = 2;
     private final UceMessageHeaderDecoder headerDecoder;
     private final UceAttributeDecoder attributeDecoder;
 
@@ -105,6 +113,25 @@ public final class UceMessageReader {
         attributeDecoder = new UceAttributeDecoder(customAttributeTypeDecoder);
     }
 
+    /**
+     * Creates a new {@link UceMessageReader} that decodes the methods and
+     * attribute types registered in the given registry. Each method and
+     * attribute type is decoded with a single lookup.
+     * 
+     * @param registry
+     *            the registry of the known methods and attribute types
+     * @throws NullPointerException
+     *             if the <code>registry</code> is null
+     */
+    public UceMessageReader(UceCodeRegistry registry) {
+        if (registry == null) {
+            throw new NullPointerException();
+        }
+        headerDecoder = new UceMessageHeaderDecoder(registry,
+                UceMessageHeaderDecoder.NO_METHODS);
+        attributeDecoder = new UceAttributeDecoder(registry);
+    }
+
     /**
      * Decodes a given byte encoded uce message.
      * 
@@ -115,7 +142,11 @@ public final class UceMessageReader {
      *             if an I/O error occurs
      */
     public UceMessage readUceMessage(byte[] encoded) throws IOException {
-        return readUceMessage(new ByteArrayInputStream(encoded));
+        ByteBuffer buffer = ByteBuffer.wrap(encoded);
+        if (encoded.length < HEADER_LENGTH || getMessageLength(buffer) > encoded.length) {
+            throw new EOFException("Message is truncated");
+        }
+        return readUceMessage(buffer);
     }
 
     /**
@@ -130,17 +161,103 @@ public final class UceMessageReader {
     public UceMessage readUceMessage(InputStream in) throws IOException {
         DataInputStream dis = new DataInputStream(in);
         // read 20 bytes for message header
-        byte[] headerBytes = new byte[20];
+        byte[] headerBytes = new byte[HEADER_LENGTH];
         dis.readFully(headerBytes);
-        UceMessageHeader header = headerDecoder.decodeUceMessageHeader(headerBytes);
-        // read rest of message
-        byte[] attributeBytes = new byte[header.getLength()];
-        dis.readFully(attributeBytes);
-        List<UceAttribute> attributes = attributeDecoder.decodeUceAttributes(attributeBytes);
-        UceMessage message = new UceMessageImpl(header);
-        for (UceAttribute a : attributes) {
-            message.addAttribute(a);
+        // read rest of message behind the header
+        int messageLength = getMessageLength(ByteBuffer.wrap(headerBytes));
+        byte[] encoded = new byte[messageLength];
+        System.arraycopy(headerBytes, 0, encoded, 0, HEADER_LENGTH);
+        dis.readFully(encoded, HEADER_LENGTH, messageLength - HEADER_LENGTH);
+        return readUceMessage(ByteBuffer.wrap(encoded));
+    }
+
+    /**
+     * Decodes the uce message at the current position of the given buffer in
+     * place, without intermediate streams or buffers. On success the position
+     * of the buffer is advanced by the length of the message, so several
+     * messages in one buffer can be read one after the other. If the message
+     * is malformed, the position is advanced behind it nevertheless.
+     * 
+     * @param buffer
+     *            the buffer that contains the byte encoded uce message
+     *            between its position and its limit
+     * @return the decoded uce message
+     * @throws IOException
+     *             if an I/O error occurs
+     * @throws MessageFormatException
+     *             if the message is malformed
+     * @throws BufferUnderflowException
+     *             if the buffer does not contain the complete message. The
+     *             position of the buffer is not changed in this case.
+     */
+    public UceMessage readUceMessage(ByteBuffer buffer) throws IOException {
+        int start = buffer.position();
+        int end = start + getMessageLength(buffer);
+        if (end > buffer.limit()) {
+            throw new BufferUnderflowException();
+        }
+        int limit = buffer.limit();
+        buffer.limit(end);
+        try {
+            UceMessageHeader header = headerDecoder.decodeUceMessageHeader(buffer);
+            UceMessage message = UceMessagePool.obtain(header);
+            while (buffer.hasRemaining()) {
+                message.addAttribute(attributeDecoder.decodeUceAttribute(buffer));
+            }
+            return message;
+        } finally {
+            buffer.limit(limit);
+            buffer.position(end);
+        }
+    }
+
+    /**
+     * Decodes all uce messages between the position and the limit of the
+     * given buffer, for example the messages of a datagram that was sent as
+     * {@link UceMessageBatch}. The position of the buffer is advanced to its
+     * limit.
+     * 
+     * @param buffer
+     *            the buffer that contains the byte encoded uce messages
+     *            between its position and its limit
+     * @return the decoded uce messages in the order of the buffer
+     * @throws IOException
+     *             if an I/O error occurs
+     * @throws MessageFormatException
+     *             if one of the messages is malformed
+     * @throws EOFException
+     *             if the last message is truncated
+     */
+    public List<UceMessage> readUceMessages(ByteBuffer buffer) throws IOException {
+        List<UceMessage> messages = new ArrayList<UceMessage>();
+        while (buffer.hasRemaining()) {
+            try {
+                messages.add(readUceMessage(buffer));
+            } catch (BufferUnderflowException e) {
+                buffer.position(buffer.limit());
+                throw new EOFException("Message is truncated");
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * Returns the length of the uce message at the current position of the
+     * given buffer, including its header. Only the header of the message has
+     * to be contained in the buffer. The position of the buffer is not
+     * changed.
+     * 
+     * @param buffer
+     *            the buffer that contains at least the header of the message
+     *            between its position and its limit
+     * @return the length of the message including its header
+     * @throws BufferUnderflowException
+     *             if the buffer does not contain the complete header
+     */
+    public static int getMessageLength(ByteBuffer buffer) {
+        if (buffer.remaining() < HEADER_LENGTH) {
+            throw new BufferUnderflowException();
         }
-        return message;
+        return HEADER_LENGTH + (buffer.getShort(buffer.position() + LENGTH_OFFSET) & 0xFFFF);
     }
 }
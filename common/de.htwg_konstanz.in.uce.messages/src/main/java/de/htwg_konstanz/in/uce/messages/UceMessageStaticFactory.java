@@ -66,4 +66,41 @@ public final class UceMessageStaticFactory {
         }
         return newUceMessageInstance(method, semanticLevel, UUID.randomUUID());
     }
+
+    /**
+     * Returns an immutable copy of the given {@link UceMessage} whose wire
+     * form is encoded once. Attributes that are appended to the given message
+     * afterwards do not affect the copy.
+     * 
+     * @param message
+     *            the message to be frozen
+     * @return a {@link FrozenUceMessage} with the method, semantic level,
+     *         transaction id and attributes of the given message
+     * @throws NullPointerException
+     *             if the given message is null
+     */
+    public static FrozenUceMessage freeze(final UceMessage message) {
+        if (message == null) {
+            throw new NullPointerException();
+        }
+        if (message instanceof FrozenUceMessage) {
+            return (FrozenUceMessage) message;
+        }
+        return new FrozenUceMessage(message);
+    }
+
+    /**
+     * Hands the given {@link UceMessage} back for reuse by the next message
+     * that is decoded on the current thread. The message and its attribute
+     * list must not be used afterwards. Messages that are not poolable, for
+     * example frozen messages, are ignored.
+     * 
+     * @param message
+     *            the message that is no longer used, may be null
+     */
+    public static void recycle(final UceMessage message) {
+        if (message instanceof UceMessageImpl) {
+            UceMessagePool.release((UceMessageImpl) message);
+        }
+    }
 }
@@ -20,10 +20,13 @@ package de.htwg_konstanz.in.uce.messages;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
 import java.util.Arrays;
 
 /**
- * Uce attribute to represent a unique string username.
+ * Uce attribute to represent a unique string username. A decoded username
+ * keeps only its encoded bytes; the string is built when it is requested
+ * for the first time.
  * 
  * @author Daniel Maier
  * 
@@ -31,9 +34,11 @@ import java.util.Arrays;
 public final class UniqueUserName implements UceAttribute {
 
     private static final String STRING_ENCODING = "UTF-8";
+    private static final Charset CHARSET = Charset.forName(STRING_ENCODING);
     private static final int MAX_USERNAME_BYTES = 48;
-    private final String uniqueUserName;
     private final byte[] uniqueUserNameBytes;
+    // built from the bytes on first access if the username was decoded
+    private volatile String uniqueUserName;
 
     /**
      * Creates a new {@link UniqueUserName}.
@@ -57,6 +62,16 @@ public final class UniqueUserName implements UceAttribute {
         }
     }
 
+    /**
+     * Creates a new {@link UniqueUserName} from its encoded bytes.
+     * 
+     * @param uniqueUserNameBytes
+     *            the username encoded as UTF-8
+     */
+    private UniqueUserName(byte[] uniqueUserNameBytes) {
+        this.uniqueUserNameBytes = uniqueUserNameBytes;
+    }
+
     private static byte[] encodeUniqueUsername(String uniqueUserName)
             throws UnsupportedEncodingException {
         return uniqueUserName.getBytes(STRING_ENCODING);
@@ -71,7 +86,12 @@ public final class UniqueUserName implements UceAttribute {
     }
 
     public String getUniqueUserName() {
-        return uniqueUserName;
+        String name = uniqueUserName;
+        if (name == null) {
+            name = new String(uniqueUserNameBytes, CHARSET);
+            uniqueUserName = name;
+        }
+        return name;
     }
 
     public void writeTo(OutputStream out) throws IOException {
@@ -79,7 +99,8 @@ public final class UniqueUserName implements UceAttribute {
     }
 
     /**
-     * Decodes a unique username
+     * Decodes a unique username. The given array is not copied and must not
+     * be changed afterwards.
      * 
      * @param encoded
      *            the encoded username
@@ -90,16 +111,13 @@ public final class UniqueUserName implements UceAttribute {
      *             if an I/O error occurs
      */
     static UniqueUserName fromBytes(byte[] encoded, UceAttributeHeader header) throws IOException {
-        return new UniqueUserName(new String(encoded, STRING_ENCODING));
+        return new UniqueUserName(encoded);
     }
 
     @Override
     public int hashCode() {
-        final int prime = 31;
-        int result = 1;
-        result = prime * result + ((uniqueUserName == null) ? 0 : uniqueUserName.hashCode());
-        result = prime * result + Arrays.hashCode(uniqueUserNameBytes);
-        return result;
+        // the bytes determine the username, so the string is not built here
+        return Arrays.hashCode(uniqueUserNameBytes);
     }
 
     @Override
@@ -114,13 +132,6 @@ public final class UniqueUserName implements UceAttribute {
             return false;
         }
         UniqueUserName other = (UniqueUserName) obj;
-        if (uniqueUserName == null) {
-            if (other.uniqueUserName != null) {
-                return false;
-            }
-        } else if (!uniqueUserName.equals(other.uniqueUserName)) {
-            return false;
-        }
         if (!Arrays.equals(uniqueUserNameBytes, other.uniqueUserNameBytes)) {
             return false;
         }
@@ -0,0 +1,76 @@
+package de.htwg_konstanz.in.uce.messages;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.util.UUID;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FrozenUceMessageTest {
+
+    private UceMessage newKeepAlive() throws IOException {
+        return UceMessageStaticFactory.newUceMessageInstance(CommonUceMethod.KEEP_ALIVE,
+                SemanticLevel.REQUEST).addAttribute(new UniqueUserName("user"));
+    }
+
+    @Test
+    public void testFreeze() throws IOException {
+        UceMessage message = newKeepAlive();
+        FrozenUceMessage frozen = UceMessageStaticFactory.freeze(message);
+        byte[] expected = message.toByteArray();
+        // later changes do not affect the frozen message
+        message.addAttribute(new UniqueUserName("other"));
+
+        Assert.assertArrayEquals(expected, frozen.toByteArray());
+        ByteArrayOutputStream bout = new ByteArrayOutputStream();
+        frozen.writeTo(bout);
+        Assert.assertArrayEquals(expected, bout.toByteArray());
+        Assert.assertEquals(1, frozen.getAttributes(UniqueUserName.class).size());
+        Assert.assertEquals(expected.length - UceMessageReader.HEADER_LENGTH,
+                frozen.getLength());
+        Assert.assertSame(frozen, UceMessageStaticFactory.freeze(frozen));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testAddAttribute() throws IOException {
+        UceMessageStaticFactory.freeze(newKeepAlive()).addAttribute(
+                new UniqueUserName("other"));
+    }
+
+    @Test
+    public void testWithTransactionId() throws IOException {
+        FrozenUceMessage frozen = UceMessageStaticFactory.freeze(newKeepAlive());
+        UUID transactionId = UUID.randomUUID();
+        FrozenUceMessage copy = frozen.withTransactionId(transactionId);
+
+        Assert.assertEquals(transactionId, copy.getTransactionId());
+        Assert.assertEquals(transactionId, copy.buildSuccessResponse().getTransactionId());
+        UceMessage decoded = new UceMessageReader().readUceMessage(copy.toByteArray());
+        Assert.assertEquals(transactionId, decoded.getTransactionId());
+        Assert.assertEquals(frozen.getAttributes(), decoded.getAttributes());
+
+        ByteBuffer buffer = ByteBuffer.allocate(100);
+        frozen.writeTo(buffer, transactionId);
+        buffer.flip();
+        Assert.assertEquals(copy, UceMessageStaticFactory.freeze(new UceMessageReader()
+                .readUceMessage(buffer)));
+    }
+
+    @Test
+    public void testGatheringWrite() throws IOException {
+        FrozenUceMessage frozen = UceMessageStaticFactory.freeze(newKeepAlive());
+        Pipe pipe = Pipe.open();
+        frozen.writeTo(pipe.sink());
+        pipe.sink().close();
+
+        UceMessageFramer framer = new UceMessageFramer(new UceMessageReader());
+        while (framer.read(pipe.source()) >= 0) {
+            // read until end of stream
+        }
+        pipe.source().close();
+        Assert.assertEquals(frozen, UceMessageStaticFactory.freeze(framer.next()));
+    }
+}
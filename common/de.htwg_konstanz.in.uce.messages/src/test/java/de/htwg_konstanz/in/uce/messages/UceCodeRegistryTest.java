@@ -0,0 +1,110 @@
+package de.htwg_konstanz.in.uce.messages;
+
+import java.io.IOException;
+import java.util.UUID;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class UceCodeRegistryTest {
+
+    private enum TestUceMethod implements UceMethod {
+        FOO(0x23), CLASHING(0x1);
+
+        private final int encoded;
+
+        private TestUceMethod(int encoded) {
+            this.encoded = encoded;
+        }
+
+        public int encode() {
+            return encoded;
+        }
+    }
+
+    private enum TestUceAttributeType implements UceAttributeType {
+        BAR(0x4223);
+
+        private final int encoded;
+
+        private TestUceAttributeType(int encoded) {
+            this.encoded = encoded;
+        }
+
+        public int encode() {
+            return encoded;
+        }
+
+        public UceAttribute fromBytes(byte[] encoded, UceAttributeHeader header)
+                throws MessageFormatException, IOException {
+            return UniqueUserName.fromBytes(encoded, header);
+        }
+    }
+
+    @Test
+    public void testCommonRegistry() {
+        UceCodeRegistry registry = UceCodeRegistry.getCommonRegistry();
+        for (CommonUceMethod method : CommonUceMethod.values()) {
+            Assert.assertSame(method, registry.decodeMethod(method.encode()));
+        }
+        for (CommonUceAttributeType type : CommonUceAttributeType.values()) {
+            Assert.assertSame(type, registry.decodeAttributeType(type.encode()));
+        }
+        Assert.assertNull(registry.decodeMethod(TestUceMethod.FOO.encode()));
+        Assert.assertNull(registry.decodeMethod(-1));
+        Assert.assertNull(registry.decodeAttributeType(0xFFFF));
+    }
+
+    @Test
+    public void testCustomCodes() throws IOException {
+        UceCodeRegistry registry = new UceCodeRegistry.Builder()
+                .addMethods(TestUceMethod.FOO).addAttributeTypes(TestUceAttributeType.values())
+                .build();
+        Assert.assertSame(TestUceMethod.FOO, registry.decodeMethod(0x23));
+        Assert.assertSame(CommonUceMethod.LIST, registry.decodeMethod(0x1));
+        Assert.assertSame(TestUceAttributeType.BAR, registry.decodeAttributeType(0x4223));
+
+        UceMessage message = UceMessageStaticFactory.newUceMessageInstance(TestUceMethod.FOO,
+                SemanticLevel.REQUEST, UUID.randomUUID());
+        message.addAttribute(new UniqueUserName("foo"));
+        UceMessage decoded = new UceMessageReader(registry).readUceMessage(message.toByteArray());
+        Assert.assertEquals(message, decoded);
+    }
+
+    @Test
+    public void testSameMethodTwice() {
+        UceCodeRegistry registry = new UceCodeRegistry.Builder()
+                .addMethods(CommonUceMethod.values()).addMethods(TestUceMethod.FOO)
+                .addMethods(TestUceMethod.FOO).build();
+        Assert.assertSame(TestUceMethod.FOO, registry.decodeMethod(0x23));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateMethodCode() {
+        new UceCodeRegistry.Builder().addMethods(TestUceMethod.CLASHING);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateAttributeTypeCode() {
+        new UceCodeRegistry.Builder().addAttributeTypes(new UceAttributeType() {
+
+            public int encode() {
+                return CommonUceAttributeType.ERROR_CODE.encode();
+            }
+
+            public UceAttribute fromBytes(byte[] encoded, UceAttributeHeader header) {
+                return null;
+            }
+        });
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMethodCodeOutOfRange() {
+        new UceCodeRegistry.Builder().addMethods(new UceMethod() {
+
+            public int encode() {
+                return UceCodeRegistry.MAX_METHOD_CODE + 1;
+            }
+        });
+    }
+}
@@ -0,0 +1,82 @@
+package de.htwg_konstanz.in.uce.messages;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class UceMessageBatchTest {
+
+    private static UceMessage newMessage(String userName) throws IOException {
+        UceMessage message = UceMessageStaticFactory.newUceMessageInstance(
+                CommonUceMethod.KEEP_ALIVE, SemanticLevel.SUCCESS_RESPONSE, UUID.randomUUID());
+        message.addAttribute(new UniqueUserName(userName));
+        return message;
+    }
+
+    @Test
+    public void testReadBatch() throws IOException {
+        UceMessage first = newMessage("first");
+        UceMessage second = newMessage("second");
+        UceMessageBatch batch = new UceMessageBatch();
+        Assert.assertTrue(batch.isEmpty());
+        Assert.assertTrue(batch.add(first));
+        Assert.assertTrue(batch.add(second));
+        Assert.assertEquals(2, batch.size());
+        Assert.assertEquals(first.toByteArray().length + second.toByteArray().length,
+                batch.getLength());
+
+        ByteBuffer datagram = ByteBuffer.wrap(batch.toByteArray());
+        List<UceMessage> messages = new UceMessageReader().readUceMessages(datagram);
+        Assert.assertEquals(2, messages.size());
+        Assert.assertEquals(first, messages.get(0));
+        Assert.assertEquals(second, messages.get(1));
+        Assert.assertFalse(datagram.hasRemaining());
+    }
+
+    @Test
+    public void testSingleMessageBatch() throws IOException {
+        UceMessage message = newMessage("single");
+        UceMessageBatch batch = new UceMessageBatch();
+        batch.add(message);
+        Assert.assertArrayEquals(message.toByteArray(), batch.toByteArray());
+        Assert.assertEquals(message, new UceMessageReader().readUceMessage(batch.toByteArray()));
+    }
+
+    @Test
+    public void testFullBatch() throws IOException {
+        UceMessage message = newMessage("user");
+        int length = message.toByteArray().length;
+        UceMessageBatch batch = new UceMessageBatch(2 * length + 1);
+        Assert.assertTrue(batch.add(message));
+        Assert.assertTrue(batch.add(message));
+        Assert.assertFalse(batch.add(message));
+        Assert.assertEquals(2, batch.size());
+        Assert.assertEquals(2 * length, batch.getLength());
+
+        batch.clear();
+        Assert.assertTrue(batch.isEmpty());
+        Assert.assertEquals(0, batch.getLength());
+        Assert.assertTrue(batch.add(message));
+    }
+
+    @Test
+    public void testMessageTooLong() throws IOException {
+        UceMessageBatch batch = new UceMessageBatch(UceMessageReader.HEADER_LENGTH);
+        Assert.assertFalse(batch.add(newMessage("user")));
+        Assert.assertTrue(batch.isEmpty());
+    }
+
+    @Test(expected = EOFException.class)
+    public void testReadTruncatedBatch() throws IOException {
+        UceMessageBatch batch = new UceMessageBatch();
+        batch.add(newMessage("first"));
+        batch.add(newMessage("second"));
+        byte[] encoded = batch.toByteArray();
+        new UceMessageReader().readUceMessages(ByteBuffer.wrap(encoded, 0, encoded.length - 1));
+    }
+}
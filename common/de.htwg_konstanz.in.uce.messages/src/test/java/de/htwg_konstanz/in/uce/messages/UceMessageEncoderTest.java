@@ -0,0 +1,127 @@
+package de.htwg_konstanz.in.uce.messages;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.htwg_konstanz.in.uce.messages.SocketEndpoint.EndpointClass;
+
+public class UceMessageEncoderTest {
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+
+    @Test
+    public void testSameEncodingAsMessage() throws IOException {
+        UUID id = UUID.randomUUID();
+        List<String> strings = Arrays.asList("a", "\u00e4\u00f6\u00fc", repeat('x', 300));
+        SocketEndpoint endpoint = new SocketEndpoint(new InetSocketAddress("::1", 1234),
+                EndpointClass.PUBLIC);
+        UceMessage message = UceMessageStaticFactory.newUceMessageInstance(
+                CommonUceMethod.LIST, SemanticLevel.SUCCESS_RESPONSE, id);
+        message.addAttribute(new UniqueUserName("user\u00df"));
+        message.addAttribute(new StringList(strings));
+        message.addAttribute(endpoint);
+
+        ByteBuffer buffer = ByteBuffer.allocate(1000);
+        UceMessageEncoder encoder = new UceMessageEncoder(buffer, CommonUceMethod.LIST,
+                SemanticLevel.SUCCESS_RESPONSE, id);
+        encoder.addUniqueUserName("user\u00df").addStringList(strings).addAttribute(endpoint);
+        int length = encoder.finish();
+
+        Assert.assertEquals(message.toByteArray().length, length);
+        Assert.assertArrayEquals(message.toByteArray(), Arrays.copyOf(buffer.array(), length));
+        Assert.assertEquals(message, new UceMessageReader().readUceMessage(
+                Arrays.copyOf(buffer.array(), length)));
+    }
+
+    @Test
+    public void testOverflowKeepsMessage() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(UceMessageReader.HEADER_LENGTH + 20);
+        UceMessageEncoder encoder = new UceMessageEncoder(buffer, CommonUceMethod.LIST,
+                SemanticLevel.SUCCESS_RESPONSE, UUID.randomUUID());
+        encoder.addUniqueUserName("first");
+        int length = encoder.getLength();
+        try {
+            encoder.addUniqueUserName("second user name");
+            Assert.fail();
+        } catch (BufferOverflowException e) {
+            // expected
+        }
+        Assert.assertEquals(length, encoder.getLength());
+        encoder.finish();
+
+        buffer.flip();
+        UceMessage message = new UceMessageReader().readUceMessage(buffer);
+        Assert.assertEquals(1, message.getAttributes().size());
+        Assert.assertEquals("first", message.getAttribute(UniqueUserName.class)
+                .getUniqueUserName());
+    }
+
+    @Test
+    public void testBatchWithEncodedMessage() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(100);
+        UceMessageEncoder encoder = new UceMessageEncoder(buffer, CommonUceMethod.KEEP_ALIVE,
+                SemanticLevel.REQUEST, UUID.randomUUID());
+        encoder.addUniqueUserName("user");
+        encoder.finish();
+        buffer.flip();
+
+        UceMessageBatch batch = new UceMessageBatch();
+        Assert.assertTrue(batch.add(buffer));
+        Assert.assertTrue(batch.add(buffer));
+        Assert.assertEquals(0, buffer.position());
+        List<UceMessage> messages = new UceMessageReader().readUceMessages(ByteBuffer.wrap(batch
+                .toByteArray()));
+        Assert.assertEquals(2, messages.size());
+        Assert.assertEquals(messages.get(0), messages.get(1));
+    }
+
+    @Test
+    public void testTruncateWithListCursor() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(100);
+        UceMessageEncoder encoder = new UceMessageEncoder(buffer, CommonUceMethod.LIST,
+                SemanticLevel.SUCCESS_RESPONSE, UUID.randomUUID());
+        encoder.addUniqueUserName("first");
+        int length = encoder.getLength();
+        encoder.addUniqueUserName("second");
+        encoder.truncate(length);
+        ListCursor cursor = new ListCursor("first".getBytes("UTF-8"));
+        encoder.addAttribute(cursor);
+        encoder.finish();
+        buffer.flip();
+
+        UceMessage message = new UceMessageReader().readUceMessage(buffer);
+        Assert.assertEquals(2, message.getAttributes().size());
+        Assert.assertEquals("first", message.getAttribute(UniqueUserName.class)
+                .getUniqueUserName());
+        Assert.assertEquals(cursor, message.getAttribute(ListCursor.class));
+        Assert.assertArrayEquals("first".getBytes("UTF-8"), message.getAttribute(
+                ListCursor.class).getToken());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTruncateIntoHeader() {
+        UceMessageEncoder encoder = new UceMessageEncoder(ByteBuffer.allocate(100),
+                CommonUceMethod.LIST, SemanticLevel.SUCCESS_RESPONSE, UUID.randomUUID());
+        encoder.truncate(UceMessageReader.HEADER_LENGTH - 1);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testAddAfterFinish() {
+        UceMessageEncoder encoder = new UceMessageEncoder(ByteBuffer.allocate(100),
+                CommonUceMethod.KEEP_ALIVE, SemanticLevel.REQUEST, UUID.randomUUID());
+        encoder.finish();
+        encoder.addUniqueUserName("user");
+    }
+}
@@ -0,0 +1,113 @@
+package de.htwg_konstanz.in.uce.messages;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Pipe;
+import java.util.UUID;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class UceMessageFramerTest {
+
+    @Test
+    public void testFeedBytewise() throws IOException {
+        UceMessage small = new UceMessageImpl(CommonUceMethod.KEEP_ALIVE, SemanticLevel.REQUEST,
+                UUID.randomUUID());
+        UceMessage large = new UceMessageImpl(CommonUceMethod.LIST,
+                SemanticLevel.SUCCESS_RESPONSE, UUID.randomUUID());
+        for (int i = 0; i < 100; i++) {
+            large.addAttribute(new UniqueUserName("user" + i));
+        }
+        ByteBuffer encoded = ByteBuffer.allocate(small.getLength() + large.getLength() + 2
+                * UceMessageReader.HEADER_LENGTH);
+        small.writeTo(encoded);
+        large.writeTo(encoded);
+        encoded.flip();
+
+        UceMessageFramer framer = new UceMessageFramer(new UceMessageReader());
+        int received = 0;
+        while (encoded.hasRemaining()) {
+            ByteBuffer single = ByteBuffer.wrap(new byte[] { encoded.get() });
+            Assert.assertEquals(1, framer.feed(single));
+            UceMessage message = framer.next();
+            if (message != null) {
+                Assert.assertEquals(received == 0 ? small : large, message);
+                received++;
+            }
+        }
+        Assert.assertEquals(2, received);
+        Assert.assertEquals(0, framer.getBufferedBytes());
+        Assert.assertNull(framer.next());
+    }
+
+    @Test
+    public void testReadFromChannel() throws IOException {
+        Pipe pipe = Pipe.open();
+        pipe.source().configureBlocking(false);
+        UceMessage message = new UceMessageImpl(CommonUceMethod.REGISTER,
+                SemanticLevel.REQUEST, UUID.randomUUID()).addAttribute(new UniqueUserName(
+                "user"));
+        byte[] encoded = message.toByteArray();
+
+        UceMessageFramer framer = new UceMessageFramer(new UceMessageReader());
+        pipe.sink().write(ByteBuffer.wrap(encoded, 0, 10));
+        Assert.assertEquals(10, framer.read(pipe.source()));
+        Assert.assertNull(framer.next());
+        Assert.assertEquals(0, framer.read(pipe.source()));
+        pipe.sink().write(ByteBuffer.wrap(encoded, 10, encoded.length - 10));
+        framer.read(pipe.source());
+        Assert.assertEquals(message, framer.next());
+        Assert.assertNull(framer.next());
+
+        pipe.sink().close();
+        Assert.assertEquals(-1, framer.read(pipe.source()));
+        pipe.source().close();
+    }
+
+    @Test
+    public void testSkipMalformedMessage() throws IOException {
+        UceMessage message = new UceMessageImpl(CommonUceMethod.REGISTER,
+                SemanticLevel.REQUEST, UUID.randomUUID());
+        byte[] encoded = message.toByteArray();
+        byte[] malformed = encoded.clone();
+        // wrong magic
+        malformed[0] = 0;
+
+        UceMessageFramer framer = new UceMessageFramer(new UceMessageReader());
+        framer.feed(ByteBuffer.wrap(malformed));
+        framer.feed(ByteBuffer.wrap(encoded));
+        try {
+            framer.next();
+            Assert.fail();
+        } catch (MessageFormatException e) {
+            // expected
+        }
+        Assert.assertEquals(message, framer.next());
+    }
+
+    @Test
+    public void testSkipTruncatedUniqueId() throws IOException {
+        UceMessage message = new UceMessageImpl(CommonUceMethod.REGISTER,
+                SemanticLevel.REQUEST, UUID.randomUUID());
+        byte[] header = message.toByteArray();
+        // unique id attribute with only 3 bytes instead of the 16 bytes of a UUID
+        ByteBuffer malformed = ByteBuffer.allocate(header.length + 7);
+        malformed.put(header).putShort((short) CommonUceAttributeType.UNIQUE_ID.encode())
+                .putShort((short) 3).put(new byte[] { 1, 2, 3 });
+        malformed.putShort(2, (short) 7);
+        malformed.flip();
+
+        UceMessageFramer framer = new UceMessageFramer(new UceMessageReader());
+        framer.feed(malformed);
+        framer.feed(ByteBuffer.wrap(header));
+        try {
+            framer.next();
+            Assert.fail();
+        } catch (MessageFormatException e) {
+            // expected
+        }
+        Assert.assertEquals(message, framer.next());
+        Assert.assertEquals(0, framer.getBufferedBytes());
+    }
+}
@@ -22,6 +22,9 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.UUID;
 
 import org.junit.Assert;
@@ -82,4 +85,64 @@ public class UceMessageImplTest {
         Assert.assertArrayEquals(bout.toByteArray(), resultBout.toByteArray());
         
     }
+
+    @Test
+    public void testGetAttribute() throws IOException {
+        UceMessageImpl uceMessage = new UceMessageImpl(CommonUceMethod.LIST,
+                SemanticLevel.SUCCESS_RESPONSE, UUID.randomUUID());
+        UniqueUserName first = new UniqueUserName("first");
+        UniqueUserName second = new UniqueUserName("second");
+        UniqueId id = new UniqueId(UUID.randomUUID());
+        uceMessage.addAttribute(first).addAttribute(id).addAttribute(second);
+
+        Assert.assertSame(first, uceMessage.getAttribute(UniqueUserName.class));
+        Assert.assertSame(id, uceMessage.getAttribute(UniqueId.class));
+        Assert.assertTrue(uceMessage.hasAttribute(UniqueId.class));
+        Assert.assertFalse(uceMessage.hasAttribute(SocketEndpoint.class));
+        Assert.assertNull(uceMessage.getAttribute(SocketEndpoint.class));
+        List<UniqueUserName> userNames = uceMessage.getAttributes(UniqueUserName.class);
+        Assert.assertEquals(2, userNames.size());
+        Assert.assertSame(first, userNames.get(0));
+        Assert.assertSame(second, userNames.get(1));
+        Assert.assertTrue(uceMessage.getAttributes(SocketEndpoint.class).isEmpty());
+        Assert.assertEquals(3 * 4 + first.getLength() + id.getLength() + second.getLength(),
+                uceMessage.getLength());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testGetAttributesIsUnmodifiable() {
+        UceMessageImpl uceMessage = new UceMessageImpl(CommonUceMethod.LIST,
+                SemanticLevel.SUCCESS_RESPONSE, UUID.randomUUID());
+        uceMessage.getAttributes().add(new UniqueId(UUID.randomUUID()));
+    }
+
+    @Test
+    public void testWriteToByteBuffer() throws IOException {
+        UceMessageImpl uceMessage = new UceMessageImpl(CommonUceMethod.AUTHENTICATE,
+                SemanticLevel.SUCCESS_RESPONSE, UUID.randomUUID());
+        uceMessage.addAttribute(new SocketEndpoint(new InetSocketAddress(
+                InetAddress.getByName("192.145.2.3"), 1234), EndpointClass.PUBLIC));
+        byte[] expected = uceMessage.toByteArray();
+
+        ByteBuffer buffer = ByteBuffer.allocateDirect(expected.length);
+        uceMessage.writeTo(buffer);
+        Assert.assertFalse(buffer.hasRemaining());
+        buffer.flip();
+        byte[] result = new byte[buffer.remaining()];
+        buffer.get(result);
+        Assert.assertArrayEquals(expected, result);
+    }
+
+    @Test
+    public void testWriteToSmallByteBuffer() {
+        UceMessageImpl uceMessage = new UceMessageImpl(CommonUceMethod.AUTHENTICATE,
+                SemanticLevel.SUCCESS_RESPONSE, UUID.randomUUID());
+        ByteBuffer buffer = ByteBuffer.allocate(UceMessageReader.HEADER_LENGTH - 1);
+        try {
+            uceMessage.writeTo(buffer);
+            Assert.fail();
+        } catch (BufferOverflowException e) {
+            Assert.assertEquals(0, buffer.position());
+        }
+    }
 }
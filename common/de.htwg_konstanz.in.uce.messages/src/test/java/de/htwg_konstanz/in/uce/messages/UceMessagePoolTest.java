@@ -0,0 +1,89 @@
+package de.htwg_konstanz.in.uce.messages;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.UUID;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.htwg_konstanz.in.uce.messages.SocketEndpoint.EndpointClass;
+
+public class UceMessagePoolTest {
+
+    private static byte[] newEncodedMessage(String userName) throws IOException {
+        UceMessage message = UceMessageStaticFactory.newUceMessageInstance(
+                CommonUceMethod.REGISTER, SemanticLevel.REQUEST, UUID.randomUUID());
+        message.addAttribute(new UniqueUserName(userName));
+        message.addAttribute(new SocketEndpoint(new InetSocketAddress("127.0.0.1", 1234),
+                EndpointClass.PRIVATE));
+        return message.toByteArray();
+    }
+
+    @Test
+    public void testRecycledMessageIsReused() throws IOException {
+        UceMessageReader reader = new UceMessageReader();
+        UceMessage first = reader.readUceMessage(newEncodedMessage("first"));
+        UceMessageStaticFactory.recycle(first);
+
+        byte[] encoded = newEncodedMessage("second");
+        UceMessage second = reader.readUceMessage(encoded);
+        Assert.assertSame(first, second);
+        Assert.assertEquals(2, second.getAttributes().size());
+        Assert.assertEquals("second", second.getAttribute(UniqueUserName.class)
+                .getUniqueUserName());
+        Assert.assertArrayEquals(encoded, second.toByteArray());
+    }
+
+    @Test
+    public void testRecycleTwice() throws IOException {
+        UceMessage message = new UceMessageReader().readUceMessage(newEncodedMessage("user"));
+        int size = UceMessagePool.size();
+        UceMessageStaticFactory.recycle(message);
+        UceMessageStaticFactory.recycle(message);
+        Assert.assertTrue(UceMessagePool.size() <= size + 1);
+
+        UceMessageReader reader = new UceMessageReader();
+        UceMessage first = reader.readUceMessage(newEncodedMessage("first"));
+        UceMessage second = reader.readUceMessage(newEncodedMessage("second"));
+        Assert.assertNotSame(first, second);
+    }
+
+    @Test
+    public void testRecycleIgnoresOtherMessages() throws IOException {
+        UceMessage message = UceMessageStaticFactory.newUceMessageInstance(
+                CommonUceMethod.REGISTER, SemanticLevel.REQUEST);
+        UceMessageStaticFactory.recycle(UceMessageStaticFactory.freeze(message));
+        UceMessageStaticFactory.recycle(null);
+    }
+
+    @Test
+    public void testLazyAttributes() throws IOException {
+        UceMessage message = new UceMessageReader().readUceMessage(newEncodedMessage("user"));
+        UniqueUserName userName = message.getAttribute(UniqueUserName.class);
+        SocketEndpoint endpoint = message.getAttribute(SocketEndpoint.class);
+        Assert.assertEquals(new UniqueUserName("user"), userName);
+        Assert.assertEquals(new UniqueUserName("user").hashCode(), userName.hashCode());
+        Assert.assertEquals("user", userName.getUniqueUserName());
+        SocketEndpoint expected = new SocketEndpoint(new InetSocketAddress("127.0.0.1", 1234),
+                EndpointClass.PRIVATE);
+        Assert.assertEquals(expected, endpoint);
+        Assert.assertEquals(expected.hashCode(), endpoint.hashCode());
+        Assert.assertEquals(new InetSocketAddress("127.0.0.1", 1234), endpoint.getEndpoint());
+
+        StringList strings = new StringList(Arrays.asList("a", "bc", ""));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        strings.writeTo(out);
+        StringList decoded = (StringList) StringList.fromBytes(out.toByteArray(), null);
+        Assert.assertEquals(strings, decoded);
+        Assert.assertEquals(Arrays.asList("a", "bc", ""), decoded.getStrings());
+    }
+
+    @Test(expected = EOFException.class)
+    public void testTruncatedStringList() throws IOException {
+        StringList.fromBytes(new byte[] { 3, 'a', 'b' }, null);
+    }
+}
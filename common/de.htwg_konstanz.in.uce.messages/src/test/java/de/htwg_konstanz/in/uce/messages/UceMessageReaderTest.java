@@ -23,6 +23,8 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.UUID;
 
@@ -106,4 +108,45 @@ public class UceMessageReaderTest {
         List<SocketEndpoint> socketEndpoints = message.getAttributes(SocketEndpoint.class);
         Assert.assertEquals(socketEndpoints.get(0), endpoint);
     }
+
+    @Test
+    public void testReadUceMessageFromByteBuffer() throws IOException {
+        UceMessage first = new UceMessageImpl(CommonUceMethod.REGISTER, SemanticLevel.REQUEST,
+                UUID.randomUUID());
+        first.addAttribute(new UniqueUserName("user"));
+        UceMessage second = new UceMessageImpl(CommonUceMethod.KEEP_ALIVE,
+                SemanticLevel.INDICATION, UUID.randomUUID());
+        second.addAttribute(new SocketEndpoint(new InetSocketAddress(
+                InetAddress.getByName("192.145.2.3"), 1234), EndpointClass.PUBLIC));
+
+        ByteBuffer buffer = ByteBuffer.allocate(200);
+        buffer.position(3);
+        first.writeTo(buffer);
+        second.writeTo(buffer);
+        int end = buffer.position();
+        buffer.flip();
+        buffer.position(3);
+
+        UceMessageReader reader = new UceMessageReader();
+        Assert.assertEquals(first, reader.readUceMessage(buffer));
+        Assert.assertEquals(second, reader.readUceMessage(buffer));
+        Assert.assertEquals(end, buffer.position());
+    }
+
+    @Test
+    public void testReadTruncatedUceMessageFromByteBuffer() throws IOException {
+        UceMessage message = new UceMessageImpl(CommonUceMethod.REGISTER, SemanticLevel.REQUEST,
+                UUID.randomUUID());
+        message.addAttribute(new UniqueUserName("user"));
+        byte[] encoded = message.toByteArray();
+        ByteBuffer buffer = ByteBuffer.wrap(encoded, 0, encoded.length - 1);
+
+        try {
+            new UceMessageReader().readUceMessage(buffer);
+            Assert.fail();
+        } catch (BufferUnderflowException e) {
+            Assert.assertEquals(0, buffer.position());
+        }
+        Assert.assertEquals(encoded.length, UceMessageReader.getMessageLength(buffer));
+    }
 }
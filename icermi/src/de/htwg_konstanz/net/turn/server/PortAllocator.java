@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2026 HTWG Konstanz, Oliver Haase
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.htwg_konstanz.net.turn.server;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.net.ServerSocket;
+
+
+/**
+ * Allocates the ports of the relay addresses of a TURN-Server.
+ * The free ports of the port range are kept in a FIFO free list, so a relay address
+ * costs exactly one successful bind and released ports are reused as late as possible.
+ * 
+ * @author Andre Erb
+ * 
+ */
+public class PortAllocator {
+	private final int minPort;
+	private final int[] freePorts;
+	private final boolean[] reserved;
+	private int head;
+	private int freeCount;
+	private long insufficientCapacityCount;
+	
+	/**
+	 * Creates a PortAllocator.
+	 * 
+	 * @param minPort
+	 * 	The lowest port of the port range.
+	 * @param maxPort
+	 * 	The highest port of the port range.
+	 */
+	public PortAllocator(int minPort, int maxPort) {
+		if (minPort < 1 || maxPort > 65535 || minPort > maxPort) {
+			throw new IllegalArgumentException("Illegal port range " + minPort + "-" + maxPort);
+		}
+		this.minPort = minPort;
+		freePorts = new int[maxPort - minPort + 1];
+		reserved = new boolean[freePorts.length];
+		for (int i = 0; i < freePorts.length; i++) {
+			freePorts[i] = minPort + i;
+		}
+		freeCount = freePorts.length;
+	}
+	
+	
+	/**
+	 * Creates a ServerSocket on a free port of the port range. 
+	 * Ports that are in use by other processes are put back at the end of the free list.
+	 * 
+	 * @return
+	 * 	A bound ServerSocket, or null if no port of the port range could be bound.
+	 * @throws IOException 
+	 */
+	public ServerSocket createServerSocket() throws IOException {
+		int attempts = getFreePorts();
+		for (int i = 0; i < attempts; i++) {
+			int port = reserve();
+			if (port == -1) {
+				break;
+			}
+			try {
+				return new ServerSocket(port);
+			}
+			catch (BindException be) {
+				release(port);
+			}
+		}
+		synchronized (this) {
+			insufficientCapacityCount++;
+		}
+		return null;
+	}
+	
+	
+	/**
+	 * Releases the port of a ServerSocket that was created by this PortAllocator.
+	 * 
+	 * @param port
+	 * 	The port to be released.
+	 */
+	public synchronized void release(int port) {
+		int index = port - minPort;
+		if (index < 0 || index >= reserved.length || !reserved[index]) {
+			return;
+		}
+		reserved[index] = false;
+		freePorts[(head + freeCount) % freePorts.length] = port;
+		freeCount++;
+	}
+	
+	
+	/**
+	 * @return
+	 * 	The number of free ports.
+	 */
+	public synchronized int getFreePorts() {
+		return freeCount;
+	}
+	
+	
+	/**
+	 * @return
+	 * 	The number of relay addresses that could not be created, because no port was left.
+	 */
+	public synchronized long getInsufficientCapacityCount() {
+		return insufficientCapacityCount;
+	}
+	
+	
+	private synchronized int reserve() {
+		if (freeCount == 0) {
+			return -1;
+		}
+		int port = freePorts[head];
+		head = (head + 1) % freePorts.length;
+		freeCount--;
+		reserved[port - minPort] = true;
+		return port;
+	}
+}
@@ -32,6 +32,7 @@ public class TURNServer {
 	public static final int TURNSERVER_PORT = 9999;
 	
 	private ServerSocket mainServerSocket = null; 	
+	private final PortAllocator portAllocator;
 	
 	/**
      * Creates a TURN-Server.
@@ -41,9 +42,34 @@ public class TURNServer {
 	 * @throws IOException 
      */
 	public TURNServer(int port) throws IOException {
+		this(port, TURNServerThread.MIN_PORT, TURNServerThread.MAX_PORT);
+	}
+	
+	/**
+     * Creates a TURN-Server.
+     * 
+     * @param port
+     *            The port on which the TURN-Server listens for incoming RMI-Server connections.
+     * @param minPort
+     *            The lowest port of the relay addresses.
+     * @param maxPort
+     *            The highest port of the relay addresses.
+	 * @throws IOException 
+     */
+	public TURNServer(int port, int minPort, int maxPort) throws IOException {
+		portAllocator = new PortAllocator(minPort, maxPort);
 		mainServerSocket =  new ServerSocket(port);
 	}
 	
+	/**
+	 * @return
+	 * 	The PortAllocator of the relay addresses, that reports the number of free ports
+	 * 	and of relay addresses that could not be created.
+	 */
+	public PortAllocator getPortAllocator() {
+		return portAllocator;
+	}
+	
 	/**
      * Accepts incoming connections to the TURN-Server.
      * Each TURN-Server Client is handled in a different thread.
@@ -52,7 +78,7 @@ public class TURNServer {
 	public void acceptConnections() throws IOException {
 		while (!mainServerSocket.isClosed()) {
 			Socket socket = mainServerSocket.accept();
-			new TURNServerThread(socket).start();				
+			new TURNServerThread(socket, portAllocator).start();				
 		} 
 	}
 	
@@ -21,13 +21,11 @@ import java.io.InputStream;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.OutputStream;
-import java.net.BindException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.UnknownHostException;
-import java.util.Random;
 
 
 /**
@@ -39,26 +37,28 @@ import java.util.Random;
  */
 public class TURNServerThread extends Thread {
 	public static final int MIN_PORT = 10000;
-	public static final int MAX_PORT = 10100;
+	public static final int MAX_PORT = 20000;
 	
 	private ObjectInputStream ois = null;
 	private ObjectOutputStream oos = null;
 	private ServerSocket clientSS = null;
 	private ServerSocket serverSS = null;
-	private Random rand;
+	private final PortAllocator portAllocator;
 	
 	/**
 	 * Creates a TURNServerThread.
 	 * 
 	 * @param socket
 	 * 	A Socket that is connected to a RMI-Server.
+	 * @param portAllocator
+	 * 	The PortAllocator that provides the ports of the relay addresses.
 	 * @throws IOException 
 	 * 
 	 */
-	public TURNServerThread(Socket socket) throws IOException {
+	public TURNServerThread(Socket socket, PortAllocator portAllocator) throws IOException {
 		oos = new ObjectOutputStream(socket.getOutputStream());
 		ois = new ObjectInputStream(socket.getInputStream());
-		rand = new Random();
+		this.portAllocator = portAllocator;
 	}	
 	
 	
@@ -95,24 +95,18 @@ public class TURNServerThread extends Thread {
 		}	
 		catch (IOException e) {
 			e.printStackTrace();
-		}		
+		}
+		finally {
+			releaseRelayAddresses();
+		}
 	}
 	
 	
 	private ServerSocket createServerSocketWithinPortRange() throws IOException {
-		boolean bound;
-		ServerSocket ret = null;
-		do {
-			int port = rand.nextInt(MAX_PORT - MIN_PORT + 1) + MIN_PORT;
-			try {
-				ret = new ServerSocket(port);
-				bound = true;
-			}
-			catch ( BindException be) {
-				bound = false;
-			}
-		} while ( !bound );
-		
+		ServerSocket ret = portAllocator.createServerSocket();
+		if (ret == null) {
+			throw new IOException("Insufficient capacity: no free port for relay address");
+		}
 		return ret;
 	}
 
@@ -127,6 +121,23 @@ public class TURNServerThread extends Thread {
 		serverSS = createServerSocketWithinPortRange();	
 	}
 	
+	/**
+	 * Closes the relay addresses and releases their ports.
+	 * 
+	 */
+	private void releaseRelayAddresses() {
+		for (ServerSocket ss : new ServerSocket[] { clientSS, serverSS }) {
+			if (ss != null) {
+				try {
+					ss.close();
+				}
+				catch (IOException ignore) {
+				}
+				portAllocator.release(ss.getLocalPort());
+			}
+		}
+	}
+	
 	
 	private void sendToServer(String command, Object...args) throws IOException {
 		oos.writeObject(command);
@@ -42,6 +42,7 @@ public class RelaySocketFactory implements RMIServerSocketFactory, RMIClientSock
 
     private InetSocketAddress peerRelayEndpoint;
     private final InetSocketAddress relayServerEndpoint;
+    private final boolean multiplexed;
 
     /**
      * Creates a {@link RelaySocketFactory}.
@@ -51,7 +52,22 @@ public class RelaySocketFactory implements RMIServerSocketFactory, RMIClientSock
      *            control connections
      */
     public RelaySocketFactory(InetSocketAddress relayServerEndpoint) {
+        this(relayServerEndpoint, false);
+    }
+
+    /**
+     * Creates a {@link RelaySocketFactory}.
+     * 
+     * @param relayServerEndpoint
+     *            endpoint of the relay server on that it is waiting for new
+     *            control connections
+     * @param multiplexed
+     *            true if all connections of the server socket should be
+     *            relayed as streams over one multiplexed data connection
+     */
+    public RelaySocketFactory(InetSocketAddress relayServerEndpoint, boolean multiplexed) {
         this.relayServerEndpoint = relayServerEndpoint;
+        this.multiplexed = multiplexed;
     }
 
     /**
@@ -60,7 +76,8 @@ public class RelaySocketFactory implements RMIServerSocketFactory, RMIClientSock
      */
     public ServerSocket createServerSocket(int port) throws IOException {
         // TODO was wenn das mehrmals aufgerufen wird?
-        RelayClient relayClient = new RelayClient(relayServerEndpoint, port);
+        RelayClient relayClient = new RelayClient(relayServerEndpoint, null, port, 0, 0,
+                multiplexed);
         RelayServerSocket rss = new RelayServerSocket(relayClient);
         peerRelayEndpoint = rss.createAllocation();
         return rss;
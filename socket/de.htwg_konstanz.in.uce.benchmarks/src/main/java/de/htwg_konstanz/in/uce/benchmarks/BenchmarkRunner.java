@@ -0,0 +1,52 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the codec benchmarks with the GC profiler. Besides the throughput in
+ * operations per second the profiler reports the allocated bytes per
+ * operation ({@code gc.alloc.rate.norm}).
+ * 
+ * @author Daniel Maier
+ * 
+ */
+public class BenchmarkRunner {
+
+    /**
+     * Runs the benchmarks.
+     * 
+     * @param args
+     *            optional regular expression that selects the benchmarks to
+     *            run, by default all benchmarks of this package are run
+     * @throws RunnerException
+     *             if the benchmarks could not be run
+     */
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : BenchmarkRunner.class.getPackage()
+                .getName() + ".*Benchmark";
+        Options options = new OptionsBuilder().include(include).addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
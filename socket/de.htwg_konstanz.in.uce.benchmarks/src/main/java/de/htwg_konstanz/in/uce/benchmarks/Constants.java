@@ -1,5 +1,5 @@
 /**
- * Copyright (C) 2011 Daniel Maier
+ * Copyright (C) 2026 Daniel Maier
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -15,19 +15,30 @@
  * along with this program.  If not, see <http://www.gnu.org/licenses/>.
  */
 
-package de.htwg_konstanz.in.uce.messages;
+package de.htwg_konstanz.in.uce.benchmarks;
 
 /**
- * {@link UceAttributeTypeDecoder} to decode {@link UceAttributeType} that are
- * declared in the enum {@link CommonUceAttributeType}.
+ * Class to hold some constants for the codec benchmarks.
  * 
  * @author Daniel Maier
  * 
  */
-final class CommonUceAttributeTypeDecoder implements UceAttributeTypeDecoder {
-
-    public UceAttributeType decode(int encoded) {
-        return CommonUceAttributeType.fromEncoded(encoded);
-    }
+public class Constants {
 
+    /**
+     * Number of warmup iterations of each benchmark.
+     */
+    public static final int WARMUP_ITERATIONS = 5;
+    /**
+     * Number of measurement iterations of each benchmark.
+     */
+    public static final int MEASUREMENT_ITERATIONS = 10;
+    /**
+     * Number of forked JVMs for each benchmark.
+     */
+    public static final int FORKS = 1;
+    /**
+     * Number of strings in benchmarked string lists and list responses.
+     */
+    public static final int STRING_LIST_SIZE = 20;
 }
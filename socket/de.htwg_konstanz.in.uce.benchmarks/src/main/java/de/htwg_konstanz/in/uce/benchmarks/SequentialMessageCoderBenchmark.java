@@ -0,0 +1,120 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.htwg_konstanz.in.hp.sequential.message.ConnectionRequestDetailsMessage;
+import de.htwg_konstanz.in.hp.sequential.message.LookupResponseMessage;
+import de.htwg_konstanz.in.hp.sequential.message.Message;
+import de.htwg_konstanz.in.hp.sequential.message.RegisterMessage;
+import de.htwg_konstanz.in.hp.sequential.message.coder.MessageDecoder;
+import de.htwg_konstanz.in.hp.sequential.message.coder.MessageEncoder;
+
+/**
+ * Benchmarks the {@link MessageEncoder} and {@link MessageDecoder} of the
+ * sequential hole punching. The benchmarked message is chosen by the
+ * {@link #message} parameter.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = Constants.WARMUP_ITERATIONS)
+@Measurement(iterations = Constants.MEASUREMENT_ITERATIONS)
+@Fork(Constants.FORKS)
+public class SequentialMessageCoderBenchmark {
+
+    /**
+     * The kind of the benchmarked message.
+     */
+    @Param({ "REGISTER", "LOOKUP_RESPONSE", "CONNECTION_REQUEST_DETAILS" })
+    public String message;
+
+    private MessageEncoder encoder;
+    private RegisterMessage registerMessage;
+    private LookupResponseMessage lookupResponseMessage;
+    private ConnectionRequestDetailsMessage connectionRequestDetailsMessage;
+    private byte[] encoded;
+
+    /**
+     * Creates the messages and encodes the message of this trial once for
+     * the decode benchmark.
+     * 
+     * @throws IOException
+     *             if the message could not be encoded
+     */
+    @Setup
+    public void setUp() throws IOException {
+        encoder = new MessageEncoder();
+        InetAddress publicIP = InetAddress.getByName("141.37.121.42");
+        registerMessage = new RegisterMessage("target@example.org");
+        lookupResponseMessage = new LookupResponseMessage(publicIP, 50123);
+        connectionRequestDetailsMessage = new ConnectionRequestDetailsMessage(publicIP, 50123,
+                true);
+        encoded = encode();
+    }
+
+    /**
+     * Encodes the message.
+     * 
+     * @return the encoded message
+     * @throws IOException
+     *             if the message could not be encoded
+     */
+    @Benchmark
+    public byte[] encode() throws IOException {
+        if ("REGISTER".equals(message)) {
+            return encoder.encodeMessage(registerMessage);
+        } else if ("LOOKUP_RESPONSE".equals(message)) {
+            return encoder.encodeMessage(lookupResponseMessage);
+        } else if ("CONNECTION_REQUEST_DETAILS".equals(message)) {
+            return encoder.encodeMessage(connectionRequestDetailsMessage);
+        }
+        throw new IllegalArgumentException("Unknown message: " + message);
+    }
+
+    /**
+     * Decodes the message.
+     * 
+     * @return the decoded message
+     * @throws IOException
+     *             if the message could not be decoded
+     */
+    @Benchmark
+    public Message decode() throws IOException {
+        return new MessageDecoder(new ByteArrayInputStream(encoded)).decodeMessage();
+    }
+}
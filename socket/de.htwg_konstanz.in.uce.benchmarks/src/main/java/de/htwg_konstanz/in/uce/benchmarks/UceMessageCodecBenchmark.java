@@ -0,0 +1,177 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.benchmarks;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.htwg_konstanz.in.uce.messages.CommonUceMethod;
+import de.htwg_konstanz.in.uce.messages.ErrorCode;
+import de.htwg_konstanz.in.uce.messages.FrozenUceMessage;
+import de.htwg_konstanz.in.uce.messages.SemanticLevel;
+import de.htwg_konstanz.in.uce.messages.SocketEndpoint;
+import de.htwg_konstanz.in.uce.messages.SocketEndpoint.EndpointClass;
+import de.htwg_konstanz.in.uce.messages.StringList;
+import de.htwg_konstanz.in.uce.messages.UceMessage;
+import de.htwg_konstanz.in.uce.messages.UceMessageReader;
+import de.htwg_konstanz.in.uce.messages.UceMessageStaticFactory;
+import de.htwg_konstanz.in.uce.messages.UniqueUserName;
+
+/**
+ * Benchmarks encoding and decoding of uce messages. Each message carries one
+ * kind of attribute, chosen by the {@link #attribute} parameter. The stream
+ * and byte array API is measured as well as the in place {@link ByteBuffer}
+ * codec and {@link FrozenUceMessage frozen messages}.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = Constants.WARMUP_ITERATIONS)
+@Measurement(iterations = Constants.MEASUREMENT_ITERATIONS)
+@Fork(Constants.FORKS)
+public class UceMessageCodecBenchmark {
+
+    /**
+     * The kind of attribute the benchmarked message carries.
+     */
+    @Param({ "SOCKET_ENDPOINT_IPV4", "SOCKET_ENDPOINT_IPV6", "STRING_LIST", "ERROR_CODE",
+            "UNIQUE_USER_NAME" })
+    public String attribute;
+
+    private UceMessageReader reader;
+    private UceMessage message;
+    private FrozenUceMessage frozen;
+    private byte[] encoded;
+    private ByteBuffer buffer;
+
+    /**
+     * Creates the message with the attribute of this trial and encodes it
+     * once for the decode benchmarks.
+     * 
+     * @throws IOException
+     *             if the attribute could not be created
+     */
+    @Setup
+    public void setUp() throws IOException {
+        reader = new UceMessageReader();
+        message = UceMessageStaticFactory.newUceMessageInstance(CommonUceMethod.LIST,
+                SemanticLevel.SUCCESS_RESPONSE, UUID.randomUUID());
+        if ("SOCKET_ENDPOINT_IPV4".equals(attribute)) {
+            message.addAttribute(new SocketEndpoint(new InetSocketAddress(InetAddress
+                    .getByName("192.168.23.42"), 40123), EndpointClass.PUBLIC));
+        } else if ("SOCKET_ENDPOINT_IPV6".equals(attribute)) {
+            message.addAttribute(new SocketEndpoint(new InetSocketAddress(InetAddress
+                    .getByName("2001:db8::23:42"), 40123), EndpointClass.PUBLIC));
+        } else if ("STRING_LIST".equals(attribute)) {
+            List<String> strings = new ArrayList<String>();
+            for (int i = 0; i < Constants.STRING_LIST_SIZE; i++) {
+                strings.add("target-" + i);
+            }
+            message.addAttribute(new StringList(strings));
+        } else if ("ERROR_CODE".equals(attribute)) {
+            message.addAttribute(new ErrorCode(400, "Bad Request"));
+        } else if ("UNIQUE_USER_NAME".equals(attribute)) {
+            message.addAttribute(new UniqueUserName("target@example.org"));
+        } else {
+            throw new IllegalArgumentException("Unknown attribute: " + attribute);
+        }
+        frozen = UceMessageStaticFactory.freeze(message);
+        encoded = message.toByteArray();
+        buffer = ByteBuffer.allocate(encoded.length);
+    }
+
+    /**
+     * Encodes the message into a new byte array.
+     * 
+     * @return the encoded message
+     */
+    @Benchmark
+    public byte[] encodeToByteArray() {
+        return message.toByteArray();
+    }
+
+    /**
+     * Encodes the message into a reused buffer.
+     * 
+     * @return the buffer with the encoded message
+     */
+    @Benchmark
+    public ByteBuffer encodeToByteBuffer() {
+        buffer.clear();
+        message.writeTo(buffer);
+        return buffer;
+    }
+
+    /**
+     * Writes the frozen message with a patched transaction id into a reused
+     * buffer.
+     * 
+     * @return the buffer with the encoded message
+     */
+    @Benchmark
+    public ByteBuffer writeFrozen() {
+        buffer.clear();
+        frozen.writeTo(buffer, message.getTransactionId());
+        return buffer;
+    }
+
+    /**
+     * Decodes the message from a byte array.
+     * 
+     * @return the decoded message
+     * @throws IOException
+     *             if the message could not be decoded
+     */
+    @Benchmark
+    public UceMessage decodeFromByteArray() throws IOException {
+        return reader.readUceMessage(encoded);
+    }
+
+    /**
+     * Decodes the message in place from a buffer.
+     * 
+     * @return the decoded message
+     * @throws IOException
+     *             if the message could not be decoded
+     */
+    @Benchmark
+    public UceMessage decodeFromByteBuffer() throws IOException {
+        return reader.readUceMessage(ByteBuffer.wrap(encoded));
+    }
+}
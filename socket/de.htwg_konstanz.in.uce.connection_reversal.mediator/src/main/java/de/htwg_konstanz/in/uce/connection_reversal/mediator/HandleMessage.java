@@ -22,16 +22,22 @@ import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Iterator;
 import java.util.UUID;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import de.htwg_konstanz.in.uce.messages.CommonUceMethod;
+import de.htwg_konstanz.in.uce.messages.ListCursor;
 import de.htwg_konstanz.in.uce.messages.MessageFormatException;
 import de.htwg_konstanz.in.uce.messages.SemanticLevel;
 import de.htwg_konstanz.in.uce.messages.SocketEndpoint;
 import de.htwg_konstanz.in.uce.messages.UceMessage;
+import de.htwg_konstanz.in.uce.messages.UceMessageBatch;
+import de.htwg_konstanz.in.uce.messages.UceMessageEncoder;
 import de.htwg_konstanz.in.uce.messages.UceMessageReader;
 import de.htwg_konstanz.in.uce.messages.UceMessageStaticFactory;
 import de.htwg_konstanz.in.uce.messages.UniqueUserName;
@@ -48,12 +54,18 @@ import de.htwg_konstanz.in.uce.messages.SocketEndpoint.EndpointClass;
  */
 public class HandleMessage implements Runnable {
 	
-	private DatagramSocket datagramSocket;
+	private MessageSender messageSender;
 	private UceMessage uceRequestMessage;
 	private InetAddress sourceAddress;
 	private int sourcePort;
-	private byte[] data;
+	private ByteBuffer data;
 	private static final Logger logger = LoggerFactory.getLogger(HandleMessage.class);
+	private static final UceMessageReader uceMessageReader = new UceMessageReader();
+	
+	/**
+	 * Maximale Gre einer Seite der Benutzerliste in Bytes
+	 */
+	static final int LIST_PAGE_LENGTH = UceMessageBatch.DEFAULT_MAX_LENGTH;
 	
 	/**
 	 * Konstruktor, initialisiert alle Objekte (logger, socket, port, ...)
@@ -63,11 +75,22 @@ public class HandleMessage implements Runnable {
 	 */
 	public HandleMessage(DatagramPacket datagramPacket, DatagramSocket datagramSocket) {
 		
+		this(datagramPacket, new MessageSender(datagramSocket));
+	}
+	
+	/**
+	 * Konstruktor, die Antwortnachrichten werden ber den MessageSender versendet
+	 * 
+	 * @param datagramPacket Muss die Nachricht die empfangen wurde enthalten
+	 * @param messageSender Sender ber den die Antwort versendet werden kann
+	 */
+	public HandleMessage(DatagramPacket datagramPacket, MessageSender messageSender) {
+		
 		sourceAddress = datagramPacket.getAddress();
 		sourcePort = datagramPacket.getPort();
-		data = datagramPacket.getData();
+		data = ByteBuffer.wrap(datagramPacket.getData(), datagramPacket.getOffset(), datagramPacket.getLength());
 		
-		this.datagramSocket = datagramSocket;
+		this.messageSender = messageSender;
 	}
 	
 	/**
@@ -79,8 +102,6 @@ public class HandleMessage implements Runnable {
 	 */
 	public void run() {
 		
-		UceMessageReader uceMessageReader = new UceMessageReader();
-		
 		try {
 			
 			uceRequestMessage = uceMessageReader.readUceMessage(data);
@@ -103,6 +124,12 @@ public class HandleMessage implements Runnable {
 			
 			e.printStackTrace();
 		}
+		finally {
+			
+			// die Anfrage-Nachricht wird nicht mehr gebraucht und kann wiederverwendet werden
+			UceMessageStaticFactory.recycle(uceRequestMessage);
+			uceRequestMessage = null;
+		}
 	}
 	
 	/**
@@ -136,67 +163,97 @@ public class HandleMessage implements Runnable {
 	}
 	
 	/**
-	 * Sendet Liste der Registrierten Benutzer.
+	 * Sendet eine Seite der Liste der registrierten Benutzer.
 	 * 
 	 * Die Benutzerliste wird aus dem Singleton UserList ausgelesen, in eine entsprechende
 	 * Nachricht mit der gleichen Nachrichten-ID verpackt und an den Anfrager zurck gesendet.
 	 * 
+	 * Eine Antwort ist hchstens LIST_PAGE_LENGTH Bytes gro, damit sie ohne Fragmentierung
+	 * in ein Datagramm passt. Folgen weitere Benutzer, enthlt die Antwort einen ListCursor
+	 * mit dem letzten Benutzernamen der Seite. Die nchste Anfrage schickt diesen ListCursor
+	 * unverndert mit und bekommt die Benutzer nach diesem Namen. Da die Benutzer sortiert
+	 * sind, bleibt die Position auch gltig, wenn sich zwischen zwei Anfragen Benutzer
+	 * an- oder abmelden.
+	 * 
 	 * @throws IOException
 	 */
 	private void list() throws IOException {
 		
+		String cursorUserName = null;
+		
+		if (uceRequestMessage.hasAttribute(ListCursor.class)) {
+			
+			byte[] token = uceRequestMessage.getAttribute(ListCursor.class).getToken();
+			cursorUserName = new String(token, "UTF-8");
+		}
+		
+		UUID uuid = uceRequestMessage.getTransactionId();
+		
 		/*
-		 * TODO:
-		 * 
-		 * Was passiert bei einem aufgeteilten UDP Packet,
-		 * also wenn das Packet grer als 65536 Bytes ist?!?
-		 * 
-		 * 65536 ist ein theoretisch mglicher Wert.
-		 * Tatschlich sollte ein Packet nicht grer als 512 Byte sein
-		 * Das liegt an der MTU, die zu groe packete in mehrere kleine teilt
-		 * wenn das passiert, knnen die nachrichten nicht mehr interpretiert werden
-		 * 
-		 * LSUNGSANSTZE:
-		 * - mehrere nachrichten mit 1-9 nutzern und einem flag damit man wei ob weitere nachrichten kommen
-		 * - benutzerliste mit neu aufgebautem tcp-socket versenden, dann ist die gre der nachricht egal
-		 * 
-		 * bei 512 byte sind maximal 9 nutzer pro nachricht mglich:
-		 * #########################################################
-		 *  20 Bytes Grundnachricht Header mit uuid und so
-		 *  52 Bytes UniqueUserName (UserName[48]+Header[4])
-		 * --------------------------------------...
-		 *  72 Bytes Gesamt bei einem Nutzer
-		 * ---------------------------------
-		 * 488 Bytes Gesamt bei 9 Nutzern
-		 * ==============================
-		 * 512 - 488 = 24 Bytes stehen noch fr ein Flag-Attribut zur Verfgung
-		 * Dieses Flag-Attribut kann dann mitteilen das es Nachricht x von y ist
-		 * oder einfach ob noch weitere folgen, das kann aber wegen einer evtl.
-		 * falschen reihenfolge der eintreffenden packete schief gehen...
-		 * uuid sollte bei jeder nachricht gleich sein, damit man sie zuordnen kann
-		 * alternativ knnte die zuordnung auch ber das flag-attribut funktionieren
-		 * 
+		 * Die Benutzernamen werden direkt in den Puffer kodiert, ohne UniqueUserName Objekte.
+		 * Der ListCursor ist so gro wie das Attribut des letzten Benutzernamens der Seite,
+		 * nach jedem Benutzernamen muss also noch so viel Platz frei bleiben, auch nach dem
+		 * ersten. So ist eine Seite nie grer als LIST_PAGE_LENGTH.
 		 */
+		ByteBuffer buffer = ByteBuffer.allocate(LIST_PAGE_LENGTH);
+		UceMessageEncoder encoder = new UceMessageEncoder(buffer, CommonUceMethod.LIST,
+				SemanticLevel.SUCCESS_RESPONSE, uuid);
 		
-		UUID uuid = uceRequestMessage.getTransactionId();
+		String lastUserName = null;
+		boolean morePages = false;
 		
-		UceMessage uceResponseMessage = UceMessageStaticFactory.newUceMessageInstance(
-				CommonUceMethod.LIST, SemanticLevel.SUCCESS_RESPONSE, uuid);
+		logger.info("create list of users after {}", cursorUserName);
+		Iterator<String> userNames = UserList.getInstance().getUserNamesAfter(cursorUserName).iterator();
 		
-		logger.info("create list of users");
-		for (String userName : UserList.getInstance().getUserNames()) {
+		while (userNames.hasNext()) {
+			
+			String userName = userNames.next();
+			int length = encoder.getLength();
+			
+			try {
+				
+				encoder.addUniqueUserName(userName);
+			}
+			catch (BufferOverflowException e) {
+				
+				// kann beim ersten Benutzernamen nicht passieren, da Anfragen nicht grer sind
+				if (lastUserName == null) throw e;
+				
+				morePages = true;
+				break;
+			}
 			
-			UniqueUserName uniqueUserName = new UniqueUserName(userName);
+			if (userNames.hasNext() && buffer.remaining() < encoder.getLength() - length) {
+				
+				encoder.truncate(length);
+				
+				if (lastUserName == null) {
+					
+					/*
+					 * Der erste Benutzername passt nur ohne ListCursor in eine Seite. Er wird
+					 * bersprungen, sonst kme die Liste an dieser Stelle nie weiter.
+					 */
+					logger.warn("user name too long for a page of the list ({})", userName);
+					lastUserName = userName;
+				}
+				
+				morePages = true;
+				break;
+			}
 			
-			uceResponseMessage.addAttribute(uniqueUserName);
+			lastUserName = userName;
 		}
 		
-		byte[] buf = uceResponseMessage.toByteArray();
+		if (morePages) {
+			
+			encoder.addAttribute(new ListCursor(lastUserName.getBytes("UTF-8")));
+		}
 		
-		DatagramPacket datagramPacket = new DatagramPacket(buf, buf.length, sourceAddress, sourcePort);
+		encoder.finish();
+		buffer.flip();
 		
 		logger.info("send list of users");
-		datagramSocket.send(datagramPacket);
+		messageSender.send(buffer, new InetSocketAddress(sourceAddress, sourcePort));
 	}
 	
 	/**
@@ -267,14 +324,8 @@ public class HandleMessage implements Runnable {
 		
 		uceResponseMessage.addAttribute(newSocketEndpoint);
 		
-		byte[] buf = uceResponseMessage.toByteArray();
-		
-		DatagramPacket datagramPacket = new DatagramPacket(buf, buf.length);
-		datagramPacket.setAddress(targetAddress.getAddress());
-		datagramPacket.setPort(targetAddress.getPort());
-		
 		logger.info("send successResponse and tcp address {}:{} to target", sourceAddress, tcpSourcePort);
-		datagramSocket.send(datagramPacket);
+		messageSender.send(uceResponseMessage, targetAddress);
 	}
 	
 	/**
@@ -391,19 +442,11 @@ public class HandleMessage implements Runnable {
 	 */
 	private void sendSuccessResponse(UceMessage uceMessage) throws IOException {
 		
-		byte[] buffer;
 		UceMessage uceResponseMessage;
-		DatagramPacket datagramPacket;
 		
 		uceResponseMessage = uceRequestMessage.buildSuccessResponse();
 		
-		buffer = uceResponseMessage.toByteArray();
-		
-		datagramPacket = new DatagramPacket(buffer, buffer.length);
-		datagramPacket.setAddress(sourceAddress);
-		datagramPacket.setPort(sourcePort);
-		
-		datagramSocket.send(datagramPacket);
+		messageSender.send(uceResponseMessage, new InetSocketAddress(sourceAddress, sourcePort));
 	}
 	
 	/**
@@ -416,18 +459,10 @@ public class HandleMessage implements Runnable {
 	 */
 	private void sendErrorResponse(UceMessage uceMessage, int errorCode, String errorMessage) throws IOException {
 		
-		byte[] buffer;
 		UceMessage uceResponseMessage;
-		DatagramPacket datagramPacket;
 		
 		uceResponseMessage = uceRequestMessage.buildErrorResponse(errorCode, errorMessage);
 		
-		buffer = uceResponseMessage.toByteArray();
-		
-		datagramPacket = new DatagramPacket(buffer, buffer.length);
-		datagramPacket.setAddress(sourceAddress);
-		datagramPacket.setPort(sourcePort);
-		
-		datagramSocket.send(datagramPacket);
+		messageSender.send(uceResponseMessage, new InetSocketAddress(sourceAddress, sourcePort));
 	}
 }
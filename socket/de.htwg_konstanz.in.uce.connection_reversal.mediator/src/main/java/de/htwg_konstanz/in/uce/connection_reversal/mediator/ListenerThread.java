@@ -21,12 +21,15 @@ import java.io.IOException;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.SocketException;
+import java.util.Arrays;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import de.htwg_konstanz.in.uce.messages.UceMessageBatch;
+
 /**
  * Listener Class. Listens on UPD-Socket for incoming messages.
  * These messages get interpreted in the HandleMessage class.
@@ -37,6 +40,7 @@ public class ListenerThread extends Thread {
 	
 	private Executor executor;
 	private DatagramSocket datagramSocket;
+	private MessageSender messageSender;
 	private static final Logger logger = LoggerFactory.getLogger(ListenerThread.class);
 	
 	/**
@@ -46,11 +50,28 @@ public class ListenerThread extends Thread {
 	 */
 	public ListenerThread(int port) {
 		
+		this(port, 0);
+	}
+	
+	/**
+	 * Constructor; initializes DatagramSocket, Logger, Executors
+	 * 
+	 * Responses to the same receiver within the flush window are sent
+	 * together in one datagram. This requires that all targets and sources
+	 * can read datagrams with several messages.
+	 * 
+	 * @param port Port number to listen on
+	 * @param flushWindowInMillis Flush window for batches in milliseconds, 0 for no batches
+	 */
+	public ListenerThread(int port, int flushWindowInMillis) {
+		
 		executor = Executors.newCachedThreadPool();
 		
 		try {
 			
 			this.datagramSocket = new DatagramSocket(port);
+			this.messageSender = new MessageSender(datagramSocket, flushWindowInMillis,
+					UceMessageBatch.DEFAULT_MAX_LENGTH);
 			
 			logger.info("Mediator listening on Port {}", port);
 		}
@@ -69,23 +90,29 @@ public class ListenerThread extends Thread {
 		
 		try {
 			
+			/*
+			 * Die Anfragen waren bisher hchstens 94 Bytes gro:
+			 * 20 Bytes Header, 22 Bytes SocketEndpoint (IPv6), 52 Bytes UniqueUserName.
+			 * Damit auch Anfragen mit ListCursor und lngeren Benutzernamen
+			 * vollstndig gelesen werden, wird ein ganzes Datagramm ohne
+			 * Fragmentierung gelesen. Benutzernamen passen so immer in eine Seite der Benutzerliste.
+			 * Der Empfangspuffer wird wiederverwendet, an HandleMessage wird nur
+			 * eine Kopie der empfangenen Bytes bergeben.
+			 */
+			
+			byte[] receiveBuffer = new byte[HandleMessage.LIST_PAGE_LENGTH];
+			DatagramPacket receivePacket = new DatagramPacket(receiveBuffer, receiveBuffer.length);
+			
 			while (!isInterrupted()) {
 				
-				/*
-				 * Maximale Gre anhand der grt mglichen Nachricht:
-				 * ####################################################
-				 * 20 Bytes Grundnachricht Header mit uuid und so
-				 * 22 Bytes Maximal fr den SocketEndpoint (IPv6[16]+Port[2]+Header[4])
-				 * 52 Bytes UniqueUserName (UserName[48]+Header[4])
-				 * --------------------------------------...
-				 * 94 Bytes Gesamt (Maximalgre)
-				 * ==============================
-				 */
+				receivePacket.setLength(receiveBuffer.length);
+				datagramSocket.receive(receivePacket);
 				
-				DatagramPacket datagramPacket = new DatagramPacket(new byte[94], 94);
-				datagramSocket.receive(datagramPacket);
+				int length = receivePacket.getLength();
+				DatagramPacket datagramPacket = new DatagramPacket(
+						Arrays.copyOf(receiveBuffer, length), length, receivePacket.getSocketAddress());
 				
-				HandleMessage handleMessage = new HandleMessage(datagramPacket, datagramSocket);
+				HandleMessage handleMessage = new HandleMessage(datagramPacket, messageSender);
 				
 				executor.execute(handleMessage);
 			}
@@ -37,19 +37,22 @@ import org.slf4j.LoggerFactory;
 public class Mediator {
 	
 	/**
-	 * @param args arg0: listenerPort;  arg1: iterationTimeInSeconds; arg2: maxLifeTimeInSeconds
+	 * @param args arg0: listenerPort;  arg1: iterationTimeInSeconds; arg2: maxLifeTimeInSeconds;
+	 * optional arg3: flushWindowInMillis, responses to the same receiver within this time
+	 * are sent together in one datagram (only for targets and sources which can read them)
 	 */
 	public static void main(String[] args) {
 		
 		int listenerPort;
 		int iterationTimeInSeconds;
 		int maxLifeTimeInSeconds;
+		int flushWindowInMillis = 0;
 		Logger logger = LoggerFactory.getLogger("Mediator");
 		
-		if (args.length != 3) {
+		if (args.length != 3 && args.length != 4) {
 			
-			logger.error("Illegal count of arguments, exact three arguments expected");
-			logger.error("listenerPort, iterationTimeInSeconds, maxLifeTimeInSeconds");
+			logger.error("Illegal count of arguments, three or four arguments expected");
+			logger.error("listenerPort, iterationTimeInSeconds, maxLifeTimeInSeconds [, flushWindowInMillis]");
 			System.exit(1);
 		}
 		
@@ -58,6 +61,7 @@ public class Mediator {
 			listenerPort = Integer.parseInt(args[0]);
 			iterationTimeInSeconds = Integer.parseInt(args[1]);
 			maxLifeTimeInSeconds = Integer.parseInt(args[2]);
+			if (args.length == 4) flushWindowInMillis = Integer.parseInt(args[3]);
 		}
 		catch (Exception e) {
 			
@@ -66,7 +70,7 @@ public class Mediator {
 			return;
 		}
 		
-		ListenerThread listenerThread = new ListenerThread(listenerPort);
+		ListenerThread listenerThread = new ListenerThread(listenerPort, flushWindowInMillis);
 		UserCleaner userCleaner = new UserCleaner(iterationTimeInSeconds, maxLifeTimeInSeconds);
 		
 		listenerThread.start();
@@ -0,0 +1,293 @@
+/**
+ * Copyright (C) 2026 Stefan Lohr
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.connection_reversal.mediator;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.htwg_konstanz.in.uce.messages.UceMessage;
+import de.htwg_konstanz.in.uce.messages.UceMessageBatch;
+
+/**
+ * Class which sends the outgoing messages of the mediator.
+ * 
+ * Without flush window every message is sent immediately as its own datagram.
+ * With flush window the messages to the same receiver are collected in an
+ * UceMessageBatch and sent together as one datagram, as soon as the flush window
+ * is over or the batch is full. This reduces the number of datagrams when many
+ * messages are sent to the same receiver, e.g. responses to a burst of requests.
+ * 
+ * Batches should only be enabled if all targets and sources can read
+ * datagrams with several messages.
+ * 
+ * @author Stefan Lohr
+ */
+public class MessageSender {
+	
+	private DatagramSocket datagramSocket;
+	private int flushWindow;
+	private int maxDatagramLength;
+	private ScheduledExecutorService scheduler;
+	private Map<SocketAddress, UceMessageBatch> batches;
+	private static final Logger logger = LoggerFactory.getLogger(MessageSender.class);
+	
+	/**
+	 * Constructor for a sender which sends every message immediately
+	 * 
+	 * @param datagramSocket Socket for sending the messages
+	 */
+	public MessageSender(DatagramSocket datagramSocket) {
+		
+		this(datagramSocket, 0, UceMessageBatch.DEFAULT_MAX_LENGTH);
+	}
+	
+	/**
+	 * Constructor for a sender which collects messages to the same receiver
+	 * 
+	 * @param datagramSocket Socket for sending the messages
+	 * @param flushWindowInMillis Maximum delay of a message in milliseconds, 0 for no batches
+	 * @param maxDatagramLength Maximum length of a datagram with several messages
+	 */
+	public MessageSender(DatagramSocket datagramSocket, int flushWindowInMillis, int maxDatagramLength) {
+		
+		if (datagramSocket == null) throw new NullPointerException();
+		if (flushWindowInMillis < 0) throw new IllegalArgumentException("negative flush window");
+		
+		this.datagramSocket = datagramSocket;
+		this.flushWindow = flushWindowInMillis;
+		this.maxDatagramLength = maxDatagramLength;
+		this.batches = new HashMap<SocketAddress, UceMessageBatch>();
+		
+		if (flushWindowInMillis > 0) {
+			
+			scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				
+				public Thread newThread(Runnable runnable) {
+					
+					Thread thread = new Thread(runnable, "MessageSender");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Sends the message to the receiver, immediately or with the next batch
+	 * to this receiver.
+	 * 
+	 * @param uceMessage Message to send
+	 * @param socketAddress Address of the receiver
+	 * @throws IOException
+	 */
+	public void send(UceMessage uceMessage, SocketAddress socketAddress) throws IOException {
+		
+		if (scheduler == null) {
+			
+			send(uceMessage.toByteArray(), socketAddress);
+			return;
+		}
+		
+		byte[] fullBatch = null;
+		byte[] singleMessage = null;
+		
+		synchronized (batches) {
+			
+			UceMessageBatch batch = batches.get(socketAddress);
+			
+			if (batch == null) {
+				
+				batch = new UceMessageBatch(maxDatagramLength);
+				batches.put(socketAddress, batch);
+				scheduler.schedule(new FlushTask(socketAddress), flushWindow, TimeUnit.MILLISECONDS);
+			}
+			
+			if (!batch.add(uceMessage)) {
+				
+				// batch is full, send it now and start the next one with this message
+				if (!batch.isEmpty()) fullBatch = batch.toByteArray();
+				batch.clear();
+				
+				// message does not fit into an empty batch, send it on its own
+				if (!batch.add(uceMessage)) singleMessage = uceMessage.toByteArray();
+			}
+		}
+		
+		if (fullBatch != null) send(fullBatch, socketAddress);
+		if (singleMessage != null) send(singleMessage, socketAddress);
+	}
+	
+	/**
+	 * Sends the encoded message to the receiver, immediately or with the next
+	 * batch to this receiver.
+	 * 
+	 * @param encodedMessage Encoded message between position and limit, e.g. from an UceMessageEncoder
+	 * @param socketAddress Address of the receiver
+	 * @throws IOException
+	 */
+	public void send(ByteBuffer encodedMessage, SocketAddress socketAddress) throws IOException {
+		
+		if (scheduler == null) {
+			
+			send(encodedMessage.array(), encodedMessage.arrayOffset() + encodedMessage.position(),
+					encodedMessage.remaining(), socketAddress);
+			return;
+		}
+		
+		byte[] fullBatch = null;
+		boolean sendAlone = false;
+		
+		synchronized (batches) {
+			
+			UceMessageBatch batch = batches.get(socketAddress);
+			
+			if (batch == null) {
+				
+				batch = new UceMessageBatch(maxDatagramLength);
+				batches.put(socketAddress, batch);
+				scheduler.schedule(new FlushTask(socketAddress), flushWindow, TimeUnit.MILLISECONDS);
+			}
+			
+			if (!batch.add(encodedMessage)) {
+				
+				// batch is full, send it now and start the next one with this message
+				if (!batch.isEmpty()) fullBatch = batch.toByteArray();
+				batch.clear();
+				
+				// message does not fit into an empty batch, send it on its own
+				sendAlone = !batch.add(encodedMessage);
+			}
+		}
+		
+		if (fullBatch != null) send(fullBatch, socketAddress);
+		if (sendAlone) {
+			
+			send(encodedMessage.array(), encodedMessage.arrayOffset() + encodedMessage.position(),
+					encodedMessage.remaining(), socketAddress);
+		}
+	}
+	
+	/**
+	 * Sends all collected messages immediately
+	 * 
+	 * @throws IOException
+	 */
+	public void flush() throws IOException {
+		
+		Map<SocketAddress, UceMessageBatch> pending;
+		
+		synchronized (batches) {
+			
+			pending = new HashMap<SocketAddress, UceMessageBatch>(batches);
+			batches.clear();
+		}
+		
+		for (Map.Entry<SocketAddress, UceMessageBatch> entry : pending.entrySet()) {
+			
+			if (!entry.getValue().isEmpty()) send(entry.getValue().toByteArray(), entry.getKey());
+		}
+	}
+	
+	/**
+	 * Sends all collected messages and stops the timer for the flush window
+	 * 
+	 * @throws IOException
+	 */
+	public void shutdown() throws IOException {
+		
+		if (scheduler != null) scheduler.shutdownNow();
+		flush();
+	}
+	
+	/**
+	 * Sends the encoded message or batch as one datagram
+	 * 
+	 * @param buffer encoded message or batch
+	 * @param socketAddress Address of the receiver
+	 * @throws IOException
+	 */
+	private void send(byte[] buffer, SocketAddress socketAddress) throws IOException {
+		
+		send(buffer, 0, buffer.length, socketAddress);
+	}
+	
+	/**
+	 * Sends a part of the buffer as one datagram
+	 * 
+	 * @param buffer encoded message or batch
+	 * @param offset Start of the datagram in the buffer
+	 * @param length Length of the datagram
+	 * @param socketAddress Address of the receiver
+	 * @throws IOException
+	 */
+	private void send(byte[] buffer, int offset, int length, SocketAddress socketAddress) throws IOException {
+		
+		DatagramPacket datagramPacket = new DatagramPacket(buffer, offset, length, socketAddress);
+		datagramSocket.send(datagramPacket);
+	}
+	
+	/**
+	 * Sends the batch to a receiver when the flush window is over
+	 * 
+	 * @author Stefan Lohr
+	 */
+	private class FlushTask implements Runnable {
+		
+		private SocketAddress socketAddress;
+		
+		public FlushTask(SocketAddress socketAddress) {
+			
+			this.socketAddress = socketAddress;
+		}
+		
+		public void run() {
+			
+			UceMessageBatch batch;
+			
+			synchronized (batches) {
+				
+				batch = batches.remove(socketAddress);
+			}
+			
+			if (batch == null || batch.isEmpty()) return;
+			
+			try {
+				
+				logger.debug("send batch with {} messages to {}", batch.size(), socketAddress);
+				send(batch.toByteArray(), socketAddress);
+			}
+			catch (IOException e) {
+				
+				logger.error("could not send batch to {}", socketAddress);
+				e.printStackTrace();
+			}
+		}
+	}
+}
@@ -19,7 +19,9 @@ package de.htwg_konstanz.in.uce.connection_reversal.mediator;
 
 import java.util.Iterator;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.SortedSet;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 /**
  * Class which contains a list of all registered users.
@@ -28,6 +30,9 @@ import java.util.concurrent.ConcurrentHashMap;
  * and provides all relevant methods therefore.
  * The class is implemented as Singleton.
  * 
+ * The users are sorted by their userName, so that the list can be
+ * sent in pages which continue after the last userName of the previous page.
+ * 
  * @author Stefan Lohr
  */
 public class UserList {
@@ -36,14 +41,14 @@ public class UserList {
 	 * Initializes the instance for the Singleton
 	 */
 	private static final UserList instance = new UserList();
-	private ConcurrentHashMap<String, UserData> userMap;
+	private ConcurrentNavigableMap<String, UserData> userMap;
 	
 	/**
-	 * Constructor, creates ConcurrentHashMap for UserData Objects
+	 * Constructor, creates ConcurrentSkipListMap for UserData Objects
 	 */
 	private UserList() {
 		
-		userMap = new ConcurrentHashMap<String, UserData>();
+		userMap = new ConcurrentSkipListMap<String, UserData>();
 	}
 	
 	/**
@@ -118,6 +123,20 @@ public class UserList {
 		return userMap.keySet();
 	}
 	
+	/**
+	 * Method returns the sorted unique userNames which follow the handed over userName.
+	 * The returned set is a view and reflects later changes of the UserList.
+	 * 
+	 * @param userName unique userName after which the set begins, null for all userNames
+	 * @return sorted Set of Strings with the unique userNames after the handed over userName
+	 */
+	public SortedSet<String> getUserNamesAfter(String userName) {
+		
+		if (userName == null) return userMap.keySet();
+		
+		return userMap.tailMap(userName, false).keySet();
+	}
+	
 	/**
 	 * Method refreshes the TimeStamp of the handed over unique userName
 	 * 
@@ -27,6 +27,7 @@ import java.net.Socket;
 import java.net.SocketAddress;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -41,6 +42,7 @@ import org.junit.runner.RunWith;
 
 import de.htwg_konstanz.in.test.helper.concurrency.MultiThreadedExceptionsRunner;
 import de.htwg_konstanz.in.uce.messages.CommonUceMethod;
+import de.htwg_konstanz.in.uce.messages.ListCursor;
 import de.htwg_konstanz.in.uce.messages.SemanticLevel;
 import de.htwg_konstanz.in.uce.messages.SocketEndpoint;
 import de.htwg_konstanz.in.uce.messages.SocketEndpoint.EndpointClass;
@@ -220,6 +222,98 @@ public class JUnitTest {
 		Assert.assertTrue(users.contains(stringWith47Byte + (char)122));
 	}
 	
+	@Test
+	public void getUserListPaged() throws Exception {
+		
+		String stringWith47Byte = "DieserStringEnthaeltGenau47ByteAnDatenFuerTests";
+		UserList userList = UserList.getInstance();
+		
+		userList.clearUserList();
+		
+		for (int i = 0; i < 52; ++i) {
+			
+			userList.addUser(new UserData(stringWith47Byte + (char) ('A' + i), new InetSocketAddress(0)));
+		}
+		
+		List<String> users = new ArrayList<String>();
+		ListCursor listCursor = null;
+		int pages = 0;
+		
+		do {
+			
+			UceMessage uceMessage = getUserListPage(listCursor);
+			
+			users.addAll(getUserNames(uceMessage));
+			listCursor = uceMessage.getAttribute(ListCursor.class);
+			pages++;
+		}
+		while (listCursor != null);
+		
+		// 52 Benutzer mit 48 Byte passen nicht in eine Seite, kein Benutzer kommt doppelt
+		Assert.assertTrue(pages > 1);
+		Assert.assertEquals(52, users.size());
+		Assert.assertEquals(52, new HashSet<String>(users).size());
+		
+		userList.clearUserList();
+	}
+	
+	@Test
+	public void getUserListCursorOfRemovedUser() throws Exception {
+		
+		String stringWith47Byte = "DieserStringEnthaeltGenau47ByteAnDatenFuerTests";
+		UserList userList = UserList.getInstance();
+		
+		userList.clearUserList();
+		
+		for (int i = 0; i < 52; ++i) {
+			
+			userList.addUser(new UserData(stringWith47Byte + (char) ('A' + i), new InetSocketAddress(0)));
+		}
+		
+		UceMessage firstPage = getUserListPage(null);
+		List<String> users = getUserNames(firstPage);
+		ListCursor listCursor = firstPage.getAttribute(ListCursor.class);
+		
+		Assert.assertNotNull(listCursor);
+		
+		// der letzte Benutzer der ersten Seite meldet sich vor der nächsten Anfrage ab
+		String lastUserName = users.get(users.size() - 1);
+		userList.removeUser(lastUserName);
+		
+		UceMessage secondPage = getUserListPage(listCursor);
+		List<String> nextUsers = getUserNames(secondPage);
+		
+		Assert.assertNull(secondPage.getAttribute(ListCursor.class));
+		Assert.assertEquals(52 - users.size(), nextUsers.size());
+		Assert.assertFalse(nextUsers.contains(lastUserName));
+		Assert.assertTrue(nextUsers.contains(stringWith47Byte + (char) ('A' + 51)));
+		
+		userList.clearUserList();
+	}
+	
+	@Test
+	public void getUserListLongUserNames() throws Exception {
+		
+		StringBuilder longUserName = new StringBuilder();
+		
+		for (int i = 0; i < 1000; ++i) longUserName.append('x');
+		
+		UserList userList = UserList.getInstance();
+		
+		userList.clearUserList();
+		
+		// der erste Benutzername passt nicht mit ListCursor in eine Seite
+		userList.addUser(new UserData("A" + longUserName, new InetSocketAddress(0)));
+		userList.addUser(new UserData("B" + longUserName, new InetSocketAddress(0)));
+		
+		Set<String> users = getUserList();
+		
+		Assert.assertEquals(1, users.size());
+		Assert.assertTrue(users.contains("B" + longUserName));
+		
+		userList.clearUserList();
+	}
+	
 	@Test
 	public void getUserListEmpty() throws Exception {
 		
@@ -401,8 +495,28 @@ public class JUnitTest {
 	
 	private Set<String> getUserList() throws Exception {
 		
+		Set<String> userList = new HashSet<String>();
+		ListCursor listCursor = null;
+		
+		do {
+			
+			UceMessage uceMessage = getUserListPage(listCursor);
+			
+			userList.addAll(getUserNames(uceMessage));
+			listCursor = uceMessage.getAttribute(ListCursor.class);
+		}
+		while (listCursor != null);
+		
+		return userList;
+	}
+	
+	private UceMessage getUserListPage(ListCursor listCursor) throws Exception {
+		
+		UUID transactionId = UUID.randomUUID();
 		UceMessage uceListMessage = UceMessageStaticFactory.newUceMessageInstance(
-				CommonUceMethod.LIST, SemanticLevel.REQUEST, UUID.randomUUID());
+				CommonUceMethod.LIST, SemanticLevel.REQUEST, transactionId);
+		
+		if (listCursor != null) uceListMessage.addAttribute(listCursor);
 		
 		byte[] requestBuffer = uceListMessage.toByteArray();
 		
@@ -411,36 +525,44 @@ public class JUnitTest {
 		
 		datagramSocket.send(datagramPacketSend);
 		
+		UceMessageReader uceMessageReader = new UceMessageReader();
+		UceMessage uceMessage;
+		
 		datagramSocket.setSoTimeout(3000);
 		try {
 			
-			datagramSocket.receive(datagramPacketReceive);
-		}
-		catch (SocketTimeoutException ste) {
-			
-			ste.printStackTrace();
-			
-			return new HashSet<String>();
+			// Antworten auf Anfragen früherer Tests werden übersprungen
+			do {
+				
+				datagramPacketReceive.setLength(65536);
+				datagramSocket.receive(datagramPacketReceive);
+				
+				uceMessage = uceMessageReader.readUceMessage(datagramPacketReceive.getData());
+			}
+			while (!uceMessage.isMethod(CommonUceMethod.LIST)
+					|| !uceMessage.getTransactionId().equals(transactionId));
 		}
 		finally {
 			
 			datagramSocket.setSoTimeout(0);
 		}
 		
-		byte[] userListBuffer = datagramPacketReceive.getData();
+		Assert.assertTrue(datagramPacketReceive.getLength() <= HandleMessage.LIST_PAGE_LENGTH);
 		
-		UceMessageReader uceMessageReader = new UceMessageReader();
-		UceMessage uceMessage = uceMessageReader.readUceMessage(userListBuffer);
+		return uceMessage;
+	}
+	
+	private List<String> getUserNames(UceMessage uceMessage) {
 		
 		List<UniqueUserName> uniqueUserNameList = uceMessage.getAttributes(UniqueUserName.class);
-		Set<String> userList = new HashSet<String>();
+		List<String> userNames = new ArrayList<String>();
 		
 		for (UniqueUserName uniqueUserName : uniqueUserNameList) {
 			
-			userList.add(uniqueUserName.getUniqueUserName());
+			userNames.add(uniqueUserName.getUniqueUserName());
 		}
 		
-		return userList;
+		return userNames;
 	}
 	
 	private void deregisterTarget(String uniqueUserName) throws Exception {
@@ -27,6 +27,8 @@ import java.net.Socket;
 import java.net.SocketAddress;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -36,6 +38,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import de.htwg_konstanz.in.uce.messages.CommonUceMethod;
+import de.htwg_konstanz.in.uce.messages.ListCursor;
 import de.htwg_konstanz.in.uce.messages.SemanticLevel;
 import de.htwg_konstanz.in.uce.messages.SocketEndpoint;
 import de.htwg_konstanz.in.uce.messages.UceMessage;
@@ -165,21 +168,72 @@ public class ConnectionReversalSource {
 	/**
 	 * Returns a set of Strings of all users are registered on Mediator
 	 * 
+	 * The list is requested page by page, see getUserListPage.
+	 * If the first page is not received, an empty set is returned. If a following
+	 * page is not received, the list would be incomplete, so an exception is thrown.
+	 * 
 	 * @return Set of Strings with registered users on Mediator
+	 * @throws SocketTimeoutException if a page after the first page is not received
 	 * @throws IOException
 	 */
 	public Set<String> getUserList() throws IOException {
 		
+		Set<String> userList = new HashSet<String>();
+		ListCursor listCursor = null;
+		
+		do {
+			
+			UserListPage userListPage;
+			
+			try {
+				
+				userListPage = getUserListPage(listCursor);
+			}
+			catch (SocketTimeoutException ste) {
+				
+				if (listCursor != null) {
+					
+					logger.error("page of userList not received, userList is incomplete");
+					
+					throw ste;
+				}
+				
+				logger.error("no userList received");
+				ste.printStackTrace();
+				
+				return userList;
+			}
+			
+			userList.addAll(userListPage.getUserNames());
+			listCursor = userListPage.getNextCursor();
+		}
+		while (listCursor != null);
+		
+		return userList;
+	}
+	
+	/**
+	 * Returns one page of the users which are registered on Mediator.
+	 * 
+	 * The first page is requested without cursor, each following page with the
+	 * cursor of the previous page. So the list can be iterated lazily, page by page,
+	 * even if a lot of users are registered. Each page fits into one datagram.
+	 * 
+	 * @param listCursor Cursor of the previous page, null for the first page
+	 * @return Page with the userNames and the cursor of the next page
+	 * @throws SocketTimeoutException if the page is not received within 10 seconds
+	 * @throws IOException
+	 */
+	public UserListPage getUserListPage(ListCursor listCursor) throws IOException {
+		
+		UUID transactionId = UUID.randomUUID();
 		UceMessage uceListMessage = UceMessageStaticFactory.newUceMessageInstance(
-				CommonUceMethod.LIST, SemanticLevel.REQUEST, UUID.randomUUID());
+				CommonUceMethod.LIST, SemanticLevel.REQUEST, transactionId);
+		
+		if (listCursor != null) uceListMessage.addAttribute(listCursor);
 		
 		byte[] requestBuffer = uceListMessage.toByteArray();
 		
-		/*
-		 * TODO: Package sollte eigentlich nur 512 Byte gro sein,
-		 * was passiert wenn mehr benutzer registriert sind?
-		 *  Vorschlag: siehe Mediator Klasse
-		 */
 		DatagramPacket datagramPacketSend = new DatagramPacket(requestBuffer, requestBuffer.length, socketAddress);
 		DatagramPacket datagramPacketReceive = new DatagramPacket(new byte[65536], 65536);
 		
@@ -190,36 +244,40 @@ public class ConnectionReversalSource {
 		datagramSocket.setSoTimeout(10000);
 		try {
 			
-			datagramSocket.receive(datagramPacketReceive);
-		}
-		catch (SocketTimeoutException ste) {
-			
-			logger.error("no userList received");
-			ste.printStackTrace();
+			UceMessageReader uceMessageReader = new UceMessageReader();
 			
-			return new HashSet<String>();
+			while (true) {
+				
+				datagramPacketReceive.setLength(65536);
+				datagramSocket.receive(datagramPacketReceive);
+				
+				ByteBuffer userListBuffer = ByteBuffer.wrap(datagramPacketReceive.getData(),
+						datagramPacketReceive.getOffset(), datagramPacketReceive.getLength());
+				
+				// the mediator may send several messages in one datagram,
+				// responses to earlier requests are skipped
+				for (UceMessage uceMessage : uceMessageReader.readUceMessages(userListBuffer)) {
+					
+					if (!uceMessage.isMethod(CommonUceMethod.LIST)) continue;
+					if (!uceMessage.getTransactionId().equals(transactionId)) continue;
+					
+					logger.info("userList received, generate return value");
+					
+					List<String> userNames = new ArrayList<String>();
+					
+					for (UniqueUserName uniqueUserName : uceMessage.getAttributes(UniqueUserName.class)) {
+						
+						userNames.add(uniqueUserName.getUniqueUserName());
+					}
+					
+					return new UserListPage(userNames, uceMessage.getAttribute(ListCursor.class));
+				}
+			}
 		}
 		finally {
 			
 			datagramSocket.setSoTimeout(0);
 		}
-		
-		logger.info("userList received, generate return value");
-		
-		byte[] userListBuffer = datagramPacketReceive.getData();
-		
-		UceMessageReader uceMessageReader = new UceMessageReader();
-		UceMessage uceMessage = uceMessageReader.readUceMessage(userListBuffer);
-		
-		List<UniqueUserName> uniqueUserNameList = uceMessage.getAttributes(UniqueUserName.class);
-		Set<String> userList = new HashSet<String>();
-		
-		for (UniqueUserName uniqueUserName : uniqueUserNameList) {
-			
-			userList.add(uniqueUserName.getUniqueUserName());
-		}
-		
-		return userList;
 	}
 	
 	/**
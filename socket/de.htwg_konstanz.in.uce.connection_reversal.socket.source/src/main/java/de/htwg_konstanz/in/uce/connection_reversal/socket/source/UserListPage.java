@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2026 Stefan Lohr
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+
+package de.htwg_konstanz.in.uce.connection_reversal.socket.source;
+
+import java.util.Collections;
+import java.util.List;
+
+import de.htwg_konstanz.in.uce.messages.ListCursor;
+
+/**
+ * Class which contains one page of the users registered on Mediator
+ * 
+ * A page contains the userNames of one LIST response. If more users
+ * follow, the page contains the cursor to request the next page.
+ * 
+ * @author Stefan Lohr
+ */
+public class UserListPage {
+	
+	private List<String> userNames;
+	private ListCursor nextCursor;
+	
+	/**
+	 * Constructor, initializes the userNames and the cursor of the next page
+	 * 
+	 * @param userNames userNames of this page
+	 * @param nextCursor Cursor of the next page, null if this is the last page
+	 */
+	public UserListPage(List<String> userNames, ListCursor nextCursor) {
+		
+		if (userNames == null) throw new NullPointerException();
+		
+		this.userNames = Collections.unmodifiableList(userNames);
+		this.nextCursor = nextCursor;
+	}
+	
+	/**
+	 * Returns the userNames of this page
+	 * 
+	 * @return List of Strings with the userNames of this page
+	 */
+	public List<String> getUserNames() {
+		
+		return userNames;
+	}
+	
+	/**
+	 * Returns the cursor to request the next page
+	 * 
+	 * @return Cursor of the next page, null if this is the last page
+	 */
+	public ListCursor getNextCursor() {
+		
+		return nextCursor;
+	}
+	
+	/**
+	 * Returns whether more users follow this page
+	 * 
+	 * @return true if there is a next page
+	 */
+	public boolean hasNextPage() {
+		
+		return nextCursor != null;
+	}
+}
@@ -25,6 +25,7 @@ import java.net.Socket;
 import java.net.SocketAddress;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
 import java.util.UUID;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -232,14 +233,18 @@ public class ConnectionReversalTarget {
 			datagramSocket.setSoTimeout(0);
 		}
 		
-		byte[] data = datagramPacket.getData();
+		ByteBuffer data = ByteBuffer.wrap(datagramPacket.getData(),
+				datagramPacket.getOffset(), datagramPacket.getLength());
 		
+		// the mediator may send several messages in one datagram
 		UceMessageReader uceMessageReader = new UceMessageReader();
-		UceMessage uceResponseMessage = uceMessageReader.readUceMessage(data);
+		for (UceMessage uceResponseMessage : uceMessageReader.readUceMessages(data)) {
+			
+			if (uceResponseMessage.isMethod(commonUceMethod)
+					&& uceResponseMessage.isSuccessResponse()) return true;
+		}
 		
-		if (uceResponseMessage.isMethod(commonUceMethod)
-				&& uceResponseMessage.isSuccessResponse()) return true;
-		else return false;
+		return false;
 	}
 	
 	/**
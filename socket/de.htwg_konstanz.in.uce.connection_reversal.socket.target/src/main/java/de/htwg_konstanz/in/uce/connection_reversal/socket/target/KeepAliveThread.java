@@ -20,9 +20,11 @@ package de.htwg_konstanz.in.uce.connection_reversal.socket.target;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.SocketAddress;
+import java.nio.ByteBuffer;
 import java.util.UUID;
 
 import de.htwg_konstanz.in.uce.messages.CommonUceMethod;
+import de.htwg_konstanz.in.uce.messages.FrozenUceMessage;
 import de.htwg_konstanz.in.uce.messages.SemanticLevel;
 import de.htwg_konstanz.in.uce.messages.UceMessage;
 import de.htwg_konstanz.in.uce.messages.UceMessageStaticFactory;
@@ -60,7 +62,11 @@ public class KeepAliveThread extends Thread {
 			
 			uceMessage.addAttribute(new UniqueUserName(userName));
 			
-			byte[] buf = uceMessage.toByteArray();
+			// encoded only once, every keep alive gets a new transaction id patched in
+			FrozenUceMessage keepAliveMessage = UceMessageStaticFactory.freeze(uceMessage);
+			
+			byte[] buf = keepAliveMessage.toByteArray();
+			ByteBuffer buffer = ByteBuffer.wrap(buf);
 			
 			datagrammPacket = new DatagramPacket(buf, buf.length, socketAddress);
 			
@@ -69,6 +75,8 @@ public class KeepAliveThread extends Thread {
 				try {
 					
 					Thread.sleep(iterationTime);
+					buffer.clear();
+					keepAliveMessage.writeTo(buffer, UUID.randomUUID());
 					datagramSocket.send(datagrammPacket);
 				}
 				catch (InterruptedException e) { Thread.currentThread().interrupt(); }
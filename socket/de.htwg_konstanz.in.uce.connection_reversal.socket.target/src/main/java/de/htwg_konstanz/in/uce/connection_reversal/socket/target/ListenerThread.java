@@ -22,6 +22,7 @@ import java.net.DatagramSocket;
 import java.net.Socket;
 import java.net.SocketException;
 import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
 import java.util.concurrent.BlockingQueue;
 
 import org.slf4j.Logger;
@@ -103,14 +104,19 @@ public class ListenerThread extends Thread {
 				
 				if (!isInterrupted() && !isSocketTimeoutException) {
 					
-					byte[] data = datagramPacket.getData();
+					ByteBuffer data = ByteBuffer.wrap(datagramPacket.getData(),
+							datagramPacket.getOffset(), datagramPacket.getLength());
 					
+					// the mediator may send several messages in one datagram
 					UceMessageReader uceMessageReader = new UceMessageReader();
-					uceRequestMessage = uceMessageReader.readUceMessage(data);
-					
-					if (uceRequestMessage.isMethod(CommonUceMethod.CONNECTION_REQUEST)) connectionRequest();
-					else if (uceRequestMessage.isMethod(CommonUceMethod.KEEP_ALIVE)) keepAlive();
-					else logger.error("unknown message");
+					for (UceMessage uceMessage : uceMessageReader.readUceMessages(data)) {
+						
+						uceRequestMessage = uceMessage;
+						
+						if (uceRequestMessage.isMethod(CommonUceMethod.CONNECTION_REQUEST)) connectionRequest();
+						else if (uceRequestMessage.isMethod(CommonUceMethod.KEEP_ALIVE)) keepAlive();
+						else logger.error("unknown message");
+					}
 				}
 			}
 		}
@@ -0,0 +1,179 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.hp.parallel.mediator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ConnectionRequestMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.Message;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.coder.MessageDecoder;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.coder.MessageEncoder;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.coder.MessageFormatException;
+
+/**
+ * Thread that listens for requests of the other nodes of a mediator cluster
+ * over TCP (see {@link ClusterProtocol}) and hands them over to a
+ * {@link ShardedTargetRepository}. Each connection of another node is handled
+ * by its own thread, as the other nodes keep only a few connections open.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+final class ClusterListenerThread extends Thread {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusterListenerThread.class);
+    private final ServerSocket ss;
+    private final ShardedTargetRepository repository;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Set<Socket> connections = Collections
+            .newSetFromMap(new ConcurrentHashMap<Socket, Boolean>());
+
+    /**
+     * Creates a new ClusterListenerThread.
+     * 
+     * @param bindingPort
+     *            the port on that the requests of the other nodes are
+     *            expected.
+     * @param repository
+     *            the repository that handles the requests.
+     * @throws IOException
+     *             if an IOException occurs while creating the listener socket.
+     * @throws NullPointerException
+     *             if the given repository is null.
+     */
+    ClusterListenerThread(int bindingPort, ShardedTargetRepository repository)
+            throws IOException {
+        if (repository == null) {
+            throw new NullPointerException();
+        }
+        this.repository = repository;
+        this.ss = new ServerSocket();
+        ss.bind(new InetSocketAddress(bindingPort));
+    }
+
+    /**
+     * Accepts connections of other nodes until the thread gets interrupted.
+     */
+    @Override
+    public final void run() {
+        try {
+            while (!isInterrupted()) {
+                final Socket s = ss.accept();
+                logger.debug("New connection from cluster node: {}", s);
+                connections.add(s);
+                executor.execute(new Runnable() {
+                    public void run() {
+                        try {
+                            handleRequests(s);
+                        } catch (IOException e) {
+                            logger.debug("IOException while handling cluster requests: {}",
+                                    e.getMessage());
+                        } finally {
+                            connections.remove(s);
+                            closeSocket(s);
+                        }
+                    }
+                });
+            }
+        } catch (IOException e) {
+            logger.error("IOException while accepting connection: {}", e.getMessage());
+        } finally {
+            logger.info("entered finally block. interrupt status is: {}", isInterrupted());
+            executor.shutdownNow();
+            for (Socket s : connections) {
+                closeSocket(s);
+            }
+        }
+    }
+
+    @Override
+    public final void interrupt() {
+        try {
+            ss.close();
+        } catch (IOException ignore) {
+        }
+        super.interrupt();
+    }
+
+    /**
+     * Handles the requests of one connection until the other node closes it.
+     */
+    private void handleRequests(Socket s) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                s.getOutputStream()));
+        MessageEncoder encoder = new MessageEncoder();
+        int operation;
+        while ((operation = in.read()) >= 0) {
+            switch (operation) {
+            case ClusterProtocol.PUT:
+                repository.handlePut(in.readUTF(), in.readInt());
+                out.writeByte(ClusterProtocol.ACK);
+                break;
+            case ClusterProtocol.REMOVE:
+                repository.handleRemove(in.readUTF(), in.readInt());
+                out.writeByte(ClusterProtocol.ACK);
+                break;
+            case ClusterProtocol.CONNECT:
+                boolean asOwner = in.readBoolean();
+                InetSocketAddress publicEndpointOfSource = ClusterProtocol.readEndpoint(in);
+                Message request = new MessageDecoder(in).decodeMessage();
+                if (!(request instanceof ConnectionRequestMessage)) {
+                    throw new MessageFormatException("Unexpected message: " + request);
+                }
+                Message response = repository.handleConnect((ConnectionRequestMessage) request,
+                        publicEndpointOfSource, asOwner);
+                out.write(encoder.encodeMessage(response));
+                break;
+            case ClusterProtocol.LIST:
+                Set<String> targets = new HashSet<String>(repository.getLocalTargets());
+                out.writeInt(targets.size());
+                for (String id : targets) {
+                    out.writeUTF(id);
+                }
+                break;
+            default:
+                throw new MessageFormatException("Unknown cluster operation " + operation);
+            }
+            out.flush();
+        }
+    }
+
+    private static void closeSocket(Socket s) {
+        try {
+            s.close();
+        } catch (IOException ignore) {
+        }
+    }
+}
@@ -0,0 +1,272 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.hp.parallel.mediator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ConnectionRequestMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.Message;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.coder.MessageDecoder;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.coder.MessageEncoder;
+
+/**
+ * Client side of the {@link ClusterProtocol} for one other node of a mediator
+ * cluster. Connections to the node are kept open and reused. Each request
+ * uses an idle connection or opens a new one, so concurrent requests do not
+ * wait for each other and requests between two nodes in both directions
+ * cannot block each other.
+ * <p>
+ * A request that fails on a reused connection is sent once more over a new
+ * connection, as the node might have closed the idle connection in the
+ * meantime, e.g. because it was restarted. All requests are bounded by
+ * {@link #CONNECT_TIMEOUT} and {@link #READ_TIMEOUT}.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+final class ClusterPeer {
+
+    /**
+     * Timeout in milliseconds for establishing a connection to the node.
+     */
+    static final int CONNECT_TIMEOUT = 2000;
+    /**
+     * Timeout in milliseconds for the response of the node.
+     */
+    static final int READ_TIMEOUT = 5000;
+    private final InetSocketAddress address;
+    private final Queue<PeerConnection> idleConnections = new ConcurrentLinkedQueue<PeerConnection>();
+    private volatile boolean closed;
+
+    /**
+     * Creates a new {@link ClusterPeer}. No connection is opened before the
+     * first request.
+     * 
+     * @param address
+     *            the cluster endpoint of the node
+     * @throws NullPointerException
+     *             if the given address is null
+     */
+    ClusterPeer(InetSocketAddress address) {
+        if (address == null) {
+            throw new NullPointerException();
+        }
+        this.address = address;
+    }
+
+    /**
+     * Returns the cluster endpoint of the node.
+     * 
+     * @return the cluster endpoint of the node
+     */
+    InetSocketAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * Tells the node, which owns the given ID, that the target is connected
+     * to the given holder node.
+     * 
+     * @param id
+     *            the ID of the target
+     * @param holder
+     *            the node to that the target is connected
+     * @throws IOException
+     *             if the request failed
+     */
+    void put(final String id, final int holder) throws IOException {
+        execute(new Request<Void>() {
+            public Void send(DataOutputStream out, DataInputStream in) throws IOException {
+                out.writeByte(ClusterProtocol.PUT);
+                out.writeUTF(id);
+                out.writeInt(holder);
+                out.flush();
+                ClusterProtocol.readAck(in);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Tells the node, which owns the given ID, that the target is not
+     * connected to the given holder node anymore.
+     * 
+     * @param id
+     *            the ID of the target
+     * @param holder
+     *            the node to that the target was connected
+     * @throws IOException
+     *             if the request failed
+     */
+    void remove(final String id, final int holder) throws IOException {
+        execute(new Request<Void>() {
+            public Void send(DataOutputStream out, DataInputStream in) throws IOException {
+                out.writeByte(ClusterProtocol.REMOVE);
+                out.writeUTF(id);
+                out.writeInt(holder);
+                out.flush();
+                ClusterProtocol.readAck(in);
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Forwards the connection request of a source to the node.
+     * 
+     * @param request
+     *            the connection request of the source
+     * @param publicEndpointOfSource
+     *            the public endpoint of the source
+     * @param asOwner
+     *            true if the node is addressed as owner of the requested ID
+     *            and may forward the request to the node the target is
+     *            connected to, false if the target is connected to the node
+     * @return the response for the source
+     * @throws IOException
+     *             if the request failed
+     */
+    Message connect(final ConnectionRequestMessage request,
+            final InetSocketAddress publicEndpointOfSource, final boolean asOwner)
+            throws IOException {
+        return execute(new Request<Message>() {
+            public Message send(DataOutputStream out, DataInputStream in) throws IOException {
+                out.writeByte(ClusterProtocol.CONNECT);
+                out.writeBoolean(asOwner);
+                ClusterProtocol.writeEndpoint(out, publicEndpointOfSource);
+                out.write(new MessageEncoder().encodeMessage(request));
+                out.flush();
+                return new MessageDecoder(in).decodeMessage();
+            }
+        });
+    }
+
+    /**
+     * Returns the IDs of the targets that are connected to the node.
+     * 
+     * @return the IDs of the targets that are connected to the node
+     * @throws IOException
+     *             if the request failed
+     */
+    Set<String> list() throws IOException {
+        return execute(new Request<Set<String>>() {
+            public Set<String> send(DataOutputStream out, DataInputStream in)
+                    throws IOException {
+                out.writeByte(ClusterProtocol.LIST);
+                out.flush();
+                int count = in.readInt();
+                Set<String> targets = new HashSet<String>();
+                for (int i = 0; i < count; i++) {
+                    targets.add(in.readUTF());
+                }
+                return targets;
+            }
+        });
+    }
+
+    /**
+     * Closes all connections to the node. Further requests fail.
+     */
+    void close() {
+        closed = true;
+        PeerConnection connection;
+        while ((connection = idleConnections.poll()) != null) {
+            connection.close();
+        }
+    }
+
+    private <T> T execute(Request<T> request) throws IOException {
+        PeerConnection connection = idleConnections.poll();
+        if (connection != null) {
+            try {
+                return executeOn(connection, request);
+            } catch (IOException e) {
+                // the idle connection might have been closed by the node
+            }
+        }
+        return executeOn(new PeerConnection(), request);
+    }
+
+    private <T> T executeOn(PeerConnection connection, Request<T> request) throws IOException {
+        if (closed) {
+            connection.close();
+            throw new IOException("Cluster peer " + address + " is closed");
+        }
+        T response;
+        try {
+            response = request.send(connection.out, connection.in);
+        } catch (IOException e) {
+            connection.close();
+            throw e;
+        }
+        idleConnections.add(connection);
+        if (closed) {
+            close();
+        }
+        return response;
+    }
+
+    /**
+     * A request of the {@link ClusterProtocol} with its response.
+     */
+    private interface Request<T> {
+        T send(DataOutputStream out, DataInputStream in) throws IOException;
+    }
+
+    /**
+     * A connection to the node.
+     */
+    private final class PeerConnection {
+        private final Socket socket;
+        private final DataOutputStream out;
+        private final DataInputStream in;
+
+        PeerConnection() throws IOException {
+            this.socket = new Socket();
+            try {
+                socket.connect(address, CONNECT_TIMEOUT);
+                socket.setSoTimeout(READ_TIMEOUT);
+                socket.setTcpNoDelay(true);
+                this.out = new DataOutputStream(new BufferedOutputStream(
+                        socket.getOutputStream()));
+                this.in = new DataInputStream(new BufferedInputStream(
+                        socket.getInputStream()));
+            } catch (IOException e) {
+                close();
+                throw e;
+            }
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.hp.parallel.mediator;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+import de.htwg_konstanz.in.uce.hp.parallel.messages.coder.MessageFormatException;
+
+/**
+ * Constants and coding helpers of the protocol between the nodes of a
+ * mediator cluster. Each request starts with one of the operation codes
+ * below. A node can send many requests over one connection, one after the
+ * other; every request is answered before the next one is sent.
+ * <ul>
+ * <li>{@link #PUT}: ID, holder node. The owner of the ID records that the
+ * target is connected to the holder node. Answered with {@link #ACK}.</li>
+ * <li>{@link #REMOVE}: ID, holder node. The owner of the ID removes the
+ * record if it still refers to the holder node. Answered with {@link #ACK}.
+ * </li>
+ * <li>{@link #CONNECT}: flag whether the receiver is addressed as owner,
+ * public endpoint of the source, encoded ConnectionRequestMessage. Answered
+ * with the encoded response for the source.</li>
+ * <li>{@link #LIST}: Answered with the number of targets that are connected
+ * to the receiver followed by their IDs.</li>
+ * </ul>
+ * IDs are coded in modified UTF-8 as by {@link DataOutputStream#writeUTF},
+ * messages as by the MessageEncoder.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+final class ClusterProtocol {
+
+    static final int PUT = 1;
+    static final int REMOVE = 2;
+    static final int CONNECT = 3;
+    static final int LIST = 4;
+    static final int ACK = 0;
+
+    private ClusterProtocol() {
+    }
+
+    /**
+     * Writes the given endpoint: the length of the IP address, the IP address
+     * and the port.
+     * 
+     * @param out
+     *            the stream to write to
+     * @param endpoint
+     *            the endpoint
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    static void writeEndpoint(DataOutputStream out, InetSocketAddress endpoint)
+            throws IOException {
+        byte[] address = endpoint.getAddress().getAddress();
+        out.writeByte(address.length);
+        out.write(address);
+        out.writeShort(endpoint.getPort());
+    }
+
+    /**
+     * Reads an endpoint that was written by
+     * {@link #writeEndpoint(DataOutputStream, InetSocketAddress)}.
+     * 
+     * @param in
+     *            the stream to read from
+     * @return the endpoint
+     * @throws IOException
+     *             if an I/O error occurs or the endpoint is malformed
+     */
+    static InetSocketAddress readEndpoint(DataInputStream in) throws IOException {
+        int length = in.readUnsignedByte();
+        if (length != 4 && length != 16) {
+            throw new MessageFormatException("Illegal IP address length " + length);
+        }
+        byte[] address = new byte[length];
+        in.readFully(address);
+        int port = in.readUnsignedShort();
+        return new InetSocketAddress(InetAddress.getByAddress(address), port);
+    }
+
+    /**
+     * Reads the acknowledgement of a {@link #PUT} or {@link #REMOVE} request.
+     * 
+     * @param in
+     *            the stream to read from
+     * @throws IOException
+     *             if an I/O error occurs or no acknowledgement is received
+     */
+    static void readAck(DataInputStream in) throws IOException {
+        int ack = in.readUnsignedByte();
+        if (ack != ACK) {
+            throw new MessageFormatException("Illegal acknowledgement " + ack);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.hp.parallel.mediator;
+
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring that maps target IDs to the nodes of a mediator
+ * cluster. Each node is placed on the ring with a number of virtual nodes, so
+ * the IDs are spread evenly across the nodes. An ID belongs to the first
+ * virtual node that follows its hash on the ring.
+ * <p>
+ * The mapping only depends on the number of nodes, so all nodes of a cluster
+ * compute the same owner for an ID. If a node is added or removed, only the
+ * IDs of the virtual nodes in between move to another node.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+final class ConsistentHashRing {
+
+    /**
+     * Default number of virtual nodes per node.
+     */
+    static final int DEFAULT_VIRTUAL_NODES = 100;
+    private static final String STRING_ENCODING = "UTF-8";
+    private final TreeMap<Long, Integer> ring = new TreeMap<Long, Integer>();
+    private final int nodes;
+
+    /**
+     * Creates a new {@link ConsistentHashRing} with
+     * {@link #DEFAULT_VIRTUAL_NODES} virtual nodes per node.
+     * 
+     * @param nodes
+     *            the number of nodes
+     * @throws IllegalArgumentException
+     *             if nodes is not positive
+     */
+    ConsistentHashRing(int nodes) {
+        this(nodes, DEFAULT_VIRTUAL_NODES);
+    }
+
+    /**
+     * Creates a new {@link ConsistentHashRing}.
+     * 
+     * @param nodes
+     *            the number of nodes
+     * @param virtualNodes
+     *            the number of virtual nodes per node
+     * @throws IllegalArgumentException
+     *             if nodes or virtualNodes is not positive
+     */
+    ConsistentHashRing(int nodes, int virtualNodes) {
+        if (nodes <= 0 || virtualNodes <= 0) {
+            throw new IllegalArgumentException("Illegal configuration: nodes " + nodes
+                    + ", virtual nodes " + virtualNodes);
+        }
+        this.nodes = nodes;
+        for (int node = 0; node < nodes; node++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                ring.put(hash(node + "#" + v), node);
+            }
+        }
+    }
+
+    /**
+     * Returns the node that owns the given ID.
+     * 
+     * @param id
+     *            the ID of a target
+     * @return the index of the owning node
+     * @throws NullPointerException
+     *             if the given ID is null
+     */
+    int getNode(String id) {
+        if (id == null) {
+            throw new NullPointerException();
+        }
+        Map.Entry<Long, Integer> entry = ring.ceilingEntry(hash(id));
+        if (entry == null) {
+            // wrap around
+            entry = ring.firstEntry();
+        }
+        return entry.getValue();
+    }
+
+    /**
+     * Returns the number of nodes.
+     * 
+     * @return the number of nodes
+     */
+    int getNodes() {
+        return nodes;
+    }
+
+    /**
+     * Returns the first 8 bytes of the MD5 hash of the given key.
+     */
+    private static long hash(String key) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("MD5").digest(key.getBytes(STRING_ENCODING));
+        } catch (NoSuchAlgorithmException e) {
+            // every Java platform has to support MD5
+            throw new IllegalStateException(e);
+        } catch (UnsupportedEncodingException e) {
+            // every Java platform has to support UTF-8
+            throw new IllegalStateException(e);
+        }
+        long hash = 0;
+        for (int i = 0; i < 8; i++) {
+            hash = (hash << 8) | (digest[i] & 0xFF);
+        }
+        return hash;
+    }
+}
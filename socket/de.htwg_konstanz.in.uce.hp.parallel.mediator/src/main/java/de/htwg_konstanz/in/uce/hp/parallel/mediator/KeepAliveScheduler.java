@@ -0,0 +1,201 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.hp.parallel.mediator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Scheduler that sends keep-alive messages to all registered targets with one
+ * thread. The keep-alive interval is divided into a ring of buckets. Each
+ * target is put into one bucket, the buckets are assigned in turn so they are
+ * filled evenly. With every tick the scheduler advances to the next bucket
+ * and sends the keep-alives of all targets in this bucket in one pass. So
+ * every target gets a keep-alive once per interval and the load is spread
+ * evenly across the interval.
+ * <p>
+ * Registering and cancelling a target costs O(1) and creates no timer
+ * entries. Keep-alives that could not be sent are counted as missed and
+ * reported after each tick.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+final class KeepAliveScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(KeepAliveScheduler.class);
+    private final List<Set<KeepAliveTask>> buckets;
+    private final AtomicInteger nextBucket = new AtomicInteger();
+    private final AtomicLong sentKeepAlives = new AtomicLong();
+    private final AtomicLong missedKeepAlives = new AtomicLong();
+    private final ScheduledExecutorService tickExecutor = Executors
+            .newSingleThreadScheduledExecutor();
+    // only accessed by the tick thread
+    private int currentBucket;
+
+    /**
+     * Creates a new {@link KeepAliveScheduler} and starts its thread.
+     * 
+     * @param interval
+     *            the interval between two keep-alives to the same target
+     * @param unit
+     *            the time unit of the interval
+     * @param buckets
+     *            the number of buckets the interval is divided into
+     * @throws IllegalArgumentException
+     *             if interval or buckets is not positive
+     */
+    KeepAliveScheduler(long interval, TimeUnit unit, int buckets) {
+        if (interval <= 0 || buckets <= 0) {
+            throw new IllegalArgumentException("Illegal configuration: interval " + interval
+                    + ", buckets " + buckets);
+        }
+        this.buckets = new ArrayList<Set<KeepAliveTask>>(buckets);
+        for (int i = 0; i < buckets; i++) {
+            this.buckets.add(Collections
+                    .newSetFromMap(new ConcurrentHashMap<KeepAliveTask, Boolean>()));
+        }
+        long tickNanos = Math.max(1, unit.toNanos(interval) / buckets);
+        tickExecutor.scheduleAtFixedRate(new Runnable() {
+            public void run() {
+                tick();
+            }
+        }, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Adds the given keep-alive task to the next bucket.
+     * 
+     * @param task
+     *            the task that sends the keep-alives to one target
+     * @return the registration that has to be cancelled when the target gets
+     *         unregistered
+     * @throws NullPointerException
+     *             if the given task is null
+     */
+    Registration schedule(KeepAliveTask task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        int index = (nextBucket.getAndIncrement() & Integer.MAX_VALUE) % buckets.size();
+        Registration registration = new Registration(buckets.get(index), task);
+        buckets.get(index).add(task);
+        return registration;
+    }
+
+    /**
+     * Returns the number of keep-alives that were sent since the scheduler
+     * was started.
+     * 
+     * @return the number of sent keep-alives
+     */
+    long getSentKeepAlives() {
+        return sentKeepAlives.get();
+    }
+
+    /**
+     * Returns the number of keep-alives that could not be sent since the
+     * scheduler was started.
+     * 
+     * @return the number of missed keep-alives
+     */
+    long getMissedKeepAlives() {
+        return missedKeepAlives.get();
+    }
+
+    /**
+     * Stops the scheduler. No more keep-alives get sent.
+     */
+    void shutdown() {
+        tickExecutor.shutdownNow();
+    }
+
+    /**
+     * Sends the keep-alives of the current bucket and advances to the next
+     * bucket.
+     */
+    private void tick() {
+        Set<KeepAliveTask> bucket = buckets.get(currentBucket);
+        currentBucket = (currentBucket + 1) % buckets.size();
+        int sent = 0;
+        int missed = 0;
+        // tasks that disconnect their target remove themselves while iterating
+        for (KeepAliveTask task : bucket) {
+            boolean success = false;
+            try {
+                success = task.sendKeepAlive();
+            } catch (RuntimeException e) {
+                // would cancel all further ticks otherwise
+                logger.error("Keep-alive task threw exception: {}", e);
+            }
+            if (success) {
+                sent++;
+            } else {
+                missed++;
+            }
+        }
+        sentKeepAlives.addAndGet(sent);
+        missedKeepAlives.addAndGet(missed);
+        if (missed > 0) {
+            logger.warn("Missed {} of {} keep-alives", missed, sent + missed);
+        }
+    }
+
+    /**
+     * Registration of a {@link KeepAliveTask} in a bucket.
+     */
+    static final class Registration {
+        private final Set<KeepAliveTask> bucket;
+        private final KeepAliveTask task;
+        private volatile boolean cancelled;
+
+        private Registration(Set<KeepAliveTask> bucket, KeepAliveTask task) {
+            this.bucket = bucket;
+            this.task = task;
+        }
+
+        /**
+         * Removes the task from its bucket. No more keep-alives get sent by
+         * the task.
+         */
+        void cancel() {
+            cancelled = true;
+            bucket.remove(task);
+        }
+
+        /**
+         * Returns whether this registration was cancelled.
+         * 
+         * @return true if this registration was cancelled
+         */
+        boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
@@ -18,7 +18,6 @@
 package de.htwg_konstanz.in.uce.hp.parallel.mediator;
 
 import java.io.IOException;
-import java.net.Socket;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,18 +26,26 @@ import de.htwg_konstanz.in.uce.hp.parallel.messages.KeepAliveMessage;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.coder.MessageEncoder;
 
 /**
- * Task that sends a {@link KeepAliveMessage} to a given target.
+ * Task that sends a {@link KeepAliveMessage} to a given target. Gets executed
+ * once per keep-alive interval by the {@link KeepAliveScheduler}.
  * 
  * @author Daniel Maier
  * 
  */
-final class KeepAliveTask implements Runnable {
+final class KeepAliveTask {
 
+    /**
+     * Number of keep-alives in a row that a target may miss before it gets
+     * disconnected.
+     */
+    static final int MAX_MISSED_KEEP_ALIVES = 3;
     private final static Logger logger = LoggerFactory.getLogger(KeepAliveTask.class);
     private final static byte[] encodedKeepAliveMessage = new MessageEncoder()
             .encodeMessage(new KeepAliveMessage());
     private final String targetId;
-    private final Socket socketToTarget;
+    private final TargetConnection connection;
+    // only accessed by the thread of the keep-alive scheduler
+    private int missedKeepAlives;
 
     /**
      * Creates a new {@link KeepAliveTask} with the given target ID.
@@ -46,32 +53,46 @@ final class KeepAliveTask implements Runnable {
      * @param targetId
      *            the ID of the target to that the {@link KeepAliveMessage}
      *            should be sent
-     * @param socketToTarget the socket to the desired target
+     * @param connection the connection to the desired target
      */
-    KeepAliveTask(String targetId, Socket socketToTarget) {
+    KeepAliveTask(String targetId, TargetConnection connection) {
         this.targetId = targetId;
-        this.socketToTarget = socketToTarget;
+        this.connection = connection;
     }
 
     /**
-     * Sends a {@link KeepAliveMessage} to the given target. If an I/O error
-     * occurs it unregisters the affected target.
+     * Sends a {@link KeepAliveMessage} to the given target. The keep-alive is
+     * missed if other messages to the target are still pending, because the
+     * target does not read them. If the target misses
+     * {@link #MAX_MISSED_KEEP_ALIVES} keep-alives in a row or an I/O error
+     * occurs, it gets disconnected. Closing the connection unregisters the
+     * target.
+     * 
+     * @return true if the keep-alive was sent, false if it was missed
      */
-    public void run() {     
+    boolean sendKeepAlive() {
         try {
-            synchronized (socketToTarget.getOutputStream()) {
-                logger.info("sending keep-alive message to {}", targetId);
-                socketToTarget.getOutputStream().write(encodedKeepAliveMessage);
+            logger.debug("sending keep-alive message to {}", targetId);
+            if (connection.sendIfIdle(encodedKeepAliveMessage)) {
+                missedKeepAlives = 0;
+                return true;
+            }
+            missedKeepAlives++;
+            logger.warn("Target {} missed {} keep-alives, messages are pending", targetId,
+                    missedKeepAlives);
+            if (missedKeepAlives >= MAX_MISSED_KEEP_ALIVES) {
+                stop();
             }
         } catch (IOException e) {
             logger.error("IOException while sending KeepAliveMessage: {}", e);
-            Repository.INSTANCE.unregisterTarget(targetId);
-            try {
-                socketToTarget.close();
-            } catch (IOException ignore) {
-            }
-            logger.info("Stopped keep-alive task for {}", targetId);
+            stop();
         }
+        return false;
+    }
+
+    private void stop() {
+        connection.close();
+        logger.info("Stopped keep-alive task for {}", targetId);
     }
 
 }
@@ -39,6 +39,7 @@ final class ListenerThread extends Thread {
     private static final Logger logger = LoggerFactory.getLogger(ListenerThread.class);
     private final ServerSocket ss;
     private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final TargetRepository repository;
 
     /**
      * Creates a new ListenerThread.
@@ -46,6 +47,22 @@ final class ListenerThread extends Thread {
      * @throws IOException if an IOException occurs while creating the listener socket.
      */
     ListenerThread(int bindingPort) throws IOException {
+        this(bindingPort, Repository.INSTANCE);
+    }
+
+    /**
+     * Creates a new ListenerThread that registers the targets in the given
+     * repository.
+     * @param bindingPort the port on that the mediator should listen for messages.
+     * @param repository the repository of the registered targets.
+     * @throws IOException if an IOException occurs while creating the listener socket.
+     * @throws NullPointerException if the given repository is null.
+     */
+    ListenerThread(int bindingPort, TargetRepository repository) throws IOException {
+        if (repository == null) {
+            throw new NullPointerException();
+        }
+        this.repository = repository;
         this.ss = new ServerSocket();
         ss.bind(new InetSocketAddress(bindingPort));
     }
@@ -60,7 +77,7 @@ final class ListenerThread extends Thread {
             while (!isInterrupted()) {
                 Socket s = ss.accept();
                 logger.info("New connection from: {}", s);
-                executor.execute(new MessageHandlerTask(s));
+                executor.execute(new MessageHandlerTask(s, repository));
             }
         } catch (IOException e) {
             logger.error("IOException while accepting connection: {}", e.getMessage());
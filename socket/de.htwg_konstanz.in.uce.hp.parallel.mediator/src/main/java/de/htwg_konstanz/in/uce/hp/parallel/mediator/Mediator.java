@@ -18,6 +18,9 @@
 package de.htwg_konstanz.in.uce.hp.parallel.mediator;
 
 import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -27,6 +30,16 @@ import org.slf4j.LoggerFactory;
  * will be lost if the mediator is restarted. The peer that wants to establish a
  * connection to another peer is called source. The peer that waits for
  * connections is called target.
+ * <p>
+ * By default each connection is handled by its own thread. Alternatively the
+ * mediator can handle all connections with a few event loops, which allows
+ * to hold the connections of many registered targets open at the same time.
+ * <p>
+ * Several mediators can form a cluster. The target IDs are then distributed
+ * across the mediators by consistent hashing, and a connection request for a
+ * target that is connected to another mediator is forwarded to it (see
+ * {@link ShardedTargetRepository}). Sources and targets may use any mediator
+ * of the cluster.
  * 
  * @author Daniel Maier
  * 
@@ -34,8 +47,11 @@ import org.slf4j.LoggerFactory;
 public final class Mediator {
 
     private static final Logger logger = LoggerFactory.getLogger(Mediator.class);
-    private static final String WRONG_ARGS = "Wrong arguments (ListenerPort expected)";
-    private final ListenerThread listenerThread;
+    private static final String WRONG_ARGS =
+            "Wrong arguments (ListenerPort [EventLoops [LocalNode ClusterNode...]] expected)";
+    private final Thread listenerThread;
+    private final TargetRepository repository;
+    private final Thread clusterListenerThread;
     private boolean started;
 
     /**
@@ -44,10 +60,89 @@ public final class Mediator {
      * @throws IOException if an IOException occurs while creating the listener socket.
      */
     public Mediator(int bindingPort) throws IOException {
+        this.repository = Repository.INSTANCE;
+        this.clusterListenerThread = null;
         this.listenerThread = new ListenerThread(bindingPort);
         logger.info("Created new mediator on port {}", bindingPort);
     }
 
+    /**
+     * Creates a new Mediator that handles all connections with the given
+     * number of event loop threads.
+     * 
+     * @param bindingPort
+     *            the port on that the mediator should listen for messages.
+     * @param eventLoops
+     *            the number of event loop threads.
+     * @throws IOException
+     *             if an IOException occurs while creating the listener socket.
+     * @throws IllegalArgumentException
+     *             if eventLoops is not positive.
+     */
+    public Mediator(int bindingPort, int eventLoops) throws IOException {
+        this.repository = Repository.INSTANCE;
+        this.clusterListenerThread = null;
+        this.listenerThread = new SelectorListenerThread(bindingPort, eventLoops);
+        logger.info("Created new mediator on port {} with {} event loops", bindingPort,
+                eventLoops);
+    }
+
+    /**
+     * Creates a new Mediator that is a node of a cluster of mediators. All
+     * nodes of the cluster have to be created with the same list of cluster
+     * nodes.
+     * 
+     * @param bindingPort
+     *            the port on that the mediator should listen for messages.
+     * @param eventLoops
+     *            the number of event loop threads, or 0 if each connection
+     *            should be handled by its own thread.
+     * @param clusterNodes
+     *            the endpoints on that the nodes of the cluster listen for
+     *            requests of the other nodes.
+     * @param localNode
+     *            the index of this mediator in the list of cluster nodes. The
+     *            mediator listens for requests of the other nodes on the port
+     *            of this entry.
+     * @throws IOException
+     *             if an IOException occurs while creating the listener
+     *             sockets.
+     * @throws IllegalArgumentException
+     *             if eventLoops is negative or localNode is not an index of
+     *             the list of cluster nodes.
+     * @throws NullPointerException
+     *             if the list of cluster nodes or one of its elements is null.
+     */
+    public Mediator(int bindingPort, int eventLoops, List<InetSocketAddress> clusterNodes,
+            int localNode) throws IOException {
+        if (eventLoops < 0) {
+            throw new IllegalArgumentException("eventLoops must not be negative");
+        }
+        ShardedTargetRepository shardedRepository = new ShardedTargetRepository(clusterNodes,
+                localNode);
+        ClusterListenerThread clusterListener = null;
+        try {
+            clusterListener = new ClusterListenerThread(clusterNodes.get(localNode).getPort(),
+                    shardedRepository);
+            if (eventLoops > 0) {
+                this.listenerThread = new SelectorListenerThread(bindingPort, eventLoops,
+                        shardedRepository);
+            } else {
+                this.listenerThread = new ListenerThread(bindingPort, shardedRepository);
+            }
+        } catch (IOException e) {
+            if (clusterListener != null) {
+                clusterListener.interrupt();
+            }
+            shardedRepository.shutdown();
+            throw e;
+        }
+        this.repository = shardedRepository;
+        this.clusterListenerThread = clusterListener;
+        logger.info("Created new mediator on port {} as cluster node {}", bindingPort,
+                clusterNodes.get(localNode));
+    }
+
     
     /**
      * Starts the mediator. Strictly speaking it starts the listener
@@ -62,6 +157,9 @@ public final class Mediator {
             throw new IllegalStateException("Mediator is already started");
         }
         listenerThread.start();
+        if (clusterListenerThread != null) {
+            clusterListenerThread.start();
+        }
         started = true;
         logger.info("Mediator started");
     }
@@ -77,32 +175,64 @@ public final class Mediator {
             throw new IllegalStateException("Mediator is not started");
         }
         listenerThread.interrupt();
+        if (clusterListenerThread != null) {
+            clusterListenerThread.interrupt();
+            repository.shutdown();
+        }
     }
 
     /**
      * Main method of the mediator. Creates and starts a mediator instance.
      * 
      * @param args
-     *            arguments for the mediator. An array with length of one is
-     *            expected. It should contain the following value: args[0] port
-     *            of listener for messages over TCP.
+     *            arguments for the mediator. It should contain the following
+     *            values: args[0] port of listener for messages over TCP,
+     *            optional args[1] number of event loop threads. Without
+     *            args[1] or if it is 0 each connection is handled by its own
+     *            thread. To run the mediator as node of a cluster, args[2] is
+     *            the index of this node in the list of cluster nodes and the
+     *            following arguments are the cluster endpoints of all nodes
+     *            as host:port.
      * @throws IOException
      *             if an IOException occurs while creating the mediator.
      * @throws IllegalArgumentException
      *             if args don't fit the requirements above.
      */
     public static void main(String[] args) throws IOException, IllegalArgumentException {
-        if (args.length != 1) {
+        if (args.length < 1 || args.length == 3) {
             throw new IllegalArgumentException(WRONG_ARGS);
         }
 
         int port;
+        int eventLoops = 0;
+        int localNode = 0;
+        List<InetSocketAddress> clusterNodes = new ArrayList<InetSocketAddress>();
 
         try {
             port = Integer.parseInt(args[0]);
+            if (args.length >= 2) {
+                eventLoops = Integer.parseInt(args[1]);
+            }
+            if (args.length > 3) {
+                localNode = Integer.parseInt(args[2]);
+                for (int i = 3; i < args.length; i++) {
+                    int separator = args[i].lastIndexOf(':');
+                    if (separator < 0) {
+                        throw new IllegalArgumentException(WRONG_ARGS);
+                    }
+                    clusterNodes.add(new InetSocketAddress(args[i].substring(0, separator),
+                            Integer.parseInt(args[i].substring(separator + 1))));
+                }
+            }
         } catch (NumberFormatException e) {
             throw new IllegalArgumentException(WRONG_ARGS);
         } 
-        new Mediator(port).start();
+        if (args.length > 3) {
+            new Mediator(port, eventLoops, clusterNodes, localNode).start();
+        } else if (args.length == 2 && eventLoops > 0) {
+            new Mediator(port, eventLoops).start();
+        } else {
+            new Mediator(port).start();
+        }
     }
 }
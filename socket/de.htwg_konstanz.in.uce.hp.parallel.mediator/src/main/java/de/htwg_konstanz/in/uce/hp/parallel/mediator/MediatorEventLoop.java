@@ -0,0 +1,575 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.hp.parallel.mediator;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ConnectionRequestMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ExceptionMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ExceptionMessage.Error;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ListRequestMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ListResponseMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.Message;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.RegisterMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.RegisterResponseMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.SessionMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.UnregisterMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.coder.MessageDecoder;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.coder.MessageEncoder;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.coder.MessageFormatException;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.coder.MessageFramer;
+
+/**
+ * Event loop of a {@link SelectorListenerThread}. Handles the messages of many
+ * connections with one selector and one thread. It handles the same messages
+ * as a {@link MessageHandlerTask}, but the connections of registered targets
+ * do not block a thread while they are idle.
+ * <p>
+ * Received bytes are framed by the {@link MessageFramer} and decoded as soon
+ * as a message is complete. Only the bytes of an incomplete message are kept
+ * per connection, so an idle target costs no buffer. Messages to a connection
+ * are appended to its write queue and written by the event loop that owns the
+ * connection, regardless of the thread that sent them. The write queue is a
+ * bounded {@link OutboundQueue}; a connection whose queue is full gets closed.
+ * <p>
+ * A source may pipeline many requests in a session ({@link SessionMessage}).
+ * While half of the write queue of a connection is used, no further messages
+ * of this connection are handled and nothing is read from it, so a source
+ * that pipelines faster than it reads the responses is slowed down instead
+ * of disconnected.
+ * <p>
+ * If the {@link TargetRepository} may block, e.g. because it is sharded across
+ * a cluster, connection requests and lists are handled by a thread pool of the
+ * event loop, so a round trip to another mediator does not stall the other
+ * connections. The response is appended to the write queue of the connection
+ * like any other message. Pending responses count towards the half of the
+ * write queue from which on no further messages are handled, and a connection
+ * is not closed before its pending responses were written.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+final class MediatorEventLoop implements Runnable {
+
+    /**
+     * Size of the read buffer. Large enough for every message that is sent to
+     * the mediator.
+     */
+    static final int READ_BUFFER_SIZE = 1024;
+    /**
+     * Number of pending messages of a connection from which on no further
+     * received messages of the connection get handled.
+     */
+    static final int MAX_PENDING_RESPONSES = OutboundQueue.DEFAULT_CAPACITY / 2;
+    private static final Logger logger = LoggerFactory.getLogger(MediatorEventLoop.class);
+    private final Selector selector;
+    private final Queue<SocketChannel> pendingChannels = new ConcurrentLinkedQueue<SocketChannel>();
+    private final Queue<MediatorConnection> pendingWrites =
+            new ConcurrentLinkedQueue<MediatorConnection>();
+    // only accessed by the event loop thread
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    private final MessageEncoder encoder = new MessageEncoder();
+    private final TargetRepository repository;
+    private final SessionRequestHandler sessionRequestHandler;
+    // null if the repository does not block
+    private final ExecutorService repositoryExecutor;
+    private volatile Thread eventLoopThread;
+    private volatile boolean running = true;
+
+    /**
+     * Creates a new {@link MediatorEventLoop}.
+     * 
+     * @param repository
+     *            the repository of the registered targets
+     * @throws IOException
+     *             if the selector could not be opened
+     * @throws NullPointerException
+     *             if the given repository is null
+     */
+    MediatorEventLoop(TargetRepository repository) throws IOException {
+        if (repository == null) {
+            throw new NullPointerException();
+        }
+        this.repository = repository;
+        this.sessionRequestHandler = new SessionRequestHandler(repository);
+        this.repositoryExecutor = repository.mayBlock() ? Executors.newCachedThreadPool() : null;
+        this.selector = Selector.open();
+    }
+
+    /**
+     * Hands over a new connection to this event loop. The channel gets
+     * switched to non-blocking mode by the event loop thread. Can be called
+     * from any thread.
+     * 
+     * @param channel
+     *            the accepted channel
+     */
+    void register(SocketChannel channel) {
+        if (!running) {
+            closeChannel(channel);
+            return;
+        }
+        pendingChannels.add(channel);
+        selector.wakeup();
+    }
+
+    /**
+     * Stops this event loop. All connections of this event loop get closed
+     * and the targets registered over them get unregistered.
+     */
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Waits for ready channels and handles the received messages until the
+     * event loop gets shut down.
+     */
+    public void run() {
+        eventLoopThread = Thread.currentThread();
+        try {
+            while (running) {
+                selector.select();
+                registerPendingChannels();
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    handle(key);
+                }
+                flushPendingWrites();
+            }
+        } catch (IOException e) {
+            logger.error("IOException in mediator event loop: {}", e);
+        } finally {
+            if (repositoryExecutor != null) {
+                repositoryExecutor.shutdownNow();
+            }
+            for (SelectionKey key : selector.keys()) {
+                ((MediatorConnection) key.attachment()).close();
+            }
+            SocketChannel channel;
+            while ((channel = pendingChannels.poll()) != null) {
+                closeChannel(channel);
+            }
+            try {
+                selector.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+    /**
+     * Registers the channels that were handed over since the last selection.
+     */
+    private void registerPendingChannels() {
+        SocketChannel channel;
+        while ((channel = pendingChannels.poll()) != null) {
+            try {
+                InetSocketAddress remoteEndpoint = (InetSocketAddress) channel.socket()
+                        .getRemoteSocketAddress();
+                if (remoteEndpoint == null) {
+                    throw new IOException("Channel is not connected");
+                }
+                channel.configureBlocking(false);
+                MediatorConnection connection = new MediatorConnection(channel, remoteEndpoint);
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+            } catch (IOException e) {
+                logger.error("IOException while registering connection: {}", e);
+                closeChannel(channel);
+            }
+        }
+    }
+
+    /**
+     * Writes the queued messages of the connections that got new messages
+     * since the last selection.
+     */
+    private void flushPendingWrites() {
+        MediatorConnection connection;
+        while ((connection = pendingWrites.poll()) != null) {
+            // messages that are queued from now on schedule a new flush
+            connection.writeScheduled.set(false);
+            if (connection.closed.get()) {
+                continue;
+            }
+            try {
+                connection.flush();
+            } catch (IOException e) {
+                logger.debug("IOException while writing: {}", e.getMessage());
+                connection.close();
+            } catch (CancelledKeyException e) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * Reads and writes data of the connection to that the given key belongs.
+     * 
+     * @param key
+     *            the selected key
+     */
+    private void handle(SelectionKey key) {
+        MediatorConnection connection = (MediatorConnection) key.attachment();
+        try {
+            if (key.isReadable()) {
+                connection.read();
+            }
+            if (key.isValid() && key.isWritable()) {
+                connection.flush();
+            }
+        } catch (IOException e) {
+            logger.debug("IOException while handling connection: {}", e.getMessage());
+            connection.close();
+        } catch (CancelledKeyException e) {
+            connection.close();
+        }
+    }
+
+    private static void closeChannel(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignore) {
+        }
+    }
+
+    /**
+     * Call of the {@link TargetRepository} that returns the response to a
+     * received message.
+     */
+    private interface RepositoryCall {
+        Message call();
+    }
+
+    /**
+     * A connection to a target or source. Gets attached to the selection key
+     * of its channel and acts as {@link TargetConnection} if a target registers
+     * over it.
+     */
+    private final class MediatorConnection implements TargetConnection {
+        private final SocketChannel channel;
+        private final InetSocketAddress remoteEndpoint;
+        private final OutboundQueue writeQueue = new OutboundQueue();
+        private final AtomicBoolean writeScheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        // responses that are produced by the repository executor
+        private final AtomicInteger pendingCalls = new AtomicInteger();
+        // only accessed by the event loop thread
+        private SelectionKey key;
+        private ByteBuffer partialMessage;
+        private boolean endOfStream;
+        private boolean closeAfterWrite;
+        private volatile String targetId;
+
+        MediatorConnection(SocketChannel channel, InetSocketAddress remoteEndpoint) {
+            this.channel = channel;
+            this.remoteEndpoint = remoteEndpoint;
+        }
+
+        public void send(byte[] encodedMessage) throws IOException {
+            checkOpen();
+            if (!writeQueue.offer(encodedMessage)) {
+                logger.warn("Connection {} does not keep up, closing it", remoteEndpoint);
+                close();
+                throw new IOException("Too many pending messages for " + remoteEndpoint);
+            }
+            scheduleWrite();
+        }
+
+        public boolean sendIfIdle(byte[] encodedMessage) throws IOException {
+            checkOpen();
+            if (!writeQueue.offerIfEmpty(encodedMessage)) {
+                return false;
+            }
+            scheduleWrite();
+            return true;
+        }
+
+        /**
+         * Appends the response of a repository call to the write queue. Gets
+         * called by the repository executor. The response is queued before
+         * the call stops to count as pending, so the connection does not get
+         * closed in between.
+         * 
+         * @param encodedMessage
+         *            the encoded response, or null if the call failed
+         */
+        private void complete(byte[] encodedMessage) {
+            boolean queued = encodedMessage != null
+                    && (closed.get() || writeQueue.offer(encodedMessage));
+            pendingCalls.decrementAndGet();
+            if (!queued) {
+                if (encodedMessage != null) {
+                    logger.warn("Connection {} does not keep up, closing it", remoteEndpoint);
+                }
+                close();
+            } else if (!closed.get()) {
+                scheduleWrite();
+            }
+        }
+
+        /**
+         * Returns whether so many responses are queued or pending that no
+         * further messages get handled.
+         */
+        private boolean isBacklogged() {
+            return writeQueue.size() + pendingCalls.get() >= MAX_PENDING_RESPONSES;
+        }
+
+        private void checkOpen() throws IOException {
+            if (closed.get()) {
+                throw new IOException("Connection is closed");
+            }
+        }
+
+        private void scheduleWrite() {
+            if (writeScheduled.compareAndSet(false, true)) {
+                pendingWrites.add(this);
+                if (Thread.currentThread() != eventLoopThread) {
+                    selector.wakeup();
+                }
+            }
+        }
+
+        public InetSocketAddress getRemoteEndpoint() {
+            return remoteEndpoint;
+        }
+
+        public void close() {
+            if (!closed.compareAndSet(false, true)) {
+                return;
+            }
+            writeQueue.clear();
+            closeChannel(channel);
+            String id = targetId;
+            if (id != null) {
+                repository.unregisterTarget(id, this);
+                logger.info("Connection to target {} closed", id);
+            }
+            if (Thread.currentThread() != eventLoopThread) {
+                // let the selector deregister the channel
+                selector.wakeup();
+            }
+        }
+
+        /**
+         * Reads the available bytes and handles the messages that are
+         * complete.
+         */
+        void read() throws IOException {
+            readBuffer.clear();
+            if (partialMessage != null) {
+                readBuffer.put(partialMessage);
+                partialMessage = null;
+            }
+            int len = channel.read(readBuffer);
+            readBuffer.flip();
+            handleReceivedMessages();
+            if (len < 0) {
+                // the remote side won't send more messages
+                endOfStream = true;
+            }
+            if (!closed.get()) {
+                flush();
+            }
+        }
+
+        /**
+         * Handles the complete messages in the read buffer as long as the
+         * write queue is not too long. The remaining bytes are kept until
+         * more bytes are received or the write queue got shorter.
+         */
+        private void handleReceivedMessages() throws IOException {
+            while (!closeAfterWrite && !closed.get() && !isBacklogged()) {
+                int frameLength = MessageFramer.getFrameLength(readBuffer);
+                if (frameLength == MessageFramer.INCOMPLETE) {
+                    if (readBuffer.remaining() == readBuffer.capacity()) {
+                        throw new MessageFormatException("Message too long");
+                    }
+                    break;
+                }
+                int position = readBuffer.position();
+                Message message = new MessageDecoder(new ByteArrayInputStream(readBuffer.array(),
+                        position, frameLength)).decodeMessage();
+                readBuffer.position(position + frameLength);
+                handleMessage(message);
+            }
+            if (!closeAfterWrite && readBuffer.hasRemaining()) {
+                partialMessage = ByteBuffer.allocate(readBuffer.remaining());
+                partialMessage.put(readBuffer).flip();
+            }
+        }
+
+        /**
+         * Writes as many queued messages as possible without blocking and
+         * handles the held back messages if the write queue got short enough.
+         */
+        void flush() throws IOException {
+            while (true) {
+                ByteBuffer buffer;
+                while ((buffer = writeQueue.peek()) != null) {
+                    channel.write(buffer);
+                    if (buffer.hasRemaining()) {
+                        break;
+                    }
+                    writeQueue.remove();
+                }
+                if (closeAfterWrite || closed.get() || isBacklogged() || !hasHeldBackMessage()) {
+                    break;
+                }
+                readBuffer.clear();
+                readBuffer.put(partialMessage);
+                partialMessage = null;
+                readBuffer.flip();
+                handleReceivedMessages();
+            }
+            if (closed.get()) {
+                return;
+            }
+            if (endOfStream && !hasHeldBackMessage()) {
+                closeAfterWrite = true;
+            }
+            if (closeAfterWrite && writeQueue.isEmpty() && pendingCalls.get() == 0) {
+                close();
+                return;
+            }
+            int ops = 0;
+            if (!closeAfterWrite && !isBacklogged()) {
+                ops |= SelectionKey.OP_READ;
+            }
+            if (!writeQueue.isEmpty()) {
+                ops |= SelectionKey.OP_WRITE;
+            }
+            key.interestOps(ops);
+        }
+
+        /**
+         * Returns whether a complete message was received but not handled yet.
+         */
+        private boolean hasHeldBackMessage() throws IOException {
+            return partialMessage != null
+                    && MessageFramer.getFrameLength(partialMessage) != MessageFramer.INCOMPLETE;
+        }
+
+        /**
+         * Handles a received message like a {@link MessageHandlerTask}.
+         * Connections of sources get closed after the response is written,
+         * unless the source uses a session. Connections of targets stay open
+         * after the registration.
+         */
+        private void handleMessage(Message message) throws IOException {
+            if (message instanceof SessionMessage) {
+                final SessionMessage sessionMessage = (SessionMessage) message;
+                respond(new RepositoryCall() {
+                    public Message call() {
+                        return sessionRequestHandler.handle(sessionMessage,
+                                remoteEndpoint.getAddress());
+                    }
+                });
+            } else if (message instanceof RegisterMessage) {
+                RegisterMessage registerMessage = (RegisterMessage) message;
+                logger.info("Handling RegisterMessage for target: {}", registerMessage);
+                // queue the response first, so it precedes all forwarded endpoints
+                send(encoder.encodeMessage(new RegisterResponseMessage(true)));
+                targetId = registerMessage.getId();
+                repository.insertOrUpdateTarget(registerMessage.getId(),
+                        new InetSocketAddress(registerMessage.getPrivateIP(),
+                                registerMessage.getPrivatePort()), this);
+            } else if (message instanceof ConnectionRequestMessage) {
+                final ConnectionRequestMessage connectionRequestMessage =
+                        (ConnectionRequestMessage) message;
+                logger.info("Handling ConnectionRequestMessage for target: {}",
+                        connectionRequestMessage);
+                respond(new RepositoryCall() {
+                    public Message call() {
+                        return repository.requestConnection(connectionRequestMessage,
+                                remoteEndpoint);
+                    }
+                });
+                closeAfterWrite = true;
+            } else if (message instanceof ListRequestMessage) {
+                logger.info("Handling ListRequestMessage");
+                respond(new RepositoryCall() {
+                    public Message call() {
+                        return new ListResponseMessage(repository.getRegisteredTargets());
+                    }
+                });
+                closeAfterWrite = true;
+            } else if (message instanceof UnregisterMessage) {
+                UnregisterMessage unregisterMessage = (UnregisterMessage) message;
+                logger.info("Handling UnregisterMessage for target: {}", unregisterMessage.getId());
+                repository.unregisterTarget(unregisterMessage.getId());
+                closeAfterWrite = true;
+            } else {
+                send(encoder.encodeMessage(new ExceptionMessage(Error.UnknownMessage)));
+                closeAfterWrite = true;
+            }
+        }
+
+        /**
+         * Sends the response of the given repository call. The call is made
+         * by the repository executor if the repository may block, otherwise
+         * right away.
+         */
+        private void respond(final RepositoryCall call) throws IOException {
+            if (repositoryExecutor == null) {
+                send(encoder.encodeMessage(call.call()));
+                return;
+            }
+            pendingCalls.incrementAndGet();
+            try {
+                repositoryExecutor.execute(new Runnable() {
+                    public void run() {
+                        byte[] response = null;
+                        try {
+                            response = new MessageEncoder().encodeMessage(call.call());
+                        } catch (IOException e) {
+                            logger.error("IOException while encoding response: {}", e);
+                        } finally {
+                            complete(response);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // the event loop is shut down
+                pendingCalls.decrementAndGet();
+                throw new IOException("Event loop is shut down");
+            }
+        }
+    }
+}
@@ -18,24 +18,21 @@
 package de.htwg_konstanz.in.uce.hp.parallel.mediator;
 
 import java.io.IOException;
-import java.net.InetAddress;
+import java.io.PushbackInputStream;
 import java.net.InetSocketAddress;
 import java.net.Socket;
-import java.util.NoSuchElementException;
-import java.util.UUID;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import de.htwg_konstanz.in.uce.hp.parallel.mediator.Repository.RepositoryValue;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.ConnectionRequestMessage;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.ExceptionMessage;
-import de.htwg_konstanz.in.uce.hp.parallel.messages.ForwardEndpointsMessage;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.ListRequestMessage;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.ListResponseMessage;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.Message;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.RegisterMessage;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.RegisterResponseMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.SessionMessage;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.UnregisterMessage;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.ExceptionMessage.Error;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.coder.MessageDecoder;
@@ -51,9 +48,10 @@ final class MessageHandlerTask implements Runnable {
 
     private static final Logger logger = LoggerFactory.getLogger(MessageHandlerTask.class);
     private final Socket s;
+    private final TargetRepository repository;
 
     /**
-     * Creates a new MessageHandlerTask.
+     * Creates a new MessageHandlerTask that uses {@link Repository#INSTANCE}.
      * 
      * @param s
      *            the socket of the connection from which the message is
@@ -64,7 +62,25 @@ final class MessageHandlerTask implements Runnable {
      *             if the given socket is closed or not connected.
      */
     MessageHandlerTask(Socket s) throws NullPointerException, IllegalArgumentException {
-        if (s == null) {
+        this(s, Repository.INSTANCE);
+    }
+
+    /**
+     * Creates a new MessageHandlerTask.
+     * 
+     * @param s
+     *            the socket of the connection from which the message is
+     *            expected.
+     * @param repository
+     *            the repository of the registered targets.
+     * @throws NullPointerException
+     *             if one of the parameters is null.
+     * @throws IllegalArgumentException
+     *             if the given socket is closed or not connected.
+     */
+    MessageHandlerTask(Socket s, TargetRepository repository) throws NullPointerException,
+            IllegalArgumentException {
+        if (s == null || repository == null) {
             throw new NullPointerException();
         }
         if (s.isClosed() || !s.isConnected()) {
@@ -72,26 +88,32 @@ final class MessageHandlerTask implements Runnable {
                     "Wrong argument: socket must not be closed and has to be connected");
         }
         this.s = s;
+        this.repository = repository;
     }
 
     /**
      * Reads, decodes and handles the message. Can handle the following
      * messages: {@link RegisterMessage}, {@link ConnectionRequestMessage},
-     * {@link ListRequestMessage} and {@link UnregisterMessage}.
+     * {@link ListRequestMessage}, {@link UnregisterMessage} and
+     * {@link SessionMessage}. A {@link SessionMessage} starts a session; the
+     * connection stays open until the source closes it.
      */
     public final void run() {
         try {
             MessageDecoder md = new MessageDecoder(s.getInputStream());
             Message message = md.decodeMessage();
             MessageEncoder me = new MessageEncoder();
-            if (message instanceof RegisterMessage) {
+            if (message instanceof SessionMessage) {
+                handleSession((SessionMessage) message, me);
+            } else if (message instanceof RegisterMessage) {
                 RegisterMessage registerMessage = (RegisterMessage) message;
                 logger.info("Handling RegisterMessage for target: {}", registerMessage);
                 synchronized (s.getOutputStream()) {
-                    Repository.INSTANCE.insertOrUpdateID(
+                    repository.insertOrUpdateTarget(
                             registerMessage.getId(),
                             new InetSocketAddress(registerMessage.getPrivateIP(), registerMessage
-                                    .getPrivatePort()), s);
+                                    .getPrivatePort()),
+                            new SocketTargetConnection(registerMessage.getId(), s, repository));
                     RegisterResponseMessage response = new RegisterResponseMessage(true);
                     s.getOutputStream().write(me.encodeMessage(response));
                 }
@@ -99,50 +121,20 @@ final class MessageHandlerTask implements Runnable {
                 ConnectionRequestMessage connectionRequestMessage = (ConnectionRequestMessage) message;
                 logger.info("Handling ConnectionRequestMessage for target: {}",
                         connectionRequestMessage);
-                InetAddress privateIPAddressOfSource = connectionRequestMessage.getPrivateIP();
-                int privatePortOfSource = connectionRequestMessage.getPrivatePort();
-                InetAddress publicIPAddressOfSource = s.getInetAddress();
-                int publicPortOfSource = s.getPort();
-                RepositoryValue repoValue;
-                try {
-                    repoValue = Repository.INSTANCE.getRepositoryEntry(connectionRequestMessage
-                            .getId());
-                } catch (NoSuchElementException e) {
-                    ExceptionMessage exm = new ExceptionMessage(Error.TargetNotRegistered);
-                    s.getOutputStream().write(me.encodeMessage(exm));
-                    s.close();
-                    return;
-                }
-                InetSocketAddress privateEndpointOfTarget = repoValue.privateEndpoint;
-                InetAddress privateIPAddressOfTarget = privateEndpointOfTarget.getAddress();
-                int privatePortOfTarget = privateEndpointOfTarget.getPort();
-                Socket socketToTarget = repoValue.registerSocket;
-                InetAddress publicIPAddressOfTarget = socketToTarget.getInetAddress();
-                int publicPortOfTarget = socketToTarget.getPort();
-                UUID authenticationToken = UUID.randomUUID();
-                ForwardEndpointsMessage toTarget = new ForwardEndpointsMessage(
-                        privateIPAddressOfSource, privatePortOfSource, publicIPAddressOfSource,
-                        publicPortOfSource, authenticationToken);
-                ForwardEndpointsMessage toSource = new ForwardEndpointsMessage(
-                        privateIPAddressOfTarget, privatePortOfTarget, publicIPAddressOfTarget,
-                        publicPortOfTarget, authenticationToken);
-                logger.info("Sending Endpoints of source to target: {}", toTarget);
-                synchronized (socketToTarget.getOutputStream()) {
-                    socketToTarget.getOutputStream().write(me.encodeMessage(toTarget));
-                }
-                logger.info("Sending Endpoints of target to source: {}", toSource);
-                s.getOutputStream().write(me.encodeMessage(toSource));
+                Message response = repository.requestConnection(connectionRequestMessage,
+                        new InetSocketAddress(s.getInetAddress(), s.getPort()));
+                s.getOutputStream().write(me.encodeMessage(response));
                 s.close();
             } else if (message instanceof ListRequestMessage) {
                 logger.info("Handling ListRequestMessage");
                 ListResponseMessage response = new ListResponseMessage(
-                        Repository.INSTANCE.getRegisteredTargets());
+                        repository.getRegisteredTargets());
                 s.getOutputStream().write(me.encodeMessage(response));
                 s.close();
             } else if (message instanceof UnregisterMessage) {
                 UnregisterMessage unregisterMessage = (UnregisterMessage) message;
                 logger.info("Handling UnregisterMessage for target: {}", unregisterMessage.getId());
-                Repository.INSTANCE.unregisterTarget(unregisterMessage.getId());
+                repository.unregisterTarget(unregisterMessage.getId());
                 s.close();
             } else {
                 ExceptionMessage exm = new ExceptionMessage(Error.UnknownMessage);
@@ -159,4 +151,48 @@ final class MessageHandlerTask implements Runnable {
         }
     }
 
+    /**
+     * Handles the given request and all following requests of a session
+     * until the source closes the connection.
+     * 
+     * @param firstRequest
+     *            the first request of the session
+     * @param me
+     *            the encoder for the responses
+     * @throws IOException
+     *             if an I/O error occurs or a malformed message is received
+     */
+    private void handleSession(SessionMessage firstRequest, MessageEncoder me)
+            throws IOException {
+        logger.info("Handling session of source {}", s.getRemoteSocketAddress());
+        SessionRequestHandler handler = new SessionRequestHandler(repository);
+        // allows to distinguish the end of the session from a malformed message
+        PushbackInputStream in = new PushbackInputStream(s.getInputStream());
+        MessageDecoder md = new MessageDecoder(in);
+        Message message = firstRequest;
+        while (true) {
+            if (!(message instanceof SessionMessage)) {
+                throw new IOException("Unexpected message in session: " + message);
+            }
+            SessionMessage response = handler.handle((SessionMessage) message,
+                    s.getInetAddress());
+            s.getOutputStream().write(me.encodeMessage(response));
+            if (!hasNextMessage(in)) {
+                break;
+            }
+            message = md.decodeMessage();
+        }
+        logger.info("Session of source {} closed", s.getRemoteSocketAddress());
+        s.close();
+    }
+
+    private static boolean hasNextMessage(PushbackInputStream in) throws IOException {
+        int b = in.read();
+        if (b < 0) {
+            return false;
+        }
+        in.unread(b);
+        return true;
+    }
+
 }
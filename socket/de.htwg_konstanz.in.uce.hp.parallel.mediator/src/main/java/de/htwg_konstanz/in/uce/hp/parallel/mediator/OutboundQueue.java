@@ -0,0 +1,144 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.hp.parallel.mediator;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded queue of the encoded messages that wait to be written to one
+ * target. Messages can be added by any thread, but only one writer at a time
+ * may take them out. A message stays in the queue until it is written
+ * completely, so it counts against the capacity while it is being written.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+final class OutboundQueue {
+
+    /**
+     * Default number of messages that may wait for a target. A target that
+     * has more pending messages is considered as dead.
+     */
+    static final int DEFAULT_CAPACITY = 16;
+    private final Queue<ByteBuffer> messages = new ConcurrentLinkedQueue<ByteBuffer>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final int capacity;
+
+    /**
+     * Creates a new {@link OutboundQueue} with {@link #DEFAULT_CAPACITY}.
+     */
+    OutboundQueue() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new {@link OutboundQueue}.
+     * 
+     * @param capacity
+     *            the maximum number of pending messages
+     * @throws IllegalArgumentException
+     *             if capacity is not positive
+     */
+    OutboundQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Appends the given message if the queue is not full.
+     * 
+     * @param encodedMessage
+     *            the encoded message
+     * @return true if the message was appended, false if the queue is full
+     */
+    boolean offer(byte[] encodedMessage) {
+        if (size.incrementAndGet() > capacity) {
+            size.decrementAndGet();
+            return false;
+        }
+        messages.add(ByteBuffer.wrap(encodedMessage));
+        return true;
+    }
+
+    /**
+     * Appends the given message only if no other message is pending.
+     * 
+     * @param encodedMessage
+     *            the encoded message
+     * @return true if the message was appended, false if other messages are
+     *         pending
+     */
+    boolean offerIfEmpty(byte[] encodedMessage) {
+        if (!size.compareAndSet(0, 1)) {
+            return false;
+        }
+        messages.add(ByteBuffer.wrap(encodedMessage));
+        return true;
+    }
+
+    /**
+     * Returns the first pending message without removing it. The position of
+     * the returned buffer may be advanced by the writer.
+     * 
+     * @return the first pending message or null if the queue is empty
+     */
+    ByteBuffer peek() {
+        return messages.peek();
+    }
+
+    /**
+     * Removes the first pending message after it was written completely.
+     */
+    void remove() {
+        if (messages.poll() != null) {
+            size.decrementAndGet();
+        }
+    }
+
+    /**
+     * Returns whether messages are pending.
+     * 
+     * @return true if no message is pending
+     */
+    boolean isEmpty() {
+        return messages.isEmpty();
+    }
+
+    /**
+     * Returns the number of pending messages.
+     * 
+     * @return the number of pending messages
+     */
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * Discards all pending messages.
+     */
+    void clear() {
+        while (messages.poll() != null) {
+            size.decrementAndGet();
+        }
+    }
+}
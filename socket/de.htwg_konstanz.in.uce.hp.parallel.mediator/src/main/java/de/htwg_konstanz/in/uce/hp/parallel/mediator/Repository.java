@@ -17,30 +17,48 @@
 
 package de.htwg_konstanz.in.uce.hp.parallel.mediator;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.htwg_konstanz.in.uce.hp.parallel.mediator.KeepAliveScheduler.Registration;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ConnectionRequestMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ExceptionMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ExceptionMessage.Error;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ForwardEndpointsMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.Message;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.coder.MessageEncoder;
+
 /**
- * Repository for registered targets. Implemented as a singleton.
+ * In-memory repository for registered targets. {@link #INSTANCE} is the
+ * repository of a mediator that is not part of a cluster. Further instances
+ * are used by the {@link ShardedTargetRepository} of clustered mediators.
  * 
  * @author Daniel Maier
  * 
  */
-enum Repository {
-    INSTANCE;
+final class Repository implements TargetRepository {
+
+    /**
+     * The repository of a mediator that is not part of a cluster.
+     */
+    static final Repository INSTANCE = new Repository();
 
     /**
      * Class to hold the values for a registered target. The values are the
-     * private endpoint of the target, the socket to the target and the
-     * {@link ScheduledFuture} of its {@link KeepAliveTask}.
+     * private endpoint of the target, the connection to the target and the
+     * registration of its {@link KeepAliveTask}. The socket to the
+     * target is only set if the target registered over a blocking connection,
+     * otherwise it is null.
      * 
      * @author Daniel Maier
      * 
@@ -48,21 +66,31 @@ enum Repository {
     static class RepositoryValue {
         final InetSocketAddress privateEndpoint;
         final Socket registerSocket;
-        final ScheduledFuture<?> keepAliveFuture;
+        final TargetConnection connection;
+        final Registration keepAliveRegistration;
 
         public RepositoryValue(InetSocketAddress privateEndpoint, Socket registerSocket,
-                ScheduledFuture<?> keepAliveFuture) {
+                TargetConnection connection, Registration keepAliveRegistration) {
             this.privateEndpoint = privateEndpoint;
             this.registerSocket = registerSocket;
-            this.keepAliveFuture = keepAliveFuture;
+            this.connection = connection;
+            this.keepAliveRegistration = keepAliveRegistration;
         }
     }
 
-    private static final int KEEP_ALIVE_POOL_SIZE = 10;
     private static final int KEEP_ALIVE_INTERVAL = 10 * 60; // in seconds
+    private static final int KEEP_ALIVE_BUCKETS = 60;
+    private static final Logger logger = LoggerFactory.getLogger(Repository.class);
     private final Map<String, RepositoryValue> repo = new ConcurrentHashMap<String, Repository.RepositoryValue>();
-    private final ScheduledExecutorService keepAliveExecutor = Executors
-            .newScheduledThreadPool(KEEP_ALIVE_POOL_SIZE);
+    private final KeepAliveScheduler keepAliveScheduler = new KeepAliveScheduler(
+            KEEP_ALIVE_INTERVAL, TimeUnit.SECONDS, KEEP_ALIVE_BUCKETS);
+    private final MessageEncoder encoder = new MessageEncoder();
+
+    /**
+     * Creates a new empty {@link Repository}.
+     */
+    Repository() {
+    }
 
     /**
      * Inserts or updates a new entry for the given ID. This method also starts
@@ -79,14 +107,33 @@ enum Repository {
      */
     void insertOrUpdateID(String id, InetSocketAddress privateEndpoint, Socket socketToTarget)
             throws NullPointerException {
-        if (id == null || privateEndpoint == null || socketToTarget == null) {
+        if (id == null || socketToTarget == null) {
+            throw new NullPointerException();
+        }
+        insertOrUpdate(id, privateEndpoint, socketToTarget,
+                new SocketTargetConnection(id, socketToTarget, this));
+    }
+
+    /**
+     * Inserts or updates a new entry for the given ID. This method also
+     * starts a {@link KeepAliveTask} for the given target.
+     */
+    public void insertOrUpdateTarget(String id, InetSocketAddress privateEndpoint,
+            TargetConnection connection) throws NullPointerException {
+        insertOrUpdate(id, privateEndpoint, null, connection);
+    }
+
+    private void insertOrUpdate(String id, InetSocketAddress privateEndpoint,
+            Socket socketToTarget, TargetConnection connection) {
+        if (id == null || privateEndpoint == null || connection == null) {
             throw new NullPointerException();
         }
         unregisterTarget(id);
         // start keep alive task
-        ScheduledFuture<?> future = keepAliveExecutor.scheduleWithFixedDelay(new KeepAliveTask(id,
-                socketToTarget), KEEP_ALIVE_INTERVAL, KEEP_ALIVE_INTERVAL, TimeUnit.SECONDS);
-        RepositoryValue value = new RepositoryValue(privateEndpoint, socketToTarget, future);
+        Registration registration = keepAliveScheduler.schedule(new KeepAliveTask(id,
+                connection));
+        RepositoryValue value = new RepositoryValue(privateEndpoint, socketToTarget, connection,
+                registration);
         repo.put(id, value);
     }
 
@@ -108,19 +155,59 @@ enum Repository {
     }
 
     /**
-     * Turns the singleton object into original state.
+     * Turns the repository into its original state.
      */
     void reset() {
+        for (RepositoryValue value : repo.values()) {
+            value.keepAliveRegistration.cancel();
+        }
         repo.clear();
     }
 
+    public Set<String> getRegisteredTargets() {
+        return repo.keySet();
+    }
+
     /**
-     * Returns all targets that are registered at the moment.
+     * Returns whether a target with the given ID is registered.
      * 
-     * @return all registered targets.
+     * @param id
+     *            the ID of the target
+     * @return true if the target is registered
      */
-    Set<String> getRegisteredTargets() {
-        return repo.keySet();
+    boolean containsTarget(String id) {
+        return repo.containsKey(id);
+    }
+
+    /**
+     * Forwards the endpoints of the source to the target and returns the
+     * endpoints of the target.
+     */
+    public Message requestConnection(ConnectionRequestMessage request,
+            InetSocketAddress publicEndpointOfSource) {
+        RepositoryValue repoValue = repo.get(request.getId());
+        if (repoValue == null) {
+            return new ExceptionMessage(Error.TargetNotRegistered);
+        }
+        InetSocketAddress publicEndpointOfTarget = repoValue.connection.getRemoteEndpoint();
+        UUID authenticationToken = UUID.randomUUID();
+        ForwardEndpointsMessage toTarget = new ForwardEndpointsMessage(request.getPrivateIP(),
+                request.getPrivatePort(), publicEndpointOfSource.getAddress(),
+                publicEndpointOfSource.getPort(), authenticationToken);
+        ForwardEndpointsMessage toSource = new ForwardEndpointsMessage(
+                repoValue.privateEndpoint.getAddress(), repoValue.privateEndpoint.getPort(),
+                publicEndpointOfTarget.getAddress(), publicEndpointOfTarget.getPort(),
+                authenticationToken);
+        logger.info("Sending Endpoints of source to target: {}", toTarget);
+        try {
+            repoValue.connection.send(encoder.encodeMessage(toTarget));
+        } catch (IOException e) {
+            // the target got disconnected and unregistered
+            logger.info("Could not forward endpoints to target: {}", e.getMessage());
+            return new ExceptionMessage(Error.TargetNotRegistered);
+        }
+        logger.info("Sending Endpoints of target to source: {}", toSource);
+        return toSource;
     }
 
     /**
@@ -130,11 +217,58 @@ enum Repository {
      * @param id
      *            the ID of the target to be unregistered
      */
-    void unregisterTarget(String id) {
+    public void unregisterTarget(String id) {
         RepositoryValue value = repo.remove(id);
         // stop keep-alive task
         if (value != null) {
-            value.keepAliveFuture.cancel(true);
+            value.keepAliveRegistration.cancel();
         }
     }
+
+    /**
+     * Unregisters the given target only if it is still registered with the
+     * given connection. Used when a connection to a target gets closed, as
+     * the target might have registered again over a new connection in the
+     * meantime.
+     * 
+     * @param id
+     *            the ID of the target to be unregistered
+     * @param connection
+     *            the connection that got closed
+     * @return true if the target got unregistered
+     */
+    public boolean unregisterTarget(String id, TargetConnection connection) {
+        RepositoryValue value = repo.get(id);
+        if (value != null && value.connection == connection && repo.remove(id, value)) {
+            value.keepAliveRegistration.cancel();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the scheduler that sends the keep-alives to the registered
+     * targets, e.g. to query the number of missed keep-alives.
+     * 
+     * @return the keep-alive scheduler
+     */
+    KeepAliveScheduler getKeepAliveScheduler() {
+        return keepAliveScheduler;
+    }
+
+    /**
+     * Returns false, the targets are held in memory.
+     */
+    public boolean mayBlock() {
+        return false;
+    }
+
+    /**
+     * Unregisters all targets and stops the thread that sends the
+     * keep-alives.
+     */
+    public void shutdown() {
+        reset();
+        keepAliveScheduler.shutdown();
+    }
 }
@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.hp.parallel.mediator;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Thread that accepts connections over TCP and hands them over to a fixed
+ * number of {@link MediatorEventLoop MediatorEventLoops} in turn. In contrast
+ * to the {@link ListenerThread} no thread is bound to a connection, so the
+ * connections of many registered targets can be held open at the same time.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+final class SelectorListenerThread extends Thread {
+
+    private static final Logger logger = LoggerFactory.getLogger(SelectorListenerThread.class);
+    private final ServerSocketChannel serverChannel;
+    private final MediatorEventLoop[] eventLoops;
+
+    /**
+     * Creates a new SelectorListenerThread.
+     * 
+     * @param bindingPort
+     *            the port on that the mediator should listen for messages.
+     * @param eventLoops
+     *            the number of event loop threads.
+     * @throws IOException
+     *             if an IOException occurs while creating the listener socket
+     *             or the selectors.
+     * @throws IllegalArgumentException
+     *             if eventLoops is not positive.
+     */
+    SelectorListenerThread(int bindingPort, int eventLoops) throws IOException {
+        this(bindingPort, eventLoops, Repository.INSTANCE);
+    }
+
+    /**
+     * Creates a new SelectorListenerThread that registers the targets in the
+     * given repository.
+     * 
+     * @param bindingPort
+     *            the port on that the mediator should listen for messages.
+     * @param eventLoops
+     *            the number of event loop threads.
+     * @param repository
+     *            the repository of the registered targets.
+     * @throws IOException
+     *             if an IOException occurs while creating the listener socket
+     *             or the selectors.
+     * @throws IllegalArgumentException
+     *             if eventLoops is not positive.
+     * @throws NullPointerException
+     *             if the given repository is null.
+     */
+    SelectorListenerThread(int bindingPort, int eventLoops, TargetRepository repository)
+            throws IOException {
+        if (repository == null) {
+            throw new NullPointerException();
+        }
+        if (eventLoops <= 0) {
+            throw new IllegalArgumentException("eventLoops must be positive");
+        }
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.socket().bind(new InetSocketAddress(bindingPort));
+        this.eventLoops = new MediatorEventLoop[eventLoops];
+        for (int i = 0; i < eventLoops; i++) {
+            this.eventLoops[i] = new MediatorEventLoop(repository);
+        }
+    }
+
+    /**
+     * Starts the event loops and accepts connections until the thread gets
+     * interrupted.
+     */
+    @Override
+    public final void run() {
+        for (int i = 0; i < eventLoops.length; i++) {
+            new Thread(eventLoops[i], "mediator-event-loop-" + i).start();
+        }
+        int nextEventLoop = 0;
+        try {
+            while (!isInterrupted()) {
+                SocketChannel channel = serverChannel.accept();
+                logger.debug("New connection from: {}", channel);
+                eventLoops[nextEventLoop].register(channel);
+                nextEventLoop = (nextEventLoop + 1) % eventLoops.length;
+            }
+        } catch (IOException e) {
+            logger.error("IOException while accepting connection: {}", e.getMessage());
+        } finally {
+            logger.info("entered finally block. interrupt status is: {}", isInterrupted());
+            for (MediatorEventLoop eventLoop : eventLoops) {
+                eventLoop.shutdown();
+            }
+        }
+    }
+
+    @Override
+    public final void interrupt() {
+        try {
+            serverChannel.close();
+        } catch (IOException ignore) {
+        }
+        super.interrupt();
+    }
+}
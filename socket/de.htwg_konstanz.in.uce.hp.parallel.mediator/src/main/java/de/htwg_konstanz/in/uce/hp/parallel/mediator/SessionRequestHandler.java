@@ -0,0 +1,102 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.hp.parallel.mediator;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ConnectionRequestMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ExceptionMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ExceptionMessage.Error;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ListRequestMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ListResponseMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.Message;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.SessionMessage;
+
+/**
+ * Handles the requests that a source sends within a session. A session is a
+ * long-lived connection from a source over that it sends several
+ * {@link ConnectionRequestMessage ConnectionRequestMessages} and
+ * {@link ListRequestMessage ListRequestMessages}, each wrapped in a
+ * {@link SessionMessage}. Every request is answered with a
+ * {@link SessionMessage} that contains the request ID of the request.
+ * <p>
+ * Without a session the public endpoint of a source is the remote endpoint of
+ * the connection that carries the connection request, because the source
+ * opens this connection from the local port it uses for the hole punching
+ * attempt. Within a session all requests share one connection, so the source
+ * announces the local port of each attempt as private port in the connection
+ * request. The public endpoint of the source is then the public IP address of
+ * the session connection together with the announced port. This presumes a
+ * port preserving NAT in front of the source.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+final class SessionRequestHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(SessionRequestHandler.class);
+    private final TargetRepository repository;
+
+    /**
+     * Creates a new {@link SessionRequestHandler}.
+     * 
+     * @param repository
+     *            the repository of the registered targets
+     * @throws NullPointerException
+     *             if the given repository is null
+     */
+    SessionRequestHandler(TargetRepository repository) {
+        if (repository == null) {
+            throw new NullPointerException();
+        }
+        this.repository = repository;
+    }
+
+    /**
+     * Handles the request that is wrapped in the given session message.
+     * 
+     * @param request
+     *            the received session message
+     * @param publicIPAddressOfSource
+     *            the remote IP address of the session connection
+     * @return the response to the source with the request ID of the request
+     */
+    SessionMessage handle(SessionMessage request, InetAddress publicIPAddressOfSource) {
+        Message message = request.getMessage();
+        Message response;
+        if (message instanceof ConnectionRequestMessage) {
+            ConnectionRequestMessage connectionRequestMessage = (ConnectionRequestMessage) message;
+            logger.info("Handling ConnectionRequestMessage in session for target: {}",
+                    connectionRequestMessage);
+            // the announced port of the attempt is used as public port as well
+            response = repository.requestConnection(connectionRequestMessage,
+                    new InetSocketAddress(publicIPAddressOfSource,
+                            connectionRequestMessage.getPrivatePort()));
+        } else if (message instanceof ListRequestMessage) {
+            logger.info("Handling ListRequestMessage in session");
+            response = new ListResponseMessage(repository.getRegisteredTargets());
+        } else {
+            response = new ExceptionMessage(Error.UnknownMessage);
+        }
+        return new SessionMessage(request.getRequestId(), response);
+    }
+}
@@ -0,0 +1,398 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.hp.parallel.mediator;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ConnectionRequestMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ExceptionMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ExceptionMessage.Error;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.Message;
+
+/**
+ * {@link TargetRepository} of a node in a cluster of mediators. The target
+ * IDs are distributed across the nodes by a {@link ConsistentHashRing}; the
+ * node an ID is mapped to is the owner of the ID.
+ * <p>
+ * A target may register at any node. The node keeps the target in a local
+ * {@link Repository}, because only it can send messages to the target. If the
+ * node is not the owner of the ID, it tells the owner in the background which
+ * node holds the target, so the owner keeps a directory of its targets that
+ * are connected to other nodes.
+ * <p>
+ * Directory updates that fail, e.g. because the owner is restarting, are
+ * retried every {@link #DIRECTORY_RESYNC_INTERVAL} milliseconds with the state
+ * of the target at that time. A node that starts fills its directory from the
+ * lists of the targets that are connected to the other nodes, and retries
+ * every node that is not reachable at the same interval until it answered
+ * once. So a restarted owner learns the targets that registered at other
+ * nodes before it was up again.
+ * <p>
+ * A connection request of a source is handled locally if the target is
+ * connected to the node that received the request. Otherwise it is forwarded
+ * to the owner, and from the owner to the node that holds the target. The
+ * response is returned on the same way. Lists of registered targets are
+ * gathered from all nodes.
+ * <p>
+ * All nodes of a cluster have to be configured with the same list of nodes in
+ * the same order. The requests between the nodes are received by a
+ * {@link ClusterListenerThread}.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+final class ShardedTargetRepository implements TargetRepository {
+
+    /**
+     * Interval in milliseconds in that failed directory updates are retried
+     * and unreachable nodes are asked for their targets.
+     */
+    static final long DIRECTORY_RESYNC_INTERVAL = 5000;
+    private static final Logger logger = LoggerFactory.getLogger(ShardedTargetRepository.class);
+    private final Repository local = new Repository();
+    // targets owned by this node that are connected to other nodes
+    private final ConcurrentMap<String, Integer> directory = new ConcurrentHashMap<String, Integer>();
+    // sends the directory updates to the owners in order
+    private final ScheduledExecutorService directoryExecutor = Executors
+            .newSingleThreadScheduledExecutor();
+    // targets whose last directory update failed
+    private final Set<String> unsyncedTargets = Collections
+            .newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    // nodes whose targets were not listed yet, only accessed by the directory executor
+    private final Set<Integer> unlistedNodes = new HashSet<Integer>();
+    private final ConsistentHashRing ring;
+    private final int localNode;
+    // null for the local node
+    private final ClusterPeer[] peers;
+
+    /**
+     * Creates a new {@link ShardedTargetRepository}.
+     * 
+     * @param nodes
+     *            the cluster endpoints of all nodes of the cluster
+     * @param localNode
+     *            the index of this node in the list of nodes
+     * @throws NullPointerException
+     *             if the given list of nodes or one of its elements is null
+     * @throws IllegalArgumentException
+     *             if the list of nodes is empty or localNode is not an index
+     *             of the list
+     */
+    ShardedTargetRepository(List<InetSocketAddress> nodes, int localNode) {
+        if (nodes.isEmpty() || localNode < 0 || localNode >= nodes.size()) {
+            throw new IllegalArgumentException("Illegal local node " + localNode + " of "
+                    + nodes.size() + " nodes");
+        }
+        this.ring = new ConsistentHashRing(nodes.size());
+        this.localNode = localNode;
+        this.peers = new ClusterPeer[nodes.size()];
+        for (int i = 0; i < nodes.size(); i++) {
+            if (nodes.get(i) == null) {
+                throw new NullPointerException();
+            }
+            if (i != localNode) {
+                peers[i] = new ClusterPeer(nodes.get(i));
+                unlistedNodes.add(i);
+            }
+        }
+        directoryExecutor.scheduleWithFixedDelay(new Runnable() {
+            public void run() {
+                resyncDirectory();
+            }
+        }, 0, DIRECTORY_RESYNC_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Returns the index of this node.
+     * 
+     * @return the index of this node
+     */
+    int getLocalNode() {
+        return localNode;
+    }
+
+    /**
+     * Returns the node that owns the given ID.
+     * 
+     * @param id
+     *            the ID of a target
+     * @return the index of the owning node
+     */
+    int getOwner(String id) {
+        return ring.getNode(id);
+    }
+
+    public void insertOrUpdateTarget(String id, InetSocketAddress privateEndpoint,
+            TargetConnection connection) {
+        local.insertOrUpdateTarget(id, privateEndpoint, connection);
+        if (ring.getNode(id) == localNode) {
+            // the target is connected to the owner now
+            directory.remove(id);
+        } else {
+            updateDirectory(id);
+        }
+    }
+
+    public void unregisterTarget(String id) {
+        boolean registered = local.containsTarget(id);
+        local.unregisterTarget(id);
+        if (ring.getNode(id) == localNode) {
+            directory.remove(id);
+        } else if (registered) {
+            updateDirectory(id);
+        }
+    }
+
+    public boolean unregisterTarget(String id, TargetConnection connection) {
+        if (!local.unregisterTarget(id, connection)) {
+            return false;
+        }
+        if (ring.getNode(id) != localNode) {
+            updateDirectory(id);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the targets that are registered at any reachable node of the
+     * cluster. Nodes that do not respond are skipped.
+     */
+    public Set<String> getRegisteredTargets() {
+        Set<String> targets = new HashSet<String>(local.getRegisteredTargets());
+        for (ClusterPeer peer : peers) {
+            if (peer == null) {
+                continue;
+            }
+            try {
+                targets.addAll(peer.list());
+            } catch (IOException e) {
+                logger.warn("Could not list targets of cluster node {}: {}", peer.getAddress(),
+                        e.getMessage());
+            }
+        }
+        return targets;
+    }
+
+    public Message requestConnection(ConnectionRequestMessage request,
+            InetSocketAddress publicEndpointOfSource) {
+        String id = request.getId();
+        int owner = ring.getNode(id);
+        if (owner == localNode) {
+            return requestConnectionAsOwner(request, publicEndpointOfSource);
+        } else if (local.containsTarget(id)) {
+            return local.requestConnection(request, publicEndpointOfSource);
+        } else {
+            return forward(owner, request, publicEndpointOfSource, true);
+        }
+    }
+
+    /**
+     * Returns true, requests for targets of other nodes are forwarded to them.
+     */
+    public boolean mayBlock() {
+        return true;
+    }
+
+    /**
+     * Unregisters all local targets and closes the connections to the other
+     * nodes.
+     */
+    public void shutdown() {
+        directoryExecutor.shutdownNow();
+        for (ClusterPeer peer : peers) {
+            if (peer != null) {
+                peer.close();
+            }
+        }
+        local.shutdown();
+        directory.clear();
+        unsyncedTargets.clear();
+    }
+
+    /**
+     * Handles a connection request that was forwarded by another node.
+     * 
+     * @param request
+     *            the connection request of the source
+     * @param publicEndpointOfSource
+     *            the public endpoint of the source
+     * @param asOwner
+     *            true if this node is addressed as owner of the ID, false if
+     *            the target is expected to be connected to this node
+     * @return the response for the source
+     */
+    Message handleConnect(ConnectionRequestMessage request,
+            InetSocketAddress publicEndpointOfSource, boolean asOwner) {
+        if (asOwner) {
+            return requestConnectionAsOwner(request, publicEndpointOfSource);
+        }
+        return local.requestConnection(request, publicEndpointOfSource);
+    }
+
+    /**
+     * Records that a target owned by this node is connected to the given
+     * node. A former registration of the target at this node is replaced.
+     * 
+     * @param id
+     *            the ID of the target
+     * @param holder
+     *            the node to that the target is connected
+     */
+    void handlePut(String id, int holder) {
+        local.unregisterTarget(id);
+        directory.put(id, holder);
+    }
+
+    /**
+     * Removes the record of a target owned by this node, if the target is
+     * still recorded with the given node.
+     * 
+     * @param id
+     *            the ID of the target
+     * @param holder
+     *            the node to that the target was connected
+     */
+    void handleRemove(String id, int holder) {
+        directory.remove(id, holder);
+    }
+
+    /**
+     * Returns the targets that are connected to this node.
+     * 
+     * @return the targets that are connected to this node
+     */
+    Set<String> getLocalTargets() {
+        return local.getRegisteredTargets();
+    }
+
+    private Message requestConnectionAsOwner(ConnectionRequestMessage request,
+            InetSocketAddress publicEndpointOfSource) {
+        String id = request.getId();
+        if (local.containsTarget(id)) {
+            return local.requestConnection(request, publicEndpointOfSource);
+        }
+        Integer holder = directory.get(id);
+        if (holder == null || holder == localNode) {
+            return new ExceptionMessage(Error.TargetNotRegistered);
+        }
+        return forward(holder, request, publicEndpointOfSource, false);
+    }
+
+    private Message forward(int node, ConnectionRequestMessage request,
+            InetSocketAddress publicEndpointOfSource, boolean asOwner) {
+        logger.info("Forwarding connection request for target {} to cluster node {}",
+                request.getId(), peers[node].getAddress());
+        try {
+            return peers[node].connect(request, publicEndpointOfSource, asOwner);
+        } catch (IOException e) {
+            logger.warn("Could not forward connection request to cluster node {}: {}",
+                    peers[node].getAddress(), e.getMessage());
+            return new ExceptionMessage(Error.TargetNotRegistered);
+        }
+    }
+
+    /**
+     * Tells the owner of the given ID in the background whether the target is
+     * connected to this node.
+     */
+    private void updateDirectory(final String id) {
+        try {
+            directoryExecutor.execute(new Runnable() {
+                public void run() {
+                    sendDirectoryUpdate(id);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // the repository is shut down
+        }
+    }
+
+    /**
+     * Tells the owner of the given ID whether the target is connected to this
+     * node at the moment. If the owner cannot be reached, the update is
+     * retried by the next resync. Only called by the directory executor.
+     * 
+     * @param id
+     *            the ID of the target
+     * @return true if the owner was updated
+     */
+    private boolean sendDirectoryUpdate(String id) {
+        ClusterPeer owner = peers[ring.getNode(id)];
+        try {
+            if (local.containsTarget(id)) {
+                owner.put(id, localNode);
+            } else {
+                owner.remove(id, localNode);
+            }
+            unsyncedTargets.remove(id);
+            return true;
+        } catch (IOException e) {
+            logger.warn("Could not update directory of cluster node {}: {}",
+                    owner.getAddress(), e.getMessage());
+            unsyncedTargets.add(id);
+            return false;
+        }
+    }
+
+    /**
+     * Fills the directory from the nodes that were not listed yet and retries
+     * the failed directory updates. The updates for an owner that is still
+     * not reachable are kept for the next resync. Only called by the directory
+     * executor.
+     */
+    private void resyncDirectory() {
+        Iterator<Integer> nodes = unlistedNodes.iterator();
+        while (nodes.hasNext()) {
+            int node = nodes.next();
+            try {
+                for (String id : peers[node].list()) {
+                    if (ring.getNode(id) == localNode && !local.containsTarget(id)) {
+                        // a newer record of a directory update takes precedence
+                        directory.putIfAbsent(id, node);
+                    }
+                }
+                nodes.remove();
+            } catch (IOException e) {
+                logger.debug("Could not list targets of cluster node {}: {}",
+                        peers[node].getAddress(), e.getMessage());
+            }
+        }
+        Set<Integer> unreachableOwners = new HashSet<Integer>();
+        for (String id : unsyncedTargets) {
+            int owner = ring.getNode(id);
+            if (!unreachableOwners.contains(owner) && !sendDirectoryUpdate(id)) {
+                unreachableOwners.add(owner);
+            }
+        }
+    }
+}
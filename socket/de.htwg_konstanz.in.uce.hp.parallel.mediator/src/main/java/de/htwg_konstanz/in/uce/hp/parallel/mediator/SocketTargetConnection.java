@@ -0,0 +1,184 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.hp.parallel.mediator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link TargetConnection} over a socket with blocking I/O. Queued messages
+ * are written by a writer task that runs only while messages are pending, at
+ * most one per connection. The writer synchronizes on the output stream of
+ * the socket, so messages that are written directly to the socket, like the
+ * response to the registration, are not interleaved with queued messages.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+final class SocketTargetConnection implements TargetConnection {
+
+    private static final Logger logger = LoggerFactory.getLogger(SocketTargetConnection.class);
+    // a writer only occupies a thread while its connection has pending messages
+    private static final ExecutorService writerExecutor = Executors.newCachedThreadPool();
+    private final String targetId;
+    private final Socket socketToTarget;
+    private final TargetRepository repository;
+    private final OutboundQueue queue;
+    private final AtomicBoolean writerActive = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final Runnable writer = new Runnable() {
+        public void run() {
+            writePendingMessages();
+        }
+    };
+
+    /**
+     * Creates a new {@link SocketTargetConnection} with a queue of
+     * {@link OutboundQueue#DEFAULT_CAPACITY}.
+     * 
+     * @param targetId
+     *            the ID of the target, used to unregister it when the
+     *            connection gets closed
+     * @param socketToTarget
+     *            the socket to the target
+     * @param repository
+     *            the repository from that the target gets unregistered
+     * @throws NullPointerException
+     *             if one of the parameters is null
+     */
+    SocketTargetConnection(String targetId, Socket socketToTarget, TargetRepository repository) {
+        this(targetId, socketToTarget, repository, new OutboundQueue());
+    }
+
+    /**
+     * Creates a new {@link SocketTargetConnection}.
+     * 
+     * @param targetId
+     *            the ID of the target, used to unregister it when the
+     *            connection gets closed
+     * @param socketToTarget
+     *            the socket to the target
+     * @param repository
+     *            the repository from that the target gets unregistered
+     * @param queue
+     *            the queue for the pending messages
+     * @throws NullPointerException
+     *             if one of the parameters is null
+     */
+    SocketTargetConnection(String targetId, Socket socketToTarget, TargetRepository repository,
+            OutboundQueue queue) {
+        if (targetId == null || socketToTarget == null || repository == null || queue == null) {
+            throw new NullPointerException();
+        }
+        this.targetId = targetId;
+        this.socketToTarget = socketToTarget;
+        this.repository = repository;
+        this.queue = queue;
+    }
+
+    public void send(byte[] encodedMessage) throws IOException {
+        checkOpen();
+        if (!queue.offer(encodedMessage)) {
+            logger.warn("Target {} does not keep up, closing connection", targetId);
+            close();
+            throw new IOException("Too many pending messages for target " + targetId);
+        }
+        startWriter();
+    }
+
+    public boolean sendIfIdle(byte[] encodedMessage) throws IOException {
+        checkOpen();
+        if (!queue.offerIfEmpty(encodedMessage)) {
+            return false;
+        }
+        startWriter();
+        return true;
+    }
+
+    public InetSocketAddress getRemoteEndpoint() {
+        return new InetSocketAddress(socketToTarget.getInetAddress(), socketToTarget.getPort());
+    }
+
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        queue.clear();
+        try {
+            socketToTarget.close();
+        } catch (IOException ignore) {
+        }
+        repository.unregisterTarget(targetId, this);
+    }
+
+    private void checkOpen() throws IOException {
+        if (closed.get()) {
+            throw new IOException("Connection to target " + targetId + " is closed");
+        }
+    }
+
+    private void startWriter() {
+        if (writerActive.compareAndSet(false, true)) {
+            try {
+                writerExecutor.execute(writer);
+            } catch (RejectedExecutionException e) {
+                writerActive.set(false);
+                close();
+            }
+        }
+    }
+
+    /**
+     * Writes the pending messages until the queue is empty. Blocks as long
+     * as the target does not read, in the meantime further messages get
+     * queued until the queue is full.
+     */
+    private void writePendingMessages() {
+        try {
+            OutputStream out = socketToTarget.getOutputStream();
+            do {
+                ByteBuffer message;
+                while ((message = queue.peek()) != null) {
+                    synchronized (out) {
+                        out.write(message.array(), message.arrayOffset() + message.position(),
+                                message.remaining());
+                    }
+                    queue.remove();
+                }
+                writerActive.set(false);
+                // a message might have been queued after the last peek
+            } while (!queue.isEmpty() && writerActive.compareAndSet(false, true));
+        } catch (IOException e) {
+            if (!closed.get()) {
+                logger.error("IOException while writing to target {}: {}", targetId,
+                        e.getMessage());
+            }
+            close();
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.hp.parallel.mediator;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+
+/**
+ * Connection over that a registered target receives messages from the
+ * mediator. Implementations have to be thread-safe, because messages are sent
+ * by the handlers of other connections and by the {@link KeepAliveTask}.
+ * <p>
+ * Messages are queued in an {@link OutboundQueue} and written asynchronously,
+ * so a slow or stalled target never blocks the sender. If a target does not
+ * keep up, it gets disconnected and unregistered instead of queueing messages
+ * without limit.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+interface TargetConnection {
+
+    /**
+     * Queues the given encoded message for the target. If the queue of the
+     * target is full, the connection gets closed.
+     * 
+     * @param encodedMessage
+     *            the encoded message
+     * @throws IOException
+     *             if the connection is already closed or got closed because
+     *             the queue of the target is full
+     */
+    void send(byte[] encodedMessage) throws IOException;
+
+    /**
+     * Queues the given encoded message only if no other messages to the
+     * target are pending. Used for messages like keep-alives that are
+     * redundant as long as other messages are pending; they get dropped
+     * instead.
+     * 
+     * @param encodedMessage
+     *            the encoded message
+     * @return true if the message was queued, false if it was dropped
+     * @throws IOException
+     *             if the connection is already closed
+     */
+    boolean sendIfIdle(byte[] encodedMessage) throws IOException;
+
+    /**
+     * Returns the public endpoint of the target, i.e. the remote endpoint of
+     * this connection.
+     * 
+     * @return the public endpoint of the target
+     */
+    InetSocketAddress getRemoteEndpoint();
+
+    /**
+     * Closes the connection to the target.
+     */
+    void close();
+}
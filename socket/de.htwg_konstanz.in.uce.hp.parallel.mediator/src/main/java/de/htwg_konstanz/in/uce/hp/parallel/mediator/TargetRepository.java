@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.hp.parallel.mediator;
+
+import java.net.InetSocketAddress;
+import java.util.Set;
+
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ConnectionRequestMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ExceptionMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ForwardEndpointsMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.Message;
+
+/**
+ * Repository for the registered targets of a mediator. The message handlers
+ * of the mediator only use this interface, so the way the targets are stored
+ * can be exchanged. Implementations have to be thread-safe.
+ * <p>
+ * Two implementations exist: the in-memory {@link Repository} that holds all
+ * targets of a single mediator, and the {@link ShardedTargetRepository} that
+ * distributes the targets across a cluster of mediators.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+interface TargetRepository {
+
+    /**
+     * Inserts or updates the entry for the given ID of a target that is
+     * connected to this mediator.
+     * 
+     * @param id
+     *            the ID under that the target should get registered.
+     * @param privateEndpoint
+     *            the private endpoint of the registering target.
+     * @param connection
+     *            the connection to the target.
+     * @throws NullPointerException
+     *             if at least one of the parameters is null.
+     */
+    void insertOrUpdateTarget(String id, InetSocketAddress privateEndpoint,
+            TargetConnection connection);
+
+    /**
+     * Unregisters the target with the given ID.
+     * 
+     * @param id
+     *            the ID of the target to be unregistered
+     */
+    void unregisterTarget(String id);
+
+    /**
+     * Unregisters the given target only if it is still registered with the
+     * given connection. Used when a connection to a target gets closed, as
+     * the target might have registered again over a new connection in the
+     * meantime.
+     * 
+     * @param id
+     *            the ID of the target to be unregistered
+     * @param connection
+     *            the connection that got closed
+     * @return true if the target got unregistered
+     */
+    boolean unregisterTarget(String id, TargetConnection connection);
+
+    /**
+     * Returns all targets that are registered at the moment.
+     * 
+     * @return all registered targets.
+     */
+    Set<String> getRegisteredTargets();
+
+    /**
+     * Handles a connection request of a source. The endpoints of the source
+     * are forwarded to the requested target in a
+     * {@link ForwardEndpointsMessage}.
+     * 
+     * @param request
+     *            the connection request of the source
+     * @param publicEndpointOfSource
+     *            the public endpoint of the source as seen by the mediator
+     * @return the {@link ForwardEndpointsMessage} with the endpoints of the
+     *         target for the source, or an {@link ExceptionMessage} if the
+     *         target is not registered
+     */
+    Message requestConnection(ConnectionRequestMessage request,
+            InetSocketAddress publicEndpointOfSource);
+
+    /**
+     * Returns whether {@link #requestConnection} and
+     * {@link #getRegisteredTargets()} may block for requests to other
+     * mediators. Event loops must not call these methods on their own thread
+     * if they may block.
+     * 
+     * @return true if these methods may block
+     */
+    boolean mayBlock();
+
+    /**
+     * Releases the resources of this repository, e.g. the thread that sends
+     * the keep-alives. The repository must not be used afterwards.
+     */
+    void shutdown();
+}
@@ -0,0 +1,47 @@
+package de.htwg_konstanz.in.uce.hp.parallel.mediator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ConsistentHashRingTest {
+
+    private static final int IDS = 3000;
+
+    @Test
+    public void testMappingIsDeterministic() {
+        ConsistentHashRing ring = new ConsistentHashRing(3);
+        ConsistentHashRing other = new ConsistentHashRing(3);
+        for (int i = 0; i < IDS; i++) {
+            Assert.assertEquals(ring.getNode("target" + i), other.getNode("target" + i));
+        }
+    }
+
+    @Test
+    public void testIdsAreSpreadAcrossNodes() {
+        ConsistentHashRing ring = new ConsistentHashRing(3);
+        int[] counts = new int[3];
+        for (int i = 0; i < IDS; i++) {
+            counts[ring.getNode("target" + i)]++;
+        }
+        for (int count : counts) {
+            Assert.assertTrue("unbalanced: " + count, count > IDS / 6);
+        }
+    }
+
+    @Test
+    public void testOnlyIdsOfRemovedNodeMove() {
+        ConsistentHashRing three = new ConsistentHashRing(3);
+        ConsistentHashRing two = new ConsistentHashRing(2);
+        for (int i = 0; i < IDS; i++) {
+            int node = three.getNode("target" + i);
+            if (node != 2) {
+                Assert.assertEquals(node, two.getNode("target" + i));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoNodes() {
+        new ConsistentHashRing(0);
+    }
+}
@@ -0,0 +1,117 @@
+package de.htwg_konstanz.in.uce.hp.parallel.mediator;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.htwg_konstanz.in.uce.hp.parallel.mediator.KeepAliveScheduler.Registration;
+
+public class KeepAliveSchedulerTest {
+
+    // one tick every 200 milliseconds
+    private static final long INTERVAL = 600;
+    private static final int BUCKETS = 3;
+
+    @Test
+    public void testBucketsAreFilledEvenly() throws InterruptedException {
+        KeepAliveScheduler scheduler = new KeepAliveScheduler(INTERVAL, TimeUnit.MILLISECONDS,
+                BUCKETS);
+        try {
+            CountingConnection[] connections = new CountingConnection[6];
+            for (int i = 0; i < connections.length; i++) {
+                connections[i] = new CountingConnection();
+                scheduler.schedule(new KeepAliveTask("target" + i, connections[i]));
+            }
+            // middle of the first tick
+            Thread.sleep(300);
+            Assert.assertEquals(2, countSent(connections, 1));
+            Assert.assertEquals(4, countSent(connections, 0));
+            // middle of the third tick
+            Thread.sleep(400);
+            Assert.assertEquals(6, countSent(connections, 1));
+            Assert.assertEquals(6, scheduler.getSentKeepAlives());
+            Assert.assertEquals(0, scheduler.getMissedKeepAlives());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        KeepAliveScheduler scheduler = new KeepAliveScheduler(INTERVAL, TimeUnit.MILLISECONDS,
+                BUCKETS);
+        try {
+            CountingConnection connection = new CountingConnection();
+            Registration registration = scheduler.schedule(new KeepAliveTask("target",
+                    connection));
+            registration.cancel();
+            Assert.assertTrue(registration.isCancelled());
+            Thread.sleep(INTERVAL + 100);
+            Assert.assertEquals(0, connection.sent.get());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    @Test
+    public void testMissedKeepAlives() throws InterruptedException {
+        KeepAliveScheduler scheduler = new KeepAliveScheduler(INTERVAL, TimeUnit.MILLISECONDS,
+                BUCKETS);
+        try {
+            CountingConnection connection = new CountingConnection();
+            connection.idle = false;
+            scheduler.schedule(new KeepAliveTask("target", connection));
+            // middle of the first tick of the third round
+            Thread.sleep((KeepAliveTask.MAX_MISSED_KEEP_ALIVES - 1) * INTERVAL + 300);
+            Assert.assertTrue(connection.closed);
+            Assert.assertEquals(KeepAliveTask.MAX_MISSED_KEEP_ALIVES,
+                    scheduler.getMissedKeepAlives());
+            Assert.assertEquals(0, scheduler.getSentKeepAlives());
+        } finally {
+            scheduler.shutdown();
+        }
+    }
+
+    private static int countSent(CountingConnection[] connections, int sent) {
+        int count = 0;
+        for (CountingConnection connection : connections) {
+            if (connection.sent.get() == sent) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static final class CountingConnection implements TargetConnection {
+        private final AtomicInteger sent = new AtomicInteger();
+        private volatile boolean idle = true;
+        private volatile boolean closed;
+
+        public void send(byte[] encodedMessage) throws IOException {
+            sent.incrementAndGet();
+        }
+
+        public boolean sendIfIdle(byte[] encodedMessage) throws IOException {
+            if (closed) {
+                throw new IOException("closed");
+            }
+            if (!idle) {
+                return false;
+            }
+            sent.incrementAndGet();
+            return true;
+        }
+
+        public InetSocketAddress getRemoteEndpoint() {
+            return null;
+        }
+
+        public void close() {
+            closed = true;
+        }
+    }
+}
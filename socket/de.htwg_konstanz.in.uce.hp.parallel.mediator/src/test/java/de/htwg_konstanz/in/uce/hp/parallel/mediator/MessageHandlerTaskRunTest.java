@@ -17,6 +17,7 @@
 
 package de.htwg_konstanz.in.uce.hp.parallel.mediator;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
@@ -40,6 +41,7 @@ import de.htwg_konstanz.in.uce.hp.parallel.messages.ListRequestMessage;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.ListResponseMessage;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.RegisterMessage;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.RegisterResponseMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.SessionMessage;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.UnregisterMessage;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.coder.MessageDecoder;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.coder.MessageEncoder;
@@ -83,7 +85,7 @@ public class MessageHandlerTaskRunTest {
 	}
 	
 	@Test
-	public void testReceiveConnectionRequestMessage() throws IOException {
+	public void testReceiveConnectionRequestMessage() throws IOException, InterruptedException {
 		//register target
 		String targetID = "test1";
 		InetSocketAddress targetPrivateEndpoint = new InetSocketAddress(InetAddress.getByName("192.168.3.1"), 8671);
@@ -107,7 +109,8 @@ public class MessageHandlerTaskRunTest {
 		Assert.assertEquals(targetPrivateEndpoint.getPort(), femSource.getPrivatePort());
 		Assert.assertEquals(mockitoTargetSocket.getSocket().getInetAddress(), femSource.getPublicIP());
 		Assert.assertEquals(mockitoTargetSocket.getSocket().getPort(), femSource.getPublicPort());
-		//response to target
+		//response to target, written asynchronously
+		awaitOutputStreamData(mockitoTargetSocket);
 		med = new MessageDecoder(mockitoTargetSocket.getOutputStreamDataAsInputStream());
 		ForwardEndpointsMessage femTarget = (ForwardEndpointsMessage) med.decodeMessage();
 		Assert.assertEquals(sourcePrivateIP, femTarget.getPrivateIP());
@@ -184,6 +187,49 @@ public class MessageHandlerTaskRunTest {
 		Assert.assertTrue(response.getRegisteredTargets().contains(targetID1));
 	}
 	
+	@Test
+	public void testReceiveSessionMessages() throws IOException, InterruptedException {
+		//register target
+		String targetID = "test1";
+		InetSocketAddress targetPrivateEndpoint = new InetSocketAddress(InetAddress.getByName("192.168.3.1"), 8671);
+		Repository.INSTANCE.insertOrUpdateID(targetID, targetPrivateEndpoint, mockitoTargetSocket.getSocket());
+		//pipelined requests of a source session
+		MockitoSocket mockitoSourceSocket = new MockitoSocket();
+		mockitoSourceSocket.setClosed(false).setConnected(true);
+		InetSocketAddress publicEndpointSource = new InetSocketAddress(InetAddress.getByName("141.37.121.34"), 7654);
+		mockitoSourceSocket.setRemoteSocketAddress(publicEndpointSource);
+		InetAddress sourcePrivateIP = InetAddress.getByName("192.168.2.3");
+		int attemptPort = 9167;
+		ByteArrayOutputStream requests = new ByteArrayOutputStream();
+		requests.write(mec.encodeMessage(new SessionMessage(1, new ConnectionRequestMessage(targetID, sourcePrivateIP, attemptPort))));
+		requests.write(mec.encodeMessage(new SessionMessage(2, new ListRequestMessage())));
+		requests.write(mec.encodeMessage(new SessionMessage(3, new ConnectionRequestMessage("unknown", sourcePrivateIP, attemptPort + 1))));
+		mockitoSourceSocket.setInputStreamData(requests.toByteArray());
+		MessageHandlerTask mht = new MessageHandlerTask(mockitoSourceSocket.getSocket());
+		mht.run();
+		//responses to source in order of the requests
+		MessageDecoder med = new MessageDecoder(mockitoSourceSocket.getOutputStreamDataAsInputStream());
+		SessionMessage response = (SessionMessage) med.decodeMessage();
+		Assert.assertEquals(1, response.getRequestId());
+		ForwardEndpointsMessage femSource = (ForwardEndpointsMessage) response.getMessage();
+		Assert.assertEquals(targetPrivateEndpoint.getPort(), femSource.getPrivatePort());
+		response = (SessionMessage) med.decodeMessage();
+		Assert.assertEquals(2, response.getRequestId());
+		Assert.assertTrue(((ListResponseMessage) response.getMessage()).getRegisteredTargets().contains(targetID));
+		response = (SessionMessage) med.decodeMessage();
+		Assert.assertEquals(3, response.getRequestId());
+		Assert.assertSame(ExceptionMessage.Error.TargetNotRegistered, ((ExceptionMessage) response.getMessage()).getError());
+		//the announced port of the attempt is forwarded as public port
+		awaitOutputStreamData(mockitoTargetSocket);
+		med = new MessageDecoder(mockitoTargetSocket.getOutputStreamDataAsInputStream());
+		ForwardEndpointsMessage femTarget = (ForwardEndpointsMessage) med.decodeMessage();
+		Assert.assertEquals(sourcePrivateIP, femTarget.getPrivateIP());
+		Assert.assertEquals(attemptPort, femTarget.getPrivatePort());
+		Assert.assertEquals(publicEndpointSource.getAddress(), femTarget.getPublicIP());
+		Assert.assertEquals(attemptPort, femTarget.getPublicPort());
+		Assert.assertEquals(femSource.getAuthenticationToken(), femTarget.getAuthenticationToken());
+	}
+	
 	@Test
 	public void testUnknownMessage() throws IOException {
 		AuthenticationAckMessage message = new AuthenticationAckMessage(true);
@@ -194,4 +240,11 @@ public class MessageHandlerTaskRunTest {
 		ExceptionMessage exceptionMessage = (ExceptionMessage) med.decodeMessage();
 		Assert.assertSame(ExceptionMessage.Error.UnknownMessage, exceptionMessage.getError());
 	}
+	
+	private static void awaitOutputStreamData(MockitoSocket socket) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 1000;
+		while (socket.getOutputStreamData().length == 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+	}
 }
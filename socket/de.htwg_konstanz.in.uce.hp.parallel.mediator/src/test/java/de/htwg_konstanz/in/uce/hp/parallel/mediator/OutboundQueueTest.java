@@ -0,0 +1,38 @@
+package de.htwg_konstanz.in.uce.hp.parallel.mediator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class OutboundQueueTest {
+
+    @Test
+    public void testCapacity() {
+        OutboundQueue queue = new OutboundQueue(2);
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertTrue(queue.offer(new byte[] { 1 }));
+        Assert.assertTrue(queue.offer(new byte[] { 2 }));
+        Assert.assertFalse(queue.offer(new byte[] { 3 }));
+        Assert.assertEquals(1, queue.peek().get(0));
+        queue.remove();
+        Assert.assertTrue(queue.offer(new byte[] { 4 }));
+        Assert.assertEquals(2, queue.peek().get(0));
+        queue.clear();
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertNull(queue.peek());
+    }
+
+    @Test
+    public void testOfferIfEmpty() {
+        OutboundQueue queue = new OutboundQueue();
+        Assert.assertTrue(queue.offerIfEmpty(new byte[] { 1 }));
+        Assert.assertFalse(queue.offerIfEmpty(new byte[] { 2 }));
+        queue.remove();
+        Assert.assertTrue(queue.offerIfEmpty(new byte[] { 3 }));
+        Assert.assertEquals(3, queue.peek().get(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalCapacity() {
+        new OutboundQueue(0);
+    }
+}
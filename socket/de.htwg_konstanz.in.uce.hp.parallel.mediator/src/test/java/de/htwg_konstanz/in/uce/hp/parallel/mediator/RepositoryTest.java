@@ -120,7 +120,7 @@ public class RepositoryTest {
         Assert.assertEquals(socketToTarget, Repository.INSTANCE.getRepositoryEntry(id).registerSocket);
         RepositoryValue value = Repository.INSTANCE.getRepositoryEntry(id);
         Repository.INSTANCE.unregisterTarget(id);
-        Assert.assertTrue(value.keepAliveFuture.isCancelled());
+        Assert.assertTrue(value.keepAliveRegistration.isCancelled());
         try {
             Repository.INSTANCE.getRepositoryEntry(id);
             Assert.fail("should not get there");
@@ -0,0 +1,162 @@
+package de.htwg_konstanz.in.uce.hp.parallel.mediator;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ConnectionRequestMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ExceptionMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ForwardEndpointsMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ListRequestMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ListResponseMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.Message;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.RegisterMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.RegisterResponseMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.coder.MessageDecoder;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.coder.MessageEncoder;
+
+/**
+ * Runs a cluster of three mediators on localhost.
+ */
+public class ShardedTargetRepositoryTest {
+
+    private static final int NODES = 3;
+    private final List<Mediator> mediators = new ArrayList<Mediator>();
+    private final int[] ports = new int[NODES];
+    private final List<InetSocketAddress> clusterNodes = new ArrayList<InetSocketAddress>();
+    private final MessageEncoder encoder = new MessageEncoder();
+
+    @Before
+    public void setUp() throws IOException {
+        for (int i = 0; i < NODES; i++) {
+            ports[i] = getFreePort();
+            clusterNodes.add(new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                    getFreePort()));
+        }
+        for (int i = 0; i < NODES; i++) {
+            // mix both modes of the mediator
+            Mediator mediator = new Mediator(ports[i], i % 2, clusterNodes, i);
+            mediator.start();
+            mediators.add(mediator);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for (Mediator mediator : mediators) {
+            mediator.stop();
+        }
+    }
+
+    @Test
+    public void testRequestIsForwardedToNodeOfTarget() throws Exception {
+        // owned by node 0, connected to node 1, requested at node 2
+        String id = getIdOwnedBy(0);
+        Socket target = new Socket(InetAddress.getLoopbackAddress(), ports[1]);
+        try {
+            target.getOutputStream().write(encoder.encodeMessage(new RegisterMessage(id,
+                    InetAddress.getLoopbackAddress(), 1234)));
+            MessageDecoder targetDecoder = new MessageDecoder(target.getInputStream());
+            Assert.assertEquals(new RegisterResponseMessage(true), targetDecoder.decodeMessage());
+
+            Message response = pollConnectionRequest(2, id, ForwardEndpointsMessage.class);
+            ForwardEndpointsMessage toSource = (ForwardEndpointsMessage) response;
+            Assert.assertEquals(InetAddress.getLoopbackAddress(), toSource.getPrivateIP());
+            Assert.assertEquals(1234, toSource.getPrivatePort());
+            Assert.assertEquals(target.getLocalPort(), toSource.getPublicPort());
+            ForwardEndpointsMessage toTarget = (ForwardEndpointsMessage) targetDecoder
+                    .decodeMessage();
+            Assert.assertEquals(5678, toTarget.getPrivatePort());
+            Assert.assertEquals(toSource.getAuthenticationToken(),
+                    toTarget.getAuthenticationToken());
+
+            ListResponseMessage list = (ListResponseMessage) request(2, new ListRequestMessage());
+            Assert.assertTrue(list.getRegisteredTargets().contains(id));
+        } finally {
+            target.close();
+        }
+        pollConnectionRequest(2, id, ExceptionMessage.class);
+    }
+
+    @Test
+    public void testRestartedOwnerResyncsDirectory() throws Exception {
+        // owned by node 0, connected to node 2, requested at node 1 (event loop)
+        String id = getIdOwnedBy(0);
+        Socket target = new Socket(InetAddress.getLoopbackAddress(), ports[2]);
+        try {
+            target.getOutputStream().write(encoder.encodeMessage(new RegisterMessage(id,
+                    InetAddress.getLoopbackAddress(), 1234)));
+            Assert.assertEquals(new RegisterResponseMessage(true), new MessageDecoder(
+                    target.getInputStream()).decodeMessage());
+            pollConnectionRequest(1, id, ForwardEndpointsMessage.class);
+
+            mediators.get(0).stop();
+            Mediator restarted = new Mediator(ports[0], 0, clusterNodes, 0);
+            restarted.start();
+            mediators.set(0, restarted);
+
+            // the restarted owner learns from node 2 that the target is connected there
+            pollConnectionRequest(1, id, ForwardEndpointsMessage.class);
+        } finally {
+            target.close();
+        }
+    }
+
+    @Test
+    public void testUnknownTarget() throws Exception {
+        Message response = request(0, new ConnectionRequestMessage(getIdOwnedBy(1),
+                InetAddress.getLoopbackAddress(), 5678));
+        Assert.assertTrue(response instanceof ExceptionMessage);
+    }
+
+    private Message pollConnectionRequest(int node, String id, Class<?> expected)
+            throws Exception {
+        Message response = null;
+        // directory updates are sent in the background
+        for (int i = 0; i < 50; i++) {
+            response = request(node, new ConnectionRequestMessage(id,
+                    InetAddress.getLoopbackAddress(), 5678));
+            if (expected.isInstance(response)) {
+                return response;
+            }
+            Thread.sleep(100);
+        }
+        Assert.fail("Unexpected response: " + response);
+        return null;
+    }
+
+    private Message request(int node, Message message) throws IOException {
+        Socket s = new Socket(InetAddress.getLoopbackAddress(), ports[node]);
+        try {
+            s.getOutputStream().write(encoder.encodeMessage(message));
+            return new MessageDecoder(s.getInputStream()).decodeMessage();
+        } finally {
+            s.close();
+        }
+    }
+
+    private static String getIdOwnedBy(int node) {
+        ConsistentHashRing ring = new ConsistentHashRing(NODES);
+        for (int i = 0;; i++) {
+            if (ring.getNode("target" + i) == node) {
+                return "target" + i;
+            }
+        }
+    }
+
+    private static int getFreePort() throws IOException {
+        ServerSocket dummy = new ServerSocket(0);
+        int port = dummy.getLocalPort();
+        dummy.close();
+        return port;
+    }
+}
@@ -0,0 +1,49 @@
+package de.htwg_konstanz.in.uce.hp.parallel.mediator;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SocketTargetConnectionTest {
+
+    // larger than the socket buffers, so the writer blocks on the first message
+    private static final byte[] LARGE_MESSAGE = new byte[16 * 1024 * 1024];
+
+    @Test
+    public void testSlowTargetGetsDisconnected() throws IOException, InterruptedException {
+        ServerSocket ss = new ServerSocket(0);
+        Socket socketToTarget = new Socket(InetAddress.getLoopbackAddress(), ss.getLocalPort());
+        // the target accepts the connection but never reads
+        Socket target = ss.accept();
+        try {
+            Repository.INSTANCE.insertOrUpdateID("slow", new InetSocketAddress(1234),
+                    socketToTarget);
+            TargetConnection connection = Repository.INSTANCE.getRepositoryEntry("slow").connection;
+            for (int i = 0; i < OutboundQueue.DEFAULT_CAPACITY; i++) {
+                connection.send(LARGE_MESSAGE);
+            }
+            Assert.assertFalse(connection.sendIfIdle(new byte[] { 1 }));
+            try {
+                connection.send(LARGE_MESSAGE);
+                Assert.fail("IOException expected");
+            } catch (IOException expected) {
+            }
+            Assert.assertTrue(socketToTarget.isClosed());
+            Assert.assertFalse(Repository.INSTANCE.getRegisteredTargets().contains("slow"));
+            try {
+                connection.sendIfIdle(new byte[] { 1 });
+                Assert.fail("IOException expected");
+            } catch (IOException expected) {
+            }
+        } finally {
+            Repository.INSTANCE.reset();
+            target.close();
+            ss.close();
+        }
+    }
+}
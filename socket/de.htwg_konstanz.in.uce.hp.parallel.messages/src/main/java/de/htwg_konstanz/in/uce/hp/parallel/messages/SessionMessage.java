@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.hp.parallel.messages;
+
+/**
+ * Session message. It wraps the requests and responses of a source session
+ * with the mediator, so a source can pipeline several ConnectionRequestMessages
+ * and ListRequestMessages over one connection. The mediator answers each
+ * request with a session message that contains the same request ID and keeps
+ * the connection open for further requests.
+ * <br/><br/>
+ * It has the following format on the wire.
+ * <pre>
+ * 
+ *  0        3  4        7  8                    15
+ * +--+--+--+--+--+--+--+--+--+--+--+--+--+--+--+--+
+ * |    MAGIC  |    Type   |    Request ID (high)  |
+ * +--+--+--+--+--+--+--+--+--+--+--+--+--+--+--+--+
+ * |    Request ID (low)   |                       |
+ * +--+--+--+--+--+--+--+--+                       |
+ * |                 wrapped message               |
+ * .               (variable length)               .
+ * .                                               .
+ * +--+--+--+--+--+--+--+--+--+--+--+--+--+--+--+--+
+ *
+ *</pre> 
+ * 
+ * Session messages must not be nested.
+ * 
+ * @author Daniel Maier
+ *
+ */
+public final class SessionMessage implements Message {
+
+    /**
+     * Highest possible request ID.
+     */
+    public static final int MAX_REQUEST_ID = 0xFFFF;
+    private final int requestId;
+    private final Message message;
+
+    /**
+     * Creates a new SessionMessage.
+     * @param requestId the ID that correlates a request with its response.
+     * @param message the wrapped request or response.
+     * @throws NullPointerException if the given message is null.
+     * @throws IllegalArgumentException if the request ID is not between 0 and 
+     * {@link #MAX_REQUEST_ID} or the given message is a SessionMessage itself.
+     */
+    public SessionMessage(int requestId, Message message) {
+        if (message == null) {
+            throw new NullPointerException();
+        }
+        if (requestId < 0 || requestId > MAX_REQUEST_ID) {
+            throw new IllegalArgumentException("Illegal request ID " + requestId);
+        }
+        if (message instanceof SessionMessage) {
+            throw new IllegalArgumentException("Session messages must not be nested");
+        }
+        this.requestId = requestId;
+        this.message = message;
+    }
+
+    /**
+     * Returns the ID that correlates a request with its response.
+     * @return the request ID.
+     */
+    public int getRequestId() {
+        return requestId;
+    }
+
+    /**
+     * Returns the wrapped request or response.
+     * @return the wrapped message.
+     */
+    public Message getMessage() {
+        return message;
+    }
+
+    @Override
+    public int hashCode() {
+        final int prime = 31;
+        int result = 1;
+        result = prime * result + requestId;
+        result = prime * result + message.hashCode();
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (!(obj instanceof SessionMessage)) {
+            return false;
+        }
+        SessionMessage other = (SessionMessage) obj;
+        return requestId == other.requestId && message.equals(other.message);
+    }
+
+    @Override
+    public String toString() {
+        return "SessionMessage [requestId=" + requestId + ", message=" + message + "]";
+    }
+}
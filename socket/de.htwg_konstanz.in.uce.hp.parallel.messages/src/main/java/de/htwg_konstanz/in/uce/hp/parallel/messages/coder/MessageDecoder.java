@@ -37,6 +37,7 @@ import de.htwg_konstanz.in.uce.hp.parallel.messages.ListResponseMessage;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.Message;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.RegisterMessage;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.RegisterResponseMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.SessionMessage;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.UnregisterMessage;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.ExceptionMessage.Error;
 
@@ -98,6 +99,8 @@ public final class MessageDecoder {
             return decodeKeepAliveMessage();
         case Exception:
         	return decodeExceptionMessage();
+        case Session:
+            return decodeSessionMessage();
         }
         return null;
     }
@@ -282,6 +285,22 @@ public final class MessageDecoder {
         throw new MessageFormatException("Unknown error code");
 	}
     
+    /**
+     * Decodes a SessionMessage and the message it wraps.
+     * @return the decoded SessionMessage.
+     * @throws IOException if an I/O error occurs.
+     * @throws MessageFormatException if the wrapped message is a 
+     * SessionMessage itself.
+     */
+    private Message decodeSessionMessage() throws IOException {
+        int requestId = dis.readUnsignedShort();
+        Message message = decodeMessage();
+        if(message instanceof SessionMessage) {
+            throw new MessageFormatException("Nested session message");
+        }
+        return new SessionMessage(requestId, message);
+    }
+    
     /**
      * Decodes a KeepAliveMessage.
      * @return the decoded ListRequestMessage.
@@ -34,8 +34,10 @@ import de.htwg_konstanz.in.uce.hp.parallel.messages.ForwardEndpointsMessage;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.KeepAliveMessage;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.ListRequestMessage;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.ListResponseMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.Message;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.RegisterMessage;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.RegisterResponseMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.SessionMessage;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.UnregisterMessage;
 
 /**
@@ -267,6 +269,61 @@ public final class MessageEncoder {
         return baos.toByteArray();
     }
     
+    /**
+     * Encodes a SessionMessage to a byte array. The wrapped message gets 
+     * encoded behind the request ID.
+     * @param message the message to be encoded.
+     * @return the byte array with the encoded message.
+     * @throws IOException if an I/O error occurs.
+     * @throws IllegalArgumentException if the wrapped message can't be encoded.
+     */
+    public byte[] encodeMessage(SessionMessage message) throws IOException, IllegalArgumentException {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        byte messageType = mtc.encodeMessageType(MessageType.Session);
+        baos.write(messageType);
+        baos.write(getUnsignedShort(message.getRequestId()));
+        baos.write(encodeMessage(message.getMessage()));
+        return baos.toByteArray();
+    }
+    
+    /**
+     * Encodes a message of any type to a byte array. Delegates to the 
+     * method for the concrete type of the message.
+     * @param message the message to be encoded.
+     * @return the byte array with the encoded message.
+     * @throws IOException if an I/O error occurs.
+     * @throws IllegalArgumentException if the type of the message is unknown 
+     * or the message can't be encoded.
+     */
+    public byte[] encodeMessage(Message message) throws IOException, IllegalArgumentException {
+        if(message instanceof RegisterMessage) {
+            return encodeMessage((RegisterMessage) message);
+        } else if(message instanceof RegisterResponseMessage) {
+            return encodeMessage((RegisterResponseMessage) message);
+        } else if(message instanceof UnregisterMessage) {
+            return encodeMessage((UnregisterMessage) message);
+        } else if(message instanceof ConnectionRequestMessage) {
+            return encodeMessage((ConnectionRequestMessage) message);
+        } else if(message instanceof ForwardEndpointsMessage) {
+            return encodeMessage((ForwardEndpointsMessage) message);
+        } else if(message instanceof AuthenticationMessage) {
+            return encodeMessage((AuthenticationMessage) message);
+        } else if(message instanceof AuthenticationAckMessage) {
+            return encodeMessage((AuthenticationAckMessage) message);
+        } else if(message instanceof ListRequestMessage) {
+            return encodeMessage((ListRequestMessage) message);
+        } else if(message instanceof ListResponseMessage) {
+            return encodeMessage((ListResponseMessage) message);
+        } else if(message instanceof KeepAliveMessage) {
+            return encodeMessage((KeepAliveMessage) message);
+        } else if(message instanceof ExceptionMessage) {
+            return encodeMessage((ExceptionMessage) message);
+        } else if(message instanceof SessionMessage) {
+            return encodeMessage((SessionMessage) message);
+        }
+        throw new IllegalArgumentException("Unknown message type: " + message);
+    }
+    
     /**
      * Encodes the IP version as an int. It encodes IPv4 as an 4 and
      * IPv6 as an 6.
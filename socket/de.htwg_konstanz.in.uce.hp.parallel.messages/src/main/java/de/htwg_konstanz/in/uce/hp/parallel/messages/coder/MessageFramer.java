@@ -0,0 +1,208 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.hp.parallel.messages.coder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Class to find the boundaries of encoded messages in a buffer that gets
+ * filled incrementally, e.g. by a non-blocking channel. The framer only
+ * inspects the length fields of a message, so a complete frame can be
+ * decoded afterwards by a {@link MessageDecoder} without blocking.
+ * 
+ * All methods use absolute positions relative to the current position of the
+ * given buffer and do not change its position.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+public final class MessageFramer {
+
+    /**
+     * Returned by {@link #getFrameLength(ByteBuffer)} if the buffer does not
+     * contain a complete message yet.
+     */
+    public static final int INCOMPLETE = -1;
+    private static final int UUID_LENGTH = 16;
+    private static final int SESSION_HEADER_LENGTH = 3;
+    private static final int IP_V4_LENGTH = 4;
+    private static final int IP_V6_LENGTH = 16;
+    private static final int IP_VERSION_MASK = 0x7F;
+    private static final MessageTypeCoder messageTypeCoder = new MessageTypeCoder();
+
+    private MessageFramer() {
+    }
+
+    /**
+     * Returns the length of the message at the current position of the given
+     * buffer.
+     * 
+     * @param buffer
+     *            the received bytes between position and limit
+     * @return the length in bytes of the first message in the buffer, or
+     *         {@link #INCOMPLETE} if not all bytes of the message are received
+     *         yet
+     * @throws IOException
+     *             if the magic bits are wrong, the message type is unknown or
+     *             the message contains an unknown IP version
+     */
+    public static int getFrameLength(ByteBuffer buffer) throws IOException {
+        int start = buffer.position();
+        int limit = buffer.limit();
+        if (start >= limit) {
+            return INCOMPLETE;
+        }
+        // offset of the next field relative to start
+        int offset = 1;
+        switch (messageTypeCoder.decodeMessageType(buffer.get(start) & 0xFF)) {
+        case Register:
+        case ConnectionRequest:
+            // length of id, id, private port, IP version, IP
+            if (start + offset >= limit) {
+                return INCOMPLETE;
+            }
+            offset += 1 + (buffer.get(start + offset) & 0xFF) + 2;
+            offset = skipIP(buffer, start, offset);
+            break;
+        case RegisterResponse:
+        case AuthenticationAck:
+            offset += 1;
+            break;
+        case Unregister:
+            // length of id, id
+            if (start + offset >= limit) {
+                return INCOMPLETE;
+            }
+            offset += 1 + (buffer.get(start + offset) & 0xFF);
+            break;
+        case ForwardEndpoints:
+            // IP version, private port, private IP, public port, IP version,
+            // public IP, authentication token
+            offset = skipIP(buffer, start, offset);
+            if (offset == INCOMPLETE) {
+                return INCOMPLETE;
+            }
+            // the private port is located between IP version and IP
+            offset += 2 + 2;
+            offset = skipIP(buffer, start, offset);
+            if (offset != INCOMPLETE) {
+                offset += UUID_LENGTH;
+            }
+            break;
+        case Authentication:
+            offset += UUID_LENGTH;
+            break;
+        case ListRequest:
+        case KeepAlive:
+            break;
+        case ListResponse:
+            // ids terminated by 0, the list is terminated by an additional 0
+            offset = INCOMPLETE;
+            for (int i = start + 1; i + 1 < limit; i++) {
+                if (buffer.get(i) == 0 && buffer.get(i + 1) == 0) {
+                    offset = i + 2 - start;
+                    break;
+                }
+            }
+            break;
+        case Exception:
+            // error code, length of text, text
+            if (start + offset + 1 >= limit) {
+                return INCOMPLETE;
+            }
+            offset += 2 + (buffer.get(start + offset + 1) & 0xFF);
+            break;
+        case Session:
+            // request ID, wrapped message
+            offset = getSessionFrameLength(buffer, start);
+            break;
+        }
+        if (offset == INCOMPLETE || start + offset > limit) {
+            return INCOMPLETE;
+        }
+        return offset;
+    }
+
+    /**
+     * Returns the length of the session message at the given position, that
+     * is the length of its header plus the length of the wrapped message.
+     * 
+     * @param buffer
+     *            the buffer with the message
+     * @param start
+     *            the absolute position of the message in the buffer
+     * @return the length of the session message, or {@link #INCOMPLETE} if
+     *         the wrapped message is not received completely yet
+     * @throws IOException
+     *             if the wrapped message is malformed or a session message
+     *             itself
+     */
+    private static int getSessionFrameLength(ByteBuffer buffer, int start) throws IOException {
+        int wrappedStart = start + SESSION_HEADER_LENGTH;
+        if (wrappedStart >= buffer.limit()) {
+            return INCOMPLETE;
+        }
+        if (messageTypeCoder.decodeMessageType(buffer.get(wrappedStart) & 0xFF)
+                == MessageType.Session) {
+            throw new MessageFormatException("Nested session message");
+        }
+        ByteBuffer wrapped = buffer.duplicate();
+        wrapped.position(wrappedStart);
+        int wrappedLength = getFrameLength(wrapped);
+        if (wrappedLength == INCOMPLETE) {
+            return INCOMPLETE;
+        }
+        return SESSION_HEADER_LENGTH + wrappedLength;
+    }
+
+    /**
+     * Skips an IP version field and the IP address that follows it. In a
+     * ForwardEndpointsMessage the private port is placed between the IP
+     * version and the IP address; this is handled by the caller.
+     * 
+     * @param buffer
+     *            the buffer with the message
+     * @param start
+     *            the absolute position of the message in the buffer
+     * @param offset
+     *            the offset of the IP version field relative to start
+     * @return the offset behind the IP address, or {@link #INCOMPLETE} if the
+     *         IP version field is not received yet
+     * @throws MessageFormatException
+     *             if the IP version is unknown
+     */
+    private static int skipIP(ByteBuffer buffer, int start, int offset)
+            throws MessageFormatException {
+        if (offset == INCOMPLETE) {
+            return INCOMPLETE;
+        }
+        if (start + offset >= buffer.limit()) {
+            return INCOMPLETE;
+        }
+        int ipVersion = buffer.get(start + offset) & IP_VERSION_MASK;
+        switch (ipVersion) {
+        case 4:
+            return offset + 1 + IP_V4_LENGTH;
+        case 6:
+            return offset + 1 + IP_V6_LENGTH;
+        default:
+            throw new MessageFormatException("Unknown IP version: " + ipVersion);
+        }
+    }
+}
@@ -25,5 +25,5 @@ package de.htwg_konstanz.in.uce.hp.parallel.messages.coder;
  */
 public enum MessageType {
     Register, RegisterResponse, Unregister, ConnectionRequest, ForwardEndpoints, Authentication, AuthenticationAck, 
-    ListRequest, ListResponse, KeepAlive, Exception;
+    ListRequest, ListResponse, KeepAlive, Exception, Session;
 }
@@ -38,10 +38,12 @@ import de.htwg_konstanz.in.uce.hp.parallel.messages.ListRequestMessage;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.ListResponseMessage;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.RegisterMessage;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.RegisterResponseMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.SessionMessage;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.UnregisterMessage;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.ExceptionMessage.Error;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.coder.MessageDecoder;
 import de.htwg_konstanz.in.uce.hp.parallel.messages.coder.MessageEncoder;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.coder.MessageFormatException;
 
 public class MessageCoderTest {
     private MessageEncoder encoder;
@@ -326,4 +328,41 @@ public class MessageCoderTest {
         Assert.assertTrue(decoder.decodeMessage() instanceof KeepAliveMessage);
         //Assert.assertEquals(m, decodedMessage);
     }
+    
+    @Test
+    public void testEncodeDecodeSessionMessage() throws IOException {
+        ConnectionRequestMessage request = new ConnectionRequestMessage("target",
+                InetAddress.getByName("192.168.7.6"), 4711);
+        SessionMessage m = new SessionMessage(SessionMessage.MAX_REQUEST_ID, request);
+        byte[] encodedMessage = encoder.encodeMessage(m);
+        MessageDecoder decoder = new MessageDecoder(new ByteArrayInputStream(encodedMessage));
+        SessionMessage decodedMessage = (SessionMessage) decoder.decodeMessage();
+        Assert.assertEquals(m, decodedMessage);
+        Assert.assertEquals(SessionMessage.MAX_REQUEST_ID, decodedMessage.getRequestId());
+        Assert.assertEquals(request, decodedMessage.getMessage());
+        
+        Set<String> registeredTargets = new HashSet<String>();
+        registeredTargets.add("test");
+        ListResponseMessage response = new ListResponseMessage(registeredTargets);
+        m = new SessionMessage(7, response);
+        encodedMessage = encoder.encodeMessage(m);
+        decoder = new MessageDecoder(new ByteArrayInputStream(encodedMessage));
+        decodedMessage = (SessionMessage) decoder.decodeMessage();
+        Assert.assertEquals(m, decodedMessage);
+        Assert.assertEquals(7, decodedMessage.getRequestId());
+    }
+    
+    @Test(expected = MessageFormatException.class)
+    public void testDecodeNestedSessionMessage() throws IOException {
+        byte[] inner = encoder.encodeMessage(new SessionMessage(1, new KeepAliveMessage()));
+        byte[] encodedMessage = new byte[inner.length + 3];
+        System.arraycopy(inner, 0, encodedMessage, 0, 3);
+        System.arraycopy(inner, 0, encodedMessage, 3, inner.length);
+        new MessageDecoder(new ByteArrayInputStream(encodedMessage)).decodeMessage();
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testSessionMessageIllegalRequestId() {
+        new SessionMessage(SessionMessage.MAX_REQUEST_ID + 1, new KeepAliveMessage());
+    }
 }
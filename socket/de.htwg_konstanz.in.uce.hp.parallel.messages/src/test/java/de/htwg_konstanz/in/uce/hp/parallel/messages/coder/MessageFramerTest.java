@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.hp.parallel.messages.coder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.UUID;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.htwg_konstanz.in.uce.hp.parallel.messages.AuthenticationAckMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.AuthenticationMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ConnectionRequestMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ExceptionMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ExceptionMessage.Error;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ForwardEndpointsMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.KeepAliveMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ListRequestMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ListResponseMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.Message;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.RegisterMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.RegisterResponseMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.SessionMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.UnregisterMessage;
+
+public class MessageFramerTest {
+
+    private final MessageEncoder encoder = new MessageEncoder();
+
+    @Test
+    public void testAllMessageTypes() throws IOException {
+        InetAddress ipv4 = InetAddress.getByName("192.168.1.2");
+        InetAddress ipv6 = InetAddress.getByName("2001:db8::1");
+        UUID token = UUID.randomUUID();
+        byte[][] messages = new byte[][] {
+                encoder.encodeMessage(new RegisterMessage("target", ipv4, 1234)),
+                encoder.encodeMessage(new RegisterMessage("target6", ipv6, 1234)),
+                encoder.encodeMessage(new RegisterResponseMessage(true)),
+                encoder.encodeMessage(new UnregisterMessage("target")),
+                encoder.encodeMessage(new ConnectionRequestMessage("target", ipv6, 4321)),
+                encoder.encodeMessage(new ForwardEndpointsMessage(ipv4, 1, ipv6, 2, token)),
+                encoder.encodeMessage(new ForwardEndpointsMessage(ipv6, 1, ipv4, 2, token)),
+                encoder.encodeMessage(new AuthenticationMessage(token)),
+                encoder.encodeMessage(new AuthenticationAckMessage(false)),
+                encoder.encodeMessage(new ListRequestMessage()),
+                encoder.encodeMessage(new ListResponseMessage(new HashSet<String>())),
+                encoder.encodeMessage(new ListResponseMessage(new HashSet<String>(Arrays
+                        .asList("a", "bc", "def")))),
+                encoder.encodeMessage(new KeepAliveMessage()),
+                encoder.encodeMessage(new ExceptionMessage(Error.TargetNotRegistered)),
+                encoder.encodeMessage(new SessionMessage(1, new ConnectionRequestMessage(
+                        "target", ipv4, 4321))),
+                encoder.encodeMessage(new SessionMessage(2, new ForwardEndpointsMessage(ipv4,
+                        1, ipv6, 2, token))),
+                encoder.encodeMessage(new SessionMessage(3, new ListResponseMessage(
+                        new HashSet<String>(Arrays.asList("a", "bc"))))) };
+        for (int m = 0; m < messages.length; m++) {
+            byte[] encoded = messages[m];
+            for (int i = 0; i < encoded.length; i++) {
+                Assert.assertEquals("message " + m, MessageFramer.INCOMPLETE,
+                        MessageFramer.getFrameLength(ByteBuffer.wrap(encoded, 0, i)));
+            }
+            Assert.assertEquals("message " + m, encoded.length,
+                    MessageFramer.getFrameLength(ByteBuffer.wrap(encoded)));
+        }
+    }
+
+    @Test
+    public void testConsecutiveFrames() throws IOException {
+        byte[] first = encoder.encodeMessage(new RegisterMessage("target",
+                InetAddress.getByName("10.0.0.1"), 5000));
+        byte[] second = encoder.encodeMessage(new KeepAliveMessage());
+        ByteBuffer buffer = ByteBuffer.allocate(first.length + second.length + 1);
+        buffer.put(first).put(second).put(first[0]).flip();
+
+        Assert.assertEquals(first.length, MessageFramer.getFrameLength(buffer));
+        Message decoded = new MessageDecoder(new ByteArrayInputStream(buffer.array(),
+                buffer.position(), first.length)).decodeMessage();
+        Assert.assertEquals(new RegisterMessage("target", InetAddress.getByName("10.0.0.1"),
+                5000), decoded);
+        Assert.assertEquals(0, buffer.position());
+        buffer.position(first.length);
+        Assert.assertEquals(second.length, MessageFramer.getFrameLength(buffer));
+        buffer.position(first.length + second.length);
+        Assert.assertEquals(MessageFramer.INCOMPLETE, MessageFramer.getFrameLength(buffer));
+    }
+
+    @Test(expected = MessageFormatException.class)
+    public void testNestedSessionMessage() throws IOException {
+        byte[] inner = encoder.encodeMessage(new SessionMessage(1, new KeepAliveMessage()));
+        byte[] encoded = new byte[inner.length + 3];
+        System.arraycopy(inner, 0, encoded, 0, 3);
+        System.arraycopy(inner, 0, encoded, 3, inner.length);
+        MessageFramer.getFrameLength(ByteBuffer.wrap(encoded));
+    }
+
+    @Test(expected = IOException.class)
+    public void testBadMagic() throws IOException {
+        MessageFramer.getFrameLength(ByteBuffer.wrap(new byte[] { 0x11, 0x00 }));
+    }
+
+    @Test(expected = MessageFormatException.class)
+    public void testUnknownIPVersion() throws IOException {
+        byte[] encoded = encoder.encodeMessage(new ConnectionRequestMessage("t",
+                InetAddress.getByName("10.0.0.1"), 5000));
+        encoded[5] = 5;
+        MessageFramer.getFrameLength(ByteBuffer.wrap(encoded));
+    }
+}
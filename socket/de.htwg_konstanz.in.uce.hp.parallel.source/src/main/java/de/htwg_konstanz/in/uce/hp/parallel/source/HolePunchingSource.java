@@ -18,7 +18,9 @@
 package de.htwg_konstanz.in.uce.hp.parallel.source;
 
 import java.io.IOException;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketAddress;
 import java.util.concurrent.ArrayBlockingQueue;
@@ -46,6 +48,10 @@ import de.htwg_konstanz.in.uce.hp.parallel.messages.coder.MessageFormatException
  * forward endpoints message. After it received the message that contains the
  * public and private endpoint of the target it establishes a connection to the
  * target with the help of the {@link ConnectionListener} and {@link HolePuncher} class.
+ * <p>
+ * Sources that connect to many targets can send their connection requests
+ * over a long-lived {@link MediatorSession} instead of a new connection to
+ * the mediator for every request.
  * 
  * @author Daniel Maier
  * 
@@ -88,43 +94,72 @@ public final class HolePunchingSource {
         } finally {
             socketToMediator.close();
         }
+        return punchHole(id, toForwardEndpoints(message), localSocketAddress);
+    }
+
+    /**
+     * Returns a Socket that is connected to the target with the given ID. The
+     * connection request is sent over the given session. The hole punching
+     * attempt is made from a new local port that is announced to the mediator
+     * in the connection request. The mediator presumes that the NAT in front
+     * of the source preserves this port.
+     * 
+     * @param id
+     *            the ID of the desired target
+     * @param session
+     *            the session to the mediator
+     * @return a socket that is connected to the requested target
+     * @throws IOException
+     *             if I/O error occurs
+     * @throws TargetNotRegisteredException
+     *             if the desired target was not registered at the mediator
+     */
+    public Socket getSocket(String id, MediatorSession session) throws IOException,
+            TargetNotRegisteredException {
+        logger.info("Trying to get socket to {} over session", id);
+        InetSocketAddress localSocketAddress = chooseLocalEndpoint(session.getLocalAddress());
+        logger.info("Using local endpoint: {}", localSocketAddress);
+        ForwardEndpointsMessage fem = session.requestConnection(id, localSocketAddress);
+        return punchHole(id, fem, localSocketAddress);
+    }
+
+    /**
+     * Chooses a free local port on the given address for one hole punching
+     * attempt.
+     * 
+     * @param localAddress
+     *            the local address
+     * @return a local endpoint with a free port
+     * @throws IOException
+     *             if no port could be bound
+     */
+    private static InetSocketAddress chooseLocalEndpoint(InetAddress localAddress)
+            throws IOException {
+        ServerSocket serverSocket = new ServerSocket();
+        try {
+            serverSocket.setReuseAddress(true);
+            serverSocket.bind(new InetSocketAddress(localAddress, 0));
+            return new InetSocketAddress(localAddress, serverSocket.getLocalPort());
+        } finally {
+            serverSocket.close();
+        }
+    }
+
+    /**
+     * Checks the response of the mediator to a connection request.
+     * 
+     * @param message
+     *            the response of the mediator
+     * @return the response as ForwardEndpointsMessage
+     * @throws IOException
+     *             if the mediator responded with an unexpected message
+     * @throws TargetNotRegisteredException
+     *             if the desired target was not registered at the mediator
+     */
+    static ForwardEndpointsMessage toForwardEndpoints(Message message) throws IOException,
+            TargetNotRegisteredException {
         if (message instanceof ForwardEndpointsMessage) {
-            ForwardEndpointsMessage fem = (ForwardEndpointsMessage) message;
-            logger.info("Received ForwardEndpointsMessage: {}", fem);
-            BlockingQueue<Socket> socketQueue = new ArrayBlockingQueue<Socket>(1);
-            ConnectionListener connectionListener = new ConnectionListener(
-                    localSocketAddress.getAddress(), localSocketAddress.getPort());
-            logger.info("Starting HolePuncher...");
-            SourceConnectionAuthenticator authenticator = new SourceConnectionAuthenticator(
-                    fem.getAuthenticationToken());
-            HolePuncher hp = new HolePuncher(connectionListener, localSocketAddress, socketQueue);
-            hp.establishHolePunchingConnection(fem.getPrivateIP(), fem.getPrivatePort(),
-                    fem.getPublicIP(), fem.getPublicPort(), authenticator);
-            Socket s = null;
-            boolean interrupted = false;
-            try {
-                while (s == null) {
-                    try {
-                        s = socketQueue.take();
-                    } catch (InterruptedException e) {
-                        interrupted = true;
-                        // fall through and retry
-                        logger.info("InterruptedException (fall through and retry)");
-                    }
-                }
-            } finally {
-                if (interrupted) {
-                    Thread.currentThread().interrupt();
-                }
-            }
-            connectionListener.shutdown();
-            hp.shutdownNow();
-            // received dummy socket for indicating time limit exceeded
-            if (!s.isConnected()) {
-                throw new IOException("Could not get socket to: " + id);
-            }
-            logger.info("Returning socket: {}", s);
-            return s;
+            return (ForwardEndpointsMessage) message;
         } else if (message instanceof ExceptionMessage) {
             ExceptionMessage exm = (ExceptionMessage) message;
             if (exm.getError() == Error.TargetNotRegistered) {
@@ -140,4 +175,56 @@ public final class HolePunchingSource {
                     "Received wrong message. Expected ForwardEndpointsMessage");
         }
     }
+
+    /**
+     * Establishes a connection to the target with the received endpoints.
+     * 
+     * @param id
+     *            the ID of the desired target
+     * @param fem
+     *            the endpoints of the target
+     * @param localSocketAddress
+     *            the local endpoint of the hole punching attempt
+     * @return a socket that is connected to the requested target
+     * @throws IOException
+     *             if I/O error occurs or the time limit exceeded
+     */
+    private Socket punchHole(String id, ForwardEndpointsMessage fem,
+            InetSocketAddress localSocketAddress) throws IOException {
+        logger.info("Received ForwardEndpointsMessage: {}", fem);
+        BlockingQueue<Socket> socketQueue = new ArrayBlockingQueue<Socket>(1);
+        ConnectionListener connectionListener = new ConnectionListener(
+                localSocketAddress.getAddress(), localSocketAddress.getPort());
+        logger.info("Starting HolePuncher...");
+        SourceConnectionAuthenticator authenticator = new SourceConnectionAuthenticator(
+                fem.getAuthenticationToken());
+        HolePuncher hp = new HolePuncher(connectionListener, localSocketAddress, socketQueue);
+        hp.establishHolePunchingConnection(fem.getPrivateIP(), fem.getPrivatePort(),
+                fem.getPublicIP(), fem.getPublicPort(), authenticator);
+        Socket s = null;
+        boolean interrupted = false;
+        try {
+            while (s == null) {
+                try {
+                    s = socketQueue.take();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    // fall through and retry
+                    logger.info("InterruptedException (fall through and retry)");
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        connectionListener.shutdown();
+        hp.shutdownNow();
+        // received dummy socket for indicating time limit exceeded
+        if (!s.isConnected()) {
+            throw new IOException("Could not get socket to: " + id);
+        }
+        logger.info("Returning socket: {}", s);
+        return s;
+    }
 }
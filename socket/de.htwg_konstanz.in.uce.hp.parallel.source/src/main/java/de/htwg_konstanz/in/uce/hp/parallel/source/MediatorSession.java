@@ -0,0 +1,299 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.hp.parallel.source;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ConnectionRequestMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ExceptionMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ForwardEndpointsMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ListRequestMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.ListResponseMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.Message;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.SessionMessage;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.coder.MessageDecoder;
+import de.htwg_konstanz.in.uce.hp.parallel.messages.coder.MessageEncoder;
+
+/**
+ * Long-lived connection of a source to the mediator. Instead of opening a new
+ * connection for every connection request and list request, the requests of
+ * a session are sent over one connection, each wrapped in a
+ * {@link SessionMessage} with its own request ID. Several threads may send
+ * requests concurrently; the requests are pipelined and the responses are
+ * assigned to the waiting threads by their request ID.
+ * <p>
+ * As the session connection can't reflect the public endpoint of a single
+ * hole punching attempt, the local port of each attempt is announced
+ * explicitly in the connection request. The mediator uses the public IP
+ * address of the session connection together with the announced port as
+ * public endpoint of the source. See
+ * {@link HolePunchingSource#getSocket(String, MediatorSession)}.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+public final class MediatorSession implements Closeable {
+    /**
+     * Default time in milliseconds a request waits for the response of the
+     * mediator.
+     */
+    public static final int DEFAULT_REQUEST_TIMEOUT = 10000;
+    private static final Logger logger = LoggerFactory.getLogger(MediatorSession.class);
+    private final Socket socketToMediator;
+    private final OutputStream out;
+    private final MessageEncoder messageEncoder = new MessageEncoder();
+    private final ConcurrentMap<Integer, PendingRequest> pendingRequests =
+            new ConcurrentHashMap<Integer, PendingRequest>();
+    private final AtomicInteger nextRequestId = new AtomicInteger();
+    private final int requestTimeout;
+    private volatile IOException failure;
+
+    /**
+     * Creates a new {@link MediatorSession} and connects it to the mediator.
+     * Requests wait {@link #DEFAULT_REQUEST_TIMEOUT} milliseconds for the
+     * response of the mediator.
+     * 
+     * @param mediatorAddress
+     *            the mediator endpoint on that it is waiting for requests
+     * @throws IOException
+     *             if the connection to the mediator could not be established
+     * @throws NullPointerException
+     *             if the given mediator address is null
+     */
+    public MediatorSession(SocketAddress mediatorAddress) throws IOException {
+        this(mediatorAddress, DEFAULT_REQUEST_TIMEOUT);
+    }
+
+    /**
+     * Creates a new {@link MediatorSession} and connects it to the mediator.
+     * 
+     * @param mediatorAddress
+     *            the mediator endpoint on that it is waiting for requests
+     * @param requestTimeout
+     *            the time in milliseconds a request waits for the response
+     *            of the mediator
+     * @throws IOException
+     *             if the connection to the mediator could not be established
+     * @throws NullPointerException
+     *             if the given mediator address is null
+     * @throws IllegalArgumentException
+     *             if the given request timeout is not positive
+     */
+    public MediatorSession(SocketAddress mediatorAddress, int requestTimeout)
+            throws IOException {
+        if (mediatorAddress == null) {
+            throw new NullPointerException();
+        }
+        if (requestTimeout <= 0) {
+            throw new IllegalArgumentException("Request timeout must be positive");
+        }
+        this.requestTimeout = requestTimeout;
+        this.socketToMediator = new Socket();
+        try {
+            socketToMediator.connect(mediatorAddress);
+            this.out = socketToMediator.getOutputStream();
+            final MessageDecoder messageDecoder = new MessageDecoder(
+                    socketToMediator.getInputStream());
+            Thread reader = new Thread(new Runnable() {
+                public void run() {
+                    readResponses(messageDecoder);
+                }
+            }, "mediator-session-" + socketToMediator.getLocalPort());
+            reader.setDaemon(true);
+            reader.start();
+        } catch (IOException e) {
+            socketToMediator.close();
+            throw e;
+        }
+        logger.info("Session to mediator {} opened from {}", mediatorAddress,
+                socketToMediator.getLocalSocketAddress());
+    }
+
+    /**
+     * Returns the local IP address of the session connection. Hole punching
+     * attempts use this address as private IP address.
+     * 
+     * @return the local IP address of the session connection
+     */
+    public InetAddress getLocalAddress() {
+        return socketToMediator.getLocalAddress();
+    }
+
+    /**
+     * Requests the endpoints of the target with the given ID. The mediator
+     * forwards the given local endpoint of the hole punching attempt to the
+     * target.
+     * 
+     * @param id
+     *            the ID of the desired target
+     * @param localEndpoint
+     *            the local endpoint from that the hole punching attempt is
+     *            made
+     * @return the endpoints of the target
+     * @throws IOException
+     *             if an I/O error occurs or the session is closed
+     * @throws SocketTimeoutException
+     *             if the mediator does not respond within the request timeout
+     * @throws TargetNotRegisteredException
+     *             if the desired target was not registered at the mediator
+     */
+    public ForwardEndpointsMessage requestConnection(String id, InetSocketAddress localEndpoint)
+            throws IOException, TargetNotRegisteredException {
+        ConnectionRequestMessage crm = new ConnectionRequestMessage(id,
+                localEndpoint.getAddress(), localEndpoint.getPort());
+        logger.info("Sending ConnectionRequestMessage in session: {}", crm);
+        return HolePunchingSource.toForwardEndpoints(request(crm));
+    }
+
+    /**
+     * Retrieves a set of the registered target IDs.
+     * 
+     * @return a set of the registered target IDs
+     * @throws IOException
+     *             if an I/O error occurs or the session is closed
+     * @throws SocketTimeoutException
+     *             if the mediator does not respond within the request timeout
+     */
+    public Set<String> getRegisteredTargets() throws IOException {
+        Message response = request(new ListRequestMessage());
+        if (response instanceof ListResponseMessage) {
+            return ((ListResponseMessage) response).getRegisteredTargets();
+        } else if (response instanceof ExceptionMessage) {
+            throw new IOException(((ExceptionMessage) response).getErrorText());
+        } else {
+            throw new IOException("Received unknown message type from mediator.");
+        }
+    }
+
+    /**
+     * Closes the session. Pending requests fail with an {@link IOException}.
+     */
+    public void close() throws IOException {
+        socketToMediator.close();
+    }
+
+    /**
+     * Sends the given request and waits for the response with the same
+     * request ID. A late response to a timed out request is discarded.
+     */
+    private Message request(Message request) throws IOException {
+        int requestId = nextRequestId.getAndIncrement() & SessionMessage.MAX_REQUEST_ID;
+        PendingRequest pendingRequest = new PendingRequest();
+        if (pendingRequests.putIfAbsent(requestId, pendingRequest) != null) {
+            throw new IOException("Too many pending requests");
+        }
+        try {
+            // checked after the registration, so a failing reader can't miss the request
+            if (failure != null) {
+                throw new IOException("Session is closed", failure);
+            }
+            byte[] encoded = messageEncoder.encodeMessage(new SessionMessage(requestId, request));
+            synchronized (out) {
+                out.write(encoded);
+            }
+            return pendingRequest.await(requestTimeout, TimeUnit.MILLISECONDS);
+        } finally {
+            pendingRequests.remove(requestId, pendingRequest);
+        }
+    }
+
+    /**
+     * Reads the responses of the mediator and hands them over to the waiting
+     * requests until the session gets closed.
+     */
+    private void readResponses(MessageDecoder messageDecoder) {
+        try {
+            while (true) {
+                Message message = messageDecoder.decodeMessage();
+                if (!(message instanceof SessionMessage)) {
+                    throw new IOException("Received unexpected message in session: " + message);
+                }
+                SessionMessage response = (SessionMessage) message;
+                PendingRequest pendingRequest = pendingRequests.get(response.getRequestId());
+                if (pendingRequest == null) {
+                    logger.warn("Received response to unknown request: {}", response);
+                } else {
+                    pendingRequest.complete(response.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+            if (!socketToMediator.isClosed()) {
+                logger.info("Session to mediator failed: {}", e.getMessage());
+            }
+            for (PendingRequest pendingRequest : pendingRequests.values()) {
+                pendingRequest.fail(e);
+            }
+            try {
+                socketToMediator.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+    /**
+     * A request that waits for its response.
+     */
+    private static final class PendingRequest {
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile Message response;
+        private volatile IOException failure;
+
+        void complete(Message response) {
+            this.response = response;
+            done.countDown();
+        }
+
+        void fail(IOException failure) {
+            this.failure = failure;
+            done.countDown();
+        }
+
+        Message await(long timeout, TimeUnit unit) throws IOException {
+            try {
+                if (!done.await(timeout, unit)) {
+                    throw new SocketTimeoutException("No response from the mediator");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for the mediator");
+            }
+            if (response == null) {
+                throw new IOException("Session is closed", failure);
+            }
+            return response;
+        }
+    }
+}
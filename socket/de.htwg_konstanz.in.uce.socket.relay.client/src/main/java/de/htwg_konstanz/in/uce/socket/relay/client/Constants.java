@@ -39,4 +39,24 @@ public class Constants {
      * ALLOCATION_LIFETIME_MIN).
      */
     public static final int ALLOCATION_LIFETIME_MIN = 60;
+    /**
+     * Interval in milliseconds in which the pool of pre-bound data connections
+     * gets refilled.
+     */
+    public static final int DATA_CONNECTION_POOL_REFILL_INTERVAL = 1000;
+    /**
+     * Time in milliseconds to wait for the response to a channel bind request
+     * of an UDP allocation before the request is sent again.
+     */
+    public static final int CHANNEL_BIND_TIMEOUT = 500;
+    /**
+     * Maximum number of times a channel bind request is sent.
+     */
+    public static final int CHANNEL_BIND_ATTEMPTS = 3;
+    /**
+     * Maximum number of received datagrams of an UDP allocation that are
+     * queued until they are taken by the application. Further datagrams are
+     * dropped.
+     */
+    public static final int DATAGRAM_QUEUE_SIZE = 1024;
 }
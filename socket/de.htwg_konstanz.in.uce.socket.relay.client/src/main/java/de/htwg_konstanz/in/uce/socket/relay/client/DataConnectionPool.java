@@ -0,0 +1,174 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.socket.relay.client;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.htwg_konstanz.in.uce.messages.SemanticLevel;
+import de.htwg_konstanz.in.uce.messages.UceMessage;
+import de.htwg_konstanz.in.uce.messages.UceMessageStaticFactory;
+import de.htwg_konstanz.in.uce.messages.UniqueId;
+import de.htwg_konstanz.in.uce.socket.relay.messages.MessageWriter;
+import de.htwg_konstanz.in.uce.socket.relay.messages.RelayUceMethod;
+
+/**
+ * Pool of idle data connections that are established to the relay server in
+ * advance. Each pooled data connection is bound to the allocation of the
+ * client with a connection bind request that contains the id of the
+ * allocation. The relay server pairs new peers with these connections right
+ * away and announces the pairing with a connection attempt indication that
+ * contains the transaction id of the connection bind request.
+ * <p>
+ * The pool gets refilled periodically when it is executed. Each execution
+ * establishes at most refillRate new data connections until the pool is full.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+final class DataConnectionPool implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataConnectionPool.class);
+    private final InetSocketAddress relayServerEndpoint;
+    private final UUID allocationId;
+    private final int poolSize;
+    private final int refillRate;
+    private final Map<UUID, Socket> idleConnections = new ConcurrentHashMap<UUID, Socket>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * Creates a new {@link DataConnectionPool}.
+     * 
+     * @param relayServerEndpoint
+     *            endpoint of the relay server on that it is waiting for new
+     *            data connections
+     * @param allocationId
+     *            the id of the allocation that was returned by the relay server
+     * @param poolSize
+     *            the maximum number of idle data connections
+     * @param refillRate
+     *            the maximum number of data connections that are established
+     *            per execution of the pool
+     */
+    DataConnectionPool(InetSocketAddress relayServerEndpoint, UUID allocationId, int poolSize,
+            int refillRate) {
+        this.relayServerEndpoint = relayServerEndpoint;
+        this.allocationId = allocationId;
+        this.poolSize = poolSize;
+        this.refillRate = refillRate;
+    }
+
+    /**
+     * Establishes new data connections until the pool is full or refillRate
+     * connections were established.
+     */
+    public void run() {
+        for (int i = 0; i < refillRate && !closed && idleConnections.size() < poolSize; i++) {
+            Socket s = new Socket();
+            UUID connectionId = UUID.randomUUID();
+            try {
+                s.connect(relayServerEndpoint);
+                MessageWriter dataConnectionWriter = new MessageWriter(s.getOutputStream());
+                UceMessage connectionBindRequestMessage = UceMessageStaticFactory
+                        .newUceMessageInstance(RelayUceMethod.CONNECTION_BIND,
+                                SemanticLevel.REQUEST, connectionId);
+                connectionBindRequestMessage.addAttribute(new UniqueId(allocationId));
+                // the server may pair the connection as soon as it receives the
+                // bind request, so the connection has to be in the pool before
+                idleConnections.put(connectionId, s);
+                dataConnectionWriter.writeMessage(connectionBindRequestMessage);
+            } catch (IOException e) {
+                logger.error("IOException while establishing pooled data connection: {}", e);
+                idleConnections.remove(connectionId);
+                try {
+                    s.close();
+                } catch (IOException ignore) {
+                }
+                return;
+            }
+        }
+        if (closed) {
+            close();
+        }
+    }
+
+    /**
+     * Takes the pooled data connection with the given id out of the pool.
+     * 
+     * @param connectionId
+     *            the id from the connection attempt indication
+     * @return the pooled data connection, or null if no pooled data connection
+     *         with the given id exists
+     */
+    Socket take(UUID connectionId) {
+        Socket s = idleConnections.remove(connectionId);
+        if (s != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return s;
+    }
+
+    /**
+     * Returns the number of connection attempts that were served by a pooled
+     * data connection.
+     * 
+     * @return the number of hits
+     */
+    long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of connection attempts that needed a new data
+     * connection.
+     * 
+     * @return the number of misses
+     */
+    long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Closes all idle data connections of this pool. No more data connections
+     * are established afterwards.
+     */
+    void close() {
+        closed = true;
+        for (UUID connectionId : idleConnections.keySet()) {
+            Socket s = idleConnections.remove(connectionId);
+            if (s != null) {
+                try {
+                    s.close();
+                } catch (IOException ignore) {
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,179 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.socket.relay.client;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.htwg_konstanz.in.uce.messages.UceMessage;
+import de.htwg_konstanz.in.uce.socket.relay.messages.ChannelData;
+import de.htwg_konstanz.in.uce.socket.relay.messages.RelayMessageReader;
+
+/**
+ * Task that receives the datagrams of an UDP allocation from the relay server.
+ * Channel data is put to the datagram queue of the client with the address of
+ * the peer that is bound to its channel number. Responses to channel bind
+ * requests are handed over to the thread that waits for them.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+final class DatagramReceiverTask implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatagramReceiverTask.class);
+    private final DatagramSocket socket;
+    private final Map<Integer, InetSocketAddress> channelToPeer;
+    private final BlockingQueue<DatagramPacket> datagramQueue;
+    private final Map<UUID, BlockingQueue<UceMessage>> pendingResponses = new ConcurrentHashMap<UUID, BlockingQueue<UceMessage>>();
+    private volatile boolean cancelled;
+
+    /**
+     * Creates a new {@link DatagramReceiverTask}.
+     * 
+     * @param socket
+     *            the socket that is connected to the relay server
+     * @param channelToPeer
+     *            the channel bindings of the client
+     * @param datagramQueue
+     *            queue to put the received datagrams of the peers to
+     */
+    DatagramReceiverTask(DatagramSocket socket, Map<Integer, InetSocketAddress> channelToPeer,
+            BlockingQueue<DatagramPacket> datagramQueue) {
+        this.socket = socket;
+        this.channelToPeer = channelToPeer;
+        this.datagramQueue = datagramQueue;
+    }
+
+    /**
+     * Registers a queue for the response to the request with the given
+     * transaction id. Has to be called before the request is sent.
+     * 
+     * @param transactionId
+     *            the transaction id of the request
+     * @param responseQueue
+     *            the queue to put the response to
+     */
+    void expectResponse(UUID transactionId, BlockingQueue<UceMessage> responseQueue) {
+        pendingResponses.put(transactionId, responseQueue);
+    }
+
+    /**
+     * Removes the queue for the response to the request with the given
+     * transaction id.
+     * 
+     * @param transactionId
+     *            the transaction id of the request
+     */
+    void forgetResponse(UUID transactionId) {
+        pendingResponses.remove(transactionId);
+    }
+
+    /**
+     * Receives datagrams until the socket gets closed.
+     */
+    public void run() {
+        byte[] buf = new byte[ChannelData.HEADER_LENGTH + ChannelData.MAX_PAYLOAD_LENGTH];
+        DatagramPacket packet = new DatagramPacket(buf, buf.length);
+        while (!cancelled) {
+            try {
+                packet.setLength(buf.length);
+                socket.receive(packet);
+                ByteBuffer datagram = ByteBuffer.wrap(buf, 0, packet.getLength());
+                if (ChannelData.isChannelData(datagram)) {
+                    handleChannelData(datagram);
+                } else {
+                    handleMessage(datagram);
+                }
+            } catch (IOException e) {
+                if (!cancelled) {
+                    logger.error("IOException while receiving datagram: {}", e);
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Puts the payload of the given channel data to the datagram queue.
+     * 
+     * @param datagram
+     *            the received channel data
+     */
+    private void handleChannelData(ByteBuffer datagram) {
+        InetSocketAddress peer = channelToPeer.get(ChannelData.getChannelNumber(datagram));
+        int payloadLength = ChannelData.getPayloadLength(datagram);
+        if (peer == null || payloadLength > datagram.remaining() - ChannelData.HEADER_LENGTH) {
+            logger.debug("Dropped channel data for unknown channel");
+            return;
+        }
+        byte[] payload = Arrays.copyOfRange(datagram.array(), ChannelData.HEADER_LENGTH,
+                ChannelData.HEADER_LENGTH + payloadLength);
+        if (!datagramQueue.offer(new DatagramPacket(payload, payloadLength, peer))) {
+            logger.debug("Dropped datagram because the queue is full");
+        }
+    }
+
+    /**
+     * Hands the given response over to the thread that waits for it.
+     * 
+     * @param datagram
+     *            the received message
+     */
+    private void handleMessage(ByteBuffer datagram) {
+        UceMessage message;
+        try {
+            message = RelayMessageReader.read(datagram);
+        } catch (IOException e) {
+            logger.debug("Dropped malformed datagram");
+            return;
+        } catch (BufferUnderflowException e) {
+            logger.debug("Dropped truncated datagram");
+            return;
+        }
+        if (message == null) {
+            return;
+        }
+        BlockingQueue<UceMessage> responseQueue = pendingResponses.remove(message
+                .getTransactionId());
+        if (responseQueue == null) {
+            logger.debug("Dropped unexpected message {}", message.getMethod());
+            return;
+        }
+        responseQueue.offer(message);
+    }
+
+    /**
+     * Cancels this task by closing the socket.
+     */
+    void cancel() {
+        cancelled = true;
+        socket.close();
+    }
+}
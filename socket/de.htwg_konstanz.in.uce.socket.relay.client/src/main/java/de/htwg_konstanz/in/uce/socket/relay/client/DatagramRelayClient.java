@@ -0,0 +1,302 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.socket.relay.client;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.htwg_konstanz.in.uce.messages.SemanticLevel;
+import de.htwg_konstanz.in.uce.messages.SocketEndpoint;
+import de.htwg_konstanz.in.uce.messages.SocketEndpoint.EndpointClass;
+import de.htwg_konstanz.in.uce.messages.UceMessage;
+import de.htwg_konstanz.in.uce.messages.UceMessageStaticFactory;
+import de.htwg_konstanz.in.uce.messages.UniqueId;
+import de.htwg_konstanz.in.uce.socket.relay.messages.ChannelData;
+import de.htwg_konstanz.in.uce.socket.relay.messages.ChannelNumber;
+import de.htwg_konstanz.in.uce.socket.relay.messages.Lifetime;
+import de.htwg_konstanz.in.uce.socket.relay.messages.MessageWriter;
+import de.htwg_konstanz.in.uce.socket.relay.messages.RelayMessageReader;
+import de.htwg_konstanz.in.uce.socket.relay.messages.RelayUceMethod;
+import de.htwg_konstanz.in.uce.socket.relay.messages.RequestedTransport;
+import de.htwg_konstanz.in.uce.socket.relay.messages.RequestedTransport.Transport;
+
+/**
+ * A {@link DatagramRelayClient} can request UDP allocations on relay servers.
+ * Peers send datagrams to the endpoint of such an allocation and the relay
+ * server relays them to the client and vice versa.
+ * 
+ * The allocation is created and refreshed over a TCP control connection like
+ * the allocations of a {@link RelayClient}. The datagrams are exchanged with
+ * the UDP port of the relay server that has the same number as its TCP port.
+ * Before datagrams can be exchanged with a peer, the client has to bind a
+ * channel number to the peer via {@link #bindChannel(InetSocketAddress)}. The
+ * relay server drops datagrams of peers without channel binding. Each relayed
+ * datagram carries only a 4 byte {@link ChannelData} header.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+public final class DatagramRelayClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatagramRelayClient.class);
+    private final InetSocketAddress relayServerEndpoint;
+    private final Map<InetSocketAddress, Integer> peerToChannel = new ConcurrentHashMap<InetSocketAddress, Integer>();
+    private final Map<Integer, InetSocketAddress> channelToPeer = new ConcurrentHashMap<Integer, InetSocketAddress>();
+    private final BlockingQueue<DatagramPacket> datagramQueue = new ArrayBlockingQueue<DatagramPacket>(
+            Constants.DATAGRAM_QUEUE_SIZE);
+    private int nextChannelNumber = ChannelData.MIN_CHANNEL_NUMBER;
+    private UUID allocationId;
+    private DatagramSocket datagramSocket;
+    private DatagramReceiverTask datagramReceiverTask;
+    private MessageHandlerTask messageHandlerTask;
+    private MessageWriter controlConnectionWriter;
+    private volatile boolean successfulAllocation = false;
+    private boolean discardedAllocation = false;
+
+    /**
+     * Creates a new {@link DatagramRelayClient}.
+     * 
+     * @param relayServerEndpoint
+     *            the endpoint of the relay server
+     */
+    public DatagramRelayClient(InetSocketAddress relayServerEndpoint) {
+        this.relayServerEndpoint = relayServerEndpoint;
+    }
+
+    /**
+     * Creates a new UDP allocation on the relay server for this client. Also
+     * initiates the periodic refresh requests for the allocation. You can only
+     * create one allocation with a single {@link DatagramRelayClient}
+     * instance.
+     * 
+     * @return the public endpoint of the allocation on the relay server
+     * @throws IOException
+     *             if an I/O error occurs or the relay server does not support
+     *             UDP allocations
+     * @throws IllegalStateException
+     *             if you try to create an allocation after you already created
+     *             an allocation with this {@link DatagramRelayClient} instance
+     */
+    public synchronized InetSocketAddress createAllocation() throws IOException {
+        if (successfulAllocation || discardedAllocation) {
+            throw new IllegalStateException(
+                    "You can create only one allocation with the same Relay Client object");
+        }
+        Socket controlConnection = new Socket();
+        controlConnection.connect(relayServerEndpoint);
+        controlConnectionWriter = new MessageWriter(controlConnection.getOutputStream());
+        UceMessage allocationRequestMessage = UceMessageStaticFactory.newUceMessageInstance(
+                RelayUceMethod.ALLOCATION, SemanticLevel.REQUEST, UUID.randomUUID());
+        allocationRequestMessage.addAttribute(new Lifetime(Constants.ALLOCATION_LIFETIME))
+                .addAttribute(new RequestedTransport(Transport.UDP));
+        controlConnectionWriter.writeMessage(allocationRequestMessage);
+        UceMessage response = RelayMessageReader.read(controlConnection.getInputStream());
+        if (response == null || !response.isMethod(RelayUceMethod.ALLOCATION)
+                || !response.isSuccessResponse()
+                || !response.hasAttribute(SocketEndpoint.class)
+                || !response.hasAttribute(Lifetime.class)
+                || !response.hasAttribute(UniqueId.class)
+                || !response.hasAttribute(RequestedTransport.class)) {
+            controlConnection.close();
+            throw new IOException("unexpected response from Relay server");
+        }
+        allocationId = response.getAttribute(UniqueId.class).getId();
+        datagramSocket = new DatagramSocket();
+        datagramSocket.connect(relayServerEndpoint);
+        // special thread group for RMI
+        ThreadFactory specialThreadsFactory = new ThreadGroupThreadFactory();
+        int lifetime = response.getAttribute(Lifetime.class).getLifeTime();
+        ScheduledExecutorService refreshExecutor = Executors
+                .newSingleThreadScheduledExecutor(specialThreadsFactory);
+        refreshExecutor.schedule(new RefreshAllocationTask(controlConnectionWriter, lifetime), Math
+                .max(lifetime - Constants.ALLOCATION_LIFETIME_ADVANCE,
+                        Constants.ALLOCATION_LIFETIME_MIN), TimeUnit.SECONDS);
+        // no connection attempts arrive for UDP allocations
+        messageHandlerTask = new MessageHandlerTask(controlConnection, controlConnectionWriter,
+                relayServerEndpoint, new LinkedBlockingQueue<Socket>(), refreshExecutor, null);
+        specialThreadsFactory.newThread(messageHandlerTask).start();
+        datagramReceiverTask = new DatagramReceiverTask(datagramSocket, channelToPeer,
+                datagramQueue);
+        specialThreadsFactory.newThread(datagramReceiverTask).start();
+        successfulAllocation = true;
+        return response.getAttribute(SocketEndpoint.class).getEndpoint();
+    }
+
+    /**
+     * Binds a channel number to the given peer or refreshes the existing
+     * channel binding of the peer. The channel binding expires on the relay
+     * server after 10 minutes unless it is refreshed.
+     * 
+     * @param peer
+     *            the endpoint of the peer
+     * @return the channel number of the peer
+     * @throws IOException
+     *             if an I/O error occurs, the relay server refused the channel
+     *             binding or did not respond
+     * @throws InterruptedException
+     *             if interrupted while waiting for the response
+     * @throws IllegalStateException
+     *             if no allocation is created before, the allocation is
+     *             discarded or all channel numbers are used
+     */
+    public synchronized int bindChannel(InetSocketAddress peer) throws IOException,
+            InterruptedException {
+        if (!successfulAllocation) {
+            throw new IllegalStateException("You have first to create an allocation.");
+        }
+        Integer channelNumber = peerToChannel.get(peer);
+        if (channelNumber == null) {
+            if (nextChannelNumber > ChannelData.MAX_CHANNEL_NUMBER) {
+                throw new IllegalStateException("All channel numbers are used");
+            }
+            channelNumber = nextChannelNumber;
+        }
+        UUID transactionId = UUID.randomUUID();
+        UceMessage bindRequestMessage = UceMessageStaticFactory.newUceMessageInstance(
+                RelayUceMethod.CHANNEL_BIND, SemanticLevel.REQUEST, transactionId);
+        bindRequestMessage.addAttribute(new UniqueId(allocationId))
+                .addAttribute(new ChannelNumber(channelNumber))
+                .addAttribute(new SocketEndpoint(peer, EndpointClass.UNDEFINED));
+        byte[] encoded = bindRequestMessage.toByteArray();
+        BlockingQueue<UceMessage> responseQueue = new ArrayBlockingQueue<UceMessage>(1);
+        UceMessage response = null;
+        datagramReceiverTask.expectResponse(transactionId, responseQueue);
+        try {
+            // datagrams may get lost, so the request is retransmitted
+            for (int i = 0; i < Constants.CHANNEL_BIND_ATTEMPTS && response == null; i++) {
+                datagramSocket.send(new DatagramPacket(encoded, encoded.length));
+                response = responseQueue.poll(Constants.CHANNEL_BIND_TIMEOUT,
+                        TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            datagramReceiverTask.forgetResponse(transactionId);
+        }
+        if (response == null) {
+            throw new IOException("No response from Relay server to channel bind request");
+        } else if (!response.isMethod(RelayUceMethod.CHANNEL_BIND)
+                || !response.isSuccessResponse()) {
+            throw new IOException("Relay server refused channel binding");
+        }
+        if (channelNumber == nextChannelNumber) {
+            nextChannelNumber++;
+            peerToChannel.put(peer, channelNumber);
+            channelToPeer.put(channelNumber, peer);
+        }
+        logger.debug("Bound channel {} to peer {}", channelNumber, peer);
+        return channelNumber;
+    }
+
+    /**
+     * Sends a datagram through the relay server to a peer. The payload is
+     * taken from the data of the given packet and the peer from its socket
+     * address. A channel has to be bound to the peer before.
+     * 
+     * @param packet
+     *            the datagram to be sent
+     * @throws IOException
+     *             if an I/O error occurs
+     * @throws IllegalStateException
+     *             if no allocation is created before, the allocation is
+     *             discarded or no channel is bound to the peer
+     * @throws IllegalArgumentException
+     *             if the payload is too long
+     */
+    public void send(DatagramPacket packet) throws IOException {
+        if (!successfulAllocation) {
+            throw new IllegalStateException("You have first to create an allocation.");
+        }
+        SocketAddress peer = packet.getSocketAddress();
+        Integer channelNumber = peerToChannel.get(peer);
+        if (channelNumber == null) {
+            throw new IllegalStateException("No channel is bound to peer " + peer);
+        }
+        int payloadLength = packet.getLength();
+        byte[] datagram = new byte[ChannelData.HEADER_LENGTH + payloadLength];
+        ChannelData.putHeader(ByteBuffer.wrap(datagram), channelNumber, payloadLength);
+        System.arraycopy(packet.getData(), packet.getOffset(), datagram,
+                ChannelData.HEADER_LENGTH, payloadLength);
+        datagramSocket.send(new DatagramPacket(datagram, datagram.length));
+    }
+
+    /**
+     * Returns the next datagram that a peer sent through the relay server.
+     * This method blocks until a datagram is available or the thread gets
+     * interrupted while waiting. The socket address of the returned packet is
+     * the endpoint of the peer.
+     * 
+     * @return the received datagram
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     * @throws IllegalStateException
+     *             if no allocation is created before or the allocation is
+     *             discarded
+     */
+    public DatagramPacket receive() throws InterruptedException {
+        if (!successfulAllocation) {
+            throw new IllegalStateException("You have first to create an allocation.");
+        }
+        return datagramQueue.take();
+    }
+
+    /**
+     * Discards the allocation by this client on the relay server. Also
+     * terminates the periodic refresh requests for the allocation.
+     * 
+     * @throws IOException
+     *             if an I/O error occurs
+     * @throws IllegalStateException
+     *             if the allocation of this client is already discarded, or if
+     *             no allocation is created before
+     */
+    public synchronized void discardAllocation() throws IOException {
+        if (discardedAllocation) {
+            throw new IllegalStateException("Allocation is already discarded.");
+        }
+        if (successfulAllocation) {
+            logger.debug("Discard allocation");
+            successfulAllocation = false;
+            discardedAllocation = true;
+            UceMessage refreshRequestMessage = UceMessageStaticFactory.newUceMessageInstance(
+                    RelayUceMethod.REFRESH, SemanticLevel.REQUEST, UUID.randomUUID());
+            refreshRequestMessage.addAttribute(new Lifetime(0));
+            controlConnectionWriter.writeMessage(refreshRequestMessage);
+            messageHandlerTask.cancel();
+            datagramReceiverTask.cancel();
+        } else {
+            throw new IllegalStateException("You have first to create an allocation.");
+        }
+    }
+}
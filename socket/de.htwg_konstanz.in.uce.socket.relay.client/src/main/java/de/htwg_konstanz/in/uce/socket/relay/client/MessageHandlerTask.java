@@ -54,7 +54,10 @@ final class MessageHandlerTask implements Runnable {
     private final BlockingQueue<Socket> socketQueue;
     private final InetSocketAddress relayServerEndpoint;
     private final ScheduledExecutorService refreshExecutor;
+    private final DataConnectionPool dataConnectionPool;
     private volatile boolean cancelled;
+    // reused as long as the relay server grants the same lifetime
+    private RefreshAllocationTask refreshTask;
 
     /**
      * Creates a new {@link MessageHandlerTask}.
@@ -72,15 +75,18 @@ final class MessageHandlerTask implements Runnable {
      * @param refreshExecutor
      *            executor that gets used to execute the periodic refresh
      *            request task
+     * @param dataConnectionPool
+     *            pool of pre-bound data connections, or null if no pool is used
      */
     MessageHandlerTask(Socket controlConnection, MessageWriter controlConnectionWriter,
             InetSocketAddress relayServerEndpoint, BlockingQueue<Socket> socketQueue,
-            ScheduledExecutorService refreshExecutor) {
+            ScheduledExecutorService refreshExecutor, DataConnectionPool dataConnectionPool) {
         this.controlConnection = controlConnection;
         this.controlConnectionWriter = controlConnectionWriter;
         this.socketQueue = socketQueue;
         this.relayServerEndpoint = relayServerEndpoint;
         this.refreshExecutor = refreshExecutor;
+        this.dataConnectionPool = dataConnectionPool;
     }
 
     /**
@@ -99,6 +105,16 @@ final class MessageHandlerTask implements Runnable {
                     return;
                 }
                 if (message.isMethod(RelayUceMethod.CONNECTION_ATTEMPT) && message.isIndication()) {
+                    UUID connectionId = message.getAttribute(UniqueId.class).getId();
+                    if (dataConnectionPool != null) {
+                        // relay server may have used a pre-bound data
+                        // connection
+                        Socket pooled = dataConnectionPool.take(connectionId);
+                        if (pooled != null) {
+                            socketQueue.add(pooled);
+                            continue;
+                        }
+                    }
                     // Connect to the relay address to establish a
                     // data connection
                     Socket s = new Socket();
@@ -107,16 +123,18 @@ final class MessageHandlerTask implements Runnable {
                     UceMessage connectionBindRequestMessage = UceMessageStaticFactory
                             .newUceMessageInstance(RelayUceMethod.CONNECTION_BIND,
                                     SemanticLevel.REQUEST, UUID.randomUUID());
-                    connectionBindRequestMessage.addAttribute(new UniqueId(message.getAttribute(
-                            UniqueId.class).getId()));
+                    connectionBindRequestMessage.addAttribute(new UniqueId(connectionId));
                     dataConnectionWriter.writeMessage(connectionBindRequestMessage);
                     // TODO erfolgs oder fehlermeldung abwarten
                     socketQueue.add(s);
                 } else if (message.isMethod(RelayUceMethod.REFRESH) && message.isSuccessResponse()) {
                     int lifetime = message.getAttribute(Lifetime.class).getLifeTime();
                     logger.debug("Received lifetime response {}", lifetime);
-                    refreshExecutor.schedule(new RefreshAllocationTask(controlConnectionWriter,
-                            lifetime), Math.max(lifetime - Constants.ALLOCATION_LIFETIME_ADVANCE,
+                    if (refreshTask == null || refreshTask.getLifetime() != lifetime) {
+                        refreshTask = new RefreshAllocationTask(controlConnectionWriter, lifetime);
+                    }
+                    refreshExecutor.schedule(refreshTask, Math.max(lifetime
+                            - Constants.ALLOCATION_LIFETIME_ADVANCE,
                             Constants.ALLOCATION_LIFETIME_MIN), TimeUnit.SECONDS);
                 } else {
                     logger.error("Received unexpected message {}", message.getMethod());
@@ -138,6 +156,9 @@ final class MessageHandlerTask implements Runnable {
         logger.debug("Cancel MessageHandlerTask");
         cancelled = true;
         refreshExecutor.shutdownNow();
+        if (dataConnectionPool != null) {
+            dataConnectionPool.close();
+        }
         try {
             controlConnection.close();
         } catch (IOException ignore) {
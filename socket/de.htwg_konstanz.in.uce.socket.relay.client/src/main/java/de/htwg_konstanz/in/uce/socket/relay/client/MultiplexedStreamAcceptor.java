@@ -0,0 +1,85 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.socket.relay.client;
+
+import java.net.Socket;
+import java.util.concurrent.BlockingQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.htwg_konstanz.in.uce.socket.relay.messages.MultiplexedConnection;
+import de.htwg_konstanz.in.uce.socket.relay.messages.MultiplexedSocket;
+
+/**
+ * Task that accepts the streams that the relay server opens on the
+ * multiplexed connection for new peers and puts them to the socket queue of
+ * the client.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+final class MultiplexedStreamAcceptor implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(MultiplexedStreamAcceptor.class);
+    private final MultiplexedConnection multiplexedConnection;
+    private final BlockingQueue<Socket> socketQueue;
+    private volatile boolean cancelled;
+
+    /**
+     * Creates a new {@link MultiplexedStreamAcceptor}.
+     * 
+     * @param multiplexedConnection
+     *            the multiplexed connection to the relay server
+     * @param socketQueue
+     *            queue to put the sockets of new streams to
+     */
+    MultiplexedStreamAcceptor(MultiplexedConnection multiplexedConnection,
+            BlockingQueue<Socket> socketQueue) {
+        this.multiplexedConnection = multiplexedConnection;
+        this.socketQueue = socketQueue;
+    }
+
+    /**
+     * Waits for new streams and puts them to the socket queue until the
+     * multiplexed connection gets closed.
+     */
+    public void run() {
+        try {
+            MultiplexedSocket stream;
+            while ((stream = multiplexedConnection.acceptStream()) != null) {
+                socketQueue.add(stream);
+            }
+            if (!cancelled) {
+                logger.error("Multiplexed connection closed by relay server");
+                socketQueue.add(new Socket());
+            }
+        } catch (InterruptedException e) {
+            logger.debug("Got interrupted");
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Cancels this task by closing the multiplexed connection.
+     */
+    void cancel() {
+        cancelled = true;
+        multiplexedConnection.close();
+    }
+}
@@ -23,6 +23,7 @@ import java.util.UUID;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import de.htwg_konstanz.in.uce.messages.FrozenUceMessage;
 import de.htwg_konstanz.in.uce.messages.SemanticLevel;
 import de.htwg_konstanz.in.uce.messages.UceMessage;
 import de.htwg_konstanz.in.uce.messages.UceMessageStaticFactory;
@@ -41,6 +42,8 @@ final class RefreshAllocationTask implements Runnable {
     private static final Logger logger = LoggerFactory.getLogger(RefreshAllocationTask.class);
     private final MessageWriter controlConnectionWriter;
     private final int lifetime;
+    // encoded once, only the transaction id changes for each request
+    private final FrozenUceMessage refreshRequestMessage;
 
     /**
      * Creates a new {@link RefreshAllocationTask}.
@@ -55,6 +58,19 @@ final class RefreshAllocationTask implements Runnable {
     RefreshAllocationTask(MessageWriter controlConnectionWriter, int lifetime) {
         this.controlConnectionWriter = controlConnectionWriter;
         this.lifetime = lifetime;
+        UceMessage message = UceMessageStaticFactory.newUceMessageInstance(
+                RelayUceMethod.REFRESH, SemanticLevel.REQUEST, UUID.randomUUID());
+        message.addAttribute(new Lifetime(lifetime));
+        this.refreshRequestMessage = UceMessageStaticFactory.freeze(message);
+    }
+
+    /**
+     * Returns the lifetime that is requested by this task.
+     * 
+     * @return the requested lifetime
+     */
+    int getLifetime() {
+        return lifetime;
     }
 
     /**
@@ -62,10 +78,8 @@ final class RefreshAllocationTask implements Runnable {
      */
     public void run() {
         try {
-            UceMessage refreshRequestMessage = UceMessageStaticFactory.newUceMessageInstance(
-                    RelayUceMethod.REFRESH, SemanticLevel.REQUEST, UUID.randomUUID());
-            refreshRequestMessage.addAttribute(new Lifetime(lifetime));
-            controlConnectionWriter.writeMessage(refreshRequestMessage);
+            controlConnectionWriter.writeMessage(refreshRequestMessage
+                    .withTransactionId(UUID.randomUUID()));
         } catch (IOException e) {
             logger.error("IOException while sending refresh request");
         }
@@ -36,8 +36,10 @@ import de.htwg_konstanz.in.uce.messages.SemanticLevel;
 import de.htwg_konstanz.in.uce.messages.SocketEndpoint;
 import de.htwg_konstanz.in.uce.messages.UceMessage;
 import de.htwg_konstanz.in.uce.messages.UceMessageStaticFactory;
+import de.htwg_konstanz.in.uce.messages.UniqueId;
 import de.htwg_konstanz.in.uce.socket.relay.messages.Lifetime;
 import de.htwg_konstanz.in.uce.socket.relay.messages.MessageWriter;
+import de.htwg_konstanz.in.uce.socket.relay.messages.MultiplexedConnection;
 import de.htwg_konstanz.in.uce.socket.relay.messages.RelayMessageReader;
 import de.htwg_konstanz.in.uce.socket.relay.messages.RelayUceMethod;
 
@@ -56,6 +58,11 @@ public final class RelayClient {
     private final InetAddress localAddress;
     private final int localPort;
     private final BlockingQueue<Socket> socketQueue;
+    private final int dataConnectionPoolSize;
+    private final int dataConnectionRefillRate;
+    private volatile DataConnectionPool dataConnectionPool;
+    private final boolean multiplexed;
+    private MultiplexedStreamAcceptor multiplexedStreamAcceptor;
     private MessageHandlerTask messageHandlerTask;
     private Socket controlConnection;
     private MessageWriter controlConnectionWriter;
@@ -97,10 +104,84 @@ public final class RelayClient {
      */
     public RelayClient(InetSocketAddress relayServerEndpoint, InetAddress localAddress,
             int localPort) {
+        this(relayServerEndpoint, localAddress, localPort, 0, 0);
+    }
+
+    /**
+     * Creates a new {@link RelayClient} that keeps a pool of pre-bound data
+     * connections to the relay server. New peers can be paired with a pooled
+     * data connection right away, without waiting for a new data connection to
+     * be established. The pool gets refilled every
+     * {@link Constants#DATA_CONNECTION_POOL_REFILL_INTERVAL} milliseconds. The
+     * pool is only used if the relay server supports pre-bound data
+     * connections.
+     * 
+     * @param relayServerEndpoint
+     *            the endpoint of the relay server
+     * @param localAddress
+     *            the local address of the control connection to the relay
+     *            server
+     * @param localPort
+     *            the local port of the control connection to the relay server
+     * @param dataConnectionPoolSize
+     *            the maximum number of idle pre-bound data connections. 0
+     *            disables the pool.
+     * @param dataConnectionRefillRate
+     *            the maximum number of data connections that are established
+     *            per refill of the pool
+     * @throws IllegalArgumentException
+     *             if dataConnectionPoolSize is negative or the pool is enabled
+     *             and dataConnectionRefillRate is not positive
+     */
+    public RelayClient(InetSocketAddress relayServerEndpoint, InetAddress localAddress,
+            int localPort, int dataConnectionPoolSize, int dataConnectionRefillRate) {
+        this(relayServerEndpoint, localAddress, localPort, dataConnectionPoolSize,
+                dataConnectionRefillRate, false);
+    }
+
+    /**
+     * Creates a new {@link RelayClient} that can relay all peer connections as
+     * logical streams over one multiplexed data connection to the relay
+     * server. In this case {@link #accept()} returns lightweight sockets of
+     * these streams and no further data connections get established. The
+     * multiplexed data connection is only used if the relay server supports
+     * it; the pool of pre-bound data connections is not used with a
+     * multiplexed data connection.
+     * 
+     * @param relayServerEndpoint
+     *            the endpoint of the relay server
+     * @param localAddress
+     *            the local address of the control connection to the relay
+     *            server
+     * @param localPort
+     *            the local port of the control connection to the relay server
+     * @param dataConnectionPoolSize
+     *            the maximum number of idle pre-bound data connections. 0
+     *            disables the pool.
+     * @param dataConnectionRefillRate
+     *            the maximum number of data connections that are established
+     *            per refill of the pool
+     * @param multiplexed
+     *            true if peer connections should be relayed over one
+     *            multiplexed data connection
+     * @throws IllegalArgumentException
+     *             if dataConnectionPoolSize is negative or the pool is enabled
+     *             and dataConnectionRefillRate is not positive
+     */
+    public RelayClient(InetSocketAddress relayServerEndpoint, InetAddress localAddress,
+            int localPort, int dataConnectionPoolSize, int dataConnectionRefillRate,
+            boolean multiplexed) {
+        if (dataConnectionPoolSize < 0
+                || (dataConnectionPoolSize > 0 && dataConnectionRefillRate <= 0)) {
+            throw new IllegalArgumentException("Illegal data connection pool configuration");
+        }
         this.relayServerEndpoint = relayServerEndpoint;
         this.localAddress = localAddress;
         this.localPort = localPort;
         this.socketQueue = new LinkedBlockingQueue<Socket>();
+        this.dataConnectionPoolSize = dataConnectionPoolSize;
+        this.dataConnectionRefillRate = dataConnectionRefillRate;
+        this.multiplexed = multiplexed;
     }
 
     /**
@@ -143,8 +224,25 @@ public final class RelayClient {
         refreshExecutor.schedule(new RefreshAllocationTask(controlConnectionWriter, lifetime), Math
                 .max(lifetime - Constants.ALLOCATION_LIFETIME_ADVANCE,
                         Constants.ALLOCATION_LIFETIME_MIN), TimeUnit.SECONDS);
+        if (multiplexed && response.hasAttribute(UniqueId.class)) {
+            MultiplexedConnection multiplexedConnection = bindMultiplexedConnection(response
+                    .getAttribute(UniqueId.class).getId());
+            if (multiplexedConnection != null) {
+                multiplexedStreamAcceptor = new MultiplexedStreamAcceptor(multiplexedConnection,
+                        socketQueue);
+                specialThreadsFactory.newThread(multiplexedStreamAcceptor).start();
+            }
+        }
+        if (multiplexedStreamAcceptor == null && dataConnectionPoolSize > 0
+                && response.hasAttribute(UniqueId.class)) {
+            dataConnectionPool = new DataConnectionPool(relayServerEndpoint, response
+                    .getAttribute(UniqueId.class).getId(), dataConnectionPoolSize,
+                    dataConnectionRefillRate);
+            refreshExecutor.scheduleWithFixedDelay(dataConnectionPool, 0,
+                    Constants.DATA_CONNECTION_POOL_REFILL_INTERVAL, TimeUnit.MILLISECONDS);
+        }
         messageHandlerTask = new MessageHandlerTask(controlConnection, controlConnectionWriter,
-                relayServerEndpoint, socketQueue, refreshExecutor);
+                relayServerEndpoint, socketQueue, refreshExecutor, dataConnectionPool);
         specialThreadsFactory.newThread(messageHandlerTask).start();
         InetSocketAddress peerRelayAddress = response.getAttribute(SocketEndpoint.class)
                 .getEndpoint();
@@ -175,15 +273,73 @@ public final class RelayClient {
             refreshRequestMessage.addAttribute(new Lifetime(0));
             controlConnectionWriter.writeMessage(refreshRequestMessage);
             messageHandlerTask.cancel();
+            if (multiplexedStreamAcceptor != null) {
+                multiplexedStreamAcceptor.cancel();
+            }
         } else {
             throw new IllegalStateException("You have first to create an allocation.");
         }
     }
 
+    /**
+     * Establishes a multiplexed data connection to the relay server for the
+     * given allocation.
+     * 
+     * @param allocationId
+     *            the id of the allocation
+     * @return the started multiplexed connection, or null if the relay server
+     *         refused the multiplexed connection
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    private MultiplexedConnection bindMultiplexedConnection(UUID allocationId)
+            throws IOException {
+        Socket s = new Socket();
+        s.connect(relayServerEndpoint);
+        UceMessage bindRequestMessage = UceMessageStaticFactory.newUceMessageInstance(
+                RelayUceMethod.MULTIPLEXED_CONNECTION_BIND, SemanticLevel.REQUEST,
+                UUID.randomUUID());
+        bindRequestMessage.addAttribute(new UniqueId(allocationId));
+        new MessageWriter(s.getOutputStream()).writeMessage(bindRequestMessage);
+        UceMessage response = RelayMessageReader.read(s.getInputStream());
+        if (!response.isMethod(RelayUceMethod.MULTIPLEXED_CONNECTION_BIND)
+                || !response.isSuccessResponse()) {
+            logger.info("Relay server refused multiplexed connection");
+            s.close();
+            return null;
+        }
+        MultiplexedConnection multiplexedConnection = new MultiplexedConnection(s, false);
+        multiplexedConnection.start();
+        return multiplexedConnection;
+    }
+
+    /**
+     * Returns the number of peer connections that were paired with a pre-bound
+     * data connection of the pool.
+     * 
+     * @return the number of pool hits, or 0 if no pool is used
+     */
+    public long getDataConnectionPoolHits() {
+        DataConnectionPool pool = dataConnectionPool;
+        return (pool != null) ? pool.getHits() : 0;
+    }
+
+    /**
+     * Returns the number of peer connections that needed a new data connection
+     * although a pool of pre-bound data connections is used.
+     * 
+     * @return the number of pool misses, or 0 if no pool is used
+     */
+    public long getDataConnectionPoolMisses() {
+        DataConnectionPool pool = dataConnectionPool;
+        return (pool != null) ? pool.getMisses() : 0;
+    }
+
     /**
      * Returns a socket to the relay server to relay data between this client
      * and a peer. This method blocks until a new socket is available or the
-     * thread gets interrupted while waiting.
+     * thread gets interrupted while waiting. If a multiplexed data connection
+     * is used, the returned socket represents one stream of it.
      * 
      * @return a socket to the relay server
      * @throws IOException
@@ -0,0 +1,222 @@
+package de.htwg_konstanz.in.uce.socket.relay.client;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.htwg_konstanz.in.uce.messages.ErrorCode.ErrorCodes;
+import de.htwg_konstanz.in.uce.messages.SocketEndpoint;
+import de.htwg_konstanz.in.uce.messages.SocketEndpoint.EndpointClass;
+import de.htwg_konstanz.in.uce.messages.UceMessage;
+import de.htwg_konstanz.in.uce.messages.UniqueId;
+import de.htwg_konstanz.in.uce.socket.relay.messages.ChannelData;
+import de.htwg_konstanz.in.uce.socket.relay.messages.ChannelNumber;
+import de.htwg_konstanz.in.uce.socket.relay.messages.Lifetime;
+import de.htwg_konstanz.in.uce.socket.relay.messages.RelayMessageReader;
+import de.htwg_konstanz.in.uce.socket.relay.messages.RelayUceMethod;
+import de.htwg_konstanz.in.uce.socket.relay.messages.RequestedTransport;
+import de.htwg_konstanz.in.uce.socket.relay.messages.RequestedTransport.Transport;
+
+/**
+ * Runs a {@link DatagramRelayClient} against a fake relay server that answers
+ * the requests of the client itself.
+ */
+public class DatagramRelayClientTest {
+
+    private final UUID allocationId = UUID.randomUUID();
+    private final InetSocketAddress publicEndpoint = new InetSocketAddress(
+            InetAddress.getLoopbackAddress(), 45300);
+    private final InetSocketAddress peer = new InetSocketAddress(
+            InetAddress.getLoopbackAddress(), 5000);
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private ServerSocket relayServerSocket;
+    private DatagramSocket relayDatagramSocket;
+    private Socket controlConnection;
+    private DatagramRelayClient client;
+    private volatile InetSocketAddress lastClientAddress;
+
+    @Before
+    public void setUp() throws Exception {
+        relayServerSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        relayServerSocket.setSoTimeout(2000);
+        relayDatagramSocket = new DatagramSocket(relayServerSocket.getLocalPort(),
+                InetAddress.getLoopbackAddress());
+        relayDatagramSocket.setSoTimeout(2000);
+        client = new DatagramRelayClient((InetSocketAddress) relayServerSocket
+                .getLocalSocketAddress());
+        Future<Socket> allocation = executor.submit(new Callable<Socket>() {
+            public Socket call() throws Exception {
+                Socket socket = relayServerSocket.accept();
+                UceMessage request = RelayMessageReader.read(socket.getInputStream());
+                Assert.assertTrue(request.isMethod(RelayUceMethod.ALLOCATION));
+                Assert.assertEquals(Transport.UDP, request.getAttribute(
+                        RequestedTransport.class).getTransport());
+                UceMessage response = request.buildSuccessResponse();
+                response.addAttribute(new SocketEndpoint(publicEndpoint, EndpointClass.RELAY))
+                        .addAttribute(new Lifetime(600))
+                        .addAttribute(new UniqueId(allocationId))
+                        .addAttribute(new RequestedTransport(Transport.UDP));
+                socket.getOutputStream().write(response.toByteArray());
+                return socket;
+            }
+        });
+        Assert.assertEquals(publicEndpoint, client.createAllocation());
+        controlConnection = allocation.get();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        client.discardAllocation();
+        executor.shutdownNow();
+        controlConnection.close();
+        relayServerSocket.close();
+        relayDatagramSocket.close();
+    }
+
+    @Test
+    public void testBindChannel() throws Exception {
+        // prepare
+        Future<UceMessage> request = respondToChannelBind(true);
+
+        // execute
+        int channelNumber = client.bindChannel(peer);
+
+        // validate
+        Assert.assertEquals(ChannelData.MIN_CHANNEL_NUMBER, channelNumber);
+        Assert.assertEquals(allocationId, request.get().getAttribute(UniqueId.class).getId());
+        Assert.assertEquals(channelNumber, request.get().getAttribute(ChannelNumber.class)
+                .getChannelNumber());
+        Assert.assertEquals(peer, request.get().getAttribute(SocketEndpoint.class)
+                .getEndpoint());
+    }
+
+    @Test
+    public void testRefreshChannelBinding() throws Exception {
+        // prepare
+        respondToChannelBind(true);
+        int channelNumber = client.bindChannel(peer);
+        Future<UceMessage> request = respondToChannelBind(true);
+
+        // execute
+        int refreshedChannelNumber = client.bindChannel(peer);
+
+        // validate
+        Assert.assertEquals(channelNumber, refreshedChannelNumber);
+        Assert.assertEquals(channelNumber, request.get().getAttribute(ChannelNumber.class)
+                .getChannelNumber());
+    }
+
+    @Test
+    public void testBindChannelRefused() throws Exception {
+        // prepare
+        respondToChannelBind(false);
+
+        // execute
+        try {
+            client.bindChannel(peer);
+            Assert.fail("IOException expected");
+        } catch (IOException e) {
+            // expected
+        }
+
+        // validate
+        // the channel number is not used up by the refused binding
+        respondToChannelBind(true);
+        Assert.assertEquals(ChannelData.MIN_CHANNEL_NUMBER, client.bindChannel(peer));
+    }
+
+    @Test
+    public void testSend() throws Exception {
+        // prepare
+        respondToChannelBind(true);
+        int channelNumber = client.bindChannel(peer);
+        byte[] payload = "payload".getBytes();
+
+        // execute
+        client.send(new DatagramPacket(payload, payload.length, peer));
+
+        // validate
+        DatagramPacket packet = receive(relayDatagramSocket);
+        ByteBuffer datagram = ByteBuffer.wrap(packet.getData(), 0, packet.getLength());
+        Assert.assertTrue(ChannelData.isChannelData(datagram));
+        Assert.assertEquals(channelNumber, ChannelData.getChannelNumber(datagram));
+        Assert.assertEquals(payload.length, ChannelData.getPayloadLength(datagram));
+        Assert.assertArrayEquals(payload, Arrays.copyOfRange(packet.getData(),
+                ChannelData.HEADER_LENGTH, packet.getLength()));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSendToUnboundPeer() throws IOException {
+        client.send(new DatagramPacket(new byte[1], 1, peer));
+    }
+
+    @Test
+    public void testReceive() throws Exception {
+        // prepare
+        respondToChannelBind(true);
+        int channelNumber = client.bindChannel(peer);
+        byte[] payload = "payload".getBytes();
+
+        // execute
+        // channel data of an unbound channel is dropped by the client
+        sendChannelData(channelNumber + 1, "dropped".getBytes());
+        sendChannelData(channelNumber, payload);
+
+        // validate
+        DatagramPacket packet = client.receive();
+        Assert.assertEquals(peer, packet.getSocketAddress());
+        Assert.assertArrayEquals(payload, Arrays.copyOfRange(packet.getData(),
+                packet.getOffset(), packet.getOffset() + packet.getLength()));
+    }
+
+    /**
+     * Lets the fake relay server answer the next channel bind request.
+     */
+    private Future<UceMessage> respondToChannelBind(final boolean success) {
+        return executor.submit(new Callable<UceMessage>() {
+            public UceMessage call() throws Exception {
+                DatagramPacket packet = receive(relayDatagramSocket);
+                lastClientAddress = (InetSocketAddress) packet.getSocketAddress();
+                UceMessage request = RelayMessageReader.read(ByteBuffer.wrap(packet.getData(),
+                        0, packet.getLength()));
+                Assert.assertTrue(request.isMethod(RelayUceMethod.CHANNEL_BIND));
+                UceMessage response = success ? request.buildSuccessResponse() : request
+                        .buildErrorResponse(ErrorCodes.BAD_REQUEST, "refused");
+                byte[] encoded = response.toByteArray();
+                relayDatagramSocket.send(new DatagramPacket(encoded, encoded.length,
+                        lastClientAddress));
+                return request;
+            }
+        });
+    }
+
+    private void sendChannelData(int channelNumber, byte[] payload) throws IOException {
+        byte[] datagram = new byte[ChannelData.HEADER_LENGTH + payload.length];
+        ChannelData.putHeader(ByteBuffer.wrap(datagram), channelNumber, payload.length);
+        System.arraycopy(payload, 0, datagram, ChannelData.HEADER_LENGTH, payload.length);
+        relayDatagramSocket.send(new DatagramPacket(datagram, datagram.length,
+                lastClientAddress));
+    }
+
+    private static DatagramPacket receive(DatagramSocket socket) throws IOException {
+        DatagramPacket packet = new DatagramPacket(new byte[2048], 2048);
+        socket.receive(packet);
+        return packet;
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.socket.relay.messages;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import de.htwg_konstanz.in.uce.messages.UceAttribute;
+import de.htwg_konstanz.in.uce.messages.UceAttributeType;
+
+/**
+ * Attribute for the bandwidth of an allocation. Can be sent in allocation
+ * requests to ask the relay server to limit the bandwidth of the relay
+ * connections of the allocation. The relay server returns the bandwidth that
+ * it actually applies in the success response.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+public final class Bandwidth implements UceAttribute {
+
+    private final int bytesPerSecond;
+
+    /**
+     * Creates a new {@link Bandwidth}.
+     * 
+     * @param bytesPerSecond
+     *            the bandwidth in bytes per second for each direction of a
+     *            relay connection, or 0 for an unlimited bandwidth
+     * @throws IllegalArgumentException
+     *             if bytesPerSecond is negative
+     */
+    public Bandwidth(int bytesPerSecond) {
+        if (bytesPerSecond < 0) {
+            throw new IllegalArgumentException("Bandwidth must not be negative");
+        }
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    public UceAttributeType getType() {
+        return RelayUceAttributeType.BANDWIDTH;
+    }
+
+    public int getLength() {
+        return 4;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream dout = new DataOutputStream(out);
+        dout.writeInt(bytesPerSecond);
+    }
+
+    /**
+     * Returns the bandwidth.
+     * 
+     * @return the bandwidth in bytes per second, or 0 for an unlimited
+     *         bandwidth
+     */
+    public int getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * Decodes a bandwidth attribute.
+     * 
+     * @param encoded
+     *            the encoded bandwidth attribute
+     * @return the decoded bandwidth attribute
+     * @throws IOException
+     *             if an I/O error occurs or the encoded bandwidth is negative
+     */
+    static UceAttribute fromBytes(byte[] encoded) throws IOException {
+        ByteArrayInputStream bin = new ByteArrayInputStream(encoded);
+        DataInputStream din = new DataInputStream(bin);
+        int bytesPerSecond = din.readInt();
+        if (bytesPerSecond < 0) {
+            throw new IOException("Negative bandwidth " + bytesPerSecond);
+        }
+        return new Bandwidth(bytesPerSecond);
+    }
+}
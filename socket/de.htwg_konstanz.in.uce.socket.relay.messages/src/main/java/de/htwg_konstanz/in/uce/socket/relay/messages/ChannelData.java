@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.socket.relay.messages;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Codec for the short header of the datagrams that are relayed between a
+ * client and the peers of an UDP allocation. The header is similar to the
+ * ChannelData message of TURN (RFC 5766) and consists of only 4 bytes: the
+ * channel number of the peer followed by the length of the payload.
+ * 
+ * Channel numbers are in the range from {@link #MIN_CHANNEL_NUMBER} to
+ * {@link #MAX_CHANNEL_NUMBER}. So the first 4 bits of a datagram with channel
+ * data are always 0x4, whereas the first 4 bits of an encoded
+ * {@link de.htwg_konstanz.in.uce.messages.UceMessage UceMessage} are always
+ * 0x5. This allows to send channel data and messages over the same UDP socket.
+ * 
+ * All methods use absolute positions relative to the current position of the
+ * given buffer and do not change its position.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+public final class ChannelData {
+
+    /**
+     * Length in bytes of the channel data header.
+     */
+    public static final int HEADER_LENGTH = 4;
+    /**
+     * Lowest channel number.
+     */
+    public static final int MIN_CHANNEL_NUMBER = 0x4000;
+    /**
+     * Highest channel number.
+     */
+    public static final int MAX_CHANNEL_NUMBER = 0x4FFF;
+    /**
+     * Maximum length in bytes of the payload of one datagram.
+     */
+    public static final int MAX_PAYLOAD_LENGTH = 0xFFFF - HEADER_LENGTH;
+
+    private ChannelData() {
+    }
+
+    /**
+     * Returns whether the given channel number is in the range of the
+     * channel numbers.
+     * 
+     * @param channelNumber
+     *            the channel number
+     * @return true if the channel number is valid
+     */
+    public static boolean isValidChannelNumber(int channelNumber) {
+        return channelNumber >= MIN_CHANNEL_NUMBER && channelNumber <= MAX_CHANNEL_NUMBER;
+    }
+
+    /**
+     * Returns whether the given datagram starts with a channel data header.
+     * 
+     * @param datagram
+     *            the received datagram between position and limit
+     * @return true if the datagram contains channel data, false if it
+     *         contains a message or is too short
+     */
+    public static boolean isChannelData(ByteBuffer datagram) {
+        return datagram.remaining() >= HEADER_LENGTH
+                && isValidChannelNumber(getChannelNumber(datagram));
+    }
+
+    /**
+     * Returns the channel number of the given datagram.
+     * 
+     * @param datagram
+     *            the datagram between position and limit
+     * @return the channel number
+     */
+    public static int getChannelNumber(ByteBuffer datagram) {
+        return datagram.getShort(datagram.position()) & 0xFFFF;
+    }
+
+    /**
+     * Returns the length of the payload of the given datagram.
+     * 
+     * @param datagram
+     *            the datagram between position and limit
+     * @return the length of the payload
+     */
+    public static int getPayloadLength(ByteBuffer datagram) {
+        return datagram.getShort(datagram.position() + 2) & 0xFFFF;
+    }
+
+    /**
+     * Writes a channel data header at the current position of the given
+     * buffer. The payload has to be placed directly behind the header.
+     * 
+     * @param buffer
+     *            the buffer with at least {@link #HEADER_LENGTH} remaining
+     *            bytes
+     * @param channelNumber
+     *            the channel number of the peer
+     * @param payloadLength
+     *            the length of the payload
+     * @throws IllegalArgumentException
+     *             if the channel number is not valid or the payload is too
+     *             long
+     */
+    public static void putHeader(ByteBuffer buffer, int channelNumber, int payloadLength) {
+        if (!isValidChannelNumber(channelNumber)) {
+            throw new IllegalArgumentException("Illegal channel number " + channelNumber);
+        } else if (payloadLength < 0 || payloadLength > MAX_PAYLOAD_LENGTH) {
+            throw new IllegalArgumentException("Illegal payload length " + payloadLength);
+        }
+        int position = buffer.position();
+        buffer.putShort(position, (short) channelNumber);
+        buffer.putShort(position + 2, (short) payloadLength);
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.socket.relay.messages;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import de.htwg_konstanz.in.uce.messages.UceAttribute;
+import de.htwg_konstanz.in.uce.messages.UceAttributeType;
+
+/**
+ * Attribute for the channel number of a peer of an UDP allocation. Datagrams
+ * between the client and a peer are relayed with a short {@link ChannelData}
+ * header that contains the channel number instead of the address of the peer.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+public final class ChannelNumber implements UceAttribute {
+
+    private final int channelNumber;
+
+    /**
+     * Creates a new {@link ChannelNumber}.
+     * 
+     * @param channelNumber
+     *            the channel number
+     * @throws IllegalArgumentException
+     *             if the channel number is not between
+     *             {@link ChannelData#MIN_CHANNEL_NUMBER} and
+     *             {@link ChannelData#MAX_CHANNEL_NUMBER}
+     */
+    public ChannelNumber(int channelNumber) {
+        if (!ChannelData.isValidChannelNumber(channelNumber)) {
+            throw new IllegalArgumentException("Illegal channel number " + channelNumber);
+        }
+        this.channelNumber = channelNumber;
+    }
+
+    public UceAttributeType getType() {
+        return RelayUceAttributeType.CHANNEL_NUMBER;
+    }
+
+    public int getLength() {
+        return 4;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream dout = new DataOutputStream(out);
+        dout.writeShort(channelNumber);
+        // reserved
+        dout.writeShort(0);
+    }
+
+    /**
+     * Returns the channel number.
+     * 
+     * @return the channel number
+     */
+    public int getChannelNumber() {
+        return channelNumber;
+    }
+
+    /**
+     * Decodes a channel number attribute.
+     * 
+     * @param encoded
+     *            the encoded channel number attribute
+     * @return the decoded channel number attribute
+     * @throws IOException
+     *             if an I/O error occurs or the encoded channel number is
+     *             illegal
+     */
+    static UceAttribute fromBytes(byte[] encoded) throws IOException {
+        ByteArrayInputStream bin = new ByteArrayInputStream(encoded);
+        DataInputStream din = new DataInputStream(bin);
+        int channelNumber = din.readUnsignedShort();
+        if (!ChannelData.isValidChannelNumber(channelNumber)) {
+            throw new IOException("Illegal channel number " + channelNumber);
+        }
+        return new ChannelNumber(channelNumber);
+    }
+}
@@ -0,0 +1,308 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.socket.relay.messages;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A data connection between relay client and relay server that carries many
+ * logical streams. Each logical stream is represented by a
+ * {@link MultiplexedSocket} on both sides of the connection.
+ * <p>
+ * Data is transferred in frames. Each frame consists of a header of 9 bytes
+ * (type: 1 byte, stream id: 4 bytes, length: 4 bytes) followed by length bytes
+ * of payload for data frames. For window update frames the length field holds
+ * the granted credit and no payload follows. A side may only send as many bytes
+ * of a stream as the other side granted as credit. Initially each stream has a
+ * credit of {@link #INITIAL_WINDOW} bytes in each direction.
+ * <p>
+ * Streams are opened by the side that was created as initiator (the relay
+ * server) and accepted by the other side (the relay client) via
+ * {@link #acceptStream()}.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+public final class MultiplexedConnection {
+
+    static final byte OPEN = 0;
+    static final byte DATA = 1;
+    static final byte WINDOW_UPDATE = 2;
+    static final byte FIN = 3;
+    static final byte RESET = 4;
+
+    /**
+     * Initial credit in bytes of each stream and direction.
+     */
+    public static final int INITIAL_WINDOW = 64 * 1024;
+    /**
+     * Maximum payload size in bytes of a single data frame.
+     */
+    public static final int MAX_FRAME_PAYLOAD = 16 * 1024;
+
+    private static final Logger logger = LoggerFactory.getLogger(MultiplexedConnection.class);
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final Map<Integer, MultiplexedSocket> streams = new ConcurrentHashMap<Integer, MultiplexedSocket>();
+    private final BlockingQueue<Object> acceptedStreams = new LinkedBlockingQueue<Object>();
+    private final AtomicInteger nextStreamId = new AtomicInteger();
+    private final boolean initiator;
+    private volatile boolean closed;
+
+    /**
+     * Creates a new {@link MultiplexedConnection} over the given socket. The
+     * connection has to be started via {@link #start()} before frames are
+     * received.
+     * 
+     * @param socket
+     *            the data connection between relay client and relay server
+     * @param initiator
+     *            true if this side opens new streams, false if this side
+     *            accepts new streams
+     * @throws IOException
+     *             if an I/O error occurs while getting the streams of the
+     *             socket
+     */
+    public MultiplexedConnection(Socket socket, boolean initiator) throws IOException {
+        this.socket = socket;
+        this.initiator = initiator;
+        this.in = new DataInputStream(socket.getInputStream());
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(),
+                MAX_FRAME_PAYLOAD + 9));
+    }
+
+    /**
+     * Starts the thread that receives the frames of this connection.
+     */
+    public void start() {
+        Thread reader = new Thread(new Runnable() {
+            public void run() {
+                receiveFrames();
+            }
+        }, "multiplexed-connection-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    /**
+     * Opens a new stream on this connection.
+     * 
+     * @return the socket of the new stream
+     * @throws IOException
+     *             if an I/O error occurs or the connection is closed
+     * @throws IllegalStateException
+     *             if this side is not the initiator of the connection
+     */
+    public MultiplexedSocket openStream() throws IOException {
+        if (!initiator) {
+            throw new IllegalStateException("Only the initiator can open streams");
+        } else if (closed) {
+            throw new IOException("Multiplexed connection is closed");
+        }
+        int streamId = nextStreamId.incrementAndGet();
+        MultiplexedSocket stream = new MultiplexedSocket(this, streamId);
+        streams.put(streamId, stream);
+        writeFrame(OPEN, streamId, null, 0, 0);
+        return stream;
+    }
+
+    /**
+     * Returns the next stream that was opened by the other side. Blocks until
+     * a new stream is available.
+     * 
+     * @return the socket of the new stream, or null if the connection was
+     *         closed
+     * @throws InterruptedException
+     *             if interrupted while waiting
+     */
+    public MultiplexedSocket acceptStream() throws InterruptedException {
+        Object stream = acceptedStreams.take();
+        if (stream instanceof MultiplexedSocket) {
+            return (MultiplexedSocket) stream;
+        }
+        // connection is closed, put back the marker for other waiting threads
+        acceptedStreams.add(stream);
+        return null;
+    }
+
+    /**
+     * Returns whether this connection is closed.
+     * 
+     * @return true if this connection is closed, false otherwise
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Returns the number of currently open streams of this connection.
+     * 
+     * @return the number of open streams
+     */
+    public int getStreamCount() {
+        return streams.size();
+    }
+
+    /**
+     * Returns the socket of the underlying data connection.
+     * 
+     * @return the socket of the underlying data connection
+     */
+    Socket getSocket() {
+        return socket;
+    }
+
+    /**
+     * Closes this connection and the underlying socket. All streams get reset.
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            socket.close();
+        } catch (IOException ignore) {
+        }
+        for (MultiplexedSocket stream : streams.values()) {
+            stream.remoteReset();
+        }
+        streams.clear();
+        acceptedStreams.add(Boolean.FALSE);
+    }
+
+    /**
+     * Writes a frame synchronized on the intrinsic lock of this connection.
+     * 
+     * @param type
+     *            the frame type
+     * @param streamId
+     *            the id of the stream
+     * @param payload
+     *            the payload of a data frame, or null
+     * @param off
+     *            offset of the payload
+     * @param len
+     *            the length of the payload for data frames, or the credit for
+     *            window update frames
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    synchronized void writeFrame(byte type, int streamId, byte[] payload, int off, int len)
+            throws IOException {
+        if (closed) {
+            throw new IOException("Multiplexed connection is closed");
+        }
+        try {
+            out.writeByte(type);
+            out.writeInt(streamId);
+            out.writeInt(len);
+            if (type == DATA) {
+                out.write(payload, off, len);
+            }
+            out.flush();
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Removes the given stream from this connection.
+     * 
+     * @param streamId
+     *            the id of the stream
+     */
+    void removeStream(int streamId) {
+        streams.remove(streamId);
+    }
+
+    /**
+     * Receives frames and dispatches them to the streams until the connection
+     * gets closed.
+     */
+    private void receiveFrames() {
+        try {
+            while (!closed) {
+                byte type = in.readByte();
+                int streamId = in.readInt();
+                int len = in.readInt();
+                MultiplexedSocket stream = streams.get(streamId);
+                switch (type) {
+                case OPEN:
+                    if (initiator) {
+                        throw new IOException("Unexpected open frame");
+                    }
+                    stream = new MultiplexedSocket(this, streamId);
+                    streams.put(streamId, stream);
+                    acceptedStreams.add(stream);
+                    break;
+                case DATA:
+                    if (len < 0 || len > MAX_FRAME_PAYLOAD) {
+                        throw new IOException("Illegal frame length " + len);
+                    }
+                    byte[] payload = new byte[len];
+                    in.readFully(payload);
+                    if (stream != null) {
+                        stream.receive(payload);
+                    }
+                    break;
+                case WINDOW_UPDATE:
+                    if (stream != null) {
+                        stream.addCredit(len);
+                    }
+                    break;
+                case FIN:
+                    if (stream != null) {
+                        stream.remoteFin();
+                    }
+                    break;
+                case RESET:
+                    if (stream != null) {
+                        stream.remoteReset();
+                    }
+                    break;
+                default:
+                    throw new IOException("Unknown frame type " + type);
+                }
+            }
+        } catch (EOFException e) {
+            logger.debug("Multiplexed connection closed by remote side");
+        } catch (IOException e) {
+            if (!closed) {
+                logger.error("IOException while receiving frames: {}", e);
+            }
+        } finally {
+            close();
+        }
+    }
+}
@@ -0,0 +1,570 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.socket.relay.messages;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link Socket} that represents one logical stream of a
+ * {@link MultiplexedConnection}. Only the stream related operations are
+ * supported. Address related operations and TCP options refer to the
+ * underlying data connection.
+ * <p>
+ * Received data is buffered until it gets read. Credit for the other side is
+ * granted in window update frames after at least half of the window was read.
+ * Writing blocks as long as the other side granted no credit.
+ * <p>
+ * Besides the streams, the data of the stream can be transferred with
+ * {@link #read(ByteBuffer)} and {@link #write(ByteBuffer)} that never block.
+ * A {@link StreamListener} gets notified when these methods can make progress
+ * again, so an event loop can relay many streams without a thread per stream.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+public final class MultiplexedSocket extends Socket {
+
+    /**
+     * Listener that gets notified when data, the end of the stream or new
+     * credit was received for a stream. Gets called by the thread that
+     * receives the frames of the connection and therefore must not block.
+     */
+    public interface StreamListener {
+
+        /**
+         * Gets called when the given stream may make progress with
+         * {@link MultiplexedSocket#read(ByteBuffer)} or
+         * {@link MultiplexedSocket#write(ByteBuffer)}.
+         * 
+         * @param stream
+         *            the stream
+         */
+        void streamReady(MultiplexedSocket stream);
+    }
+
+    private final MultiplexedConnection connection;
+    private final int streamId;
+    private final InputStream inputStream = new StreamInputStream();
+    private final OutputStream outputStream = new StreamOutputStream();
+    // guarded by this
+    private final byte[] receiveBuffer = new byte[MultiplexedConnection.INITIAL_WINDOW];
+    private int receiveStart;
+    private int receiveCount;
+    private int consumed;
+    private int credit = MultiplexedConnection.INITIAL_WINDOW;
+    private int soTimeout;
+    private boolean remoteFin;
+    private boolean remoteReset;
+    private boolean inputShutdown;
+    private boolean outputShutdown;
+    private boolean closed;
+    private volatile StreamListener listener;
+
+    /**
+     * Creates a new {@link MultiplexedSocket}.
+     * 
+     * @param connection
+     *            the connection that carries the stream
+     * @param streamId
+     *            the id of the stream
+     */
+    MultiplexedSocket(MultiplexedConnection connection, int streamId) {
+        this.connection = connection;
+        this.streamId = streamId;
+    }
+
+    /**
+     * Returns the id of the stream of this socket.
+     * 
+     * @return the stream id
+     */
+    public int getStreamId() {
+        return streamId;
+    }
+
+    /**
+     * Sets the listener that gets notified when this stream may make progress
+     * without blocking.
+     * 
+     * @param listener
+     *            the listener, or null to remove the current listener
+     */
+    public void setStreamListener(StreamListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Reads the data that was already received into the given buffer without
+     * blocking.
+     * 
+     * @param dst
+     *            the buffer into that the data is read
+     * @return the number of bytes read, possibly zero, or -1 if the end of the
+     *         stream was reached
+     * @throws IOException
+     *             if the socket is closed or an I/O error occurs while granting
+     *             credit to the other side
+     */
+    public int read(ByteBuffer dst) throws IOException {
+        int n;
+        int grant;
+        synchronized (this) {
+            if (closed) {
+                throw new SocketException("Socket is closed");
+            }
+            if (receiveCount == 0) {
+                return (remoteFin || inputShutdown) ? -1 : 0;
+            }
+            n = Math.min(dst.remaining(), receiveCount);
+            int firstPart = Math.min(n, receiveBuffer.length - receiveStart);
+            dst.put(receiveBuffer, receiveStart, firstPart);
+            dst.put(receiveBuffer, 0, n - firstPart);
+            grant = consume(n);
+        }
+        grantCredit(grant);
+        return n;
+    }
+
+    /**
+     * Writes as much data of the given buffer as the other side granted credit
+     * for without waiting for new credit. Writing the frames to the data
+     * connection may still block while the data connection itself is
+     * congested.
+     * 
+     * @param src
+     *            the buffer from that the data is written
+     * @return the number of bytes written, possibly zero
+     * @throws IOException
+     *             if the output of the stream is shut down, the stream was
+     *             reset by the other side or an I/O error occurs
+     */
+    public int write(ByteBuffer src) throws IOException {
+        int written = 0;
+        while (src.hasRemaining()) {
+            int n;
+            synchronized (this) {
+                if (outputShutdown) {
+                    throw new SocketException("Socket output is shutdown");
+                } else if (remoteReset) {
+                    throw new SocketException("Stream reset by remote side");
+                }
+                n = Math.min(src.remaining(), Math.min(credit,
+                        MultiplexedConnection.MAX_FRAME_PAYLOAD));
+                if (n == 0) {
+                    break;
+                }
+                credit -= n;
+            }
+            byte[] payload = new byte[n];
+            src.get(payload);
+            connection.writeFrame(MultiplexedConnection.DATA, streamId, payload, 0, n);
+            written += n;
+        }
+        return written;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        if (isClosed()) {
+            throw new SocketException("Socket is closed");
+        }
+        return inputStream;
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        if (isClosed()) {
+            throw new SocketException("Socket is closed");
+        }
+        return outputStream;
+    }
+
+    @Override
+    public void shutdownInput() throws IOException {
+        synchronized (this) {
+            inputShutdown = true;
+            receiveCount = 0;
+            notifyAll();
+        }
+        removeIfFinished();
+    }
+
+    @Override
+    public void shutdownOutput() throws IOException {
+        synchronized (this) {
+            if (outputShutdown) {
+                return;
+            }
+            outputShutdown = true;
+            notifyAll();
+        }
+        if (!remoteResetReceived()) {
+            connection.writeFrame(MultiplexedConnection.FIN, streamId, null, 0, 0);
+        }
+        removeIfFinished();
+    }
+
+    @Override
+    public void close() throws IOException {
+        boolean sendReset;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            sendReset = !(remoteFin && outputShutdown) && !remoteReset;
+            inputShutdown = true;
+            outputShutdown = true;
+            receiveCount = 0;
+            notifyAll();
+        }
+        connection.removeStream(streamId);
+        if (sendReset && !connection.isClosed()) {
+            connection.writeFrame(MultiplexedConnection.RESET, streamId, null, 0, 0);
+        }
+    }
+
+    @Override
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    @Override
+    public boolean isConnected() {
+        return true;
+    }
+
+    @Override
+    public boolean isBound() {
+        return true;
+    }
+
+    @Override
+    public synchronized boolean isInputShutdown() {
+        return inputShutdown;
+    }
+
+    @Override
+    public synchronized boolean isOutputShutdown() {
+        return outputShutdown;
+    }
+
+    @Override
+    public synchronized void setSoTimeout(int timeout) throws SocketException {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("timeout can't be negative");
+        }
+        soTimeout = timeout;
+    }
+
+    @Override
+    public synchronized int getSoTimeout() {
+        return soTimeout;
+    }
+
+    @Override
+    public void setTcpNoDelay(boolean on) throws SocketException {
+        connection.getSocket().setTcpNoDelay(on);
+    }
+
+    @Override
+    public boolean getTcpNoDelay() throws SocketException {
+        return connection.getSocket().getTcpNoDelay();
+    }
+
+    @Override
+    public void setKeepAlive(boolean on) throws SocketException {
+        connection.getSocket().setKeepAlive(on);
+    }
+
+    @Override
+    public boolean getKeepAlive() throws SocketException {
+        return connection.getSocket().getKeepAlive();
+    }
+
+    @Override
+    public InetAddress getInetAddress() {
+        return connection.getSocket().getInetAddress();
+    }
+
+    @Override
+    public InetAddress getLocalAddress() {
+        return connection.getSocket().getLocalAddress();
+    }
+
+    @Override
+    public int getPort() {
+        return connection.getSocket().getPort();
+    }
+
+    @Override
+    public int getLocalPort() {
+        return connection.getSocket().getLocalPort();
+    }
+
+    @Override
+    public SocketAddress getRemoteSocketAddress() {
+        return connection.getSocket().getRemoteSocketAddress();
+    }
+
+    @Override
+    public SocketAddress getLocalSocketAddress() {
+        return connection.getSocket().getLocalSocketAddress();
+    }
+
+    @Override
+    public String toString() {
+        return "MultiplexedSocket[stream=" + streamId + ", connection=" + connection.getSocket()
+                + "]";
+    }
+
+    /**
+     * Buffers data that was received for this stream.
+     * 
+     * @param payload
+     *            the received data
+     * @throws IOException
+     *             if the other side sent more data than granted
+     */
+    void receive(byte[] payload) throws IOException {
+        synchronized (this) {
+            if (inputShutdown || remoteFin) {
+                // discard data that nobody reads anymore
+                return;
+            }
+            if (receiveCount + payload.length > receiveBuffer.length) {
+                throw new IOException("Stream " + streamId + " exceeded its credit");
+            }
+            int end = (receiveStart + receiveCount) % receiveBuffer.length;
+            int firstPart = Math.min(payload.length, receiveBuffer.length - end);
+            System.arraycopy(payload, 0, receiveBuffer, end, firstPart);
+            System.arraycopy(payload, firstPart, receiveBuffer, 0, payload.length - firstPart);
+            receiveCount += payload.length;
+            notifyAll();
+        }
+        notifyListener();
+    }
+
+    /**
+     * Adds credit that was granted by the other side.
+     * 
+     * @param granted
+     *            the granted credit in bytes
+     */
+    void addCredit(int granted) {
+        synchronized (this) {
+            credit += granted;
+            notifyAll();
+        }
+        notifyListener();
+    }
+
+    /**
+     * Marks that the other side will send no more data.
+     */
+    void remoteFin() {
+        synchronized (this) {
+            remoteFin = true;
+            notifyAll();
+        }
+        removeIfFinished();
+        notifyListener();
+    }
+
+    /**
+     * Marks that the other side closed the stream. Data that was already
+     * received can still be read, but writing fails.
+     */
+    void remoteReset() {
+        synchronized (this) {
+            remoteFin = true;
+            remoteReset = true;
+            notifyAll();
+        }
+        connection.removeStream(streamId);
+        notifyListener();
+    }
+
+    private void notifyListener() {
+        StreamListener l = listener;
+        if (l != null) {
+            l.streamReady(this);
+        }
+    }
+
+    /**
+     * Removes the given number of read bytes from the receive buffer. Must be
+     * called while holding the intrinsic lock of this socket.
+     * 
+     * @param n
+     *            the number of read bytes
+     * @return the credit that has to be granted to the other side, or 0
+     */
+    private int consume(int n) {
+        receiveStart = (receiveStart + n) % receiveBuffer.length;
+        receiveCount -= n;
+        consumed += n;
+        if (consumed >= receiveBuffer.length / 2 && !remoteFin) {
+            int grant = consumed;
+            consumed = 0;
+            return grant;
+        }
+        return 0;
+    }
+
+    private void grantCredit(int grant) throws IOException {
+        if (grant > 0) {
+            connection.writeFrame(MultiplexedConnection.WINDOW_UPDATE, streamId, null, 0, grant);
+        }
+    }
+
+    private synchronized boolean remoteResetReceived() {
+        return remoteReset;
+    }
+
+    /**
+     * Removes this stream from the connection if no more data can flow in
+     * either direction.
+     */
+    private void removeIfFinished() {
+        synchronized (this) {
+            if (!(remoteFin || inputShutdown) || !outputShutdown) {
+                return;
+            }
+        }
+        connection.removeStream(streamId);
+    }
+
+    /**
+     * Reads received data of this stream.
+     */
+    private final class StreamInputStream extends InputStream {
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int n = read(b, 0, 1);
+            return (n < 0) ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            int n;
+            int grant;
+            synchronized (MultiplexedSocket.this) {
+                long deadline = (soTimeout > 0) ? System.currentTimeMillis() + soTimeout : 0;
+                while (receiveCount == 0 && !remoteFin && !inputShutdown) {
+                    if (closed) {
+                        throw new SocketException("Socket is closed");
+                    }
+                    try {
+                        if (deadline == 0) {
+                            MultiplexedSocket.this.wait();
+                        } else {
+                            long remaining = deadline - System.currentTimeMillis();
+                            if (remaining <= 0) {
+                                throw new SocketTimeoutException("Read timed out");
+                            }
+                            MultiplexedSocket.this.wait(remaining);
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted while reading");
+                    }
+                }
+                if (closed) {
+                    throw new SocketException("Socket is closed");
+                }
+                if (receiveCount == 0) {
+                    return -1;
+                }
+                n = Math.min(len, Math.min(receiveCount, receiveBuffer.length - receiveStart));
+                System.arraycopy(receiveBuffer, receiveStart, b, off, n);
+                grant = consume(n);
+            }
+            grantCredit(grant);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            synchronized (MultiplexedSocket.this) {
+                return receiveCount;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            MultiplexedSocket.this.close();
+        }
+    }
+
+    /**
+     * Sends data of this stream in data frames within the granted credit.
+     */
+    private final class StreamOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int n;
+                synchronized (MultiplexedSocket.this) {
+                    while (credit == 0 && !outputShutdown && !remoteReset) {
+                        try {
+                            MultiplexedSocket.this.wait();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new IOException("Interrupted while writing");
+                        }
+                    }
+                    if (outputShutdown) {
+                        throw new SocketException("Socket output is shutdown");
+                    } else if (remoteReset) {
+                        throw new SocketException("Stream reset by remote side");
+                    }
+                    n = Math.min(len, Math.min(credit, MultiplexedConnection.MAX_FRAME_PAYLOAD));
+                    credit -= n;
+                }
+                connection.writeFrame(MultiplexedConnection.DATA, streamId, b, off, n);
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            MultiplexedSocket.this.close();
+        }
+    }
+}
@@ -19,8 +19,11 @@ package de.htwg_konstanz.in.uce.socket.relay.messages;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
+import de.htwg_konstanz.in.uce.messages.UceCodeRegistry;
 import de.htwg_konstanz.in.uce.messages.UceMessage;
+import de.htwg_konstanz.in.uce.messages.UceMessageFramer;
 import de.htwg_konstanz.in.uce.messages.UceMessageReader;
 
 /**
@@ -30,8 +33,10 @@ import de.htwg_konstanz.in.uce.messages.UceMessageReader;
  * 
  */
 public class RelayMessageReader {
-    private static UceMessageReader reader = new UceMessageReader(new RelayUceMethodDecoder(),
-            new RelayUceAttributeTypeDecoder());
+    private static final UceCodeRegistry registry = new UceCodeRegistry.Builder()
+            .addMethods(RelayUceMethod.values()).addAttributeTypes(RelayUceAttributeType.values())
+            .build();
+    private static UceMessageReader reader = new UceMessageReader(registry);
 
     /**
      * Reads a {@link UceMessage} from the given stream. In addition to the
@@ -47,4 +52,45 @@ public class RelayMessageReader {
     public static UceMessage read(InputStream in) throws IOException {
         return reader.readUceMessage(in);
     }
+
+    /**
+     * Decodes a {@link UceMessage} in place from the given buffer, beginning
+     * at its current position. In addition to the common uce methods and
+     * attributes types this method also decodes relay uce methods and
+     * attribute types.
+     * 
+     * @param buffer
+     *            the buffer to be read from
+     * @return the decoded {@link UceMessage}
+     * @throws IOException
+     *             if an I/O error occurs
+     * @throws java.nio.BufferUnderflowException
+     *             if the buffer does not contain the complete message
+     * @see UceMessageReader#readUceMessage(ByteBuffer)
+     */
+    public static UceMessage read(ByteBuffer buffer) throws IOException {
+        return reader.readUceMessage(buffer);
+    }
+
+    /**
+     * Returns the registry of the common and the relay uce methods and
+     * attribute types.
+     * 
+     * @return the registry of the relay protocol
+     */
+    public static UceCodeRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Creates a new {@link UceMessageFramer} that decodes {@link UceMessage
+     * uce messages} incrementally from a non-blocking channel. In addition to
+     * the common uce methods and attributes types the framer also decodes
+     * relay uce methods and attribute types.
+     * 
+     * @return a new framer for one connection
+     */
+    public static UceMessageFramer newFramer() {
+        return new UceMessageFramer(reader);
+    }
 }
@@ -18,8 +18,6 @@
 package de.htwg_konstanz.in.uce.socket.relay.messages;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
 
 import de.htwg_konstanz.in.uce.messages.MessageFormatException;
 import de.htwg_konstanz.in.uce.messages.UceAttribute;
@@ -39,15 +37,28 @@ public enum RelayUceAttributeType implements UceAttributeType {
                 throws MessageFormatException, IOException {
             return Lifetime.fromBytes(encoded);
         }
-    };
+    },
+    BANDWIDTH(0x34) {
 
-    private static final Map<Integer, RelayUceAttributeType> intToEnum = new HashMap<Integer, RelayUceAttributeType>();
+        public UceAttribute fromBytes(byte[] encoded, UceAttributeHeader header)
+                throws MessageFormatException, IOException {
+            return Bandwidth.fromBytes(encoded);
+        }
+    },
+    REQUESTED_TRANSPORT(0x35) {
 
-    static {
-        for (RelayUceAttributeType l : values()) {
-            intToEnum.put(l.encoded, l);
+        public UceAttribute fromBytes(byte[] encoded, UceAttributeHeader header)
+                throws MessageFormatException, IOException {
+            return RequestedTransport.fromBytes(encoded);
         }
-    }
+    },
+    CHANNEL_NUMBER(0x36) {
+
+        public UceAttribute fromBytes(byte[] encoded, UceAttributeHeader header)
+                throws MessageFormatException, IOException {
+            return ChannelNumber.fromBytes(encoded);
+        }
+    };
 
     private final int encoded;
 
@@ -64,16 +75,4 @@ public enum RelayUceAttributeType implements UceAttributeType {
     public int encode() {
         return encoded;
     }
-
-    /**
-     * Decodes a given encoded attribute type.
-     * 
-     * @param encoded
-     *            the encoded attribute type
-     * @return the decoded attribute type, or null if the attribute type is
-     *         unknown.
-     */
-    public static RelayUceAttributeType fromEncoded(int encoded) {
-        return intToEnum.get(encoded);
-    }
 }
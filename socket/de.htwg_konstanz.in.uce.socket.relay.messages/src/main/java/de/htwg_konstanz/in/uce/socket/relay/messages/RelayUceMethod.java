@@ -17,9 +17,6 @@
 
 package de.htwg_konstanz.in.uce.socket.relay.messages;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import de.htwg_konstanz.in.uce.messages.UceMethod;
 
 /**
@@ -28,16 +25,8 @@ import de.htwg_konstanz.in.uce.messages.UceMethod;
  *
  */
 public enum RelayUceMethod implements UceMethod {
-    ALLOCATION(0x33), REFRESH(0x34), CONNECTION_ATTEMPT(0x35), CONNECTION_BIND(0x36);
-
-    private static final Map<Integer, RelayUceMethod> intToEnum = 
-        new HashMap<Integer, RelayUceMethod>();
-
-    static {
-        for (RelayUceMethod l : values()) {
-            intToEnum.put(l.encoded, l);
-        }
-    }
+    ALLOCATION(0x33), REFRESH(0x34), CONNECTION_ATTEMPT(0x35), CONNECTION_BIND(0x36),
+    MULTIPLEXED_CONNECTION_BIND(0x37), CHANNEL_BIND(0x38);
 
     private final int encoded;
 
@@ -54,14 +43,4 @@ public enum RelayUceMethod implements UceMethod {
         return encoded;
     }
 
-    /**
-     * Decodes an encoded relay uce method.
-     * 
-     * @param encoded the encoded relay uce method
-     * @return the decoded relay uce method
-     */
-    public static RelayUceMethod fromEncoded(int encoded) {
-        return intToEnum.get(encoded);
-    }
-
 }
@@ -0,0 +1,162 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.socket.relay.messages;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import de.htwg_konstanz.in.uce.messages.UceAttribute;
+import de.htwg_konstanz.in.uce.messages.UceAttributeType;
+
+/**
+ * Attribute for the transport protocol of an allocation. Can be sent in
+ * allocation requests to ask the relay server for an UDP allocation instead of
+ * a TCP allocation. Allocation requests without this attribute request a TCP
+ * allocation.
+ * 
+ * The attribute is encoded like the REQUESTED-TRANSPORT attribute of TURN (RFC
+ * 5766): the IANA protocol number in the first byte followed by three reserved
+ * bytes.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+public final class RequestedTransport implements UceAttribute {
+
+    private final Transport transport;
+
+    /**
+     * Creates a new {@link RequestedTransport}.
+     * 
+     * @param transport
+     *            the requested transport protocol
+     * @throws NullPointerException
+     *             if the given transport is null
+     */
+    public RequestedTransport(Transport transport) {
+        if (transport == null) {
+            throw new NullPointerException();
+        }
+        this.transport = transport;
+    }
+
+    public UceAttributeType getType() {
+        return RelayUceAttributeType.REQUESTED_TRANSPORT;
+    }
+
+    public int getLength() {
+        return 4;
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream dout = new DataOutputStream(out);
+        dout.writeInt(transport.encode() << 24);
+    }
+
+    /**
+     * Returns the requested transport protocol.
+     * 
+     * @return the requested transport protocol
+     */
+    public Transport getTransport() {
+        return transport;
+    }
+
+    /**
+     * Decodes a requested transport attribute.
+     * 
+     * @param encoded
+     *            the encoded requested transport attribute
+     * @return the decoded requested transport attribute
+     * @throws IOException
+     *             if an I/O error occurs or the encoded transport protocol is
+     *             unknown
+     */
+    static UceAttribute fromBytes(byte[] encoded) throws IOException {
+        ByteArrayInputStream bin = new ByteArrayInputStream(encoded);
+        DataInputStream din = new DataInputStream(bin);
+        int protocol = din.readInt() >>> 24;
+        Transport transport = Transport.fromEncoded(protocol);
+        if (transport == null) {
+            throw new IOException("Unknown transport protocol " + protocol);
+        }
+        return new RequestedTransport(transport);
+    }
+
+    /**
+     * Enum for the transport protocols of an allocation.
+     * 
+     * @author Daniel Maier
+     * 
+     */
+    public static enum Transport {
+        /**
+         * Peers connect to the allocation via TCP.
+         */
+        TCP(6),
+        /**
+         * Peers send datagrams to the allocation via UDP.
+         */
+        UDP(17);
+
+        private static final Map<Integer, Transport> intToEnum = new HashMap<Integer, Transport>();
+
+        static {
+            for (Transport l : values()) {
+                intToEnum.put(l.encoded, l);
+            }
+        }
+
+        private final int encoded;
+
+        /**
+         * Creates a new {@link Transport}.
+         * 
+         * @param encoded
+         *            the IANA protocol number of the transport protocol
+         */
+        private Transport(int encoded) {
+            this.encoded = encoded;
+        }
+
+        /**
+         * Returns the IANA protocol number of the transport protocol.
+         * 
+         * @return the encoded transport protocol
+         */
+        public int encode() {
+            return encoded;
+        }
+
+        /**
+         * Decodes an encoded transport protocol.
+         * 
+         * @param encoded
+         *            the IANA protocol number of the transport protocol
+         * @return the decoded transport protocol, or null if it is unknown
+         */
+        public static Transport fromEncoded(int encoded) {
+            return intToEnum.get(encoded);
+        }
+    }
+}
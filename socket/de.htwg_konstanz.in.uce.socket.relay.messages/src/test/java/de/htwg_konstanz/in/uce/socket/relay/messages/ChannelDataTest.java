@@ -0,0 +1,41 @@
+package de.htwg_konstanz.in.uce.socket.relay.messages;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.htwg_konstanz.in.uce.messages.SemanticLevel;
+import de.htwg_konstanz.in.uce.messages.UceMessage;
+import de.htwg_konstanz.in.uce.messages.UceMessageStaticFactory;
+
+public class ChannelDataTest {
+
+    @Test
+    public void testHeader() {
+        ByteBuffer datagram = ByteBuffer.allocate(ChannelData.HEADER_LENGTH + 3);
+        ChannelData.putHeader(datagram, 0x4001, 3);
+
+        Assert.assertTrue(ChannelData.isChannelData(datagram));
+        Assert.assertEquals(0x4001, ChannelData.getChannelNumber(datagram));
+        Assert.assertEquals(3, ChannelData.getPayloadLength(datagram));
+        Assert.assertEquals(0, datagram.position());
+    }
+
+    @Test
+    public void testMessageIsNoChannelData() throws Exception {
+        UceMessage message = UceMessageStaticFactory.newUceMessageInstance(
+                RelayUceMethod.CHANNEL_BIND, SemanticLevel.REQUEST, UUID.randomUUID());
+        message.addAttribute(new ChannelNumber(ChannelData.MAX_CHANNEL_NUMBER));
+
+        Assert.assertFalse(ChannelData.isChannelData(ByteBuffer.wrap(message.toByteArray())));
+        Assert.assertFalse(ChannelData.isChannelData(ByteBuffer.allocate(2)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalChannelNumber() {
+        ChannelData.putHeader(ByteBuffer.allocate(ChannelData.HEADER_LENGTH),
+                ChannelData.MAX_CHANNEL_NUMBER + 1, 0);
+    }
+}
@@ -0,0 +1,105 @@
+package de.htwg_konstanz.in.uce.socket.relay.messages;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MultiplexedConnectionTest {
+
+    private MultiplexedConnection serverSide;
+    private MultiplexedConnection clientSide;
+
+    @Before
+    public void setUp() throws IOException {
+        ServerSocket ss = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+        Socket client = new Socket(InetAddress.getLoopbackAddress(), ss.getLocalPort());
+        Socket server = ss.accept();
+        ss.close();
+        serverSide = new MultiplexedConnection(server, true);
+        clientSide = new MultiplexedConnection(client, false);
+        serverSide.start();
+        clientSide.start();
+    }
+
+    @After
+    public void tearDown() {
+        serverSide.close();
+        clientSide.close();
+    }
+
+    @Test
+    public void testStreamsAreIndependent() throws Exception {
+        // prepare
+        MultiplexedSocket first = serverSide.openStream();
+        MultiplexedSocket second = serverSide.openStream();
+        MultiplexedSocket acceptedFirst = clientSide.acceptStream();
+        MultiplexedSocket acceptedSecond = clientSide.acceptStream();
+
+        // execute
+        second.getOutputStream().write(2);
+        first.getOutputStream().write(1);
+        acceptedFirst.getOutputStream().write(3);
+
+        // validate
+        Assert.assertEquals(first.getStreamId(), acceptedFirst.getStreamId());
+        Assert.assertEquals(2, acceptedSecond.getInputStream().read());
+        Assert.assertEquals(1, acceptedFirst.getInputStream().read());
+        Assert.assertEquals(3, first.getInputStream().read());
+    }
+
+    @Test
+    public void testTransferMoreThanWindowAndFin() throws Exception {
+        // prepare
+        final MultiplexedSocket stream = serverSide.openStream();
+        MultiplexedSocket accepted = clientSide.acceptStream();
+        final byte[] data = new byte[5 * MultiplexedConnection.INITIAL_WINDOW + 17];
+        new Random(1).nextBytes(data);
+
+        // execute
+        Thread writer = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    OutputStream out = stream.getOutputStream();
+                    out.write(data);
+                    stream.shutdownOutput();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        });
+        writer.start();
+
+        // validate
+        byte[] received = new byte[data.length];
+        InputStream in = accepted.getInputStream();
+        new DataInputStream(in).readFully(received);
+        Assert.assertTrue(Arrays.equals(data, received));
+        Assert.assertEquals(-1, in.read());
+        writer.join();
+    }
+
+    @Test
+    public void testCloseOfConnectionEndsStreams() throws Exception {
+        // prepare
+        serverSide.openStream();
+        MultiplexedSocket accepted = clientSide.acceptStream();
+
+        // execute
+        serverSide.close();
+
+        // validate
+        Assert.assertEquals(-1, accepted.getInputStream().read());
+        Assert.assertNull(clientSide.acceptStream());
+    }
+}
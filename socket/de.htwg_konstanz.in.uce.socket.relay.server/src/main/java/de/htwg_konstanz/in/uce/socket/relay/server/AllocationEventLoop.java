@@ -0,0 +1,262 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.socket.relay.server;
+
+import java.io.IOException;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.htwg_konstanz.in.helper.sockets.HashedTimingWheel;
+
+/**
+ * Event loop that watches the control connections and the peer server sockets
+ * of all allocations of a {@link RelayServer} with one selector and one
+ * thread. Refresh requests are read with non-blocking I/O and the lifetimes of
+ * the allocations are supervised by a shared {@link HashedTimingWheel}, so an
+ * idle allocation does not occupy a thread. Accepted peer connections are
+ * handed over to the peer handler executor. Messages to the clients are
+ * queued by a {@link ChannelOutputStream} and written when the control
+ * connection is writable. A handler that fails is closed on its own, the
+ * other allocations are not affected.
+ *
+ * @author Daniel Maier
+ *
+ */
+public final class AllocationEventLoop implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(AllocationEventLoop.class);
+    private final Selector selector;
+    private final HashedTimingWheel timer;
+    private final Executor peerHandlerExecutor;
+    private final Queue<Registration> pendingRegistrations = new ConcurrentLinkedQueue<Registration>();
+    private final Queue<SelectableChannel> pendingWrites = new ConcurrentLinkedQueue<SelectableChannel>();
+    private volatile boolean running = true;
+
+    /**
+     * Creates a new {@link AllocationEventLoop} with a new
+     * {@link HashedTimingWheel} that is configured with
+     * {@link Constants#ALLOCATION_TIMER_TICK_DURATION} and
+     * {@link Constants#ALLOCATION_TIMER_WHEEL_SIZE}. The event loop has to be
+     * executed by a thread.
+     *
+     * @param peerHandlerExecutor
+     *            the executor that gets used to execute the
+     *            {@link PeerHandlerTask PeerHandlerTasks}. Has to be unbounded.
+     * @throws IOException
+     *             if the selector could not be opened
+     * @throws NullPointerException
+     *             if the given executor is null
+     */
+    public AllocationEventLoop(Executor peerHandlerExecutor) throws IOException {
+        if (peerHandlerExecutor == null) {
+            throw new NullPointerException();
+        }
+        this.selector = Selector.open();
+        this.timer = new HashedTimingWheel(Constants.ALLOCATION_TIMER_TICK_DURATION,
+                TimeUnit.MILLISECONDS, Constants.ALLOCATION_TIMER_WHEEL_SIZE,
+                "allocation-timer");
+        this.peerHandlerExecutor = peerHandlerExecutor;
+    }
+
+    /**
+     * Returns the timing wheel that supervises the lifetimes of the
+     * allocations.
+     *
+     * @return the timing wheel of this event loop
+     */
+    HashedTimingWheel getTimer() {
+        return timer;
+    }
+
+    /**
+     * Returns the executor that executes the {@link PeerHandlerTask
+     * PeerHandlerTasks}.
+     *
+     * @return the peer handler executor
+     */
+    Executor getPeerHandlerExecutor() {
+        return peerHandlerExecutor;
+    }
+
+    /**
+     * Hands over a channel to this event loop. The channel gets switched to
+     * non-blocking mode and registered by the event loop thread. Can be
+     * called from any thread.
+     *
+     * @param channel
+     *            the channel to be watched
+     * @param ops
+     *            the interest set of the channel
+     * @param handler
+     *            the handler that gets called if the channel is ready
+     */
+    void register(SelectableChannel channel, int ops, ChannelHandler handler) {
+        if (!running) {
+            handler.close();
+            return;
+        }
+        pendingRegistrations.add(new Registration(channel, ops, handler));
+        selector.wakeup();
+    }
+
+    /**
+     * Adds {@link SelectionKey#OP_WRITE} to the interest set of the given
+     * registered channel, so its handler gets called as soon as the channel is
+     * writable. Can be called from any thread.
+     *
+     * @param channel
+     *            the channel with data to be written
+     */
+    void requestWrite(SelectableChannel channel) {
+        pendingWrites.add(channel);
+        selector.wakeup();
+    }
+
+    /**
+     * Stops this event loop and its timing wheel. All allocations that are
+     * watched by this event loop get destroyed.
+     */
+    public void shutdown() {
+        running = false;
+        timer.stop();
+        selector.wakeup();
+    }
+
+    /**
+     * Waits for ready channels and calls their handlers until the event loop
+     * gets shut down.
+     */
+    public void run() {
+        try {
+            while (running) {
+                selector.select();
+                registerPendingChannels();
+                addPendingWrites();
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    ChannelHandler handler = (ChannelHandler) key.attachment();
+                    try {
+                        handler.handle(key);
+                    } catch (IOException e) {
+                        logger.debug("IOException while handling channel: {}", e.getMessage());
+                        handler.close();
+                    } catch (CancelledKeyException e) {
+                        handler.close();
+                    } catch (RuntimeException e) {
+                        logger.error("Unexpected exception while handling channel: {}", e);
+                        handler.close();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.error("IOException in allocation event loop: {}", e);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                ((ChannelHandler) key.attachment()).close();
+            }
+            Registration registration;
+            while ((registration = pendingRegistrations.poll()) != null) {
+                registration.handler.close();
+            }
+            try {
+                selector.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+    /**
+     * Registers the channels that were handed over since the last selection.
+     */
+    private void registerPendingChannels() {
+        Registration registration;
+        while ((registration = pendingRegistrations.poll()) != null) {
+            try {
+                registration.channel.configureBlocking(false);
+                registration.channel.register(selector, registration.ops, registration.handler);
+            } catch (IOException e) {
+                logger.error("IOException while registering channel: {}", e);
+                registration.handler.close();
+            }
+        }
+    }
+
+    /**
+     * Adds {@link SelectionKey#OP_WRITE} to the interest sets of the channels
+     * that got data to be written since the last selection.
+     */
+    private void addPendingWrites() {
+        SelectableChannel channel;
+        while ((channel = pendingWrites.poll()) != null) {
+            SelectionKey key = channel.keyFor(selector);
+            if (key != null && key.isValid()) {
+                key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+            }
+        }
+    }
+
+    /**
+     * Handler of a channel that is watched by an {@link AllocationEventLoop}.
+     * Gets called by the event loop thread and must not block.
+     */
+    interface ChannelHandler {
+
+        /**
+         * Handles the ready operations of the given key.
+         *
+         * @param key
+         *            the selected key
+         * @throws IOException
+         *             if an I/O error occurs. The handler gets closed
+         *             afterwards.
+         */
+        void handle(SelectionKey key) throws IOException;
+
+        /**
+         * Releases all resources of this handler. Has to be idempotent.
+         */
+        void close();
+    }
+
+    /**
+     * A channel that waits for its registration.
+     */
+    private static final class Registration {
+        private final SelectableChannel channel;
+        private final int ops;
+        private final ChannelHandler handler;
+
+        Registration(SelectableChannel channel, int ops, ChannelHandler handler) {
+            this.channel = channel;
+            this.ops = ops;
+            this.handler = handler;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.socket.relay.server;
+
+import de.htwg_konstanz.in.uce.socket.relay.messages.Bandwidth;
+
+/**
+ * Server policy for the bandwidth of the allocations. Clients can request a
+ * bandwidth limit with a {@link Bandwidth} attribute in the allocation
+ * request. The policy caps the requested bandwidth with the maximum bandwidth
+ * of the server.
+ *
+ * @author Daniel Maier
+ *
+ */
+public final class BandwidthPolicy {
+
+    private final int maxBytesPerSecond;
+    private final int burstBytes;
+
+    /**
+     * Creates a new {@link BandwidthPolicy}.
+     *
+     * @param maxBytesPerSecond
+     *            the maximum bandwidth in bytes per second for each direction
+     *            of the relay connections of an allocation, or 0 if the server
+     *            does not limit the bandwidth
+     * @param burstBytes
+     *            the number of bytes that may be relayed at once without
+     *            limitation
+     * @throws IllegalArgumentException
+     *             if maxBytesPerSecond is negative or burstBytes is not
+     *             positive
+     */
+    public BandwidthPolicy(int maxBytesPerSecond, int burstBytes) {
+        if (maxBytesPerSecond < 0 || burstBytes <= 0) {
+            throw new IllegalArgumentException("Illegal bandwidth policy");
+        }
+        this.maxBytesPerSecond = maxBytesPerSecond;
+        this.burstBytes = burstBytes;
+    }
+
+    /**
+     * Returns the bandwidth that is applied to an allocation.
+     *
+     * @param requestedBytesPerSecond
+     *            the bandwidth that the client requested, or 0 if it
+     *            requested none
+     * @return the bandwidth in bytes per second, or 0 for an unlimited
+     *         bandwidth
+     */
+    public int getBandwidth(int requestedBytesPerSecond) {
+        if (requestedBytesPerSecond <= 0) {
+            return maxBytesPerSecond;
+        } else if (maxBytesPerSecond == 0) {
+            return requestedBytesPerSecond;
+        }
+        return Math.min(requestedBytesPerSecond, maxBytesPerSecond);
+    }
+
+    /**
+     * Returns the maximum bandwidth of the server.
+     *
+     * @return the maximum bandwidth in bytes per second, or 0 if the server
+     *         does not limit the bandwidth
+     */
+    public int getMaxBytesPerSecond() {
+        return maxBytesPerSecond;
+    }
+
+    /**
+     * Returns the burst size of the token buckets.
+     *
+     * @return the burst size in bytes
+     */
+    public int getBurstBytes() {
+        return burstBytes;
+    }
+}
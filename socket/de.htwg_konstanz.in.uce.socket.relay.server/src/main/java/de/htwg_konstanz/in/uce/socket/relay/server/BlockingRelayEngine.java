@@ -0,0 +1,151 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.socket.relay.server;
+
+import java.net.Socket;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Legacy {@link RelayEngine} that uses two {@link RelayTask RelayTasks} with
+ * blocking I/O for every relay connection, one for each direction. Each relay
+ * connection therefore costs two threads.
+ *
+ * @author Daniel Maier
+ *
+ */
+public final class BlockingRelayEngine implements RelayEngine {
+
+    // has to be unbounded
+    private final ExecutorService relayExecutor;
+    private final RelayBufferPool bufferPool;
+    private final AtomicInteger activeRelays = new AtomicInteger();
+    private final Histogram relayedBytes;
+
+    /**
+     * Creates a new {@link BlockingRelayEngine} that executes its
+     * {@link RelayTask RelayTasks} in a cached thread pool and uses a new
+     * {@link RelayBufferPool} with default configuration.
+     */
+    public BlockingRelayEngine() {
+        this(Executors.newCachedThreadPool(), new RelayBufferPool());
+    }
+
+    /**
+     * Creates a new {@link BlockingRelayEngine}.
+     *
+     * @param relayExecutor
+     *            the executor that gets used to execute the
+     *            {@link RelayTask RelayTasks}. Has to be unbounded.
+     * @param bufferPool
+     *            the pool from that the relay buffers are taken
+     * @throws NullPointerException
+     *             if one of the parameters is null
+     */
+    public BlockingRelayEngine(ExecutorService relayExecutor, RelayBufferPool bufferPool) {
+        this(relayExecutor, bufferPool, new Histogram("relayed_bytes", "bytes",
+                Constants.HISTOGRAM_BUCKETS));
+    }
+
+    /**
+     * Creates a new {@link BlockingRelayEngine} that records the relayed
+     * bytes per relay connection in the given histogram.
+     *
+     * @param relayExecutor
+     *            the executor that gets used to execute the
+     *            {@link RelayTask RelayTasks}. Has to be unbounded.
+     * @param bufferPool
+     *            the pool from that the relay buffers are taken
+     * @param relayedBytes
+     *            the histogram of the relayed bytes per relay connection
+     */
+    BlockingRelayEngine(ExecutorService relayExecutor, RelayBufferPool bufferPool,
+            Histogram relayedBytes) {
+        if (relayExecutor == null || bufferPool == null) {
+            throw new NullPointerException();
+        }
+        this.relayExecutor = relayExecutor;
+        this.bufferPool = bufferPool;
+        this.relayedBytes = relayedBytes;
+    }
+
+    public void relay(Socket peerSocket, Socket clientSocket, TrafficMeter peerToClientMeter,
+            TrafficMeter clientToPeerMeter) {
+        final RelayTask peerToClientRelay = new RelayTask(peerSocket, clientSocket, bufferPool,
+                peerToClientMeter);
+        final RelayTask clientToPeerRelay = new RelayTask(clientSocket, peerSocket, bufferPool,
+                clientToPeerMeter);
+        // the relay connection is finished when both tasks are finished
+        final AtomicInteger runningTasks = new AtomicInteger(2);
+        activeRelays.incrementAndGet();
+
+        relayExecutor.execute(new FinishingTask(peerToClientRelay, peerToClientRelay,
+                clientToPeerRelay, runningTasks));
+        relayExecutor.execute(new FinishingTask(clientToPeerRelay, peerToClientRelay,
+                clientToPeerRelay, runningTasks));
+    }
+
+    public int getActiveRelays() {
+        return activeRelays.get();
+    }
+
+    public Histogram getRelayedBytes() {
+        return relayedBytes;
+    }
+
+    public RelayBufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    public void shutdown() {
+        relayExecutor.shutdownNow();
+    }
+
+    /**
+     * Runs one {@link RelayTask} of a relay connection. The last finishing
+     * task of a relay connection records the relayed bytes of both
+     * directions.
+     */
+    private final class FinishingTask implements Runnable {
+        private final RelayTask task;
+        private final RelayTask peerToClientRelay;
+        private final RelayTask clientToPeerRelay;
+        private final AtomicInteger runningTasks;
+
+        FinishingTask(RelayTask task, RelayTask peerToClientRelay, RelayTask clientToPeerRelay,
+                AtomicInteger runningTasks) {
+            this.task = task;
+            this.peerToClientRelay = peerToClientRelay;
+            this.clientToPeerRelay = clientToPeerRelay;
+            this.runningTasks = runningTasks;
+        }
+
+        public void run() {
+            try {
+                task.run();
+            } finally {
+                if (runningTasks.decrementAndGet() == 0) {
+                    activeRelays.decrementAndGet();
+                    relayedBytes.record(peerToClientRelay.getRelayedBytes()
+                            + clientToPeerRelay.getRelayedBytes());
+                }
+            }
+        }
+    }
+}
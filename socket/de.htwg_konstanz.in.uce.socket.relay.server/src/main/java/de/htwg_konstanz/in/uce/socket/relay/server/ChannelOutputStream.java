@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package de.htwg_konstanz.in.uce.socket.relay.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.Queue;
+
+/**
+ * {@link OutputStream} to the control connection of an allocation that is
+ * watched by an {@link AllocationEventLoop}. A write never blocks: the bytes
+ * are appended to a write queue and the event loop writes them to the
+ * non-blocking channel when it is writable, see {@link #flushQueue()}. So a
+ * client that does not read its control connection can't stall the event loop
+ * or the threads that send messages to it. If more than
+ * {@link Constants#MAX_CONTROL_CONNECTION_BACKLOG} bytes are queued, further
+ * writes fail.
+ *
+ * @author Daniel Maier
+ *
+ */
+final class ChannelOutputStream extends OutputStream {
+
+    private final SocketChannel channel;
+    private final AllocationEventLoop eventLoop;
+    private final Queue<ByteBuffer> writeQueue = new LinkedList<ByteBuffer>();
+    private int queuedBytes;
+
+    /**
+     * Creates a new {@link ChannelOutputStream}.
+     *
+     * @param channel
+     *            the channel to that the data gets written to
+     * @param eventLoop
+     *            the event loop that watches the channel
+     */
+    ChannelOutputStream(SocketChannel channel, AllocationEventLoop eventLoop) {
+        this.channel = channel;
+        this.eventLoop = eventLoop;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    /**
+     * Appends the given bytes to the write queue and lets the event loop
+     * write them as soon as the channel is writable. Returns immediately.
+     *
+     * @throws IOException
+     *             if the channel is closed or the write queue is full
+     */
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+        if (!channel.isOpen()) {
+            throw new IOException("Control connection is closed");
+        }
+        if (queuedBytes + len > Constants.MAX_CONTROL_CONNECTION_BACKLOG) {
+            throw new IOException("Write queue of the control connection is full");
+        }
+        boolean wasEmpty = writeQueue.isEmpty();
+        writeQueue.add(ByteBuffer.wrap(Arrays.copyOfRange(b, off, off + len)));
+        queuedBytes += len;
+        if (wasEmpty) {
+            eventLoop.requestWrite(channel);
+        }
+    }
+
+    /**
+     * Writes the queued bytes to the channel until the queue is empty or the
+     * send buffer of the channel is full. Gets called by the event loop
+     * thread.
+     *
+     * @return true if the queue is empty, false if bytes are left
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    synchronized boolean flushQueue() throws IOException {
+        ByteBuffer head;
+        while ((head = writeQueue.peek()) != null) {
+            queuedBytes -= channel.write(head);
+            if (head.hasRemaining()) {
+                return false;
+            }
+            writeQueue.remove();
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
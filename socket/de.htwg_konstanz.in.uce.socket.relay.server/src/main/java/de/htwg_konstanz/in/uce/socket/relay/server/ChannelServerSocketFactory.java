@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.socket.relay.server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.channels.ServerSocketChannel;
+
+import javax.net.ServerSocketFactory;
+
+/**
+ * {@link ServerSocketFactory} that creates server sockets which are backed by a
+ * {@link ServerSocketChannel}. Sockets that are accepted by such server sockets
+ * have an associated channel and can be used by a {@link SelectorRelayEngine}
+ * after the blocking message handling is done.
+ *
+ * @author Daniel Maier
+ *
+ */
+final class ChannelServerSocketFactory extends ServerSocketFactory {
+
+    private static final ChannelServerSocketFactory instance = new ChannelServerSocketFactory();
+
+    private ChannelServerSocketFactory() {
+    }
+
+    /**
+     * Returns the shared instance of this factory.
+     *
+     * @return the shared instance of this factory
+     */
+    static ChannelServerSocketFactory getInstance() {
+        return instance;
+    }
+
+    @Override
+    public ServerSocket createServerSocket() throws IOException {
+        return ServerSocketChannel.open().socket();
+    }
+
+    @Override
+    public ServerSocket createServerSocket(int port) throws IOException {
+        return createServerSocket(port, 0, null);
+    }
+
+    @Override
+    public ServerSocket createServerSocket(int port, int backlog) throws IOException {
+        return createServerSocket(port, backlog, null);
+    }
+
+    @Override
+    public ServerSocket createServerSocket(int port, int backlog, InetAddress ifAddress)
+            throws IOException {
+        ServerSocket ss = createServerSocket();
+        try {
+            ss.bind(new InetSocketAddress(ifAddress, port), backlog);
+        } catch (IOException e) {
+            ss.close();
+            throw e;
+        }
+        return ss;
+    }
+}
@@ -21,7 +21,6 @@ import java.io.IOException;
 import java.net.Socket;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.BlockingQueue;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,7 +39,8 @@ final class ConnectionBindHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(ConnectionBindHandler.class);
     private final Socket s;
-    private final Map<UUID, BlockingQueue<Socket>> connIDToQueue;
+    private final PendingBindRegistry pendingBinds;
+    private final Map<UUID, RelayAllocation> allocIDToAllocation;
     private final UceMessage connBindMessage;
 
     /**
@@ -50,33 +50,51 @@ final class ConnectionBindHandler {
      *            the data connection to the client
      * @param connBindMessage
      *            the connection bind message
-     * @param connIDToQueue
-     *            map to match relay connection between client and peers
+     * @param pendingBinds
+     *            registry to match relay connection between client and peers
+     * @param allocIDToAllocation
+     *            map to match data connections that are established in
+     *            advance to the allocations of the clients
      */
     ConnectionBindHandler(Socket s, UceMessage connBindMessage,
-            Map<UUID, BlockingQueue<Socket>> connIDToQueue) {
+            PendingBindRegistry pendingBinds,
+            Map<UUID, RelayAllocation> allocIDToAllocation) {
         this.s = s;
-        this.connIDToQueue = connIDToQueue;
+        this.pendingBinds = pendingBinds;
+        this.allocIDToAllocation = allocIDToAllocation;
         this.connBindMessage = connBindMessage;
     }
 
     /**
      * Handles the connection bind request message. Reads the unique id to match
-     * the message to a peer request. If no unique id is present a bad request
-     * error message is returned to the client. If no peer request to the given
-     * id is pending a bad request error message is returned to the client, too.
+     * the message to a peer request. If the unique id refers to an allocation
+     * instead, the data connection is kept as pre-bound data connection of
+     * this allocation. The transaction id of the message is used as id of the
+     * pre-bound data connection. If no unique id is present a bad request error
+     * message is returned to the client. If no peer request or allocation to
+     * the given id exists a bad request error message is returned to the
+     * client, too.
      */
     void handle() {
         if (connBindMessage.hasAttribute(UniqueId.class)) {
             UUID connectionId = connBindMessage.getAttribute(UniqueId.class).getId();
-            BlockingQueue<Socket> queue = connIDToQueue.remove(connectionId);
-            if (queue != null) {
-                try {
-                    // TODO antwort im erfolgsfall?
-                    queue.put(s);
-                } catch (InterruptedException e) {
-                    logger.error("InterruptedException while inserting socket to queue: {}", e);
-                    Thread.currentThread().interrupt();
+            RelayAllocation allocation;
+            if (pendingBinds.complete(connectionId, s)) {
+                // TODO antwort im erfolgsfall?
+                logger.debug("Completed pending connection {}", connectionId);
+            } else if ((allocation = allocIDToAllocation.get(connectionId)) != null) {
+                if (!allocation.addPreboundConnection(new PreboundConnection(connBindMessage
+                        .getTransactionId(), s))) {
+                    logger.info("Too many pre-bound connections for allocation {}", connectionId);
+                    try {
+                        UceMessage errorResponse = connBindMessage.buildErrorResponse(
+                                ErrorCodes.INSUFFICIENT_CAPACITY,
+                                "Too many pre-bound connections for allocation.");
+                        errorResponse.writeTo(s.getOutputStream());
+                        s.close();
+                    } catch (IOException e) {
+                        logger.error("IOException while sending Error Response: {}", e);
+                    }
                 }
             } else {
                 logger.error("Connection id (" + connectionId
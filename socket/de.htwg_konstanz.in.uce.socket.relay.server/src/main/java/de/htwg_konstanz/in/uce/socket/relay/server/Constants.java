@@ -30,4 +30,89 @@ public class Constants {
                                                                                   // milliseconds
     public static final int MAX_ALLOCATION_LIFETIME = 60 * 60 * 1000; // in
                                                                       // milliseconds
+    /**
+     * Size in bytes of the buffers of a {@link RelayBufferPool}. One buffer is
+     * used for each direction of a relay connection.
+     */
+    public static final int RELAY_BUFFER_SIZE = 32 * 1024;
+    /**
+     * Maximum number of idle buffers that a {@link RelayBufferPool} keeps for
+     * reuse.
+     */
+    public static final int RELAY_BUFFER_POOL_SIZE = 256;
+    /**
+     * Number of event loop threads of the {@link SelectorRelayEngine}.
+     */
+    public static final int RELAY_EVENT_LOOPS = Runtime.getRuntime().availableProcessors();
+    /**
+     * Maximum number of idle pre-bound data connections that a client can keep
+     * per allocation.
+     */
+    public static final int MAX_PREBOUND_CONNECTIONS = 16;
+    /**
+     * Duration in milliseconds of one tick of the timing wheel that supervises
+     * the lifetimes of the allocations.
+     */
+    public static final int ALLOCATION_TIMER_TICK_DURATION = 1000;
+    /**
+     * Number of buckets of the timing wheel that supervises the lifetimes of
+     * the allocations.
+     */
+    public static final int ALLOCATION_TIMER_WHEEL_SIZE = 512;
+    /**
+     * Maximum number of bytes that may wait in the write queue of the control
+     * connection of an allocation. Further messages to a client that does not
+     * read its control connection are refused.
+     */
+    public static final int MAX_CONTROL_CONNECTION_BACKLOG = 64 * 1024;
+    /**
+     * Duration in milliseconds of one tick of the timing wheel that expires
+     * the peer connections that wait for a connection bind.
+     */
+    public static final int PENDING_BIND_TIMER_TICK_DURATION = 100;
+    /**
+     * Number of buckets of the timing wheel that expires the peer connections
+     * that wait for a connection bind.
+     */
+    public static final int PENDING_BIND_TIMER_WHEEL_SIZE = 64;
+    /**
+     * Lifetime in milliseconds of a channel binding of an UDP allocation. The
+     * client has to bind the channel again before it expires.
+     */
+    public static final int UDP_CHANNEL_BINDING_LIFETIME = 10 * 60 * 1000;
+    /**
+     * Size in bytes of the receive buffer of the {@link DatagramRelayEngine}.
+     * Datagrams that are larger get truncated.
+     */
+    public static final int DATAGRAM_BUFFER_SIZE = 64 * 1024;
+    /**
+     * Lowest port of the default port range on which the allocations wait for
+     * connections of peers.
+     */
+    public static final int MIN_ALLOCATION_PORT = 10301;
+    /**
+     * Highest port of the default port range on which the allocations wait
+     * for connections of peers.
+     */
+    public static final int MAX_ALLOCATION_PORT = 20300;
+    /**
+     * Default maximum bandwidth in bytes per second for each direction of the
+     * relay connections of an allocation. 0 means that the server does not
+     * limit the bandwidth.
+     */
+    public static final int MAX_ALLOCATION_BANDWIDTH = 0;
+    /**
+     * Default burst size in bytes of the token buckets that limit the
+     * bandwidth of the allocations.
+     */
+    public static final int ALLOCATION_BANDWIDTH_BURST = 2 * RELAY_BUFFER_SIZE;
+    /**
+     * Number of exponential buckets of the histograms of a relay server.
+     */
+    public static final int HISTOGRAM_BUCKETS = 40;
+    /**
+     * Default port on the loopback interface on that the metrics of a relay
+     * server can be scraped.
+     */
+    public static final int METRICS_PORT = 10299;
 }
@@ -0,0 +1,365 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.socket.relay.server;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.htwg_konstanz.in.helper.sockets.HashedTimingWheel.Timeout;
+import de.htwg_konstanz.in.helper.sockets.ListenerTaskFactory;
+import de.htwg_konstanz.in.helper.sockets.PortAllocator;
+import de.htwg_konstanz.in.uce.messages.ErrorCode.ErrorCodes;
+import de.htwg_konstanz.in.uce.messages.UceMessage;
+import de.htwg_konstanz.in.uce.messages.UceMessageFramer;
+import de.htwg_konstanz.in.uce.socket.relay.messages.Lifetime;
+import de.htwg_konstanz.in.uce.socket.relay.messages.MessageWriter;
+import de.htwg_konstanz.in.uce.socket.relay.messages.RelayMessageReader;
+import de.htwg_konstanz.in.uce.socket.relay.messages.RelayUceMethod;
+
+/**
+ * Handles the control connection and the peer server socket of one allocation
+ * on an {@link AllocationEventLoop}. For an UDP allocation there is no peer
+ * server socket; the datagrams of the peers are relayed by a
+ * {@link DatagramRelayEngine} instead. Refresh requests of the client are read
+ * with non-blocking I/O and the responses are written by the event loop from
+ * the write queue of a {@link ChannelOutputStream}. The lifetime of the allocation is supervised by the
+ * timing wheel of the event loop and gets renewed with each refresh request.
+ * Connection requests of peers are accepted by the event loop and handled by
+ * {@link PeerHandlerTask PeerHandlerTasks}.
+ *
+ * @author Daniel Maier
+ *
+ */
+final class ControlConnectionHandler implements AllocationEventLoop.ChannelHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ControlConnectionHandler.class);
+
+    private final SocketChannel controlChannel;
+    private final ChannelOutputStream controlConnectionStream;
+    private final MessageWriter controlConnectionWriter;
+    private final ServerSocketChannel peerChannel;
+    private final int peerPort;
+    private final UdpAllocation udpAllocation;
+    private final PortAllocator portAllocator;
+    private final ListenerTaskFactory peerHandlerTaskFactory;
+    private final Map<UUID, RelayAllocation> allocIDToAllocation;
+    private final RelayAllocation allocation;
+    private final AllocationEventLoop eventLoop;
+    private final AtomicBoolean destroyed = new AtomicBoolean();
+    private final Runnable expiration = new Runnable() {
+        public void run() {
+            logger.info("No refresh request within specified timeout. Closing control conection "
+                    + "and destroy allocation");
+            close();
+        }
+    };
+    // only accessed by the event loop thread
+    private final UceMessageFramer framer = RelayMessageReader.newFramer();
+    private boolean closeAfterFlush;
+    private volatile Timeout timeout;
+
+    /**
+     * Creates a new {@link ControlConnectionHandler}.
+     *
+     * @param controlConnection
+     *            control connection to the client
+     * @param controlConnectionStream
+     *            the queued output stream of the control connection
+     * @param peerServerSocket
+     *            server socket that waits for connections of peers to the
+     *            client
+     * @param peerHandlerTaskFactory
+     *            factory for the tasks that handle the connections of peers
+     * @param allocIDToAllocation
+     *            map to match data connections that are established in
+     *            advance to the allocations of the clients
+     * @param allocation
+     *            the allocation of the client
+     * @param eventLoop
+     *            the event loop that watches the control connection and the
+     *            peer server socket
+     * @param portAllocator
+     *            the allocator that reserved the port of the peer server
+     *            socket
+     */
+    ControlConnectionHandler(Socket controlConnection,
+            ChannelOutputStream controlConnectionStream, ServerSocket peerServerSocket,
+            ListenerTaskFactory peerHandlerTaskFactory,
+            Map<UUID, RelayAllocation> allocIDToAllocation, RelayAllocation allocation,
+            AllocationEventLoop eventLoop, PortAllocator portAllocator) {
+        this.controlChannel = controlConnection.getChannel();
+        this.controlConnectionStream = controlConnectionStream;
+        this.controlConnectionWriter = new MessageWriter(controlConnectionStream);
+        this.peerChannel = peerServerSocket.getChannel();
+        this.peerPort = peerServerSocket.getLocalPort();
+        this.udpAllocation = null;
+        this.portAllocator = portAllocator;
+        this.peerHandlerTaskFactory = peerHandlerTaskFactory;
+        this.allocIDToAllocation = allocIDToAllocation;
+        this.allocation = allocation;
+        this.eventLoop = eventLoop;
+    }
+
+    /**
+     * Creates a new {@link ControlConnectionHandler} for an UDP allocation.
+     *
+     * @param controlConnection
+     *            control connection to the client
+     * @param controlConnectionStream
+     *            the queued output stream of the control connection
+     * @param udpAllocation
+     *            the UDP part of the allocation that gets closed when the
+     *            allocation is destroyed
+     * @param allocIDToAllocation
+     *            map to match data connections that are established in
+     *            advance to the allocations of the clients
+     * @param eventLoop
+     *            the event loop that watches the control connection
+     */
+    ControlConnectionHandler(Socket controlConnection,
+            ChannelOutputStream controlConnectionStream, UdpAllocation udpAllocation,
+            Map<UUID, RelayAllocation> allocIDToAllocation, AllocationEventLoop eventLoop) {
+        this.controlChannel = controlConnection.getChannel();
+        this.controlConnectionStream = controlConnectionStream;
+        this.controlConnectionWriter = new MessageWriter(controlConnectionStream);
+        this.peerChannel = null;
+        this.peerPort = 0;
+        this.udpAllocation = udpAllocation;
+        this.portAllocator = null;
+        this.peerHandlerTaskFactory = null;
+        this.allocIDToAllocation = allocIDToAllocation;
+        this.allocation = udpAllocation.getAllocation();
+        this.eventLoop = eventLoop;
+    }
+
+    /**
+     * Starts the supervision of the allocation. If no refresh request arrives
+     * during the given lifetime, the allocation gets destroyed.
+     *
+     * @param lifetime
+     *            the lifetime of the allocation without refresh messages. If
+     *            lifetime is 0,
+     *            {@link Constants#DEFAULT_ALLOCATION_REFRESH_INTERVAL} is used.
+     *            If lifetime is greater than
+     *            {@link Constants#MAX_ALLOCATION_LIFETIME},
+     *            {@link Constants#MAX_ALLOCATION_LIFETIME} is used.
+     */
+    void start(int lifetime) {
+        if (lifetime == 0) {
+            scheduleExpiration(Constants.DEFAULT_ALLOCATION_REFRESH_INTERVAL);
+        } else {
+            scheduleExpiration(Math.min(lifetime, Constants.MAX_ALLOCATION_LIFETIME));
+        }
+        eventLoop.register(controlChannel, SelectionKey.OP_READ, this);
+        if (peerChannel != null) {
+            eventLoop.register(peerChannel, SelectionKey.OP_ACCEPT, this);
+        }
+    }
+
+    public void handle(SelectionKey key) throws IOException {
+        if (key.isAcceptable()) {
+            acceptPeers();
+            return;
+        }
+        if (key.isWritable()) {
+            flushMessages(key);
+        }
+        if (key.isValid() && key.isReadable() && !closeAfterFlush) {
+            readMessages(key);
+        }
+    }
+
+    /**
+     * Writes the queued messages to the control connection until the send
+     * buffer is full. Stops waiting for writability once the queue is empty
+     * and destroys the allocation if this was requested by the client.
+     *
+     * @param key
+     *            the key of the control connection
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    private void flushMessages(SelectionKey key) throws IOException {
+        if (!controlConnectionStream.flushQueue()) {
+            key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+        } else if (closeAfterFlush) {
+            close();
+        } else {
+            key.interestOps(key.interestOps() & ~SelectionKey.OP_WRITE);
+        }
+    }
+
+    /**
+     * Accepts all pending connections of peers and hands them over to
+     * {@link PeerHandlerTask PeerHandlerTasks}. The accepted sockets stay in
+     * blocking mode.
+     *
+     * @throws IOException
+     *             if an I/O error occurs while accepting
+     */
+    private void acceptPeers() throws IOException {
+        SocketChannel peer;
+        while ((peer = peerChannel.accept()) != null) {
+            try {
+                eventLoop.getPeerHandlerExecutor().execute(
+                        peerHandlerTaskFactory.getTask(peer.socket()));
+            } catch (IOException e) {
+                logger.error("IOException while creating peer handler task: {}", e);
+                peer.close();
+            }
+        }
+    }
+
+    /**
+     * Reads the available data from the control connection and handles all
+     * complete messages. An incomplete message stays in the framer until the
+     * rest of it arrives.
+     *
+     * @param key
+     *            the key of the control connection
+     * @throws IOException
+     *             if an I/O error occurs or the control connection was closed
+     *             by the client
+     */
+    private void readMessages(SelectionKey key) throws IOException {
+        if (framer.read(controlChannel) < 0) {
+            logger.info("Control connection closed by client. Destroy allocation");
+            close();
+            return;
+        }
+        UceMessage message;
+        while ((message = framer.next()) != null) {
+            if (!handleMessage(message)) {
+                // the response to the unallocation is written before closing
+                closeAfterFlush = true;
+                key.interestOps(SelectionKey.OP_WRITE);
+                flushMessages(key);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Handles one message of the client. Only refresh requests are allowed. A
+     * refresh request with a lifetime greater than 0 renews the lifetime of
+     * the allocation. A refresh request with a lifetime of 0 or less destroys
+     * the allocation. A refresh request without lifetime is answered with a
+     * "Bad Request" error.
+     *
+     * @param message
+     *            the received message
+     * @return false if the allocation has to be destroyed, true otherwise
+     * @throws IOException
+     *             if an I/O error occurs while sending the response
+     */
+    private boolean handleMessage(UceMessage message) throws IOException {
+        if (message.isMethod(RelayUceMethod.REFRESH) && message.isRequest()) {
+            if (!message.hasAttribute(Lifetime.class)) {
+                logger.error("Received refresh request without lifetime");
+                UceMessage errorResponse = message.buildErrorResponse(ErrorCodes.BAD_REQUEST,
+                        "Refresh request did not contain a lifetime");
+                controlConnectionWriter.writeMessage(errorResponse);
+                return true;
+            }
+            int lifetime = message.getAttribute(Lifetime.class).getLifeTime();
+            logger.info("Received refresh request with lifetime {}", lifetime);
+            if (lifetime > 0) {
+                int refreshInterval = Math.min(lifetime, Constants.MAX_ALLOCATION_LIFETIME);
+                scheduleExpiration(refreshInterval);
+                // send refresh response
+                UceMessage successResponse = message.buildSuccessResponse();
+                successResponse.addAttribute(new Lifetime(refreshInterval));
+                controlConnectionWriter.writeMessage(successResponse);
+                return true;
+            } else {
+                // send refresh response (unallocate)
+                UceMessage successResponse = message.buildSuccessResponse();
+                successResponse.addAttribute(new Lifetime(0));
+                controlConnectionWriter.writeMessage(successResponse);
+                return false;
+            }
+        } else {
+            logger.error("Received unexpected message: {}", message.getMethod());
+            UceMessage errorResponse = message.buildErrorResponse(ErrorCodes.BAD_REQUEST,
+                    "Expected refresh request");
+            controlConnectionWriter.writeMessage(errorResponse);
+            return true;
+        }
+    }
+
+    /**
+     * Replaces the pending expiration of the allocation with a new one.
+     *
+     * @param refreshInterval
+     *            the interval in seconds after that the allocation expires
+     */
+    private void scheduleExpiration(int refreshInterval) {
+        Timeout previous = timeout;
+        if (previous != null) {
+            previous.cancel();
+        }
+        timeout = eventLoop.getTimer().schedule(expiration, refreshInterval * 1000L,
+                TimeUnit.MILLISECONDS);
+        if (destroyed.get()) {
+            timeout.cancel();
+        }
+    }
+
+    /**
+     * Destroys the allocation: stops the supervision of its lifetime, closes
+     * the control connection and the peer server socket (or the UDP
+     * allocation), releases the port of the peer server socket and closes the
+     * data connections that the client established in advance. Can be called
+     * several times and from any thread.
+     */
+    public void close() {
+        if (!destroyed.compareAndSet(false, true)) {
+            return;
+        }
+        Timeout current = timeout;
+        if (current != null) {
+            current.cancel();
+        }
+        if (peerChannel != null) {
+            try {
+                peerChannel.close();
+            } catch (IOException ignore) {
+            }
+            portAllocator.release(peerPort);
+        } else {
+            udpAllocation.close();
+        }
+        try {
+            controlChannel.close();
+        } catch (IOException ignore) {
+        }
+        allocIDToAllocation.remove(allocation.getAllocationId());
+        allocation.close();
+    }
+}
@@ -0,0 +1,438 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.socket.relay.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.htwg_konstanz.in.helper.sockets.PortAllocator;
+import de.htwg_konstanz.in.uce.messages.ErrorCode.ErrorCodes;
+import de.htwg_konstanz.in.uce.messages.SocketEndpoint;
+import de.htwg_konstanz.in.uce.messages.UceMessage;
+import de.htwg_konstanz.in.uce.messages.UniqueId;
+import de.htwg_konstanz.in.uce.socket.relay.messages.ChannelData;
+import de.htwg_konstanz.in.uce.socket.relay.messages.ChannelNumber;
+import de.htwg_konstanz.in.uce.socket.relay.messages.RelayMessageReader;
+import de.htwg_konstanz.in.uce.socket.relay.messages.RelayUceMethod;
+
+/**
+ * Relays the datagrams of all {@link UdpAllocation UDP allocations} with
+ * non-blocking I/O and one thread.
+ * 
+ * Clients send and receive their datagrams over one shared datagram channel of
+ * the engine. Each datagram between a client and a peer carries a 4 byte
+ * {@link ChannelData} header instead of the address of the peer. Before a
+ * client can exchange datagrams with a peer, it has to send a channel bind
+ * request with the id of its allocation, a channel number and the address of
+ * the peer to the shared channel. The first channel bind request binds the
+ * source address of the request as client address to the allocation; channel
+ * data from other addresses is dropped. Peers send their datagrams to the
+ * relay channel of the allocation. Datagrams of peers without an active
+ * channel binding are dropped.
+ * 
+ * The datagrams of each direction are recorded by the {@link TrafficMeter
+ * TrafficMeters} of the allocation. Datagrams that exceed the bandwidth limit
+ * are dropped instead of being delayed.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+public final class DatagramRelayEngine implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DatagramRelayEngine.class);
+    private final DatagramChannel clientChannel;
+    private final Selector selector;
+    private final Map<UUID, UdpAllocation> allocIDToUdpAllocation = new ConcurrentHashMap<UUID, UdpAllocation>();
+    private final Map<SocketAddress, UdpAllocation> clientToUdpAllocation = new ConcurrentHashMap<SocketAddress, UdpAllocation>();
+    private final Queue<UdpAllocation> pendingAllocations = new ConcurrentLinkedQueue<UdpAllocation>();
+    private final long channelBindingLifetime;
+    // only accessed by the engine thread
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(Constants.DATAGRAM_BUFFER_SIZE);
+    private volatile boolean running = true;
+
+    /**
+     * Creates a new {@link DatagramRelayEngine} whose shared channel for the
+     * clients is bound to the given port. The engine has to be started in its
+     * own thread.
+     * 
+     * @param port
+     *            the UDP port for the datagrams of the clients
+     * @throws IOException
+     *             if the channel could not be bound or the selector could not
+     *             be opened
+     */
+    public DatagramRelayEngine(int port) throws IOException {
+        this(port, Constants.UDP_CHANNEL_BINDING_LIFETIME);
+    }
+
+    /**
+     * Creates a new {@link DatagramRelayEngine} whose channel bindings expire
+     * after the given lifetime.
+     * 
+     * @param port
+     *            the UDP port for the datagrams of the clients
+     * @param channelBindingLifetime
+     *            the lifetime of the channel bindings in milliseconds
+     * @throws IOException
+     *             if the channel could not be bound or the selector could not
+     *             be opened
+     */
+    DatagramRelayEngine(int port, long channelBindingLifetime) throws IOException {
+        this.channelBindingLifetime = channelBindingLifetime;
+        this.selector = Selector.open();
+        this.clientChannel = DatagramChannel.open();
+        try {
+            clientChannel.socket().bind(new InetSocketAddress(port));
+            clientChannel.configureBlocking(false);
+            clientChannel.register(selector, SelectionKey.OP_READ);
+        } catch (IOException e) {
+            clientChannel.close();
+            selector.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the local port of the shared channel for the clients.
+     * 
+     * @return the port of the shared channel
+     */
+    public int getPort() {
+        return clientChannel.socket().getLocalPort();
+    }
+
+    /**
+     * Returns the number of UDP allocations of this engine.
+     * 
+     * @return the number of UDP allocations
+     */
+    public int getAllocationCount() {
+        return allocIDToUdpAllocation.size();
+    }
+
+    /**
+     * Creates a new UDP allocation with a relay channel on a port of the given
+     * port allocator. Can be called from any thread.
+     * 
+     * @param allocation
+     *            the allocation of the client
+     * @param portAllocator
+     *            the allocator for the port of the relay channel
+     * @return the UDP allocation, or null if there is no free port
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    UdpAllocation allocate(RelayAllocation allocation, PortAllocator portAllocator)
+            throws IOException {
+        DatagramChannel relayChannel = portAllocator.openDatagramChannel();
+        if (relayChannel == null) {
+            return null;
+        }
+        UdpAllocation udpAllocation = new UdpAllocation(allocation, relayChannel, this,
+                portAllocator, channelBindingLifetime);
+        allocIDToUdpAllocation.put(allocation.getAllocationId(), udpAllocation);
+        pendingAllocations.add(udpAllocation);
+        selector.wakeup();
+        return udpAllocation;
+    }
+
+    /**
+     * Removes the given UDP allocation. Called by
+     * {@link UdpAllocation#close()}.
+     * 
+     * @param udpAllocation
+     *            the UDP allocation
+     */
+    void remove(UdpAllocation udpAllocation) {
+        allocIDToUdpAllocation.remove(udpAllocation.getAllocation().getAllocationId());
+        InetSocketAddress clientAddress = udpAllocation.getClientAddress();
+        if (clientAddress != null) {
+            clientToUdpAllocation.remove(clientAddress);
+        }
+    }
+
+    /**
+     * Stops this engine. All UDP allocations get closed.
+     */
+    public void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Waits for datagrams and relays them until the engine gets shut down.
+     */
+    public void run() {
+        try {
+            while (running) {
+                selector.select();
+                registerPendingAllocations();
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    UdpAllocation udpAllocation = (UdpAllocation) key.attachment();
+                    try {
+                        if (udpAllocation == null) {
+                            receiveFromClients();
+                        } else {
+                            receiveFromPeers(udpAllocation);
+                        }
+                    } catch (IOException e) {
+                        logger.debug("IOException while relaying datagram: {}", e.getMessage());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.error("IOException in datagram relay engine: {}", e);
+        } finally {
+            for (UdpAllocation udpAllocation : allocIDToUdpAllocation.values()) {
+                udpAllocation.close();
+            }
+            try {
+                clientChannel.close();
+            } catch (IOException ignore) {
+            }
+            try {
+                selector.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+    /**
+     * Registers the relay channels of the UDP allocations that were created
+     * since the last selection.
+     */
+    private void registerPendingAllocations() {
+        UdpAllocation udpAllocation;
+        while ((udpAllocation = pendingAllocations.poll()) != null) {
+            if (udpAllocation.isClosed()) {
+                continue;
+            }
+            try {
+                DatagramChannel relayChannel = udpAllocation.getRelayChannel();
+                relayChannel.configureBlocking(false);
+                relayChannel.register(selector, SelectionKey.OP_READ, udpAllocation);
+            } catch (IOException e) {
+                logger.error("IOException while registering UDP allocation: {}", e);
+                udpAllocation.close();
+            }
+        }
+    }
+
+    /**
+     * Receives all available datagrams of the clients. Channel data is relayed
+     * to the bound peer, messages are handled as channel bind requests. A
+     * datagram whose handling fails with a runtime exception, e.g. because of
+     * a malformed attribute, is dropped.
+     * 
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    private void receiveFromClients() throws IOException {
+        SocketAddress source;
+        buffer.clear();
+        while ((source = clientChannel.receive(buffer)) != null) {
+            buffer.flip();
+            try {
+                if (ChannelData.isChannelData(buffer)) {
+                    relayToPeer(source);
+                } else {
+                    handleMessage(source);
+                }
+            } catch (RuntimeException e) {
+                logger.debug("Dropped malformed datagram from {}: {}", source, e);
+            }
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Relays the channel data in the buffer to the peer that is bound to its
+     * channel number.
+     * 
+     * @param source
+     *            the address of the client
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    private void relayToPeer(SocketAddress source) throws IOException {
+        UdpAllocation udpAllocation = clientToUdpAllocation.get(source);
+        if (udpAllocation == null) {
+            logger.debug("Dropped channel data from unknown client {}", source);
+            return;
+        }
+        int payloadLength = ChannelData.getPayloadLength(buffer);
+        if (payloadLength > buffer.remaining() - ChannelData.HEADER_LENGTH) {
+            logger.debug("Dropped truncated channel data from {}", source);
+            return;
+        }
+        UdpAllocation.ChannelBinding binding = udpAllocation.getBinding(ChannelData
+                .getChannelNumber(buffer));
+        if (binding == null) {
+            logger.debug("Dropped channel data for unbound channel from {}", source);
+            return;
+        }
+        if (!udpAllocation.getAllocation().getClientToPeerMeter().tryRecord(payloadLength)) {
+            return;
+        }
+        buffer.position(ChannelData.HEADER_LENGTH);
+        buffer.limit(ChannelData.HEADER_LENGTH + payloadLength);
+        udpAllocation.getRelayChannel().send(buffer, binding.getPeer());
+    }
+
+    /**
+     * Receives all available datagrams of the peers of the given UDP
+     * allocation and relays them with a channel data header to the client.
+     * 
+     * @param udpAllocation
+     *            the UDP allocation
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    private void receiveFromPeers(UdpAllocation udpAllocation) throws IOException {
+        DatagramChannel relayChannel = udpAllocation.getRelayChannel();
+        SocketAddress source;
+        buffer.clear();
+        buffer.position(ChannelData.HEADER_LENGTH);
+        while ((source = relayChannel.receive(buffer)) != null) {
+            int payloadLength = buffer.position() - ChannelData.HEADER_LENGTH;
+            buffer.flip();
+            UdpAllocation.ChannelBinding binding = udpAllocation
+                    .getBinding((InetSocketAddress) source);
+            InetSocketAddress clientAddress = udpAllocation.getClientAddress();
+            if (binding == null || clientAddress == null) {
+                logger.debug("Dropped datagram from peer {} without permission", source);
+            } else if (udpAllocation.getAllocation().getPeerToClientMeter().tryRecord(
+                    payloadLength)) {
+                ChannelData.putHeader(buffer, binding.getChannelNumber(), payloadLength);
+                clientChannel.send(buffer, clientAddress);
+            }
+            buffer.clear();
+            buffer.position(ChannelData.HEADER_LENGTH);
+        }
+    }
+
+    /**
+     * Handles the message in the buffer. Only channel bind requests are
+     * allowed, other datagrams are dropped.
+     * 
+     * @param source
+     *            the address of the client
+     * @throws IOException
+     *             if an I/O error occurs while sending the response
+     */
+    private void handleMessage(SocketAddress source) throws IOException {
+        UceMessage message;
+        try {
+            message = RelayMessageReader.read(buffer);
+        } catch (IOException e) {
+            logger.debug("Dropped malformed datagram from {}", source);
+            return;
+        } catch (BufferUnderflowException e) {
+            logger.debug("Dropped truncated datagram from {}", source);
+            return;
+        }
+        if (message == null || !message.isMethod(RelayUceMethod.CHANNEL_BIND)
+                || !message.isRequest()) {
+            logger.debug("Dropped unexpected datagram from {}", source);
+            return;
+        }
+        UceMessage response;
+        if (!message.hasAttribute(UniqueId.class) || !message.hasAttribute(ChannelNumber.class)
+                || !message.hasAttribute(SocketEndpoint.class)) {
+            response = message.buildErrorResponse(ErrorCodes.BAD_REQUEST,
+                    "Channel Bind Message did not contain Allocation ID, Channel Number and "
+                            + "Peer Endpoint.");
+        } else {
+            response = bindChannel(message, (InetSocketAddress) source);
+        }
+        // the request is decoded, so the buffer can be reused for the response
+        buffer.clear();
+        response.writeTo(buffer);
+        buffer.flip();
+        clientChannel.send(buffer, source);
+    }
+
+    /**
+     * Binds the channel number of the given channel bind request to the peer
+     * of the request.
+     * 
+     * @param message
+     *            the channel bind request
+     * @param source
+     *            the address of the client
+     * @return the response to the request
+     * @throws IOException
+     *             if the error response could not be encoded
+     */
+    private UceMessage bindChannel(UceMessage message, InetSocketAddress source)
+            throws IOException {
+        UUID allocationId = message.getAttribute(UniqueId.class).getId();
+        UdpAllocation udpAllocation = allocIDToUdpAllocation.get(allocationId);
+        if (udpAllocation == null) {
+            return message.buildErrorResponse(ErrorCodes.BAD_REQUEST, "Allocation ID ("
+                    + allocationId + ") does not refer to an existing UDP allocation.");
+        }
+        InetSocketAddress clientAddress = udpAllocation.getClientAddress();
+        if (clientAddress == null) {
+            UdpAllocation previous = clientToUdpAllocation.get(source);
+            if (previous != null && previous != udpAllocation) {
+                return message.buildErrorResponse(ErrorCodes.BAD_REQUEST,
+                        "Client address is already bound to another allocation.");
+            }
+            udpAllocation.setClientAddress(source);
+            clientToUdpAllocation.put(source, udpAllocation);
+            if (udpAllocation.isClosed()) {
+                clientToUdpAllocation.remove(source);
+            }
+        } else if (!clientAddress.equals(source)) {
+            return message.buildErrorResponse(ErrorCodes.BAD_REQUEST,
+                    "Allocation is bound to another client address.");
+        }
+        int channelNumber = message.getAttribute(ChannelNumber.class).getChannelNumber();
+        InetSocketAddress peer = message.getAttribute(SocketEndpoint.class).getEndpoint();
+        if (!udpAllocation.bind(channelNumber, peer)) {
+            return message.buildErrorResponse(ErrorCodes.BAD_REQUEST, "Channel number "
+                    + channelNumber + " or peer " + peer + " is already bound.");
+        }
+        logger.debug("Bound channel {} to peer {}", channelNumber, peer);
+        UceMessage successResponse = message.buildSuccessResponse();
+        successResponse.addAttribute(new ChannelNumber(channelNumber));
+        return successResponse;
+    }
+}
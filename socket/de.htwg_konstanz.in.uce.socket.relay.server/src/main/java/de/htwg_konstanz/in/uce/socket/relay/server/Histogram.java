@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.socket.relay.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram with exponential buckets. Bucket i counts the values
+ * that are greater than 2^(i-1) and less than or equal to 2^i. The last
+ * bucket counts all values that are greater than the upper bound of the
+ * second last bucket.
+ *
+ * @author Daniel Maier
+ *
+ */
+public final class Histogram implements HistogramMBean {
+
+    private final String name;
+    private final String unit;
+    private final AtomicLongArray buckets;
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Creates a new {@link Histogram}.
+     *
+     * @param name
+     *            the name of the histogram
+     * @param unit
+     *            the unit of the recorded values
+     * @param bucketCount
+     *            the number of buckets. The upper bound of the second last
+     *            bucket is 2^(bucketCount - 2).
+     * @throws IllegalArgumentException
+     *             if bucketCount is less than 2 or greater than 64
+     */
+    public Histogram(String name, String unit, int bucketCount) {
+        if (bucketCount < 2 || bucketCount > 64) {
+            throw new IllegalArgumentException("Illegal bucket count " + bucketCount);
+        }
+        this.name = name;
+        this.unit = unit;
+        this.buckets = new AtomicLongArray(bucketCount);
+    }
+
+    /**
+     * Records a value. Negative values are recorded as 0.
+     *
+     * @param value
+     *            the value to be recorded
+     */
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        }
+        int index = value <= 1 ? 0 : 64 - Long.numberOfLeadingZeros(value - 1);
+        buckets.incrementAndGet(Math.min(index, buckets.length() - 1));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        long currentMax;
+        while (value > (currentMax = max.get()) && !max.compareAndSet(currentMax, value)) {
+            // retry
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getUnit() {
+        return unit;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getSum() {
+        return sum.get();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    public long[] getBucketUpperBounds() {
+        long[] bounds = new long[buckets.length() - 1];
+        for (int i = 0; i < bounds.length; i++) {
+            bounds[i] = 1L << i;
+        }
+        return bounds;
+    }
+
+    public long[] getBucketCounts() {
+        long[] counts = new long[buckets.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+        }
+        return counts;
+    }
+}
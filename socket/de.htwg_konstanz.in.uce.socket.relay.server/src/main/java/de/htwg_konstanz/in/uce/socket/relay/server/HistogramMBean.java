@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.socket.relay.server;
+
+/**
+ * Management interface of a {@link Histogram}.
+ *
+ * @author Daniel Maier
+ *
+ */
+public interface HistogramMBean {
+
+    /**
+     * Returns the name of the histogram.
+     *
+     * @return the name of the histogram
+     */
+    String getName();
+
+    /**
+     * Returns the unit of the recorded values.
+     *
+     * @return the unit of the recorded values
+     */
+    String getUnit();
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return the number of recorded values
+     */
+    long getCount();
+
+    /**
+     * Returns the sum of the recorded values.
+     *
+     * @return the sum of the recorded values
+     */
+    long getSum();
+
+    /**
+     * Returns the greatest recorded value.
+     *
+     * @return the greatest recorded value, or 0 if no value was recorded
+     */
+    long getMax();
+
+    /**
+     * Returns the mean of the recorded values.
+     *
+     * @return the mean of the recorded values, or 0 if no value was recorded
+     */
+    double getMean();
+
+    /**
+     * Returns the inclusive upper bounds of all buckets except the last one,
+     * which has no upper bound.
+     *
+     * @return the upper bounds of the buckets
+     */
+    long[] getBucketUpperBounds();
+
+    /**
+     * Returns the number of recorded values of each bucket.
+     *
+     * @return the counts of the buckets
+     */
+    long[] getBucketCounts();
+}
@@ -19,17 +19,17 @@ package de.htwg_konstanz.in.uce.socket.relay.server;
 
 import static de.htwg_konstanz.in.uce.socket.relay.messages.RelayUceMethod.ALLOCATION;
 import static de.htwg_konstanz.in.uce.socket.relay.messages.RelayUceMethod.CONNECTION_BIND;
+import static de.htwg_konstanz.in.uce.socket.relay.messages.RelayUceMethod.MULTIPLEXED_CONNECTION_BIND;
 
 import java.io.IOException;
 import java.net.Socket;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.Executor;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import de.htwg_konstanz.in.helper.sockets.PortAllocator;
 import de.htwg_konstanz.in.uce.messages.ErrorCode.ErrorCodes;
 import de.htwg_konstanz.in.uce.messages.UceMessage;
 import de.htwg_konstanz.in.uce.socket.relay.messages.MessageWriter;
@@ -37,7 +37,8 @@ import de.htwg_konstanz.in.uce.socket.relay.messages.RelayMessageReader;
 
 /**
  * Task that reads messages from the clients socket and handles them. Can handle
- * allocation requests and and connection bind requests.
+ * allocation requests, connection bind requests and multiplexed connection
+ * bind requests.
  * 
  * @author Daniel Maier
  * 
@@ -47,47 +48,75 @@ public class MessageDispatcherTask implements Runnable {
     private static final Logger logger = LoggerFactory.getLogger(MessageDispatcherTask.class);
     private final Socket s;
     private final MessageWriter controlConnectionWriter;
-    private final Map<UUID, BlockingQueue<Socket>> connIDToQueue;
-    // has to be unbounded
-    private final Executor controlConnectionHandlerExecutor;
-    // has to be unbounded
-    private final Executor relayExecutor;
+    private final PendingBindRegistry pendingBinds;
+    private final Map<UUID, RelayAllocation> allocIDToAllocation;
+    private final AllocationEventLoop allocationEventLoop;
+    private final PortAllocator portAllocator;
+    private final BandwidthPolicy bandwidthPolicy;
+    private final RelayServerMetrics metrics;
+    private final RelayEngine relayEngine;
+    private final DatagramRelayEngine datagramRelayEngine;
 
     /**
      * Creates a new {@link MessageDispatcherTask}.
      * 
      * @param s
      *            the socket to the client
-     * @param connIDToQueue
-     *            map to match relay connection between client and peers
-     * @param controlConnectionHandlerExecutor
-     *            the executor that gets used to execute the
-     *            {@link RefreshMessageHandlerTask} for the given control
-     *            connection
-     * @param relayExecutor
-     *            the executor that gets used to execute task for the real relay
+     * @param pendingBinds
+     *            registry to match relay connection between client and peers
+     * @param allocIDToAllocation
+     *            map to match data connections that are established in
+     *            advance to the allocations of the clients
+     * @param allocationEventLoop
+     *            the event loop that watches the control connection if the
+     *            client requests an allocation
+     * @param portAllocator
+     *            the allocator for the ports of the peer server sockets of
+     *            the allocations
+     * @param bandwidthPolicy
+     *            the policy for the bandwidth of the allocations
+     * @param metrics
+     *            the metrics of the relay server
+     * @param relayEngine
+     *            the {@link RelayEngine} that gets used for the real relay
      *            stuff
+     * @param datagramRelayEngine
+     *            the engine that relays the datagrams of UDP allocations, or
+     *            null if UDP allocations are not supported
      * @throws IOException
      *             if an I/O error occurs while getting the output stream of the
      *             socket to the client
      */
-    public MessageDispatcherTask(Socket s, Map<UUID, BlockingQueue<Socket>> connIDToQueue,
-            Executor controlConnectionHandlerExecutor, Executor relayExecutor) throws IOException {
+    public MessageDispatcherTask(Socket s, PendingBindRegistry pendingBinds,
+            Map<UUID, RelayAllocation> allocIDToAllocation,
+            AllocationEventLoop allocationEventLoop, PortAllocator portAllocator,
+            BandwidthPolicy bandwidthPolicy, RelayServerMetrics metrics, RelayEngine relayEngine,
+            DatagramRelayEngine datagramRelayEngine) throws IOException {
         this.s = s;
+        // used only while the socket is blocking, i.e. before the control
+        // connection of an allocation is handed over to the event loop
         this.controlConnectionWriter = new MessageWriter(s.getOutputStream());
-        this.connIDToQueue = connIDToQueue;
-        this.controlConnectionHandlerExecutor = controlConnectionHandlerExecutor;
-        this.relayExecutor = relayExecutor;
+        this.pendingBinds = pendingBinds;
+        this.allocIDToAllocation = allocIDToAllocation;
+        this.allocationEventLoop = allocationEventLoop;
+        this.portAllocator = portAllocator;
+        this.bandwidthPolicy = bandwidthPolicy;
+        this.metrics = metrics;
+        this.relayEngine = relayEngine;
+        this.datagramRelayEngine = datagramRelayEngine;
     }
 
     /**
      * Reads the message from the input stream of the socket to the client. Then
-     * distinguishes two messages: allocation request and connection bind
-     * request. If the message is an allocation request an
-     * {@link RelayAllocationHandler} gets used to handle the message. Else if
-     * the message is an connection bind request a {@link ConnectionBindHandler}
-     * gets used to handle the message. If the message was of unknown type a bad
-     * request error is returned to the client.
+     * distinguishes three messages: allocation request, connection bind
+     * request and multiplexed connection bind request. If the message is an
+     * allocation request an {@link RelayAllocationHandler} gets used to handle
+     * the message. Else if the message is an connection bind request a
+     * {@link ConnectionBindHandler} gets used to handle the message. Else if
+     * the message is a multiplexed connection bind request a
+     * {@link MultiplexedConnectionBindHandler} gets used to handle the
+     * message. If the message was of unknown type a bad request error is
+     * returned to the client.
      */
     public void run() {
         UceMessage message;
@@ -99,11 +128,16 @@ public class MessageDispatcherTask implements Runnable {
         }
         if (message.isMethod(ALLOCATION) && message.isRequest()) {
             logger.info("Received allocation request");
-            new RelayAllocationHandler(s, controlConnectionWriter, connIDToQueue, message,
-                    controlConnectionHandlerExecutor, relayExecutor).handle();
+            new RelayAllocationHandler(s, controlConnectionWriter, pendingBinds,
+                    allocIDToAllocation, message, allocationEventLoop, portAllocator,
+                    bandwidthPolicy, metrics, relayEngine, datagramRelayEngine)
+                    .handle();
         } else if (message.isMethod(CONNECTION_BIND) && message.isRequest()) {
             logger.info("Received connection bind");
-            new ConnectionBindHandler(s, message, connIDToQueue).handle();
+            new ConnectionBindHandler(s, message, pendingBinds, allocIDToAllocation).handle();
+        } else if (message.isMethod(MULTIPLEXED_CONNECTION_BIND) && message.isRequest()) {
+            logger.info("Received multiplexed connection bind");
+            new MultiplexedConnectionBindHandler(s, message, allocIDToAllocation).handle();
         } else {
             // unknown message
             logger.error("Received wrong message tye {}", message.getMethod());
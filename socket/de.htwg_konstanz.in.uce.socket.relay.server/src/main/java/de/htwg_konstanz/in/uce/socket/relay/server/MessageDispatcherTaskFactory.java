@@ -21,10 +21,9 @@ import java.io.IOException;
 import java.net.Socket;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.Executor;
 
 import de.htwg_konstanz.in.helper.sockets.ListenerTaskFactory;
+import de.htwg_konstanz.in.helper.sockets.PortAllocator;
 
 /**
  * Factory to create {@link MessageDispatcherTask} instances.
@@ -34,35 +33,60 @@ import de.htwg_konstanz.in.helper.sockets.ListenerTaskFactory;
  */
 public class MessageDispatcherTaskFactory implements ListenerTaskFactory {
 
-    private final Map<UUID, BlockingQueue<Socket>> connIDToQueue;
-    // has to be unbounded
-    private final Executor controlConnectionHandlerExecutor;
-    // has to be unbounded
-    private final Executor relayExecutor;
+    private final PendingBindRegistry pendingBinds;
+    private final Map<UUID, RelayAllocation> allocIDToAllocation;
+    private final AllocationEventLoop allocationEventLoop;
+    private final PortAllocator portAllocator;
+    private final BandwidthPolicy bandwidthPolicy;
+    private final RelayServerMetrics metrics;
+    private final RelayEngine relayEngine;
+    private final DatagramRelayEngine datagramRelayEngine;
 
     /**
      * Creates a new MessageDispatcherTaskFactory instance.
      * 
-     * @param connIDToQueue map to match relay connection between client and peers
-     * @param controlConnectionHandlerExecutor
-     *            executor that is used to handle messages of control
+     * @param pendingBinds registry to match relay connection between client and peers
+     * @param allocIDToAllocation
+     *            map to match data connections that are established in
+     *            advance to the allocations of the clients
+     * @param allocationEventLoop
+     *            event loop that is used to handle messages of control
      *            connections
-     * @param relayExecutor
-     *            executor that is used for task for data relay stuff
+     * @param portAllocator
+     *            allocator for the ports of the peer server sockets of the
+     *            allocations
+     * @param bandwidthPolicy
+     *            policy for the bandwidth of the allocations
+     * @param metrics
+     *            the metrics of the relay server
+     * @param relayEngine
+     *            {@link RelayEngine} that is used for the data relay stuff
+     * @param datagramRelayEngine
+     *            engine that relays the datagrams of UDP allocations, or null
+     *            if UDP allocations are not supported
      */
-    public MessageDispatcherTaskFactory(Map<UUID, BlockingQueue<Socket>> connIDToQueue,
-            Executor controlConnectionHandlerExecutor, Executor relayExecutor) {
-        this.connIDToQueue = connIDToQueue;
-        this.controlConnectionHandlerExecutor = controlConnectionHandlerExecutor;
-        this.relayExecutor = relayExecutor;
+    public MessageDispatcherTaskFactory(PendingBindRegistry pendingBinds,
+            Map<UUID, RelayAllocation> allocIDToAllocation,
+            AllocationEventLoop allocationEventLoop, PortAllocator portAllocator,
+            BandwidthPolicy bandwidthPolicy, RelayServerMetrics metrics, RelayEngine relayEngine,
+            DatagramRelayEngine datagramRelayEngine) {
+        this.pendingBinds = pendingBinds;
+        this.allocIDToAllocation = allocIDToAllocation;
+        this.allocationEventLoop = allocationEventLoop;
+        this.portAllocator = portAllocator;
+        this.bandwidthPolicy = bandwidthPolicy;
+        this.metrics = metrics;
+        this.relayEngine = relayEngine;
+        this.datagramRelayEngine = datagramRelayEngine;
     }
 
     /**
      * Returns a new {@link MessageDispatcherTask}.
      */
     public Runnable getTask(Socket s) throws IOException {
-        return new MessageDispatcherTask(s, connIDToQueue, controlConnectionHandlerExecutor,
-                relayExecutor);
+        return new MessageDispatcherTask(s, pendingBinds, allocIDToAllocation,
+                allocationEventLoop, portAllocator, bandwidthPolicy, metrics, relayEngine,
+                datagramRelayEngine);
     }
 
 }
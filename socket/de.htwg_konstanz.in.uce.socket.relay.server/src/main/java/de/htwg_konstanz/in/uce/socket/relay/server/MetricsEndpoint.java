@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.socket.relay.server;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.Executors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.htwg_konstanz.in.helper.sockets.ListenerTaskFactory;
+import de.htwg_konstanz.in.helper.sockets.ListenerThread;
+
+/**
+ * Plain text scrape endpoint for the {@link RelayServerMetrics}. Listens on
+ * the loopback interface and answers every HTTP request with the
+ * {@link RelayServerMetrics#scrape() rendered metrics}, so it can be queried
+ * with a browser, curl or a monitoring system.
+ *
+ * @author Daniel Maier
+ *
+ */
+final class MetricsEndpoint {
+
+    private static final Logger logger = LoggerFactory.getLogger(MetricsEndpoint.class);
+    private static final int READ_TIMEOUT = 1000;
+    private final ListenerThread listenerThread;
+
+    /**
+     * Creates a new {@link MetricsEndpoint} and binds it to the given port on
+     * the loopback interface.
+     *
+     * @param port
+     *            the port of the endpoint
+     * @param metrics
+     *            the metrics to be served
+     * @throws IOException
+     *             if the endpoint could not be bound
+     */
+    MetricsEndpoint(int port, final RelayServerMetrics metrics) throws IOException {
+        ServerSocket ss = new ServerSocket(port, 0, InetAddress.getByName("127.0.0.1"));
+        listenerThread = new ListenerThread(ss, Executors.newSingleThreadExecutor(),
+                new ListenerTaskFactory() {
+                    public Runnable getTask(Socket s) {
+                        return new ScrapeTask(s, metrics);
+                    }
+                });
+    }
+
+    /**
+     * Starts this endpoint.
+     */
+    void start() {
+        listenerThread.start();
+    }
+
+    /**
+     * Stops this endpoint.
+     */
+    void stop() {
+        listenerThread.interrupt();
+    }
+
+    /**
+     * Answers one scrape request.
+     */
+    private static final class ScrapeTask implements Runnable {
+        private final Socket socket;
+        private final RelayServerMetrics metrics;
+
+        ScrapeTask(Socket socket, RelayServerMetrics metrics) {
+            this.socket = socket;
+            this.metrics = metrics;
+        }
+
+        public void run() {
+            try {
+                // skip the request header
+                socket.setSoTimeout(READ_TIMEOUT);
+                BufferedReader reader = new BufferedReader(new InputStreamReader(
+                        socket.getInputStream(), "US-ASCII"));
+                String line;
+                while ((line = reader.readLine()) != null && line.length() > 0) {
+                    // ignore
+                }
+                byte[] body = metrics.scrape().getBytes("UTF-8");
+                OutputStream out = socket.getOutputStream();
+                out.write(("HTTP/1.0 200 OK\r\nContent-Type: text/plain; charset=utf-8\r\n"
+                        + "Content-Length: " + body.length + "\r\n\r\n").getBytes("US-ASCII"));
+                out.write(body);
+                out.flush();
+            } catch (IOException e) {
+                logger.debug("IOException while answering scrape request: {}", e.getMessage());
+            } finally {
+                try {
+                    socket.close();
+                } catch (IOException ignore) {
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.socket.relay.server;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.util.Map;
+import java.util.UUID;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.htwg_konstanz.in.uce.messages.ErrorCode.ErrorCodes;
+import de.htwg_konstanz.in.uce.messages.UceMessage;
+import de.htwg_konstanz.in.uce.messages.UniqueId;
+import de.htwg_konstanz.in.uce.socket.relay.messages.MultiplexedConnection;
+
+/**
+ * Handles multiplexed connection bind requests of a client over a data
+ * connection. After a successful bind the data connection carries all relay
+ * connections of the allocation as streams of a {@link MultiplexedConnection}.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+final class MultiplexedConnectionBindHandler {
+
+    private static final Logger logger = LoggerFactory
+            .getLogger(MultiplexedConnectionBindHandler.class);
+    private final Socket s;
+    private final UceMessage bindMessage;
+    private final Map<UUID, RelayAllocation> allocIDToAllocation;
+
+    /**
+     * Creates a new {@link MultiplexedConnectionBindHandler}.
+     * 
+     * @param s
+     *            the data connection to the client
+     * @param bindMessage
+     *            the multiplexed connection bind message
+     * @param allocIDToAllocation
+     *            map to match data connections that are established in
+     *            advance to the allocations of the clients
+     */
+    MultiplexedConnectionBindHandler(Socket s, UceMessage bindMessage,
+            Map<UUID, RelayAllocation> allocIDToAllocation) {
+        this.s = s;
+        this.bindMessage = bindMessage;
+        this.allocIDToAllocation = allocIDToAllocation;
+    }
+
+    /**
+     * Handles the multiplexed connection bind request message. Reads the
+     * unique id to match the message to an allocation. If the allocation
+     * exists a success response is returned to the client and the data
+     * connection becomes the multiplexed connection of the allocation. Else a
+     * bad request error message is returned to the client.
+     */
+    void handle() {
+        RelayAllocation allocation = null;
+        if (bindMessage.hasAttribute(UniqueId.class)) {
+            allocation = allocIDToAllocation.get(bindMessage.getAttribute(UniqueId.class)
+                    .getId());
+        }
+        try {
+            if (allocation == null) {
+                logger.error("Multiplexed Connection Bind Message without valid Allocation ID");
+                UceMessage errorResponse = bindMessage.buildErrorResponse(ErrorCodes.BAD_REQUEST,
+                        "Allocation ID does not refer to an existing allocation.");
+                errorResponse.writeTo(s.getOutputStream());
+                return;
+            }
+            bindMessage.buildSuccessResponse().writeTo(s.getOutputStream());
+            MultiplexedConnection connection = new MultiplexedConnection(s, true);
+            if (allocation.setMultiplexedConnection(connection)) {
+                connection.start();
+            } else {
+                connection.close();
+            }
+        } catch (IOException e) {
+            logger.error("IOException while handling multiplexed connection bind: {}", e);
+            try {
+                s.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+}
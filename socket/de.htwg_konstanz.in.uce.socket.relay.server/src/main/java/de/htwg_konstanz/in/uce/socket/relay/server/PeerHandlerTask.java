@@ -19,11 +19,7 @@ package de.htwg_konstanz.in.uce.socket.relay.server;
 
 import java.io.IOException;
 import java.net.Socket;
-import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ArrayBlockingQueue;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
@@ -34,6 +30,7 @@ import de.htwg_konstanz.in.uce.messages.UceMessage;
 import de.htwg_konstanz.in.uce.messages.UceMessageStaticFactory;
 import de.htwg_konstanz.in.uce.messages.UniqueId;
 import de.htwg_konstanz.in.uce.socket.relay.messages.MessageWriter;
+import de.htwg_konstanz.in.uce.socket.relay.messages.MultiplexedConnection;
 import de.htwg_konstanz.in.uce.socket.relay.messages.RelayUceMethod;
 
 /**
@@ -47,43 +44,89 @@ public class PeerHandlerTask implements Runnable {
     private static final Logger logger = LoggerFactory.getLogger(PeerHandlerTask.class);
     private static final long CONNECTION_BIND_TIMEOUT = 5000;
     private final Socket socketToPeer;
-    private final Map<UUID, BlockingQueue<Socket>> connIDToQueue;
+    private final PendingBindRegistry pendingBinds;
+    private final RelayAllocation allocation;
     private final MessageWriter controlConnection;
-    // has to be unbounded
-    private final Executor relayExecutor;
+    private final RelayServerMetrics metrics;
+    private final RelayEngine relayEngine;
 
     /**
      * Creates a new {@link PeerHandlerTask}
      * 
      * @param socketToPeer
      *            socket to the peer
-     * @param connIDToQueue
-     *            map to match relay connection between client and peers
+     * @param pendingBinds
+     *            registry to match relay connection between client and peers
+     * @param allocation
+     *            the allocation with the data connections that the client
+     *            established in advance
      * @param controlConnection
      *            a {@link MessageWriter} to the control connection to the
      *            client
-     * @param relayExecutor
-     *            the executor that gets used to execute task for the real relay
+     * @param metrics
+     *            the metrics of the relay server
+     * @param relayEngine
+     *            the {@link RelayEngine} that gets used for the real relay
      *            stuff
      */
-    public PeerHandlerTask(Socket socketToPeer, Map<UUID, BlockingQueue<Socket>> connIDToQueue,
-            MessageWriter controlConnection, Executor relayExecutor) {
+    public PeerHandlerTask(Socket socketToPeer, PendingBindRegistry pendingBinds,
+            RelayAllocation allocation,
+            MessageWriter controlConnection, RelayServerMetrics metrics,
+            RelayEngine relayEngine) {
         this.socketToPeer = socketToPeer;
-        this.connIDToQueue = connIDToQueue;
+        this.pendingBinds = pendingBinds;
+        this.allocation = allocation;
         this.controlConnection = controlConnection;
-        this.relayExecutor = relayExecutor;
+        this.metrics = metrics;
+        this.relayEngine = relayEngine;
     }
 
     /**
      * Notifies the client that there is a new peer connection and sends a
-     * connection attempt message to the client. Waits for a new data connection
-     * from the client and than relays data between client and peer.
+     * connection attempt message to the client. If the client has a
+     * multiplexed connection, a new stream is opened on it for the peer
+     * instead. If the client has an idle pre-bound data connection, the peer
+     * gets paired with it right away. Otherwise the peer connection is
+     * registered as pending connection and the task returns without waiting:
+     * the data is relayed between client and peer as soon as the client binds
+     * a new data connection to it.
      */
     public void run() {
         logger.debug("Accepted peer connection from: {}", socketToPeer);
-        UUID connectionId = UUID.randomUUID();
-        BlockingQueue<Socket> connectionBindQueue = new ArrayBlockingQueue<Socket>(1);
-        connIDToQueue.put(connectionId, connectionBindQueue);
+        MultiplexedConnection multiplexedConnection = allocation.getMultiplexedConnection();
+        if (multiplexedConnection != null) {
+            try {
+                relayData(socketToPeer, multiplexedConnection.openStream());
+                return;
+            } catch (IOException e) {
+                logger.error("IOException while opening multiplexed stream: {}", e);
+            }
+        }
+        PreboundConnection prebound = allocation.pollPreboundConnection();
+        if (prebound != null) {
+            relayPrebound(prebound);
+            return;
+        }
+        final UUID connectionId = UUID.randomUUID();
+        final long attemptTime = System.nanoTime();
+        pendingBinds.register(connectionId, CONNECTION_BIND_TIMEOUT, TimeUnit.MILLISECONDS,
+                new PendingBindRegistry.Callback() {
+                    public void bound(Socket clientSocket) {
+                        if (metrics != null) {
+                            metrics.getBindLatency().record(
+                                    TimeUnit.NANOSECONDS.toMicros(System.nanoTime()
+                                            - attemptTime));
+                        }
+                        relayData(socketToPeer, clientSocket);
+                    }
+
+                    public void expired() {
+                        try {
+                            socketToPeer.close();
+                        } catch (IOException ignore) {
+                        }
+                    }
+                });
         try {
             UceMessage connectionAttemptMessage = UceMessageStaticFactory.newUceMessageInstance(
                     RelayUceMethod.CONNECTION_ATTEMPT, SemanticLevel.INDICATION, UUID.randomUUID());
@@ -91,48 +134,43 @@ public class PeerHandlerTask implements Runnable {
             controlConnection.writeMessage(connectionAttemptMessage);
         } catch (IOException ex) {
             logger.error("IOException while sending Connection Attempt: {}", ex);
-            connIDToQueue.remove(connectionId);
-            try {
-                socketToPeer.close();
-            } catch (IOException ignore) {
+            if (pendingBinds.cancel(connectionId)) {
+                try {
+                    socketToPeer.close();
+                } catch (IOException ignore) {
+                }
             }
-            return;
         }
-        Socket clientSocket;
+    }
+
+    /**
+     * Sends a connection attempt message with the id of the given pre-bound
+     * data connection to the client and relays data between the peer and the
+     * pre-bound data connection.
+     * 
+     * @param prebound
+     *            the pre-bound data connection to the client
+     */
+    private void relayPrebound(PreboundConnection prebound) {
+        logger.debug("Using pre-bound connection {}", prebound.getConnectionId());
         try {
-            clientSocket = connectionBindQueue.poll(CONNECTION_BIND_TIMEOUT, TimeUnit.MILLISECONDS);
-            if (clientSocket == null) {
-                // timeout expired
-                connIDToQueue.remove(connectionId);
-                // last chance
-                clientSocket = connectionBindQueue.poll();
-                if (clientSocket == null) {
-                    logger.debug("Timeout expired for Connection ID: {}", connectionId);
-                    try {
-                        socketToPeer.close();
-                    } catch (IOException ignore) {
-                    }
-                    return;
-                }
-            }
-        } catch (InterruptedException e) {
-            logger.debug("Got interrupted");
-            connIDToQueue.remove(connectionId);
+            UceMessage connectionAttemptMessage = UceMessageStaticFactory.newUceMessageInstance(
+                    RelayUceMethod.CONNECTION_ATTEMPT, SemanticLevel.INDICATION, UUID.randomUUID());
+            connectionAttemptMessage.addAttribute(new UniqueId(prebound.getConnectionId()));
+            controlConnection.writeMessage(connectionAttemptMessage);
+        } catch (IOException ex) {
+            logger.error("IOException while sending Connection Attempt: {}", ex);
             try {
                 socketToPeer.close();
             } catch (IOException ignore) {
             }
-            clientSocket = connectionBindQueue.poll();
-            if (clientSocket != null) {
-                try {
-                    clientSocket.close();
-                } catch (IOException ignore) {
-                }
+            try {
+                prebound.getSocket().close();
+            } catch (IOException ignore) {
             }
-            Thread.currentThread().interrupt();
             return;
         }
-        relayData(socketToPeer, clientSocket);
+        relayData(socketToPeer, prebound.getSocket());
     }
 
     /**
@@ -144,11 +182,8 @@ public class PeerHandlerTask implements Runnable {
      *            socket to the client
      */
     private void relayData(Socket peerSocket, Socket clientSocket) {
-        RelayTask peerToClientRelay = new RelayTask(peerSocket, clientSocket);
-        RelayTask clientToPeerRelay = new RelayTask(clientSocket, peerSocket);
-
-        relayExecutor.execute(peerToClientRelay);
-        relayExecutor.execute(clientToPeerRelay);
+        relayEngine.relay(peerSocket, clientSocket, allocation.getPeerToClientMeter(),
+                allocation.getClientToPeerMeter());
     }
 
 }
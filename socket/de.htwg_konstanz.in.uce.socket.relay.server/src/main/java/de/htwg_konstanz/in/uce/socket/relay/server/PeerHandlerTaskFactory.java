@@ -18,10 +18,6 @@
 package de.htwg_konstanz.in.uce.socket.relay.server;
 
 import java.net.Socket;
-import java.util.Map;
-import java.util.UUID;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.Executor;
 
 import de.htwg_konstanz.in.helper.sockets.ListenerTaskFactory;
 import de.htwg_konstanz.in.uce.socket.relay.messages.MessageWriter;
@@ -34,35 +30,46 @@ import de.htwg_konstanz.in.uce.socket.relay.messages.MessageWriter;
  */
 public class PeerHandlerTaskFactory implements ListenerTaskFactory {
 
-    private final Map<UUID, BlockingQueue<Socket>> connIDToQueue;
+    private final PendingBindRegistry pendingBinds;
+    private final RelayAllocation allocation;
     private final MessageWriter controlConnection;
-    // has to be unbounded
-    private final Executor relayExecutor;
+    private final RelayServerMetrics metrics;
+    private final RelayEngine relayEngine;
 
     /**
      * Creates a new {@link PeerHandlerTask}.
      * 
-     * @param connIDToQueue
-     *            map to match relay connection between client and peers
+     * @param pendingBinds
+     *            registry to match relay connection between client and peers
+     * @param allocation
+     *            the allocation with the data connections that the client
+     *            established in advance
      * @param controlConnection
      *            a {@link MessageWriter} to the control connection to the
      *            client
-     * @param relayExecutor
-     *            the executor that gets used to execute task for the real relay
+     * @param metrics
+     *            the metrics of the relay server
+     * @param relayEngine
+     *            the {@link RelayEngine} that gets used for the real relay
      *            stuff.
      */
-    public PeerHandlerTaskFactory(Map<UUID, BlockingQueue<Socket>> connIDToQueue,
-            MessageWriter controlConnection, Executor relayExecutor) {
-        this.connIDToQueue = connIDToQueue;
+    public PeerHandlerTaskFactory(PendingBindRegistry pendingBinds,
+            RelayAllocation allocation,
+            MessageWriter controlConnection, RelayServerMetrics metrics,
+            RelayEngine relayEngine) {
+        this.pendingBinds = pendingBinds;
+        this.allocation = allocation;
         this.controlConnection = controlConnection;
-        this.relayExecutor = relayExecutor;
+        this.metrics = metrics;
+        this.relayEngine = relayEngine;
     }
 
     /**
      * Returns a new {@link PeerHandlerTask}
      */
     public Runnable getTask(Socket s) {
-        return new PeerHandlerTask(s, connIDToQueue, controlConnection, relayExecutor);
+        return new PeerHandlerTask(s, pendingBinds, allocation, controlConnection,
+                metrics, relayEngine);
     }
 
 }
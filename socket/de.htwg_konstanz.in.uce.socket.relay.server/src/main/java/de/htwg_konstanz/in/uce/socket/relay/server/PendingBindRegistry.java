@@ -0,0 +1,215 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.socket.relay.server;
+
+import java.net.Socket;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.htwg_konstanz.in.helper.sockets.HashedTimingWheel;
+
+/**
+ * Registry of the peer connections that wait for a connection bind of a
+ * client. Each pending connection is stored as a small record keyed by its
+ * connection id. No thread is blocked while a connection is pending: the
+ * {@link ConnectionBindHandler} completes the record with the data connection
+ * of the client and the {@link Callback} of the record gets notified. If no
+ * connection bind arrives in time, the record is removed by a
+ * {@link HashedTimingWheel} and the callback gets notified about the
+ * expiration instead.
+ * 
+ * Each record is completed or expired exactly once.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+public final class PendingBindRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(PendingBindRegistry.class);
+    private final ConcurrentMap<UUID, PendingBind> pendingBinds = new ConcurrentHashMap<UUID, PendingBind>();
+    private final HashedTimingWheel timer;
+
+    /**
+     * Creates a new {@link PendingBindRegistry} with a timing wheel of
+     * {@link Constants#PENDING_BIND_TIMER_WHEEL_SIZE} ticks of
+     * {@link Constants#PENDING_BIND_TIMER_TICK_DURATION} milliseconds.
+     */
+    public PendingBindRegistry() {
+        this(new HashedTimingWheel(Constants.PENDING_BIND_TIMER_TICK_DURATION,
+                TimeUnit.MILLISECONDS, Constants.PENDING_BIND_TIMER_WHEEL_SIZE,
+                "pending-bind-timer"));
+    }
+
+    /**
+     * Creates a new {@link PendingBindRegistry} that expires its records with
+     * the given timing wheel.
+     * 
+     * @param timer
+     *            the timing wheel that expires the records
+     * @throws NullPointerException
+     *             if the given timer is null
+     */
+    public PendingBindRegistry(HashedTimingWheel timer) {
+        if (timer == null) {
+            throw new NullPointerException();
+        }
+        this.timer = timer;
+    }
+
+    /**
+     * Registers a new pending connection. The record has to be registered
+     * before the client gets notified about the connection, otherwise the
+     * connection bind could arrive before the record.
+     * 
+     * @param connectionId
+     *            the id of the pending connection
+     * @param timeout
+     *            the time after that the record expires
+     * @param unit
+     *            the time unit of the timeout
+     * @param callback
+     *            the callback that gets notified when the record is completed
+     *            or expired
+     * @throws NullPointerException
+     *             if one of the parameters is null
+     * @throws IllegalStateException
+     *             if a record with the given connection id is already
+     *             registered, the registered record stays unchanged
+     */
+    public void register(final UUID connectionId, long timeout, TimeUnit unit,
+            Callback callback) {
+        if (connectionId == null || unit == null || callback == null) {
+            throw new NullPointerException();
+        }
+        final PendingBind pendingBind = new PendingBind(callback);
+        if (pendingBinds.putIfAbsent(connectionId, pendingBind) != null) {
+            throw new IllegalStateException("Connection id " + connectionId
+                    + " is already registered");
+        }
+        pendingBind.timeout = timer.schedule(new Runnable() {
+            public void run() {
+                if (pendingBinds.remove(connectionId, pendingBind)) {
+                    logger.debug("Timeout expired for Connection ID: {}", connectionId);
+                    pendingBind.callback.expired();
+                }
+            }
+        }, timeout, unit);
+    }
+
+    /**
+     * Completes the pending connection with the given id with the given data
+     * connection of the client. The callback of the record gets notified in
+     * the calling thread.
+     * 
+     * @param connectionId
+     *            the id of the pending connection
+     * @param socket
+     *            the data connection to the client
+     * @return true if the record was completed, false if no record with the
+     *         given id is registered (anymore)
+     */
+    public boolean complete(UUID connectionId, Socket socket) {
+        PendingBind pendingBind = pendingBinds.remove(connectionId);
+        if (pendingBind == null) {
+            return false;
+        }
+        pendingBind.cancelTimeout();
+        pendingBind.callback.bound(socket);
+        return true;
+    }
+
+    /**
+     * Removes the pending connection with the given id without notifying its
+     * callback.
+     * 
+     * @param connectionId
+     *            the id of the pending connection
+     * @return true if the record was removed, false if it was already
+     *         completed or expired
+     */
+    public boolean cancel(UUID connectionId) {
+        PendingBind pendingBind = pendingBinds.remove(connectionId);
+        if (pendingBind == null) {
+            return false;
+        }
+        pendingBind.cancelTimeout();
+        return true;
+    }
+
+    /**
+     * Returns the number of pending connections.
+     * 
+     * @return the number of pending connections
+     */
+    public int size() {
+        return pendingBinds.size();
+    }
+
+    /**
+     * Stops the timing wheel of this registry. Pending records do not expire
+     * anymore.
+     */
+    public void shutdown() {
+        timer.stop();
+    }
+
+    /**
+     * Callback of a pending connection.
+     */
+    public interface Callback {
+
+        /**
+         * Gets called when the client bound a data connection to the pending
+         * connection.
+         * 
+         * @param socket
+         *            the data connection to the client
+         */
+        void bound(Socket socket);
+
+        /**
+         * Gets called when no connection bind arrived in time. Gets called by
+         * the thread of the timing wheel and therefore must not block.
+         */
+        void expired();
+    }
+
+    /**
+     * Completion record of a pending connection.
+     */
+    private static final class PendingBind {
+        private final Callback callback;
+        private volatile HashedTimingWheel.Timeout timeout;
+
+        PendingBind(Callback callback) {
+            this.callback = callback;
+        }
+
+        void cancelTimeout() {
+            HashedTimingWheel.Timeout t = timeout;
+            if (t != null) {
+                t.cancel();
+            }
+        }
+    }
+}
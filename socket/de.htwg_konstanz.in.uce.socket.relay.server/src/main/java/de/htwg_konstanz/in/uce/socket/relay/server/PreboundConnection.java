@@ -0,0 +1,67 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.socket.relay.server;
+
+import java.net.Socket;
+import java.util.UUID;
+
+/**
+ * A data connection that a client has established to the relay server in
+ * advance, before a peer connected to its allocation. The connection is kept
+ * idle until it gets paired with the next peer of the allocation.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+public final class PreboundConnection {
+
+    private final UUID connectionId;
+    private final Socket socket;
+
+    /**
+     * Creates a new {@link PreboundConnection}.
+     * 
+     * @param connectionId
+     *            the id that is sent to the client in the connection attempt
+     *            indication when the connection gets paired with a peer
+     * @param socket
+     *            the data connection to the client
+     */
+    public PreboundConnection(UUID connectionId, Socket socket) {
+        this.connectionId = connectionId;
+        this.socket = socket;
+    }
+
+    /**
+     * Returns the id of this connection.
+     * 
+     * @return the id of this connection
+     */
+    public UUID getConnectionId() {
+        return connectionId;
+    }
+
+    /**
+     * Returns the data connection to the client.
+     * 
+     * @return the data connection to the client
+     */
+    public Socket getSocket() {
+        return socket;
+    }
+}
@@ -0,0 +1,200 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.socket.relay.server;
+
+import java.io.IOException;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import de.htwg_konstanz.in.uce.socket.relay.messages.MultiplexedConnection;
+
+/**
+ * Data connections that a client has established in advance for its
+ * allocation: idle pre-bound data connections and an optional
+ * {@link MultiplexedConnection} that carries all relay connections of the
+ * allocation. In addition it holds the {@link TrafficMeter TrafficMeters} that
+ * count and limit the data of all relay connections of the allocation, one
+ * for each direction.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+public final class RelayAllocation {
+
+    private final UUID allocationId;
+    private final BlockingQueue<PreboundConnection> preboundConnections = new ArrayBlockingQueue<PreboundConnection>(
+            Constants.MAX_PREBOUND_CONNECTIONS);
+    private final int bandwidth;
+    private final TrafficMeter peerToClientMeter;
+    private final TrafficMeter clientToPeerMeter;
+    private MultiplexedConnection multiplexedConnection;
+    private boolean closed;
+
+    /**
+     * Creates a new {@link RelayAllocation} with unlimited bandwidth.
+     * 
+     * @param allocationId
+     *            the id of the allocation
+     */
+    RelayAllocation(UUID allocationId) {
+        this(allocationId, 0, 1);
+    }
+
+    /**
+     * Creates a new {@link RelayAllocation}.
+     * 
+     * @param allocationId
+     *            the id of the allocation
+     * @param bandwidth
+     *            the bandwidth in bytes per second for each direction, or 0
+     *            for an unlimited bandwidth
+     * @param burstBytes
+     *            the burst size of the token buckets that limit the bandwidth
+     */
+    RelayAllocation(UUID allocationId, int bandwidth, int burstBytes) {
+        this.allocationId = allocationId;
+        this.bandwidth = bandwidth;
+        if (bandwidth > 0) {
+            this.peerToClientMeter = new TrafficMeter(new TokenBucket(bandwidth, burstBytes));
+            this.clientToPeerMeter = new TrafficMeter(new TokenBucket(bandwidth, burstBytes));
+        } else {
+            this.peerToClientMeter = new TrafficMeter();
+            this.clientToPeerMeter = new TrafficMeter();
+        }
+    }
+
+    /**
+     * Returns the id of this allocation.
+     * 
+     * @return the id of this allocation
+     */
+    public UUID getAllocationId() {
+        return allocationId;
+    }
+
+    /**
+     * Returns the bandwidth of this allocation.
+     * 
+     * @return the bandwidth in bytes per second for each direction, or 0 for
+     *         an unlimited bandwidth
+     */
+    public int getBandwidth() {
+        return bandwidth;
+    }
+
+    /**
+     * Returns the meter for the data that is relayed from the peers to the
+     * client.
+     * 
+     * @return the meter for the direction from the peers to the client
+     */
+    public TrafficMeter getPeerToClientMeter() {
+        return peerToClientMeter;
+    }
+
+    /**
+     * Returns the meter for the data that is relayed from the client to the
+     * peers.
+     * 
+     * @return the meter for the direction from the client to the peers
+     */
+    public TrafficMeter getClientToPeerMeter() {
+        return clientToPeerMeter;
+    }
+
+    /**
+     * Adds an idle pre-bound data connection to this allocation.
+     * 
+     * @param prebound
+     *            the pre-bound data connection
+     * @return true if the connection was added, false if this allocation has
+     *         already {@link Constants#MAX_PREBOUND_CONNECTIONS} idle
+     *         connections or is closed
+     */
+    synchronized boolean addPreboundConnection(PreboundConnection prebound) {
+        // offered under the lock, so close() either rejects or drains it
+        if (closed) {
+            return false;
+        }
+        return preboundConnections.offer(prebound);
+    }
+
+    /**
+     * Takes an idle pre-bound data connection of this allocation.
+     * 
+     * @return an idle pre-bound data connection, or null if there is none
+     */
+    PreboundConnection pollPreboundConnection() {
+        return preboundConnections.poll();
+    }
+
+    /**
+     * Sets the multiplexed connection of this allocation. A previous
+     * multiplexed connection gets closed.
+     * 
+     * @param connection
+     *            the new multiplexed connection
+     * @return true if the connection was set, false if this allocation is
+     *         closed
+     */
+    synchronized boolean setMultiplexedConnection(MultiplexedConnection connection) {
+        if (closed) {
+            return false;
+        }
+        if (multiplexedConnection != null) {
+            multiplexedConnection.close();
+        }
+        multiplexedConnection = connection;
+        return true;
+    }
+
+    /**
+     * Returns the multiplexed connection of this allocation.
+     * 
+     * @return the multiplexed connection, or null if the client has no open
+     *         multiplexed connection
+     */
+    synchronized MultiplexedConnection getMultiplexedConnection() {
+        if (multiplexedConnection != null && multiplexedConnection.isClosed()) {
+            multiplexedConnection = null;
+        }
+        return multiplexedConnection;
+    }
+
+    /**
+     * Closes all idle pre-bound data connections and the multiplexed
+     * connection of this allocation.
+     */
+    void close() {
+        synchronized (this) {
+            closed = true;
+            if (multiplexedConnection != null) {
+                multiplexedConnection.close();
+                multiplexedConnection = null;
+            }
+        }
+        PreboundConnection prebound;
+        while ((prebound = preboundConnections.poll()) != null) {
+            try {
+                prebound.getSocket().close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+}
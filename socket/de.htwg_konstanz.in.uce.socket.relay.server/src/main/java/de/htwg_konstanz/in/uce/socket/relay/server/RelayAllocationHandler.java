@@ -18,26 +18,26 @@
 package de.htwg_konstanz.in.uce.socket.relay.server;
 
 import java.io.IOException;
-import java.net.BindException;
 import java.net.InetSocketAddress;
 import java.net.ServerSocket;
 import java.net.Socket;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import de.htwg_konstanz.in.helper.sockets.ListenerThread;
+import de.htwg_konstanz.in.helper.sockets.PortAllocator;
 import de.htwg_konstanz.in.uce.messages.ErrorCode.ErrorCodes;
 import de.htwg_konstanz.in.uce.messages.SocketEndpoint;
 import de.htwg_konstanz.in.uce.messages.SocketEndpoint.EndpointClass;
 import de.htwg_konstanz.in.uce.messages.UceMessage;
+import de.htwg_konstanz.in.uce.messages.UniqueId;
+import de.htwg_konstanz.in.uce.socket.relay.messages.Bandwidth;
 import de.htwg_konstanz.in.uce.socket.relay.messages.Lifetime;
 import de.htwg_konstanz.in.uce.socket.relay.messages.MessageWriter;
+import de.htwg_konstanz.in.uce.socket.relay.messages.RequestedTransport;
+import de.htwg_konstanz.in.uce.socket.relay.messages.RequestedTransport.Transport;
 
 /**
  * Class to handle allocation requests from clients.
@@ -47,17 +47,18 @@ import de.htwg_konstanz.in.uce.socket.relay.messages.MessageWriter;
  */
 final class RelayAllocationHandler {
     private static final Logger logger = LoggerFactory.getLogger(RelayAllocationHandler.class);
-    public static final int MIN_PORT = 10301;
-    public static final int MAX_PORT = 10401;
 
     private final Socket controlConnection;
     private final MessageWriter controlConnectionWriter;
-    private final Map<UUID, BlockingQueue<Socket>> connIDToQueue;
+    private final PendingBindRegistry pendingBinds;
+    private final Map<UUID, RelayAllocation> allocIDToAllocation;
     private final UceMessage relayAllocationMessage;
-    // has to be unbounded
-    private final Executor controlConnectionHandlerExecutor;
-    // has to be unbounded
-    private final Executor relayExecutor;
+    private final AllocationEventLoop allocationEventLoop;
+    private final PortAllocator portAllocator;
+    private final BandwidthPolicy bandwidthPolicy;
+    private final RelayServerMetrics metrics;
+    private final RelayEngine relayEngine;
+    private final DatagramRelayEngine datagramRelayEngine;
 
     /**
      * Creates a new {@link RelayAllocationHandler}
@@ -65,35 +66,66 @@ final class RelayAllocationHandler {
      * @param controlConnection
      *            the socket of the control connection to the client
      * @param controlConnectionWriter
-     *            a {@link MessageWriter} to the control connection
-     * @param connIDToQueue
-     *            map to match relay connection between client and peers
+     *            a {@link MessageWriter} to the blocking control connection.
+     *            Gets used only for error responses; once the allocation is
+     *            created, the control connection is written through the
+     *            write queue of a {@link ChannelOutputStream}
+     * @param pendingBinds
+     *            registry to match relay connection between client and peers
+     * @param allocIDToAllocation
+     *            map to match data connections that are established in
+     *            advance to the allocations of the clients
      * @param relayAllocationMessage
      *            the allocation request message
-     * @param controlConnectionHandlerExecutor
-     *            the executor that gets used to execute the
-     *            {@link RefreshMessageHandlerTask} for the given control
-     *            connection
-     * @param relayExecutor
-     *            the executor that gets used to execute task for the real relay
+     * @param allocationEventLoop
+     *            the event loop that watches the control connection and the
+     *            peer server socket of the new allocation
+     * @param portAllocator
+     *            the allocator that reserves the port of the peer server
+     *            socket
+     * @param bandwidthPolicy
+     *            the policy for the bandwidth of the new allocation
+     * @param metrics
+     *            the metrics of the relay server
+     * @param relayEngine
+     *            the {@link RelayEngine} that gets used for the real relay
      *            stuff
+     * @param datagramRelayEngine
+     *            the engine that relays the datagrams of UDP allocations, or
+     *            null if UDP allocations are not supported
      */
     public RelayAllocationHandler(Socket controlConnection, MessageWriter controlConnectionWriter,
-            Map<UUID, BlockingQueue<Socket>> connIDToQueue, UceMessage relayAllocationMessage,
-            Executor controlConnectionHandlerExecutor, Executor relayExecutor) {
+            PendingBindRegistry pendingBinds,
+            Map<UUID, RelayAllocation> allocIDToAllocation,
+            UceMessage relayAllocationMessage, AllocationEventLoop allocationEventLoop,
+            PortAllocator portAllocator, BandwidthPolicy bandwidthPolicy,
+            RelayServerMetrics metrics, RelayEngine relayEngine,
+            DatagramRelayEngine datagramRelayEngine) {
         this.controlConnection = controlConnection;
         this.controlConnectionWriter = controlConnectionWriter;
-        this.connIDToQueue = connIDToQueue;
+        this.pendingBinds = pendingBinds;
+        this.allocIDToAllocation = allocIDToAllocation;
         this.relayAllocationMessage = relayAllocationMessage;
-        this.controlConnectionHandlerExecutor = controlConnectionHandlerExecutor;
-        this.relayExecutor = relayExecutor;
+        this.allocationEventLoop = allocationEventLoop;
+        this.portAllocator = portAllocator;
+        this.bandwidthPolicy = bandwidthPolicy;
+        this.metrics = metrics;
+        this.relayEngine = relayEngine;
+        this.datagramRelayEngine = datagramRelayEngine;
     }
 
     /**
-     * Handles the allocation request message. Creates a new ServerSocket and
-     * listener thread to handle connection requests from peers. If there is no
-     * free port available in the specified port range, an
-     * "Insufficient Capacity" error is returned to the client.
+     * Handles the allocation request message. Creates a new ServerSocket for
+     * connection requests from peers and hands it over to the
+     * {@link AllocationEventLoop} together with the control connection. If
+     * there is no free port available in the port range of the
+     * {@link PortAllocator}, an "Insufficient Capacity" error is returned to
+     * the client. The success
+     * response contains the id of the allocation that the client can use to
+     * establish pre-bound data connections. The bandwidth that the client
+     * requested is capped by the {@link BandwidthPolicy} and returned in the
+     * success response if it is limited. If the client requested the UDP
+     * transport, an UDP allocation is created instead.
      */
     public void handle() {
         try {
@@ -102,29 +134,52 @@ final class RelayAllocationHandler {
             if (relayAllocationMessage.hasAttribute(Lifetime.class)) {
                 lifetime = relayAllocationMessage.getAttribute(Lifetime.class).getLifeTime();
             }
+            // get Bandwidth
+            int requestedBandwidth = 0;
+            if (relayAllocationMessage.hasAttribute(Bandwidth.class)) {
+                requestedBandwidth = relayAllocationMessage.getAttribute(Bandwidth.class)
+                        .getBytesPerSecond();
+            }
+            if (relayAllocationMessage.hasAttribute(RequestedTransport.class)
+                    && relayAllocationMessage.getAttribute(RequestedTransport.class)
+                            .getTransport() == Transport.UDP) {
+                handleUdp(lifetime, requestedBandwidth);
+                return;
+            }
             // Create ServerSocket for peers
-            ServerSocket peerSS = createServerSocketWithinPortRange();
+            ServerSocket peerSS = portAllocator.createServerSocket(ChannelServerSocketFactory
+                    .getInstance());
             if (peerSS == null) {
                 logger.info("Insufficient Capacity");
                 UceMessage errorResponse = relayAllocationMessage.buildErrorResponse(
                         ErrorCodes.INSUFFICIENT_CAPACITY, "Insufficient Capacity");
                 controlConnectionWriter.writeMessage(errorResponse);
             } else {
-                // TODO einzelne listener tasks in threadpool, listener auch in
-                // pool?
                 logger.info("Created allocation on {}", peerSS.getLocalSocketAddress());
-                ListenerThread peerListenerThread = new ListenerThread(peerSS,
-                        Executors.newCachedThreadPool(), new PeerHandlerTaskFactory(connIDToQueue,
-                                controlConnectionWriter, relayExecutor));
-                controlConnectionHandlerExecutor.execute(new RefreshMessageHandlerTask(
-                        controlConnection, controlConnectionWriter, lifetime, peerListenerThread));
-                peerListenerThread.start();
+                RelayAllocation allocation = new RelayAllocation(UUID.randomUUID(),
+                        bandwidthPolicy.getBandwidth(requestedBandwidth),
+                        bandwidthPolicy.getBurstBytes());
+                allocIDToAllocation.put(allocation.getAllocationId(), allocation);
+                ChannelOutputStream controlConnectionStream = new ChannelOutputStream(
+                        controlConnection.getChannel(), allocationEventLoop);
+                MessageWriter queuedWriter = new MessageWriter(controlConnectionStream);
+                ControlConnectionHandler handler = new ControlConnectionHandler(
+                        controlConnection, controlConnectionStream, peerSS,
+                        new PeerHandlerTaskFactory(pendingBinds, allocation,
+                                queuedWriter, metrics, relayEngine),
+                        allocIDToAllocation,
+                        allocation, allocationEventLoop, portAllocator);
+                handler.start(lifetime);
                 UceMessage successResponse = relayAllocationMessage.buildSuccessResponse();
                 successResponse.addAttribute(
                         new SocketEndpoint(new InetSocketAddress(peerSS.getInetAddress(), peerSS
                                 .getLocalPort()), EndpointClass.RELAY)).addAttribute(
-                        new Lifetime(lifetime));
-                controlConnectionWriter.writeMessage(successResponse);
+                        new Lifetime(lifetime)).addAttribute(new UniqueId(allocation.getAllocationId()));
+                if (allocation.getBandwidth() > 0) {
+                    successResponse.addAttribute(new Bandwidth(allocation.getBandwidth()));
+                }
+                // the control connection belongs to the event loop from now on
+                queuedWriter.writeMessage(successResponse);
             }
         } catch (IOException e) {
             logger.error("IOException while handling allocation request: {}", e);
@@ -132,23 +187,54 @@ final class RelayAllocationHandler {
     }
 
     /**
-     * Tries to to create and bind a new ServerSocket in the specified port
-     * range.
+     * Creates an UDP allocation with a relay channel for the datagrams of the
+     * peers. If the relay server does not support UDP allocations, a "Bad
+     * Request" error is returned to the client. If there is no free port, an
+     * "Insufficient Capacity" error is returned.
      * 
-     * @return a new and bound ServerSocket, or null if no ServerSocket could be
-     *         bounded in the specified port range.
+     * @param lifetime
+     *            the requested lifetime of the allocation
+     * @param requestedBandwidth
+     *            the requested bandwidth of the allocation
      * @throws IOException
-     *             if an I/O error occurs when opening the socket.
+     *             if an I/O error occurs
      */
-    private ServerSocket createServerSocketWithinPortRange() throws IOException {
-        int port = MIN_PORT;
-        do {
-            try {
-                return new ServerSocket(port);
-            } catch (BindException be) {
-                port++;
-            }
-        } while (port <= MAX_PORT);
-        return null;
+    private void handleUdp(int lifetime, int requestedBandwidth) throws IOException {
+        if (datagramRelayEngine == null) {
+            logger.info("UDP allocations are not supported");
+            UceMessage errorResponse = relayAllocationMessage.buildErrorResponse(
+                    ErrorCodes.BAD_REQUEST, "UDP allocations are not supported");
+            controlConnectionWriter.writeMessage(errorResponse);
+            return;
+        }
+        RelayAllocation allocation = new RelayAllocation(UUID.randomUUID(),
+                bandwidthPolicy.getBandwidth(requestedBandwidth), bandwidthPolicy.getBurstBytes());
+        UdpAllocation udpAllocation = datagramRelayEngine.allocate(allocation, portAllocator);
+        if (udpAllocation == null) {
+            logger.info("Insufficient Capacity");
+            UceMessage errorResponse = relayAllocationMessage.buildErrorResponse(
+                    ErrorCodes.INSUFFICIENT_CAPACITY, "Insufficient Capacity");
+            controlConnectionWriter.writeMessage(errorResponse);
+            return;
+        }
+        logger.info("Created UDP allocation on port {}", udpAllocation.getPort());
+        allocIDToAllocation.put(allocation.getAllocationId(), allocation);
+        ChannelOutputStream controlConnectionStream = new ChannelOutputStream(
+                controlConnection.getChannel(), allocationEventLoop);
+        ControlConnectionHandler handler = new ControlConnectionHandler(controlConnection,
+                controlConnectionStream, udpAllocation, allocIDToAllocation, allocationEventLoop);
+        handler.start(lifetime);
+        UceMessage successResponse = relayAllocationMessage.buildSuccessResponse();
+        successResponse.addAttribute(
+                new SocketEndpoint(new InetSocketAddress(udpAllocation.getRelayChannel()
+                        .socket().getLocalAddress(), udpAllocation.getPort()),
+                        EndpointClass.RELAY)).addAttribute(new Lifetime(lifetime))
+                .addAttribute(new UniqueId(allocation.getAllocationId()))
+                .addAttribute(new RequestedTransport(Transport.UDP));
+        if (allocation.getBandwidth() > 0) {
+            successResponse.addAttribute(new Bandwidth(allocation.getBandwidth()));
+        }
+        // the control connection belongs to the event loop from now on
+        new MessageWriter(controlConnectionStream).writeMessage(successResponse);
     }
 }
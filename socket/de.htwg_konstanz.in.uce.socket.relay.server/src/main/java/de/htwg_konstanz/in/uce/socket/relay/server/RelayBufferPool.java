@@ -0,0 +1,165 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.socket.relay.server;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of direct {@link ByteBuffer ByteBuffers} of the same size that are used
+ * to relay data. Reading from a channel into a direct buffer and writing from
+ * it saves the copy to a temporary direct buffer that the JDK does for heap
+ * buffers. Since allocating direct buffers is expensive, released buffers are
+ * kept for reuse up to a configurable number of idle buffers. One pool is
+ * shared by all relay connections of a {@link RelayEngine}.
+ * <p>
+ * The pool keeps track of the number of buffers and bytes that are currently
+ * handed out. This class is thread-safe.
+ *
+ * @author Daniel Maier
+ *
+ */
+public final class RelayBufferPool {
+
+    private final int bufferSize;
+    private final int maxIdleBuffers;
+    private final Queue<ByteBuffer> idleBuffers = new ConcurrentLinkedQueue<ByteBuffer>();
+    private final AtomicInteger idleCount = new AtomicInteger();
+    private final AtomicInteger buffersInUse = new AtomicInteger();
+    private final AtomicLong allocatedBuffers = new AtomicLong();
+
+    /**
+     * Creates a new {@link RelayBufferPool} with buffers of
+     * {@link Constants#RELAY_BUFFER_SIZE} bytes that keeps up to
+     * {@link Constants#RELAY_BUFFER_POOL_SIZE} idle buffers.
+     */
+    public RelayBufferPool() {
+        this(Constants.RELAY_BUFFER_SIZE, Constants.RELAY_BUFFER_POOL_SIZE);
+    }
+
+    /**
+     * Creates a new {@link RelayBufferPool}.
+     *
+     * @param bufferSize
+     *            the size of each buffer in bytes
+     * @param maxIdleBuffers
+     *            the maximum number of released buffers that are kept for
+     *            reuse
+     * @throws IllegalArgumentException
+     *             if bufferSize is not positive or maxIdleBuffers is negative
+     */
+    public RelayBufferPool(int bufferSize, int maxIdleBuffers) {
+        if (bufferSize <= 0 || maxIdleBuffers < 0) {
+            throw new IllegalArgumentException("Illegal pool configuration: bufferSize "
+                    + bufferSize + ", maxIdleBuffers " + maxIdleBuffers);
+        }
+        this.bufferSize = bufferSize;
+        this.maxIdleBuffers = maxIdleBuffers;
+    }
+
+    /**
+     * Returns a cleared buffer from the pool. A new direct buffer is allocated
+     * if the pool has no idle buffer. The buffer has to be given back via
+     * {@link #release(ByteBuffer)} if it is not needed anymore.
+     *
+     * @return a cleared direct buffer
+     */
+    public ByteBuffer acquire() {
+        ByteBuffer buffer = idleBuffers.poll();
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(bufferSize);
+            allocatedBuffers.incrementAndGet();
+        } else {
+            idleCount.decrementAndGet();
+        }
+        buffersInUse.incrementAndGet();
+        return buffer;
+    }
+
+    /**
+     * Gives back a buffer that was acquired from this pool before. The buffer
+     * must not be used by the caller afterwards.
+     *
+     * @param buffer
+     *            the buffer to be given back
+     * @throws NullPointerException
+     *             if the given buffer is null
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null) {
+            throw new NullPointerException();
+        }
+        buffersInUse.decrementAndGet();
+        if (idleCount.incrementAndGet() <= maxIdleBuffers) {
+            buffer.clear();
+            idleBuffers.add(buffer);
+        } else {
+            // pool is full, let the garbage collector free the buffer
+            idleCount.decrementAndGet();
+        }
+    }
+
+    /**
+     * Returns the size of each buffer of this pool in bytes.
+     *
+     * @return the size of each buffer in bytes
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Returns the number of buffers that are currently handed out.
+     *
+     * @return the number of buffers in use
+     */
+    public int getBuffersInUse() {
+        return buffersInUse.get();
+    }
+
+    /**
+     * Returns the number of bytes of all buffers that are currently handed
+     * out.
+     *
+     * @return the number of bytes in use
+     */
+    public long getBytesInUse() {
+        return (long) buffersInUse.get() * bufferSize;
+    }
+
+    /**
+     * Returns the number of idle buffers that are kept for reuse.
+     *
+     * @return the number of idle buffers
+     */
+    public int getIdleBuffers() {
+        return idleCount.get();
+    }
+
+    /**
+     * Returns the total number of buffers that were allocated by this pool.
+     *
+     * @return the total number of allocated buffers
+     */
+    public long getAllocatedBuffers() {
+        return allocatedBuffers.get();
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.socket.relay.server;
+
+import java.net.Socket;
+
+/**
+ * A {@link RelayEngine} does the real relay stuff: it transports data between
+ * one client and one peer in both directions until both sides have closed
+ * their connections. The engine that gets used is chosen when the
+ * {@link RelayServer} is created.
+ *
+ * @author Daniel Maier
+ *
+ */
+public interface RelayEngine {
+
+    /**
+     * Starts relaying data between the given peer and client in both
+     * directions. This method must not block until the relaying has finished.
+     * The relayed data of each direction is recorded by the given meters. If
+     * a meter demands a pause, no more data is read for this direction until
+     * the pause is over.
+     *
+     * @param peerSocket
+     *            socket to the peer
+     * @param clientSocket
+     *            socket to the client
+     * @param peerToClientMeter
+     *            meter for the data from the peer to the client
+     * @param clientToPeerMeter
+     *            meter for the data from the client to the peer
+     */
+    void relay(Socket peerSocket, Socket clientSocket, TrafficMeter peerToClientMeter,
+            TrafficMeter clientToPeerMeter);
+
+    /**
+     * Returns the {@link RelayBufferPool} from that this engine takes its
+     * relay buffers.
+     *
+     * @return the buffer pool of this engine
+     */
+    RelayBufferPool getBufferPool();
+
+    /**
+     * Returns the number of relay connections that are currently handled by
+     * this engine.
+     *
+     * @return the number of active relay connections
+     */
+    int getActiveRelays();
+
+    /**
+     * Returns the histogram of the number of bytes that were relayed in both
+     * directions per finished relay connection.
+     *
+     * @return the histogram of the relayed bytes
+     */
+    Histogram getRelayedBytes();
+
+    /**
+     * Stops this {@link RelayEngine}. All relay connections that are currently
+     * handled by this engine get terminated.
+     */
+    void shutdown();
+}
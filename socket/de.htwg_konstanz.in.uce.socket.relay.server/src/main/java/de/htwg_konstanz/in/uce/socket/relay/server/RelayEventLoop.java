@@ -0,0 +1,607 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.socket.relay.server;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.htwg_konstanz.in.uce.socket.relay.messages.MultiplexedSocket;
+
+/**
+ * Event loop of a {@link SelectorRelayEngine}. Relays data of many relay
+ * connections in both directions with one selector and one thread. Data that
+ * is read from one side of a relay connection is buffered until it could be
+ * written to the other side. As long as the buffer of a direction is full, no
+ * more data is read from its source.
+ * <p>
+ * The data of each direction is recorded by a {@link TrafficMeter}. If the
+ * meter demands a pause, the direction is throttled: no more data is read from
+ * its source until the pause is over. The selection timeout of the event loop
+ * is shortened to the end of the earliest pause, so no timer thread is needed.
+ * <p>
+ * The client side of a relay connection may also be a stream of a
+ * {@link de.htwg_konstanz.in.uce.socket.relay.messages.MultiplexedConnection}.
+ * Such a stream has no selectable channel. Instead the stream notifies the
+ * event loop when data, the end of the stream or new credit was received, and
+ * the event loop then transfers the data of the stream with its non-blocking
+ * operations. So no threads are needed per stream either.
+ *
+ * @author Daniel Maier
+ *
+ */
+final class RelayEventLoop implements Runnable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RelayEventLoop.class);
+    private final Selector selector;
+    private final RelayBufferPool bufferPool;
+    private final AtomicInteger activeRelays;
+    private final Histogram relayedBytes;
+    private final Queue<RelayPair> pendingPairs = new ConcurrentLinkedQueue<RelayPair>();
+    private final Queue<RelayEnd> readyStreamEnds = new ConcurrentLinkedQueue<RelayEnd>();
+    // only accessed by the event loop thread
+    private final List<Direction> throttledDirections = new ArrayList<Direction>();
+    private volatile boolean running = true;
+
+    /**
+     * Creates a new {@link RelayEventLoop}.
+     *
+     * @param bufferPool
+     *            the pool from that the buffers for each direction of a relay
+     *            connection are taken
+     * @param activeRelays
+     *            counter of the active relay connections
+     * @param relayedBytes
+     *            histogram of the relayed bytes per relay connection
+     * @throws IOException
+     *             if the selector could not be opened
+     */
+    RelayEventLoop(RelayBufferPool bufferPool, AtomicInteger activeRelays,
+            Histogram relayedBytes) throws IOException {
+        this.selector = Selector.open();
+        this.bufferPool = bufferPool;
+        this.activeRelays = activeRelays;
+        this.relayedBytes = relayedBytes;
+    }
+
+    /**
+     * Hands over a new relay connection to this event loop. The channels get
+     * switched to non-blocking mode by the event loop thread. Can be called
+     * from any thread.
+     *
+     * @param peerChannel
+     *            channel to the peer
+     * @param clientChannel
+     *            channel to the client
+     * @param peerToClientMeter
+     *            meter for the data from the peer to the client
+     * @param clientToPeerMeter
+     *            meter for the data from the client to the peer
+     */
+    void register(SocketChannel peerChannel, SocketChannel clientChannel,
+            TrafficMeter peerToClientMeter, TrafficMeter clientToPeerMeter) {
+        register(new RelayPair(new SocketRelayChannel(peerChannel), new SocketRelayChannel(
+                clientChannel), peerToClientMeter, clientToPeerMeter));
+    }
+
+    /**
+     * Hands over a new relay connection whose client side is a multiplexed
+     * stream to this event loop. Can be called from any thread.
+     *
+     * @param peerChannel
+     *            channel to the peer
+     * @param clientStream
+     *            stream to the client
+     * @param peerToClientMeter
+     *            meter for the data from the peer to the client
+     * @param clientToPeerMeter
+     *            meter for the data from the client to the peer
+     */
+    void register(SocketChannel peerChannel, MultiplexedSocket clientStream,
+            TrafficMeter peerToClientMeter, TrafficMeter clientToPeerMeter) {
+        register(new RelayPair(new SocketRelayChannel(peerChannel), new StreamRelayChannel(
+                clientStream), peerToClientMeter, clientToPeerMeter));
+    }
+
+    private void register(RelayPair pair) {
+        if (!running) {
+            pair.close();
+            return;
+        }
+        pendingPairs.add(pair);
+        selector.wakeup();
+    }
+
+    /**
+     * Stops this event loop. All relay connections of this event loop get
+     * closed.
+     */
+    void shutdown() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Waits for ready channels and relays the available data until the event
+     * loop gets shut down.
+     */
+    public void run() {
+        try {
+            while (running) {
+                long timeout = resumeThrottledDirections();
+                if (readyStreamEnds.isEmpty()) {
+                    selector.select(timeout);
+                } else {
+                    selector.selectNow();
+                }
+                registerPendingPairs();
+                Iterator<SelectionKey> it = selector.selectedKeys().iterator();
+                while (it.hasNext()) {
+                    SelectionKey key = it.next();
+                    it.remove();
+                    handle((RelayEnd) key.attachment(), key);
+                }
+                handleReadyStreamEnds();
+            }
+        } catch (IOException e) {
+            logger.error("IOException in relay event loop: {}", e);
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                ((RelayEnd) key.attachment()).pair.close();
+            }
+            RelayPair pair;
+            while ((pair = pendingPairs.poll()) != null) {
+                pair.close();
+            }
+            try {
+                selector.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+    /**
+     * Resumes reading for the throttled directions whose pause is over.
+     *
+     * @return the time in milliseconds until the earliest pause of the
+     *         remaining throttled directions is over, or 0 if no direction is
+     *         throttled anymore
+     */
+    private long resumeThrottledDirections() {
+        long now = System.nanoTime();
+        long nextResume = Long.MAX_VALUE;
+        Iterator<Direction> it = throttledDirections.iterator();
+        while (it.hasNext()) {
+            Direction direction = it.next();
+            long remaining = direction.resumeTime - now;
+            if (remaining <= 0) {
+                it.remove();
+                direction.resumeTime = 0;
+                direction.throttled = false;
+                try {
+                    direction.pair.updateInterestOps();
+                    direction.pair.scheduleStreamEnds();
+                } catch (CancelledKeyException e) {
+                    direction.pair.close();
+                }
+            } else {
+                nextResume = Math.min(nextResume, remaining);
+            }
+        }
+        if (nextResume == Long.MAX_VALUE) {
+            return 0;
+        }
+        return Math.max(1, TimeUnit.NANOSECONDS.toMillis(nextResume));
+    }
+
+    /**
+     * Registers the relay connections that were handed over since the last
+     * selection.
+     */
+    private void registerPendingPairs() {
+        RelayPair pair;
+        while ((pair = pendingPairs.poll()) != null) {
+            try {
+                pair.register();
+            } catch (IOException e) {
+                logger.error("IOException while registering relay connection: {}", e);
+                pair.close();
+            }
+        }
+    }
+
+    /**
+     * Handles the stream ends that were notified since the last selection.
+     * Stream ends that get notified again meanwhile are handled in the next
+     * round, so the selected channels do not starve.
+     */
+    private void handleReadyStreamEnds() {
+        for (int i = readyStreamEnds.size(); i > 0; i--) {
+            RelayEnd end = readyStreamEnds.poll();
+            if (end == null) {
+                return;
+            }
+            end.scheduled.set(false);
+            handle(end, null);
+        }
+    }
+
+    /**
+     * Reads and writes data of the relay connection to that the given end
+     * belongs.
+     *
+     * @param end
+     *            the end that is ready
+     * @param key
+     *            the selected key of the end, or null if the end is a stream
+     *            end that was notified
+     */
+    private void handle(RelayEnd end, SelectionKey key) {
+        RelayPair pair = end.pair;
+        if (pair.closed) {
+            return;
+        }
+        try {
+            if (key != null) {
+                if (key.isReadable()) {
+                    end.inbound.read();
+                }
+                if (key.isValid() && key.isWritable()) {
+                    end.outbound.write();
+                }
+            }
+            // data moved by a channel end may let the stream end progress
+            pair.pumpStreamEnds();
+            if (pair.isFinished()) {
+                logger.debug("Relay connection finished");
+                pair.close();
+            } else {
+                pair.updateInterestOps();
+            }
+        } catch (IOException e) {
+            logger.debug("IOException while relaying: {}", e.getMessage());
+            pair.close();
+        } catch (CancelledKeyException e) {
+            pair.close();
+        }
+    }
+
+    /**
+     * Channel of one side of a relay connection. All operations must not
+     * block.
+     */
+    private interface RelayChannel {
+
+        /**
+         * Registers the given end of a relay connection for this channel with
+         * the event loop.
+         */
+        void register(RelayEnd end) throws IOException;
+
+        int read(ByteBuffer dst) throws IOException;
+
+        int write(ByteBuffer src) throws IOException;
+
+        void shutdownInput() throws IOException;
+
+        void shutdownOutput() throws IOException;
+
+        void close();
+    }
+
+    /**
+     * {@link RelayChannel} of a {@link SocketChannel} that gets registered
+     * with the selector.
+     */
+    private final class SocketRelayChannel implements RelayChannel {
+        private final SocketChannel channel;
+
+        SocketRelayChannel(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        public void register(RelayEnd end) throws IOException {
+            channel.configureBlocking(false);
+            end.key = channel.register(selector, SelectionKey.OP_READ, end);
+        }
+
+        public int read(ByteBuffer dst) throws IOException {
+            return channel.read(dst);
+        }
+
+        public int write(ByteBuffer src) throws IOException {
+            return channel.write(src);
+        }
+
+        public void shutdownInput() throws IOException {
+            channel.shutdownInput();
+        }
+
+        public void shutdownOutput() throws IOException {
+            channel.shutdownOutput();
+        }
+
+        public void close() {
+            try {
+                channel.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+    /**
+     * {@link RelayChannel} of a {@link MultiplexedSocket}. The end of the
+     * stream gets handled whenever the stream notifies that it may make
+     * progress.
+     */
+    private final class StreamRelayChannel implements RelayChannel {
+        private final MultiplexedSocket stream;
+
+        StreamRelayChannel(MultiplexedSocket stream) {
+            this.stream = stream;
+        }
+
+        public void register(final RelayEnd end) {
+            stream.setStreamListener(new MultiplexedSocket.StreamListener() {
+                public void streamReady(MultiplexedSocket stream) {
+                    schedule(end);
+                }
+            });
+            // data may have been received before the listener was set
+            schedule(end);
+        }
+
+        public int read(ByteBuffer dst) throws IOException {
+            return stream.read(dst);
+        }
+
+        public int write(ByteBuffer src) throws IOException {
+            return stream.write(src);
+        }
+
+        public void shutdownInput() throws IOException {
+            stream.shutdownInput();
+        }
+
+        public void shutdownOutput() throws IOException {
+            stream.shutdownOutput();
+        }
+
+        public void close() {
+            stream.setStreamListener(null);
+            try {
+                stream.close();
+            } catch (IOException ignore) {
+            }
+        }
+    }
+
+    /**
+     * Schedules the given stream end for handling by the event loop thread.
+     * Can be called from any thread.
+     *
+     * @param end
+     *            the stream end
+     */
+    private void schedule(RelayEnd end) {
+        if (!end.scheduled.getAndSet(true)) {
+            readyStreamEnds.add(end);
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * A relay connection between one client and one peer.
+     */
+    private final class RelayPair {
+        private final RelayChannel peerChannel;
+        private final RelayChannel clientChannel;
+        private final RelayEnd peerEnd;
+        private final RelayEnd clientEnd;
+        private final Direction peerToClient;
+        private final Direction clientToPeer;
+        private boolean closed;
+
+        RelayPair(RelayChannel peerChannel, RelayChannel clientChannel,
+                TrafficMeter peerToClientMeter, TrafficMeter clientToPeerMeter) {
+            this.peerChannel = peerChannel;
+            this.clientChannel = clientChannel;
+            this.peerToClient = new Direction(this, peerChannel, clientChannel, peerToClientMeter);
+            this.clientToPeer = new Direction(this, clientChannel, peerChannel, clientToPeerMeter);
+            this.peerEnd = new RelayEnd(this, peerToClient, clientToPeer);
+            this.clientEnd = new RelayEnd(this, clientToPeer, peerToClient);
+            activeRelays.incrementAndGet();
+        }
+
+        void register() throws IOException {
+            peerChannel.register(peerEnd);
+            clientChannel.register(clientEnd);
+        }
+
+        void pumpStreamEnds() throws IOException {
+            peerEnd.pumpStream();
+            clientEnd.pumpStream();
+        }
+
+        void scheduleStreamEnds() {
+            if (peerEnd.key == null) {
+                schedule(peerEnd);
+            }
+            if (clientEnd.key == null) {
+                schedule(clientEnd);
+            }
+        }
+
+        void updateInterestOps() {
+            if (closed) {
+                return;
+            }
+            peerEnd.updateInterestOps();
+            clientEnd.updateInterestOps();
+        }
+
+        boolean isFinished() {
+            return peerEnd.inbound.finished && clientEnd.inbound.finished;
+        }
+
+        void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            activeRelays.decrementAndGet();
+            relayedBytes.record(peerToClient.readBytes + clientToPeer.readBytes);
+            bufferPool.release(peerToClient.buffer);
+            bufferPool.release(clientToPeer.buffer);
+            peerChannel.close();
+            clientChannel.close();
+        }
+    }
+
+    /**
+     * One side of a relay connection. Gets attached to the selection key of
+     * its channel. Ends of multiplexed streams have no selection key.
+     */
+    private static final class RelayEnd {
+        private final RelayPair pair;
+        // data that is read from the channel of this end
+        private final Direction inbound;
+        // data that is written to the channel of this end
+        private final Direction outbound;
+        // whether this stream end waits in the queue of the ready stream ends
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private SelectionKey key;
+
+        RelayEnd(RelayPair pair, Direction inbound, Direction outbound) {
+            this.pair = pair;
+            this.inbound = inbound;
+            this.outbound = outbound;
+        }
+
+        void updateInterestOps() {
+            if (key == null) {
+                return;
+            }
+            int ops = 0;
+            if (inbound.wantsRead()) {
+                ops |= SelectionKey.OP_READ;
+            }
+            if (outbound.wantsWrite()) {
+                ops |= SelectionKey.OP_WRITE;
+            }
+            key.interestOps(ops);
+        }
+
+        /**
+         * Transfers as much data as possible without blocking if this end is a
+         * stream end. The data that is read is bounded by the window of the
+         * stream.
+         */
+        void pumpStream() throws IOException {
+            if (key != null) {
+                return;
+            }
+            boolean progress = true;
+            while (progress && inbound.wantsRead()) {
+                progress = inbound.read() > 0;
+            }
+            if (outbound.wantsWrite()) {
+                outbound.write();
+            }
+        }
+    }
+
+    /**
+     * One direction of a relay connection.
+     */
+    private final class Direction {
+        private final RelayPair pair;
+        private final RelayChannel source;
+        private final RelayChannel destination;
+        private final TrafficMeter meter;
+        // pooled direct buffer, always in fill mode between operations
+        private final ByteBuffer buffer;
+        private boolean endOfStream;
+        private boolean finished;
+        private boolean throttled;
+        private long resumeTime;
+        private long readBytes;
+
+        Direction(RelayPair pair, RelayChannel source, RelayChannel destination,
+                TrafficMeter meter) {
+            this.pair = pair;
+            this.source = source;
+            this.destination = destination;
+            this.meter = meter;
+            this.buffer = bufferPool.acquire();
+        }
+
+        int read() throws IOException {
+            int len = source.read(buffer);
+            if (len < 0) {
+                endOfStream = true;
+            } else if (len > 0) {
+                readBytes += len;
+            }
+            if (len > 0 && meter != null) {
+                long pause = meter.record(len);
+                if (pause > 0) {
+                    throttled = true;
+                    resumeTime = System.nanoTime() + pause;
+                    throttledDirections.add(this);
+                }
+            }
+            // try to write immediately to save a selection round trip
+            write();
+            return len;
+        }
+
+        void write() throws IOException {
+            buffer.flip();
+            destination.write(buffer);
+            buffer.compact();
+            if (endOfStream && buffer.position() == 0 && !finished) {
+                finished = true;
+                source.shutdownInput();
+                destination.shutdownOutput();
+            }
+        }
+
+        boolean wantsRead() {
+            return !endOfStream && !throttled && buffer.hasRemaining();
+        }
+
+        boolean wantsWrite() {
+            return buffer.position() > 0;
+        }
+    }
+}
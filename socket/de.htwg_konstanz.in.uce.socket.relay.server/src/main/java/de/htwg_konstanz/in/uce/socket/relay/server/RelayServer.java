@@ -18,20 +18,21 @@
 package de.htwg_konstanz.in.uce.socket.relay.server;
 
 import java.io.IOException;
-import java.net.Socket;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 
-import javax.net.ServerSocketFactory;
+import javax.management.JMException;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import de.htwg_konstanz.in.helper.sockets.ListenerThread;
+import de.htwg_konstanz.in.helper.sockets.PortAllocator;
 
 /**
  * A Server that implements TURN-like behavior, to relay TCP data. But it is NOT
@@ -46,6 +47,14 @@ import de.htwg_konstanz.in.helper.sockets.ListenerThread;
  * endpoints and for sending refresh messages. Data Connections are responsible
  * for sending connection bind requests and for the real relaying stuff.
  * 
+ * If a {@link DatagramRelayEngine} is given, clients can also request UDP
+ * allocations. The datagrams of UDP allocations are relayed by this engine.
+ * 
+ * The {@link RelayServerMetrics metrics} of a {@link RelayServer} get
+ * registered as MBeans at the platform MBean server when it is started.
+ * Additionally they can be scraped as plain text via
+ * {@link RelayServer#startMetricsEndpoint(int) startMetricsEndpoint(int)}.
+ * 
  * @author Daniel Maier
  * 
  */
@@ -53,6 +62,15 @@ public class RelayServer {
     private static final Logger logger = LoggerFactory.getLogger(RelayServer.class);
     public static final int RELAYSERVER_PORT = 10300;
     private final Thread listenerThread;
+    private final RelayEngine relayEngine;
+    private final AllocationEventLoop allocationEventLoop;
+    private final PortAllocator portAllocator;
+    private final Map<UUID, RelayAllocation> allocIDToAllocation;
+    private final PendingBindRegistry pendingBinds;
+    private final DatagramRelayEngine datagramRelayEngine;
+    private final RelayServerMetrics metrics;
+    private final String metricsName;
+    private MetricsEndpoint metricsEndpoint;
 
     /**
      * Creates a {@link RelayServer}. Has to be started via
@@ -66,21 +84,167 @@ public class RelayServer {
      *             if an I/O error occurs
      */
     public RelayServer(int port) throws IOException {
-        Map<UUID, BlockingQueue<Socket>> connIDToQueue = new ConcurrentHashMap<UUID, BlockingQueue<Socket>>();
-        // has to be unbounded
-        Executor controlConnectionHandlerExecutor = Executors.newCachedThreadPool();
-        // has to be unbounded
-        Executor relayExecutor = Executors.newCachedThreadPool();
-        listenerThread = new ListenerThread(port, ServerSocketFactory.getDefault(),
-                Executors.newCachedThreadPool(), new MessageDispatcherTaskFactory(connIDToQueue,
-                        controlConnectionHandlerExecutor, relayExecutor));
+        this(port, new BlockingRelayEngine());
+    }
+
+    /**
+     * Creates a {@link RelayServer} that uses the given {@link RelayEngine} to
+     * relay data between clients and peers. Has to be started via
+     * {@link RelayServer#start() start()} in order that it is able to handle
+     * incoming connections.
+     * 
+     * @param port
+     *            the port on which the {@link RelayServer} listens for incoming
+     *            control connections from clients
+     * @param relayEngine
+     *            the {@link RelayEngine} that gets used for the real relay
+     *            stuff, e.g. a {@link SelectorRelayEngine} or the legacy
+     *            {@link BlockingRelayEngine}
+     * @throws IOException
+     *             if an I/O error occurs
+     * @throws NullPointerException
+     *             if the given {@link RelayEngine} is null
+     */
+    public RelayServer(int port, RelayEngine relayEngine) throws IOException {
+        this(port, relayEngine, new PortAllocator(Constants.MIN_ALLOCATION_PORT,
+                Constants.MAX_ALLOCATION_PORT));
+    }
+
+    /**
+     * Creates a {@link RelayServer} that uses the given {@link RelayEngine} to
+     * relay data between clients and peers and takes the ports of the
+     * allocations from the given {@link PortAllocator}. Has to be started via
+     * {@link RelayServer#start() start()} in order that it is able to handle
+     * incoming connections.
+     * 
+     * @param port
+     *            the port on which the {@link RelayServer} listens for incoming
+     *            control connections from clients
+     * @param relayEngine
+     *            the {@link RelayEngine} that gets used for the real relay
+     *            stuff
+     * @param portAllocator
+     *            the allocator for the ports on which the allocations wait for
+     *            connections of peers
+     * @throws IOException
+     *             if an I/O error occurs
+     * @throws NullPointerException
+     *             if one of the parameters is null
+     */
+    public RelayServer(int port, RelayEngine relayEngine, PortAllocator portAllocator)
+            throws IOException {
+        this(port, relayEngine, portAllocator, new BandwidthPolicy(
+                Constants.MAX_ALLOCATION_BANDWIDTH, Constants.ALLOCATION_BANDWIDTH_BURST));
+    }
+
+    /**
+     * Creates a {@link RelayServer} that uses the given {@link RelayEngine} to
+     * relay data between clients and peers, takes the ports of the allocations
+     * from the given {@link PortAllocator} and limits the bandwidth of the
+     * allocations according to the given {@link BandwidthPolicy}. Has to be
+     * started via {@link RelayServer#start() start()} in order that it is able
+     * to handle incoming connections.
+     * 
+     * @param port
+     *            the port on which the {@link RelayServer} listens for incoming
+     *            control connections from clients
+     * @param relayEngine
+     *            the {@link RelayEngine} that gets used for the real relay
+     *            stuff
+     * @param portAllocator
+     *            the allocator for the ports on which the allocations wait for
+     *            connections of peers
+     * @param bandwidthPolicy
+     *            the policy for the bandwidth of the allocations
+     * @throws IOException
+     *             if an I/O error occurs
+     * @throws NullPointerException
+     *             if one of the parameters is null
+     */
+    public RelayServer(int port, RelayEngine relayEngine, PortAllocator portAllocator,
+            BandwidthPolicy bandwidthPolicy) throws IOException {
+        this(port, relayEngine, portAllocator, bandwidthPolicy, null);
+    }
+
+    /**
+     * Creates a {@link RelayServer} that additionally supports UDP allocations
+     * whose datagrams are relayed by the given {@link DatagramRelayEngine}.
+     * Has to be started via {@link RelayServer#start() start()} in order that
+     * it is able to handle incoming connections and datagrams.
+     * 
+     * @param port
+     *            the port on which the {@link RelayServer} listens for incoming
+     *            control connections from clients
+     * @param relayEngine
+     *            the {@link RelayEngine} that gets used for the real relay
+     *            stuff
+     * @param portAllocator
+     *            the allocator for the ports on which the allocations wait for
+     *            connections or datagrams of peers
+     * @param bandwidthPolicy
+     *            the policy for the bandwidth of the allocations
+     * @param datagramRelayEngine
+     *            the engine that relays the datagrams of UDP allocations, or
+     *            null if UDP allocations should not be supported
+     * @throws IOException
+     *             if an I/O error occurs
+     * @throws NullPointerException
+     *             if one of the parameters except datagramRelayEngine is null
+     */
+    public RelayServer(int port, RelayEngine relayEngine, PortAllocator portAllocator,
+            BandwidthPolicy bandwidthPolicy, DatagramRelayEngine datagramRelayEngine)
+            throws IOException {
+        if (relayEngine == null || portAllocator == null || bandwidthPolicy == null) {
+            throw new NullPointerException();
+        }
+        this.relayEngine = relayEngine;
+        this.datagramRelayEngine = datagramRelayEngine;
+        this.portAllocator = portAllocator;
+        pendingBinds = new PendingBindRegistry();
+        allocIDToAllocation = new ConcurrentHashMap<UUID, RelayAllocation>();
+        // peer handler executor has to be unbounded
+        allocationEventLoop = new AllocationEventLoop(Executors.newCachedThreadPool());
+        metrics = new RelayServerMetrics(pendingBinds, allocIDToAllocation, relayEngine,
+                portAllocator);
+        metricsName = "port-" + port;
+        listenerThread = new ListenerThread(port, ChannelServerSocketFactory.getInstance(),
+                Executors.newCachedThreadPool(), new MessageDispatcherTaskFactory(pendingBinds,
+                        allocIDToAllocation, allocationEventLoop, portAllocator, bandwidthPolicy,
+                        metrics, relayEngine, datagramRelayEngine));
     }
 
     /**
      * Starts this {@link RelayServer}. Can be started only once.
      */
     public void start() {
+        new Thread(allocationEventLoop, "allocation-event-loop").start();
+        if (datagramRelayEngine != null) {
+            new Thread(datagramRelayEngine, "datagram-relay-engine").start();
+        }
         listenerThread.start();
+        try {
+            metrics.registerMBeans(ManagementFactory.getPlatformMBeanServer(), metricsName);
+        } catch (JMException e) {
+            logger.warn("Could not register metrics MBeans: {}", e);
+        }
+    }
+
+    /**
+     * Starts a plain text endpoint on the loopback interface that serves the
+     * current {@link RelayServerMetrics#scrape() metrics} to every
+     * connection. Can be started only once.
+     * 
+     * @param port
+     *            the port on which the endpoint listens
+     * @throws IOException
+     *             if the endpoint could not be bound to the given port
+     */
+    public synchronized void startMetricsEndpoint(int port) throws IOException {
+        if (metricsEndpoint != null) {
+            throw new IllegalStateException("Metrics endpoint already started");
+        }
+        metricsEndpoint = new MetricsEndpoint(port, metrics);
+        metricsEndpoint.start();
     }
 
     /**
@@ -88,6 +252,64 @@ public class RelayServer {
      */
     public void stop() {
         listenerThread.interrupt();
+        allocationEventLoop.shutdown();
+        pendingBinds.shutdown();
+        relayEngine.shutdown();
+        if (datagramRelayEngine != null) {
+            datagramRelayEngine.shutdown();
+        }
+        try {
+            metrics.unregisterMBeans(ManagementFactory.getPlatformMBeanServer(), metricsName);
+        } catch (JMException e) {
+            logger.debug("Could not unregister metrics MBeans: {}", e);
+        }
+        synchronized (this) {
+            if (metricsEndpoint != null) {
+                metricsEndpoint.stop();
+            }
+        }
+    }
+
+    /**
+     * Returns the {@link RelayBufferPool} that is shared by all relay
+     * connections of this {@link RelayServer}.
+     * 
+     * @return the buffer pool of this relay server
+     */
+    public RelayBufferPool getBufferPool() {
+        return relayEngine.getBufferPool();
+    }
+
+    /**
+     * Returns the {@link PortAllocator} from that the allocations of this
+     * {@link RelayServer} take their ports. It reports the remaining port
+     * capacity and how many allocation requests were rejected because of
+     * insufficient capacity.
+     * 
+     * @return the port allocator of this relay server
+     */
+    public PortAllocator getPortAllocator() {
+        return portAllocator;
+    }
+
+    /**
+     * Returns the current allocations of this {@link RelayServer}. Their
+     * {@link TrafficMeter TrafficMeters} report the relayed data of each
+     * allocation.
+     * 
+     * @return an unmodifiable view of the current allocations
+     */
+    public Collection<RelayAllocation> getAllocations() {
+        return Collections.unmodifiableCollection(allocIDToAllocation.values());
+    }
+
+    /**
+     * Returns the metrics of this {@link RelayServer}.
+     * 
+     * @return the metrics of this relay server
+     */
+    public RelayServerMetrics getMetrics() {
+        return metrics;
     }
 
     /**
@@ -95,14 +317,26 @@ public class RelayServer {
      * 
      * @param args
      *            arguments for the {@link RelayServer}. An array with length of
-     *            one is expected. It should contain the following value:
-     *            args[0] the port on which the {@link RelayServer} listens for
-     *            incoming control connections from clients via TCP. If nothing
-     *            is defined, port 10300 is chosen as default.
+     *            up to four is expected. It should contain the following
+     *            values: args[0] the port on which the {@link RelayServer}
+     *            listens for incoming control connections from clients via
+     *            TCP. If nothing is defined, port 10300 is chosen as default.
+     *            args[1] the relay engine, either "blocking" (default) or
+     *            "selector". args[2] the port range of the allocations in the
+     *            form "min-max". If nothing is defined,
+     *            {@link Constants#MIN_ALLOCATION_PORT} to
+     *            {@link Constants#MAX_ALLOCATION_PORT} is chosen as default.
+     *            args[3] the loopback port of the metrics endpoint. If nothing
+     *            is defined, {@link Constants#METRICS_PORT} is chosen as
+     *            default. UDP allocations are relayed over the UDP port with the
+     *            same number as the port of the {@link RelayServer}.
      * @throws IOException
      *             if an I/O error occurs
      * @throws IllegalArgumentException
-     *             if args[0] is set and it is not an integer value
+     *             if args[0] is set and it is not an integer value, if args[1]
+     *             is set and it is no known relay engine, or if args[2] is set
+     *             and it is no valid port range, or if args[3] is set and it
+     *             is not an integer value
      */
     public static void main(String[] args) throws IOException {
         int port = RELAYSERVER_PORT;
@@ -118,9 +352,48 @@ public class RelayServer {
 
         }
 
-        RelayServer relayServer = new RelayServer(port);
+        RelayEngine relayEngine;
+        if (args.length < 2 || args[1].equals("blocking")) {
+            relayEngine = new BlockingRelayEngine();
+        } else if (args[1].equals("selector")) {
+            relayEngine = new SelectorRelayEngine();
+        } else {
+            throw new IllegalArgumentException("Unrecognized argument " + args[1]
+                    + "; relay engine has to be blocking or selector.");
+        }
+
+        PortAllocator portAllocator;
+        if (args.length < 3) {
+            portAllocator = new PortAllocator(Constants.MIN_ALLOCATION_PORT,
+                    Constants.MAX_ALLOCATION_PORT);
+        } else {
+            String[] range = args[2].split("-");
+            try {
+                portAllocator = new PortAllocator(Integer.valueOf(range[0]),
+                        Integer.valueOf(range[range.length - 1]));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Unrecognized argument " + args[2]
+                        + "; port range has to be of the form min-max.", e);
+            }
+        }
+
+        int metricsPort = Constants.METRICS_PORT;
+        if (args.length > 3) {
+            try {
+                metricsPort = Integer.valueOf(args[3]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Unrecognized argument " + args[3]
+                        + "; metrics port has to be a port number.", e);
+            }
+        }
+
+        RelayServer relayServer = new RelayServer(port, relayEngine, portAllocator,
+                new BandwidthPolicy(Constants.MAX_ALLOCATION_BANDWIDTH,
+                        Constants.ALLOCATION_BANDWIDTH_BURST), new DatagramRelayEngine(port));
         logger.info("Relay-Server is running on port " + port);
         relayServer.start();
+        relayServer.startMetricsEndpoint(metricsPort);
+        logger.info("Metrics are served on 127.0.0.1:" + metricsPort);
     }
 
 }
@@ -0,0 +1,200 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.socket.relay.server;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import de.htwg_konstanz.in.helper.sockets.PortAllocator;
+
+/**
+ * Instrumentation of a {@link RelayServer}. Provides gauges for the state of
+ * the relay server and histograms for the latency of connection binds and the
+ * relayed bytes per relay connection. The metrics can be registered as JMX
+ * MBeans and rendered in a plain text format that can be scraped via the
+ * {@link MetricsEndpoint}.
+ *
+ * @author Daniel Maier
+ *
+ */
+public final class RelayServerMetrics implements RelayServerMetricsMBean {
+
+    private static final String DOMAIN = "de.htwg_konstanz.in.uce.socket.relay.server";
+    private final PendingBindRegistry pendingBinds;
+    private final Map<UUID, RelayAllocation> allocIDToAllocation;
+    private final RelayEngine relayEngine;
+    private final PortAllocator portAllocator;
+    private final Histogram bindLatency = new Histogram("bind_latency", "microseconds",
+            Constants.HISTOGRAM_BUCKETS);
+
+    /**
+     * Creates a new {@link RelayServerMetrics}.
+     *
+     * @param pendingBinds
+     *            registry to match relay connection between client and peers
+     * @param allocIDToAllocation
+     *            map of the allocations of the clients
+     * @param relayEngine
+     *            the {@link RelayEngine} of the relay server
+     * @param portAllocator
+     *            the allocator for the ports of the allocations
+     */
+    RelayServerMetrics(PendingBindRegistry pendingBinds,
+            Map<UUID, RelayAllocation> allocIDToAllocation, RelayEngine relayEngine,
+            PortAllocator portAllocator) {
+        this.pendingBinds = pendingBinds;
+        this.allocIDToAllocation = allocIDToAllocation;
+        this.relayEngine = relayEngine;
+        this.portAllocator = portAllocator;
+    }
+
+    public int getActiveAllocations() {
+        return allocIDToAllocation.size();
+    }
+
+    public int getPendingConnectionBinds() {
+        return pendingBinds.size();
+    }
+
+    public int getActiveRelays() {
+        return relayEngine.getActiveRelays();
+    }
+
+    public int getThreadCount() {
+        return ManagementFactory.getThreadMXBean().getThreadCount();
+    }
+
+    public int getFreeAllocationPorts() {
+        return portAllocator.getFreePorts();
+    }
+
+    public long getInsufficientCapacityCount() {
+        return portAllocator.getInsufficientCapacityCount();
+    }
+
+    public long getRelayBufferBytesInUse() {
+        return relayEngine.getBufferPool().getBytesInUse();
+    }
+
+    /**
+     * Returns the histogram of the time between sending a connection attempt
+     * to a client and receiving its connection bind.
+     *
+     * @return the histogram of the bind latency in microseconds
+     */
+    public Histogram getBindLatency() {
+        return bindLatency;
+    }
+
+    /**
+     * Returns the histogram of the relayed bytes per relay connection.
+     *
+     * @return the histogram of the relayed bytes
+     */
+    public Histogram getRelayedBytes() {
+        return relayEngine.getRelayedBytes();
+    }
+
+    /**
+     * Registers the gauges and the histograms as MBeans at the given MBean
+     * server.
+     *
+     * @param server
+     *            the MBean server
+     * @param name
+     *            the name of the relay server that distinguishes the MBeans of
+     *            several relay servers in one virtual machine
+     * @throws JMException
+     *             if the MBeans could not be registered
+     */
+    public void registerMBeans(MBeanServer server, String name) throws JMException {
+        server.registerMBean(this, objectName(name, "RelayServer", "metrics"));
+        server.registerMBean(bindLatency, objectName(name, "Histogram", bindLatency.getName()));
+        Histogram relayedBytes = getRelayedBytes();
+        server.registerMBean(relayedBytes, objectName(name, "Histogram", relayedBytes.getName()));
+    }
+
+    /**
+     * Unregisters the MBeans that were registered by
+     * {@link #registerMBeans(MBeanServer, String)}.
+     *
+     * @param server
+     *            the MBean server
+     * @param name
+     *            the name of the relay server
+     * @throws JMException
+     *             if the MBeans could not be unregistered
+     */
+    public void unregisterMBeans(MBeanServer server, String name) throws JMException {
+        server.unregisterMBean(objectName(name, "RelayServer", "metrics"));
+        server.unregisterMBean(objectName(name, "Histogram", bindLatency.getName()));
+        server.unregisterMBean(objectName(name, "Histogram", getRelayedBytes().getName()));
+    }
+
+    private static ObjectName objectName(String server, String type, String name)
+            throws JMException {
+        return new ObjectName(DOMAIN + ":server=" + ObjectName.quote(server) + ",type=" + type
+                + ",name=" + name);
+    }
+
+    /**
+     * Renders all metrics in a plain text format with one sample per line.
+     * The histograms are rendered with cumulative buckets.
+     *
+     * @return the rendered metrics
+     */
+    public String scrape() {
+        StringBuilder sb = new StringBuilder();
+        gauge(sb, "relay_active_allocations", getActiveAllocations());
+        gauge(sb, "relay_pending_connection_binds", getPendingConnectionBinds());
+        gauge(sb, "relay_active_relays", getActiveRelays());
+        gauge(sb, "relay_threads", getThreadCount());
+        gauge(sb, "relay_free_allocation_ports", getFreeAllocationPorts());
+        gauge(sb, "relay_insufficient_capacity_total", getInsufficientCapacityCount());
+        gauge(sb, "relay_buffer_bytes_in_use", getRelayBufferBytesInUse());
+        histogram(sb, "relay_" + bindLatency.getName() + "_" + bindLatency.getUnit(),
+                bindLatency);
+        Histogram relayedBytes = getRelayedBytes();
+        histogram(sb, "relay_" + relayedBytes.getName(), relayedBytes);
+        return sb.toString();
+    }
+
+    private static void gauge(StringBuilder sb, String name, long value) {
+        sb.append(name).append(' ').append(value).append('\n');
+    }
+
+    private static void histogram(StringBuilder sb, String name, Histogram histogram) {
+        long[] bounds = histogram.getBucketUpperBounds();
+        long[] counts = histogram.getBucketCounts();
+        long cumulated = 0;
+        for (int i = 0; i < bounds.length; i++) {
+            cumulated += counts[i];
+            sb.append(name).append("_bucket{le=\"").append(bounds[i]).append("\"} ")
+                    .append(cumulated).append('\n');
+        }
+        cumulated += counts[counts.length - 1];
+        sb.append(name).append("_bucket{le=\"+Inf\"} ").append(cumulated).append('\n');
+        sb.append(name).append("_sum ").append(histogram.getSum()).append('\n');
+        sb.append(name).append("_count ").append(histogram.getCount()).append('\n');
+    }
+}
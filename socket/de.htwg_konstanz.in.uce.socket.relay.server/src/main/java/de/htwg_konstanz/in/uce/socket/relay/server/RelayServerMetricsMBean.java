@@ -0,0 +1,79 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.socket.relay.server;
+
+/**
+ * Management interface of the {@link RelayServerMetrics}. Provides the gauges
+ * of a {@link RelayServer}.
+ *
+ * @author Daniel Maier
+ *
+ */
+public interface RelayServerMetricsMBean {
+
+    /**
+     * Returns the number of allocations.
+     *
+     * @return the number of allocations
+     */
+    int getActiveAllocations();
+
+    /**
+     * Returns the number of peer connections that wait for a connection bind
+     * of the client.
+     *
+     * @return the number of pending connection binds
+     */
+    int getPendingConnectionBinds();
+
+    /**
+     * Returns the number of relay connections between clients and peers.
+     *
+     * @return the number of relay connections
+     */
+    int getActiveRelays();
+
+    /**
+     * Returns the number of live threads of the virtual machine.
+     *
+     * @return the number of live threads
+     */
+    int getThreadCount();
+
+    /**
+     * Returns the number of free ports for new allocations.
+     *
+     * @return the number of free allocation ports
+     */
+    int getFreeAllocationPorts();
+
+    /**
+     * Returns the number of allocation requests that were rejected because
+     * no port was free.
+     *
+     * @return the number of rejected allocation requests
+     */
+    long getInsufficientCapacityCount();
+
+    /**
+     * Returns the number of bytes of the relay buffers that are in use.
+     *
+     * @return the number of bytes of relay buffers in use
+     */
+    long getRelayBufferBytesInUse();
+}
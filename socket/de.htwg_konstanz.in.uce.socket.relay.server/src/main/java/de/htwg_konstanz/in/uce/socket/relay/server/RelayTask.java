@@ -17,10 +17,14 @@
 
 package de.htwg_konstanz.in.uce.socket.relay.server;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,56 +33,193 @@ import org.slf4j.LoggerFactory;
  * Task that relays data between one client and one peers. One instance of this task transports
  * data in one direction. Another instance is needed to handle the other
  * direction.
- * 
+ *
+ * If both sockets have an associated channel and a {@link RelayBufferPool} is
+ * given, the data is relayed through a pooled direct buffer directly between
+ * the channels. Otherwise the data is relayed through the socket streams and
+ * the output gets flushed only if the input has no more data available.
+ *
+ * If a {@link TrafficMeter} is given, each chunk of relayed data is recorded by
+ * it. If the meter demands a pause, the task sleeps before it reads again.
+ *
  * @author Daniel Maier
- * 
+ *
  */
 public class RelayTask implements Runnable {
     private static final Logger logger = LoggerFactory.getLogger(RelayTask.class);
-    private static final int BUFFER_SIZE = 768;
+    private static final int BUFFER_SIZE = 8192;
     private final Socket in;
     private final Socket out;
+    private final RelayBufferPool bufferPool;
+    private final TrafficMeter meter;
+    // only written by the relaying thread
+    private volatile long relayedBytes;
 
     /**
-     * Creates a new {@link RelayTask}.
-     * 
+     * Creates a new {@link RelayTask} that relays data through the socket
+     * streams.
+     *
      * @param in
      *            the socket from that the data gets read from
      * @param out
      *            the socket to that the data gets written to
      */
     public RelayTask(Socket in, Socket out) {
+        this(in, out, null);
+    }
+
+    /**
+     * Creates a new {@link RelayTask}.
+     *
+     * @param in
+     *            the socket from that the data gets read from
+     * @param out
+     *            the socket to that the data gets written to
+     * @param bufferPool
+     *            the pool from that the buffer for relaying between channels
+     *            is taken, or null if the socket streams should be used
+     */
+    public RelayTask(Socket in, Socket out, RelayBufferPool bufferPool) {
+        this(in, out, bufferPool, null);
+    }
+
+    /**
+     * Creates a new {@link RelayTask}.
+     *
+     * @param in
+     *            the socket from that the data gets read from
+     * @param out
+     *            the socket to that the data gets written to
+     * @param bufferPool
+     *            the pool from that the buffer for relaying between channels
+     *            is taken, or null if the socket streams should be used
+     * @param meter
+     *            the meter that records the relayed data, or null if the data
+     *            should not be recorded
+     */
+    public RelayTask(Socket in, Socket out, RelayBufferPool bufferPool, TrafficMeter meter) {
         this.in = in;
         this.out = out;
+        this.bufferPool = bufferPool;
+        this.meter = meter;
     }
 
     /**
      * Relays data from in one direction from one client to one peer.
-     * 
+     *
      */
     public void run() {
-        BufferedInputStream bufferedIn;
-        BufferedOutputStream bufferedOut;
         try {
-            bufferedIn = new BufferedInputStream(in.getInputStream());
-            bufferedOut = new BufferedOutputStream(out.getOutputStream());
+            if (bufferPool != null && in.getChannel() != null && out.getChannel() != null) {
+                relayChannels(in.getChannel(), out.getChannel());
+            } else {
+                relayStreams();
+            }
+            in.shutdownInput();
+            out.shutdownOutput();
         } catch (IOException e) {
-            logger.error("IOException while getting streams for relaying relaying: {}", e);
-            return;
+            logger.error("IOException while relaying: {}", e);
+        }
+    }
+
+    /**
+     * Relays data between the given blocking channels through a pooled direct
+     * buffer. Each read gets as much data as available up to the size of the
+     * buffer and is written completely before the next read.
+     *
+     * @param source
+     *            the channel from that the data gets read from
+     * @param destination
+     *            the channel to that the data gets written to
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    private void relayChannels(SocketChannel source, SocketChannel destination)
+            throws IOException {
+        ByteBuffer buffer = bufferPool.acquire();
+        try {
+            int len;
+            while ((len = source.read(buffer)) > -1) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    destination.write(buffer);
+                }
+                buffer.clear();
+                record(len);
+            }
+        } finally {
+            bufferPool.release(buffer);
         }
+    }
 
+    /**
+     * Relays data through the socket streams. The output gets flushed only if
+     * the input has no more data available or before the task pauses.
+     *
+     * @throws IOException
+     *             if an I/O error occurs
+     */
+    private void relayStreams() throws IOException {
+        InputStream inStream = in.getInputStream();
+        BufferedOutputStream bufferedOut = new BufferedOutputStream(out.getOutputStream(),
+                BUFFER_SIZE);
         byte[] buf = new byte[BUFFER_SIZE];
         int len = 0;
 
-        try {
-            while ((len = bufferedIn.read(buf, 0, BUFFER_SIZE)) > -1) {
-                bufferedOut.write(buf, 0, len);
+        while ((len = inStream.read(buf, 0, BUFFER_SIZE)) > -1) {
+            bufferedOut.write(buf, 0, len);
+            relayedBytes += len;
+            long pause = meter == null ? 0 : meter.record(len);
+            if (inStream.available() == 0 || pause > 0) {
                 bufferedOut.flush();
             }
-            in.shutdownInput();
-            out.shutdownOutput();
-        } catch (IOException e) {
-            logger.error("IOException while relaying: {}", e);
+            pause(pause);
+        }
+        bufferedOut.flush();
+    }
+
+    /**
+     * Returns the number of bytes that this task has relayed so far.
+     *
+     * @return the number of relayed bytes
+     */
+    public long getRelayedBytes() {
+        return relayedBytes;
+    }
+
+    /**
+     * Records the given chunk of relayed data and sleeps if the meter demands
+     * a pause.
+     *
+     * @param len
+     *            the number of relayed bytes
+     * @throws InterruptedIOException
+     *             if the task gets interrupted while sleeping
+     */
+    private void record(int len) throws InterruptedIOException {
+        relayedBytes += len;
+        if (meter != null) {
+            pause(meter.record(len));
+        }
+    }
+
+    /**
+     * Sleeps for the given time.
+     *
+     * @param nanos
+     *            the time to sleep in nanoseconds
+     * @throws InterruptedIOException
+     *             if the task gets interrupted while sleeping
+     */
+    private static void pause(long nanos) throws InterruptedIOException {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            TimeUnit.NANOSECONDS.sleep(nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while limiting bandwidth");
         }
     }
 }
@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.socket.relay.server;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.htwg_konstanz.in.uce.socket.relay.messages.MultiplexedSocket;
+
+/**
+ * {@link RelayEngine} that relays data with non-blocking I/O. A small fixed
+ * number of {@link RelayEventLoop event loops} pumps both directions of all
+ * relay connections, so the number of threads does not grow with the number of
+ * relay connections. New relay connections are assigned to the event loops in
+ * a round robin manner.
+ * <p>
+ * Sockets that have an associated {@link SocketChannel} and streams of a
+ * multiplexed connection ({@link MultiplexedSocket}) on the client side are
+ * handled by the event loops. Relay connections with other sockets without
+ * channel are handed over to a {@link BlockingRelayEngine}.
+ *
+ * @author Daniel Maier
+ *
+ */
+public final class SelectorRelayEngine implements RelayEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(SelectorRelayEngine.class);
+    private final RelayEventLoop[] eventLoops;
+    private final AtomicInteger nextEventLoop = new AtomicInteger();
+    private final RelayEngine fallbackEngine;
+    private final RelayBufferPool bufferPool;
+    private final AtomicInteger activeRelays = new AtomicInteger();
+    private final Histogram relayedBytes = new Histogram("relayed_bytes", "bytes",
+            Constants.HISTOGRAM_BUCKETS);
+
+    /**
+     * Creates a new {@link SelectorRelayEngine} with
+     * {@link Constants#RELAY_EVENT_LOOPS} event loops and a new
+     * {@link RelayBufferPool} with default configuration. The event loops get
+     * started immediately.
+     *
+     * @throws IOException
+     *             if a selector could not be opened
+     */
+    public SelectorRelayEngine() throws IOException {
+        this(Constants.RELAY_EVENT_LOOPS, new RelayBufferPool());
+    }
+
+    /**
+     * Creates a new {@link SelectorRelayEngine}. The event loops get started
+     * immediately.
+     *
+     * @param eventLoops
+     *            the number of event loop threads
+     * @param bufferPool
+     *            the pool from that the buffers for each direction of a relay
+     *            connection are taken
+     * @throws IOException
+     *             if a selector could not be opened
+     * @throws IllegalArgumentException
+     *             if eventLoops is not positive
+     * @throws NullPointerException
+     *             if the given buffer pool is null
+     */
+    public SelectorRelayEngine(int eventLoops, RelayBufferPool bufferPool) throws IOException {
+        if (bufferPool == null) {
+            throw new NullPointerException();
+        } else if (eventLoops <= 0) {
+            throw new IllegalArgumentException("eventLoops must be positive");
+        }
+        this.bufferPool = bufferPool;
+        this.eventLoops = new RelayEventLoop[eventLoops];
+        for (int i = 0; i < eventLoops; i++) {
+            this.eventLoops[i] = new RelayEventLoop(bufferPool, activeRelays, relayedBytes);
+        }
+        for (int i = 0; i < eventLoops; i++) {
+            Thread t = new Thread(this.eventLoops[i], "relay-event-loop-" + i);
+            t.start();
+        }
+        this.fallbackEngine = new BlockingRelayEngine(Executors.newCachedThreadPool(),
+                bufferPool, relayedBytes);
+    }
+
+    public void relay(Socket peerSocket, Socket clientSocket, TrafficMeter peerToClientMeter,
+            TrafficMeter clientToPeerMeter) {
+        SocketChannel peerChannel = peerSocket.getChannel();
+        SocketChannel clientChannel = clientSocket.getChannel();
+        if (peerChannel != null && clientChannel != null) {
+            nextEventLoop().register(peerChannel, clientChannel, peerToClientMeter,
+                    clientToPeerMeter);
+        } else if (peerChannel != null && clientSocket instanceof MultiplexedSocket) {
+            nextEventLoop().register(peerChannel, (MultiplexedSocket) clientSocket,
+                    peerToClientMeter, clientToPeerMeter);
+        } else {
+            logger.debug("Socket without channel, falling back to blocking relay");
+            fallbackEngine.relay(peerSocket, clientSocket, peerToClientMeter,
+                    clientToPeerMeter);
+        }
+    }
+
+    private RelayEventLoop nextEventLoop() {
+        int index = (nextEventLoop.getAndIncrement() & Integer.MAX_VALUE) % eventLoops.length;
+        return eventLoops[index];
+    }
+
+    public RelayBufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    public int getActiveRelays() {
+        return activeRelays.get() + fallbackEngine.getActiveRelays();
+    }
+
+    public Histogram getRelayedBytes() {
+        return relayedBytes;
+    }
+
+    public void shutdown() {
+        for (RelayEventLoop eventLoop : eventLoops) {
+            eventLoop.shutdown();
+        }
+        fallbackEngine.shutdown();
+    }
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.socket.relay.server;
+
+/**
+ * Token bucket that limits the bandwidth of one direction of the relay
+ * connections of an allocation. The bucket is refilled lazily with the
+ * configured rate whenever tokens are consumed, so it needs no timer thread.
+ * The bucket holds at most burstBytes tokens.
+ * <p>
+ * Relayed data is always consumed completely, even if the bucket holds not
+ * enough tokens. The bucket then goes into debt and the caller gets the time
+ * it has to pause until the debt is paid off. So a relay never has to split
+ * the data that it has already read.
+ *
+ * @author Daniel Maier
+ *
+ */
+public final class TokenBucket {
+
+    private static final double NANOS_PER_SECOND = 1000000000d;
+    private final int bytesPerSecond;
+    private final int burstBytes;
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * Creates a new {@link TokenBucket} that is full initially.
+     *
+     * @param bytesPerSecond
+     *            the rate in bytes per second with that the bucket gets
+     *            refilled
+     * @param burstBytes
+     *            the maximum number of tokens in the bucket
+     * @throws IllegalArgumentException
+     *             if one of the parameters is not positive
+     */
+    public TokenBucket(int bytesPerSecond, int burstBytes) {
+        if (bytesPerSecond <= 0 || burstBytes <= 0) {
+            throw new IllegalArgumentException("Rate and burst size must be positive");
+        }
+        this.bytesPerSecond = bytesPerSecond;
+        this.burstBytes = burstBytes;
+        this.tokens = burstBytes;
+        this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Consumes tokens for the given number of bytes only if enough tokens are
+     * available. Unlike {@link #consume(int)} no debt is incurred, so data
+     * that is dropped because of the limit does not delay later data.
+     *
+     * @param bytes
+     *            the number of bytes that should be relayed
+     * @return true if the tokens were consumed, false if the data exceeds the
+     *         limit
+     */
+    public synchronized boolean tryConsume(int bytes) {
+        refill();
+        if (tokens < bytes) {
+            return false;
+        }
+        tokens -= bytes;
+        return true;
+    }
+
+    /**
+     * Consumes tokens for the given number of bytes.
+     *
+     * @param bytes
+     *            the number of bytes that were relayed
+     * @return the time in nanoseconds that the caller has to pause before it
+     *         relays more data, or 0 if it does not have to pause
+     */
+    public synchronized long consume(int bytes) {
+        refill();
+        tokens -= bytes;
+        if (tokens >= 0) {
+            return 0;
+        }
+        return (long) Math.ceil(-tokens * NANOS_PER_SECOND / bytesPerSecond);
+    }
+
+    /**
+     * Returns the number of tokens that are currently available. Is negative
+     * if the bucket is in debt.
+     *
+     * @return the number of available tokens
+     */
+    public synchronized long getAvailableTokens() {
+        refill();
+        return (long) tokens;
+    }
+
+    /**
+     * Returns the rate of this bucket.
+     *
+     * @return the rate in bytes per second
+     */
+    public int getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * Returns the maximum number of tokens of this bucket.
+     *
+     * @return the burst size in bytes
+     */
+    public int getBurstBytes() {
+        return burstBytes;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burstBytes, tokens + (now - lastRefill) * bytesPerSecond
+                / NANOS_PER_SECOND);
+        lastRefill = now;
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.socket.relay.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the data of one direction of the relay connections of an allocation
+ * and optionally limits its bandwidth with a {@link TokenBucket}. Each chunk
+ * of data that a {@link RelayEngine} reads from one side and forwards to the
+ * other counts as one packet. The counters can be queried at any time.
+ *
+ * @author Daniel Maier
+ *
+ */
+public final class TrafficMeter {
+
+    private final AtomicLong bytes = new AtomicLong();
+    private final AtomicLong packets = new AtomicLong();
+    private final AtomicLong droppedPackets = new AtomicLong();
+    private final TokenBucket limiter;
+
+    /**
+     * Creates a new {@link TrafficMeter} without bandwidth limit.
+     */
+    public TrafficMeter() {
+        this(null);
+    }
+
+    /**
+     * Creates a new {@link TrafficMeter}.
+     *
+     * @param limiter
+     *            the token bucket that limits the bandwidth, or null for an
+     *            unlimited bandwidth
+     */
+    public TrafficMeter(TokenBucket limiter) {
+        this.limiter = limiter;
+    }
+
+    /**
+     * Records a datagram if it does not exceed the bandwidth limit. Datagrams
+     * that exceed the limit are counted as dropped and must not be relayed.
+     *
+     * @param length
+     *            the length of the datagram
+     * @return true if the datagram can be relayed, false if it has to be
+     *         dropped
+     */
+    public boolean tryRecord(int length) {
+        if (limiter != null && !limiter.tryConsume(length)) {
+            droppedPackets.incrementAndGet();
+            return false;
+        }
+        bytes.addAndGet(length);
+        packets.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Records a chunk of relayed data.
+     *
+     * @param length
+     *            the number of relayed bytes
+     * @return the time in nanoseconds that the relay has to pause before it
+     *         reads more data, or 0 if it does not have to pause
+     */
+    public long record(int length) {
+        bytes.addAndGet(length);
+        packets.incrementAndGet();
+        return limiter == null ? 0 : limiter.consume(length);
+    }
+
+    /**
+     * Returns the number of relayed bytes.
+     *
+     * @return the number of relayed bytes
+     */
+    public long getBytes() {
+        return bytes.get();
+    }
+
+    /**
+     * Returns the number of relayed packets.
+     *
+     * @return the number of relayed packets
+     */
+    public long getPackets() {
+        return packets.get();
+    }
+
+    /**
+     * Returns the number of datagrams that were dropped because they exceeded
+     * the bandwidth limit.
+     *
+     * @return the number of dropped datagrams
+     */
+    public long getDroppedPackets() {
+        return droppedPackets.get();
+    }
+
+    /**
+     * Returns the token bucket that limits the bandwidth.
+     *
+     * @return the token bucket, or null if the bandwidth is unlimited
+     */
+    public TokenBucket getLimiter() {
+        return limiter;
+    }
+}
@@ -0,0 +1,209 @@
+/**
+ * Copyright (C) 2026 Daniel Maier
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package de.htwg_konstanz.in.uce.socket.relay.server;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.DatagramChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import de.htwg_konstanz.in.helper.sockets.PortAllocator;
+
+/**
+ * The UDP part of an allocation: the datagram channel on that the peers send
+ * their datagrams and the channel bindings of the client. A channel binding
+ * maps a channel number to the address of one peer and is at the same time
+ * the permission of this peer: datagrams from peers without an active channel
+ * binding are dropped. Channel bindings expire after their lifetime, by
+ * default {@link Constants#UDP_CHANNEL_BINDING_LIFETIME} milliseconds, unless
+ * the client binds them again.
+ * 
+ * The channel bindings are only accessed by the thread of the
+ * {@link DatagramRelayEngine}.
+ * 
+ * @author Daniel Maier
+ * 
+ */
+final class UdpAllocation {
+
+    private final RelayAllocation allocation;
+    private final DatagramChannel relayChannel;
+    private final int port;
+    private final DatagramRelayEngine engine;
+    private final PortAllocator portAllocator;
+    private final long bindingLifetime;
+    private final Map<InetSocketAddress, ChannelBinding> peerToBinding = new HashMap<InetSocketAddress, ChannelBinding>();
+    private final Map<Integer, ChannelBinding> channelToBinding = new HashMap<Integer, ChannelBinding>();
+    private volatile InetSocketAddress clientAddress;
+    private volatile boolean closed;
+
+    /**
+     * Creates a new {@link UdpAllocation}.
+     * 
+     * @param allocation
+     *            the allocation of the client
+     * @param relayChannel
+     *            the bound datagram channel for the datagrams of the peers
+     * @param engine
+     *            the engine that relays the datagrams of this allocation
+     * @param portAllocator
+     *            the allocator that reserved the port of the relay channel
+     * @param bindingLifetime
+     *            the lifetime of the channel bindings in milliseconds
+     */
+    UdpAllocation(RelayAllocation allocation, DatagramChannel relayChannel,
+            DatagramRelayEngine engine, PortAllocator portAllocator, long bindingLifetime) {
+        this.allocation = allocation;
+        this.relayChannel = relayChannel;
+        this.port = relayChannel.socket().getLocalPort();
+        this.engine = engine;
+        this.portAllocator = portAllocator;
+        this.bindingLifetime = bindingLifetime;
+    }
+
+    RelayAllocation getAllocation() {
+        return allocation;
+    }
+
+    DatagramChannel getRelayChannel() {
+        return relayChannel;
+    }
+
+    int getPort() {
+        return port;
+    }
+
+    InetSocketAddress getClientAddress() {
+        return clientAddress;
+    }
+
+    void setClientAddress(InetSocketAddress clientAddress) {
+        this.clientAddress = clientAddress;
+    }
+
+    /**
+     * Binds the given channel number to the given peer or refreshes an
+     * existing binding.
+     * 
+     * @param channelNumber
+     *            the channel number
+     * @param peer
+     *            the address of the peer
+     * @return false if the channel number is bound to another peer or the
+     *         peer is bound to another channel number, true otherwise
+     */
+    boolean bind(int channelNumber, InetSocketAddress peer) {
+        long now = System.nanoTime();
+        ChannelBinding byChannel = getActiveBinding(channelToBinding.get(channelNumber), now);
+        ChannelBinding byPeer = getActiveBinding(peerToBinding.get(peer), now);
+        if (byChannel != byPeer) {
+            return false;
+        }
+        if (byChannel == null) {
+            byChannel = new ChannelBinding(channelNumber, peer);
+            channelToBinding.put(channelNumber, byChannel);
+            peerToBinding.put(peer, byChannel);
+        }
+        byChannel.expirationTime = now + TimeUnit.MILLISECONDS.toNanos(bindingLifetime);
+        return true;
+    }
+
+    /**
+     * Returns the active channel binding with the given channel number.
+     * 
+     * @param channelNumber
+     *            the channel number
+     * @return the channel binding, or null if the channel number is not bound
+     */
+    ChannelBinding getBinding(int channelNumber) {
+        return getActiveBinding(channelToBinding.get(channelNumber), System.nanoTime());
+    }
+
+    /**
+     * Returns the active channel binding of the given peer.
+     * 
+     * @param peer
+     *            the address of the peer
+     * @return the channel binding, or null if the peer has no permission
+     */
+    ChannelBinding getBinding(InetSocketAddress peer) {
+        return getActiveBinding(peerToBinding.get(peer), System.nanoTime());
+    }
+
+    /**
+     * Returns the given binding if it is not expired. An expired binding gets
+     * removed.
+     */
+    private ChannelBinding getActiveBinding(ChannelBinding binding, long now) {
+        if (binding == null) {
+            return null;
+        } else if (binding.expirationTime - now <= 0) {
+            channelToBinding.remove(binding.channelNumber);
+            peerToBinding.remove(binding.peer);
+            return null;
+        }
+        return binding;
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Closes the relay channel, releases its port and removes this allocation
+     * from the engine. Can be called several times and from any thread.
+     */
+    void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        engine.remove(this);
+        try {
+            relayChannel.close();
+        } catch (IOException ignore) {
+        }
+        portAllocator.release(port);
+    }
+
+    /**
+     * Binding of a channel number to the address of a peer.
+     */
+    static final class ChannelBinding {
+        private final int channelNumber;
+        private final InetSocketAddress peer;
+        private long expirationTime;
+
+        ChannelBinding(int channelNumber, InetSocketAddress peer) {
+            this.channelNumber = channelNumber;
+            this.peer = peer;
+        }
+
+        int getChannelNumber() {
+            return channelNumber;
+        }
+
+        InetSocketAddress getPeer() {
+            return peer;
+        }
+    }
+}
@@ -7,9 +7,11 @@ import java.util.UUID;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import junit.framework.Assert;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -26,7 +28,8 @@ public class ConnectionBindHandlerTest {
 
     private MockitoSocket socketMock;
     private UceMessage connectionBindMessage;
-    private Map<UUID, BlockingQueue<Socket>> connIDToQueue;
+    private PendingBindRegistry pendingBinds;
+    private Map<UUID, RelayAllocation> allocIDToAllocation;
 
     @Before
     public void setUp() throws IOException {
@@ -37,15 +40,24 @@ public class ConnectionBindHandlerTest {
         socketMock = new MockitoSocket();
         socketMock.setConnected(true);
 
-        connIDToQueue = new ConcurrentHashMap<UUID, BlockingQueue<Socket>>();
+        pendingBinds = new PendingBindRegistry();
+        allocIDToAllocation = new ConcurrentHashMap<UUID, RelayAllocation>();
 
     }
 
+    @After
+    public void tearDown() {
+        if (pendingBinds != null) {
+            pendingBinds.shutdown();
+        }
+    }
+
     @Test
     public void testHandleWithoutUniqueId() throws IOException {
         // prepare
         ConnectionBindHandler connectionBindHandler = new ConnectionBindHandler(
-                socketMock.getSocket(), connectionBindMessage, connIDToQueue);
+                socketMock.getSocket(), connectionBindMessage, pendingBinds,
+                allocIDToAllocation);
 
         // execute
         connectionBindHandler.handle();
@@ -64,7 +76,8 @@ public class ConnectionBindHandlerTest {
         connectionBindMessage.addAttribute(new UniqueId(UUID.randomUUID()));
 
         ConnectionBindHandler connectionBindHandler = new ConnectionBindHandler(
-                socketMock.getSocket(), connectionBindMessage, connIDToQueue);
+                socketMock.getSocket(), connectionBindMessage, pendingBinds,
+                allocIDToAllocation);
 
         // execute
         connectionBindHandler.handle();
@@ -82,16 +95,47 @@ public class ConnectionBindHandlerTest {
         // prepare
         UUID id = UUID.randomUUID();
         connectionBindMessage.addAttribute(new UniqueId(id));
-        BlockingQueue<Socket> socketQueue = new LinkedBlockingQueue<Socket>();
-        connIDToQueue.put(id, socketQueue);
+        final BlockingQueue<Socket> socketQueue = new LinkedBlockingQueue<Socket>();
+        pendingBinds.register(id, 5, TimeUnit.SECONDS, new PendingBindRegistry.Callback() {
+            public void bound(Socket socket) {
+                socketQueue.add(socket);
+            }
+
+            public void expired() {
+            }
+        });
 
         ConnectionBindHandler connectionBindHandler = new ConnectionBindHandler(
-                socketMock.getSocket(), connectionBindMessage, connIDToQueue);
+                socketMock.getSocket(), connectionBindMessage, pendingBinds,
+                allocIDToAllocation);
 
         // execute
         connectionBindHandler.handle();
         
         // validate
         Assert.assertTrue(socketQueue.contains(socketMock.getSocket()));
+        Assert.assertEquals(0, pendingBinds.size());
+    }
+
+    @Test
+    public void testHandlePrebound() {
+        // prepare
+        UUID allocationId = UUID.randomUUID();
+        connectionBindMessage.addAttribute(new UniqueId(allocationId));
+        RelayAllocation allocation = new RelayAllocation(allocationId);
+        allocIDToAllocation.put(allocationId, allocation);
+
+        ConnectionBindHandler connectionBindHandler = new ConnectionBindHandler(
+                socketMock.getSocket(), connectionBindMessage, pendingBinds,
+                allocIDToAllocation);
+
+        // execute
+        connectionBindHandler.handle();
+
+        // validate
+        PreboundConnection prebound = allocation.pollPreboundConnection();
+        Assert.assertNotNull(prebound);
+        Assert.assertSame(socketMock.getSocket(), prebound.getSocket());
+        Assert.assertEquals(connectionBindMessage.getTransactionId(), prebound.getConnectionId());
     }
 }
@@ -0,0 +1,181 @@
+package de.htwg_konstanz.in.uce.socket.relay.server;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.htwg_konstanz.in.helper.sockets.PortAllocator;
+import de.htwg_konstanz.in.uce.messages.ErrorCode;
+import de.htwg_konstanz.in.uce.messages.ErrorCode.ErrorCodes;
+import de.htwg_konstanz.in.uce.messages.SemanticLevel;
+import de.htwg_konstanz.in.uce.messages.UceMessage;
+import de.htwg_konstanz.in.uce.messages.UceMessageStaticFactory;
+import de.htwg_konstanz.in.uce.socket.relay.messages.Lifetime;
+import de.htwg_konstanz.in.uce.socket.relay.messages.RelayMessageReader;
+import de.htwg_konstanz.in.uce.socket.relay.messages.RelayUceMethod;
+
+public class ControlConnectionHandlerTest {
+
+    private final Map<UUID, RelayAllocation> allocIDToAllocation = new ConcurrentHashMap<UUID, RelayAllocation>();
+    private AllocationEventLoop eventLoop;
+    private DatagramRelayEngine datagramRelayEngine;
+    private PortAllocator portAllocator;
+    private ServerSocketChannel serverChannel;
+
+    @Before
+    public void setUp() throws IOException {
+        eventLoop = new AllocationEventLoop(Executors.newCachedThreadPool());
+        new Thread(eventLoop).start();
+        datagramRelayEngine = new DatagramRelayEngine(0);
+        new Thread(datagramRelayEngine).start();
+        portAllocator = new PortAllocator(45400, 45499);
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.socket().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (eventLoop != null) {
+            eventLoop.shutdown();
+        }
+        if (datagramRelayEngine != null) {
+            datagramRelayEngine.shutdown();
+        }
+        if (serverChannel != null) {
+            serverChannel.close();
+        }
+    }
+
+    @Test
+    public void testRefresh() throws IOException {
+        // prepare
+        Socket client = new Socket();
+        ChannelOutputStream out = startAllocation(client);
+
+        // execute
+        UceMessage response = refresh(client, Integer.valueOf(60));
+
+        // validate
+        Assert.assertTrue(response.isSuccessResponse());
+        Assert.assertEquals(60, response.getAttribute(Lifetime.class).getLifeTime());
+        Assert.assertTrue(out.flushQueue());
+        client.close();
+    }
+
+    @Test
+    public void testRefreshWithoutLifetime() throws IOException {
+        // prepare
+        Socket client = new Socket();
+        Socket otherClient = new Socket();
+        startAllocation(client);
+        startAllocation(otherClient);
+
+        // execute
+        UceMessage response = refresh(client, null);
+        UceMessage otherResponse = refresh(otherClient, Integer.valueOf(60));
+
+        // validate
+        Assert.assertTrue(response.isErrorResponse());
+        Assert.assertEquals(ErrorCodes.BAD_REQUEST, response.getAttribute(ErrorCode.class)
+                .getErrorNumber());
+        // both allocations are still alive
+        Assert.assertTrue(refresh(client, Integer.valueOf(60)).isSuccessResponse());
+        Assert.assertTrue(otherResponse.isSuccessResponse());
+        Assert.assertEquals(2, allocIDToAllocation.size());
+        client.close();
+        otherClient.close();
+    }
+
+    @Test
+    public void testUnallocate() throws Exception {
+        // prepare
+        Socket client = new Socket();
+        startAllocation(client);
+
+        // execute
+        UceMessage response = refresh(client, Integer.valueOf(0));
+
+        // validate
+        Assert.assertTrue(response.isSuccessResponse());
+        Assert.assertEquals(0, response.getAttribute(Lifetime.class).getLifeTime());
+        Assert.assertEquals(-1, client.getInputStream().read());
+        // the allocation is removed right after the control connection is closed
+        for (int i = 0; i < 100 && !allocIDToAllocation.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(allocIDToAllocation.isEmpty());
+        client.close();
+    }
+
+    @Test
+    public void testClientThatDoesNotRead() throws IOException {
+        // prepare
+        Socket client = new Socket();
+        Socket otherClient = new Socket();
+        ChannelOutputStream out = startAllocation(client);
+        startAllocation(otherClient);
+        byte[] message = new byte[1000];
+
+        // execute
+        // writes never block, so the queue fills up even if the client does not read
+        int written = 0;
+        try {
+            while (true) {
+                out.write(message);
+                written += message.length;
+            }
+        } catch (IOException e) {
+            // expected
+        }
+
+        // validate
+        Assert.assertTrue(refresh(otherClient, Integer.valueOf(60)).isSuccessResponse());
+        // the queued bytes are written as soon as the client reads again
+        byte[] received = new byte[written];
+        new DataInputStream(client.getInputStream()).readFully(received);
+        Assert.assertArrayEquals(new byte[written], received);
+        client.close();
+        otherClient.close();
+    }
+
+    /**
+     * Connects the given client and starts an UDP allocation on the accepted
+     * control connection.
+     */
+    private ChannelOutputStream startAllocation(Socket client) throws IOException {
+        client.connect(serverChannel.socket().getLocalSocketAddress());
+        client.setSoTimeout(2000);
+        SocketChannel controlChannel = serverChannel.accept();
+        RelayAllocation allocation = new RelayAllocation(UUID.randomUUID());
+        allocIDToAllocation.put(allocation.getAllocationId(), allocation);
+        ChannelOutputStream out = new ChannelOutputStream(controlChannel, eventLoop);
+        new ControlConnectionHandler(controlChannel.socket(), out, datagramRelayEngine.allocate(
+                allocation, portAllocator), allocIDToAllocation, eventLoop).start(60);
+        return out;
+    }
+
+    private static UceMessage refresh(Socket client, Integer lifetime) throws IOException {
+        UceMessage request = UceMessageStaticFactory.newUceMessageInstance(
+                RelayUceMethod.REFRESH, SemanticLevel.REQUEST, UUID.randomUUID());
+        if (lifetime != null) {
+            request.addAttribute(new Lifetime(lifetime.intValue()));
+        }
+        client.getOutputStream().write(request.toByteArray());
+        UceMessage response = RelayMessageReader.read(client.getInputStream());
+        Assert.assertTrue(response.isMethod(RelayUceMethod.REFRESH));
+        return response;
+    }
+}
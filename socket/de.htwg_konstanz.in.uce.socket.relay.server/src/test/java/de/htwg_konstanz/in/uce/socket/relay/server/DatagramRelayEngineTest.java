@@ -0,0 +1,320 @@
+package de.htwg_konstanz.in.uce.socket.relay.server;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.htwg_konstanz.in.helper.sockets.PortAllocator;
+import de.htwg_konstanz.in.uce.messages.CommonUceAttributeType;
+import de.htwg_konstanz.in.uce.messages.ErrorCode;
+import de.htwg_konstanz.in.uce.messages.SemanticLevel;
+import de.htwg_konstanz.in.uce.messages.SocketEndpoint;
+import de.htwg_konstanz.in.uce.messages.SocketEndpoint.EndpointClass;
+import de.htwg_konstanz.in.uce.messages.UceMessage;
+import de.htwg_konstanz.in.uce.messages.UceMessageStaticFactory;
+import de.htwg_konstanz.in.uce.messages.UniqueId;
+import de.htwg_konstanz.in.uce.socket.relay.messages.ChannelData;
+import de.htwg_konstanz.in.uce.socket.relay.messages.ChannelNumber;
+import de.htwg_konstanz.in.uce.socket.relay.messages.RelayMessageReader;
+import de.htwg_konstanz.in.uce.socket.relay.messages.RelayUceMethod;
+
+public class DatagramRelayEngineTest {
+
+    private static final long BINDING_LIFETIME = 500;
+    private static final int CHANNEL = ChannelData.MIN_CHANNEL_NUMBER;
+    private DatagramRelayEngine engine;
+    private PortAllocator portAllocator;
+    private DatagramSocket client;
+    private DatagramSocket peer;
+    private InetSocketAddress engineEndpoint;
+
+    @Before
+    public void setUp() throws IOException {
+        engine = new DatagramRelayEngine(0, BINDING_LIFETIME);
+        new Thread(engine).start();
+        engineEndpoint = new InetSocketAddress(InetAddress.getLoopbackAddress(),
+                engine.getPort());
+        portAllocator = new PortAllocator(45200, 45299);
+        client = newSocket();
+        peer = newSocket();
+    }
+
+    @After
+    public void tearDown() {
+        engine.shutdown();
+        client.close();
+        peer.close();
+    }
+
+    @Test
+    public void testChannelBindSuccess() throws IOException {
+        // prepare
+        UdpAllocation udpAllocation = allocate(new RelayAllocation(UUID.randomUUID()));
+
+        // execute
+        UceMessage response = channelBind(client, udpAllocation, CHANNEL, peer);
+
+        // validate
+        Assert.assertTrue(response.isSuccessResponse());
+        Assert.assertEquals(CHANNEL, response.getAttribute(ChannelNumber.class)
+                .getChannelNumber());
+        Assert.assertEquals(client.getLocalSocketAddress(), udpAllocation.getClientAddress());
+    }
+
+    @Test
+    public void testChannelBindWithoutPeerEndpoint() throws IOException {
+        // prepare
+        UdpAllocation udpAllocation = allocate(new RelayAllocation(UUID.randomUUID()));
+        UceMessage request = UceMessageStaticFactory.newUceMessageInstance(
+                RelayUceMethod.CHANNEL_BIND, SemanticLevel.REQUEST, UUID.randomUUID());
+        request.addAttribute(new UniqueId(udpAllocation.getAllocation().getAllocationId()))
+                .addAttribute(new ChannelNumber(CHANNEL));
+
+        // execute
+        UceMessage response = sendRequest(client, request);
+
+        // validate
+        assertBadRequest(response);
+        Assert.assertNull(udpAllocation.getClientAddress());
+    }
+
+    @Test
+    public void testChannelBindUnknownAllocation() throws IOException {
+        // prepare
+        UceMessage request = newChannelBindRequest(UUID.randomUUID(), CHANNEL, peer);
+
+        // execute
+        UceMessage response = sendRequest(client, request);
+
+        // validate
+        assertBadRequest(response);
+    }
+
+    @Test
+    public void testDropMalformedChannelBind() throws IOException {
+        // prepare
+        UdpAllocation udpAllocation = allocate(new RelayAllocation(UUID.randomUUID()));
+        UceMessage request = UceMessageStaticFactory.newUceMessageInstance(
+                RelayUceMethod.CHANNEL_BIND, SemanticLevel.REQUEST, UUID.randomUUID());
+        request.addAttribute(new ChannelNumber(CHANNEL)).addAttribute(new SocketEndpoint(
+                (InetSocketAddress) peer.getLocalSocketAddress(), EndpointClass.UNDEFINED));
+        byte[] encoded = request.toByteArray();
+        // unique id attribute with only 3 bytes instead of the 16 bytes of a UUID
+        ByteBuffer malformed = ByteBuffer.allocate(encoded.length + 7);
+        malformed.put(encoded).putShort((short) CommonUceAttributeType.UNIQUE_ID.encode())
+                .putShort((short) 3).put(new byte[] { 1, 2, 3 });
+        malformed.putShort(2, (short) (malformed.getShort(2) + 7));
+
+        // execute
+        client.send(new DatagramPacket(malformed.array(), malformed.capacity(),
+                engineEndpoint));
+        UceMessage response = channelBind(client, udpAllocation, CHANNEL, peer);
+
+        // validate
+        // the malformed request is dropped and the engine keeps running
+        Assert.assertTrue(response.isSuccessResponse());
+        Assert.assertFalse(udpAllocation.isClosed());
+    }
+
+    @Test
+    public void testChannelBindConflictingChannel() throws IOException {
+        // prepare
+        UdpAllocation udpAllocation = allocate(new RelayAllocation(UUID.randomUUID()));
+        channelBind(client, udpAllocation, CHANNEL, peer);
+        DatagramSocket otherPeer = newSocket();
+
+        // execute
+        UceMessage response = channelBind(client, udpAllocation, CHANNEL, otherPeer);
+
+        // validate
+        assertBadRequest(response);
+        otherPeer.close();
+    }
+
+    @Test
+    public void testSecondClientAddressRejected() throws IOException {
+        // prepare
+        UdpAllocation udpAllocation = allocate(new RelayAllocation(UUID.randomUUID()));
+        channelBind(client, udpAllocation, CHANNEL, peer);
+        DatagramSocket otherClient = newSocket();
+
+        // execute
+        UceMessage response = channelBind(otherClient, udpAllocation, CHANNEL + 1, peer);
+
+        // validate
+        assertBadRequest(response);
+        Assert.assertEquals(client.getLocalSocketAddress(), udpAllocation.getClientAddress());
+        otherClient.close();
+    }
+
+    @Test
+    public void testRelayBothDirections() throws IOException {
+        // prepare
+        RelayAllocation allocation = new RelayAllocation(UUID.randomUUID());
+        UdpAllocation udpAllocation = allocate(allocation);
+        channelBind(client, udpAllocation, CHANNEL, peer);
+        byte[] clientData = "from client".getBytes();
+        byte[] peerData = "from peer".getBytes();
+
+        // execute
+        sendChannelData(CHANNEL, clientData);
+        DatagramPacket receivedByPeer = receive(peer);
+        peer.send(new DatagramPacket(peerData, peerData.length, relayEndpoint(udpAllocation)));
+        DatagramPacket receivedByClient = receive(client);
+
+        // validate
+        Assert.assertArrayEquals(clientData, payloadOf(receivedByPeer));
+        Assert.assertEquals(udpAllocation.getPort(), receivedByPeer.getPort());
+        ByteBuffer channelData = ByteBuffer.wrap(receivedByClient.getData(), 0,
+                receivedByClient.getLength());
+        Assert.assertTrue(ChannelData.isChannelData(channelData));
+        Assert.assertEquals(CHANNEL, ChannelData.getChannelNumber(channelData));
+        Assert.assertEquals(peerData.length, ChannelData.getPayloadLength(channelData));
+        Assert.assertArrayEquals(peerData, Arrays.copyOfRange(receivedByClient.getData(),
+                ChannelData.HEADER_LENGTH, receivedByClient.getLength()));
+        Assert.assertEquals(engine.getPort(), receivedByClient.getPort());
+        Assert.assertEquals(clientData.length, allocation.getClientToPeerMeter().getBytes());
+        Assert.assertEquals(peerData.length, allocation.getPeerToClientMeter().getBytes());
+    }
+
+    @Test
+    public void testDropDatagramOfUnboundPeer() throws IOException {
+        // prepare
+        UdpAllocation udpAllocation = allocate(new RelayAllocation(UUID.randomUUID()));
+        channelBind(client, udpAllocation, CHANNEL, peer);
+        DatagramSocket unboundPeer = newSocket();
+        byte[] dropped = "dropped".getBytes();
+        byte[] relayed = "relayed".getBytes();
+
+        // execute
+        unboundPeer.send(new DatagramPacket(dropped, dropped.length,
+                relayEndpoint(udpAllocation)));
+        peer.send(new DatagramPacket(relayed, relayed.length, relayEndpoint(udpAllocation)));
+
+        // validate
+        // the datagrams of one relay channel are handled in order
+        DatagramPacket receivedByClient = receive(client);
+        Assert.assertArrayEquals(relayed, Arrays.copyOfRange(receivedByClient.getData(),
+                ChannelData.HEADER_LENGTH, receivedByClient.getLength()));
+        unboundPeer.close();
+    }
+
+    @Test
+    public void testBindingExpiresAndIsRefreshed() throws Exception {
+        // prepare
+        UdpAllocation udpAllocation = allocate(new RelayAllocation(UUID.randomUUID()));
+        channelBind(client, udpAllocation, CHANNEL, peer);
+        byte[] dropped = "dropped".getBytes();
+        byte[] relayed = "relayed".getBytes();
+
+        // execute
+        Thread.sleep(BINDING_LIFETIME + 100);
+        // the datagrams of the client are handled in order, so the channel
+        // data reaches the engine before the binding is refreshed
+        sendChannelData(CHANNEL, dropped);
+        UceMessage response = channelBind(client, udpAllocation, CHANNEL, peer);
+        sendChannelData(CHANNEL, relayed);
+
+        // validate
+        Assert.assertTrue(response.isSuccessResponse());
+        Assert.assertArrayEquals(relayed, payloadOf(receive(peer)));
+    }
+
+    @Test
+    public void testBandwidthLimitDropsDatagram() throws IOException {
+        // prepare
+        RelayAllocation allocation = new RelayAllocation(UUID.randomUUID(), 1000, 100);
+        UdpAllocation udpAllocation = allocate(allocation);
+        channelBind(client, udpAllocation, CHANNEL, peer);
+
+        // execute
+        sendChannelData(CHANNEL, new byte[50]);
+        // exceeds the remaining tokens
+        sendChannelData(CHANNEL, new byte[200]);
+        sendChannelData(CHANNEL, new byte[10]);
+
+        // validate
+        Assert.assertEquals(50, receive(peer).getLength());
+        Assert.assertEquals(10, receive(peer).getLength());
+        Assert.assertEquals(1, allocation.getClientToPeerMeter().getDroppedPackets());
+        Assert.assertEquals(60, allocation.getClientToPeerMeter().getBytes());
+    }
+
+    private UdpAllocation allocate(RelayAllocation allocation) throws IOException {
+        UdpAllocation udpAllocation = engine.allocate(allocation, portAllocator);
+        Assert.assertNotNull(udpAllocation);
+        return udpAllocation;
+    }
+
+    private UceMessage channelBind(DatagramSocket from, UdpAllocation udpAllocation,
+            int channelNumber, DatagramSocket to) throws IOException {
+        return sendRequest(from, newChannelBindRequest(udpAllocation.getAllocation()
+                .getAllocationId(), channelNumber, to));
+    }
+
+    private static UceMessage newChannelBindRequest(UUID allocationId, int channelNumber,
+            DatagramSocket to) {
+        UceMessage request = UceMessageStaticFactory.newUceMessageInstance(
+                RelayUceMethod.CHANNEL_BIND, SemanticLevel.REQUEST, UUID.randomUUID());
+        request.addAttribute(new UniqueId(allocationId))
+                .addAttribute(new ChannelNumber(channelNumber))
+                .addAttribute(new SocketEndpoint((InetSocketAddress) to
+                        .getLocalSocketAddress(), EndpointClass.UNDEFINED));
+        return request;
+    }
+
+    private UceMessage sendRequest(DatagramSocket from, UceMessage request)
+            throws IOException {
+        byte[] encoded = request.toByteArray();
+        from.send(new DatagramPacket(encoded, encoded.length, engineEndpoint));
+        DatagramPacket packet = receive(from);
+        UceMessage response = RelayMessageReader.read(ByteBuffer.wrap(packet.getData(), 0,
+                packet.getLength()));
+        Assert.assertTrue(response.isMethod(RelayUceMethod.CHANNEL_BIND));
+        return response;
+    }
+
+    private void sendChannelData(int channelNumber, byte[] payload) throws IOException {
+        byte[] datagram = new byte[ChannelData.HEADER_LENGTH + payload.length];
+        ChannelData.putHeader(ByteBuffer.wrap(datagram), channelNumber, payload.length);
+        System.arraycopy(payload, 0, datagram, ChannelData.HEADER_LENGTH, payload.length);
+        client.send(new DatagramPacket(datagram, datagram.length, engineEndpoint));
+    }
+
+    private static void assertBadRequest(UceMessage response) {
+        Assert.assertTrue(response.isErrorResponse());
+        Assert.assertEquals(ErrorCode.ErrorCodes.BAD_REQUEST, response.getAttribute(
+                ErrorCode.class).getErrorNumber());
+    }
+
+    private static InetSocketAddress relayEndpoint(UdpAllocation udpAllocation) {
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), udpAllocation.getPort());
+    }
+
+    private static DatagramPacket receive(DatagramSocket socket) throws IOException {
+        DatagramPacket packet = new DatagramPacket(new byte[2048], 2048);
+        socket.receive(packet);
+        return packet;
+    }
+
+    private static byte[] payloadOf(DatagramPacket packet) {
+        return Arrays.copyOfRange(packet.getData(), packet.getOffset(), packet.getOffset()
+                + packet.getLength());
+    }
+
+    private static DatagramSocket newSocket() throws IOException {
+        DatagramSocket socket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+        socket.setSoTimeout(2000);
+        return socket;
+    }
+}
@@ -0,0 +1,52 @@
+package de.htwg_konstanz.in.uce.socket.relay.server;
+
+import java.util.HashMap;
+import java.util.UUID;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.htwg_konstanz.in.helper.sockets.PortAllocator;
+
+public class HistogramTest {
+
+    @Test
+    public void testRecord() {
+        Histogram histogram = new Histogram("test", "bytes", 4);
+        histogram.record(0);
+        histogram.record(1);
+        histogram.record(2);
+        histogram.record(3);
+        histogram.record(4);
+        histogram.record(5);
+        histogram.record(1000);
+
+        Assert.assertEquals(7, histogram.getCount());
+        Assert.assertEquals(1015, histogram.getSum());
+        Assert.assertEquals(1000, histogram.getMax());
+        Assert.assertArrayEquals(new long[] { 1, 2, 4 }, histogram.getBucketUpperBounds());
+        Assert.assertArrayEquals(new long[] { 2, 1, 2, 2 }, histogram.getBucketCounts());
+    }
+
+    @Test
+    public void testScrape() {
+        RelayEngine engine = new BlockingRelayEngine();
+        PendingBindRegistry pendingBinds = new PendingBindRegistry();
+        try {
+            RelayServerMetrics metrics = new RelayServerMetrics(pendingBinds,
+                    new HashMap<UUID, RelayAllocation>(), engine, new PortAllocator(20000, 20009));
+            metrics.getBindLatency().record(3);
+            String text = metrics.scrape();
+
+            Assert.assertTrue(text.contains("relay_active_allocations 0\n"));
+            Assert.assertTrue(text.contains("relay_free_allocation_ports 10\n"));
+            Assert.assertTrue(text.contains("relay_bind_latency_microseconds_bucket{le=\"2\"} 0\n"));
+            Assert.assertTrue(text.contains("relay_bind_latency_microseconds_bucket{le=\"4\"} 1\n"));
+            Assert.assertTrue(text.contains("relay_bind_latency_microseconds_count 1\n"));
+            Assert.assertTrue(text.contains("relay_relayed_bytes_count 0\n"));
+        } finally {
+            pendingBinds.shutdown();
+            engine.shutdown();
+        }
+    }
+}
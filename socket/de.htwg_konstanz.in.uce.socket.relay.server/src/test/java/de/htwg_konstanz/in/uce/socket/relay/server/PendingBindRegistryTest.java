@@ -0,0 +1,113 @@
+package de.htwg_konstanz.in.uce.socket.relay.server;
+
+import java.net.Socket;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.htwg_konstanz.in.helper.sockets.HashedTimingWheel;
+
+public class PendingBindRegistryTest {
+
+    private PendingBindRegistry registry;
+
+    @Before
+    public void setUp() {
+        registry = new PendingBindRegistry(new HashedTimingWheel(10, TimeUnit.MILLISECONDS, 8,
+                "test-timer"));
+    }
+
+    @After
+    public void tearDown() {
+        registry.shutdown();
+    }
+
+    @Test
+    public void testComplete() {
+        UUID id = UUID.randomUUID();
+        RecordingCallback callback = new RecordingCallback();
+        registry.register(id, 5, TimeUnit.SECONDS, callback);
+        Assert.assertEquals(1, registry.size());
+
+        Socket socket = new Socket();
+        Assert.assertTrue(registry.complete(id, socket));
+        Assert.assertFalse(registry.complete(id, socket));
+
+        Assert.assertSame(socket, callback.socket);
+        Assert.assertEquals(1, callback.bound.get());
+        Assert.assertEquals(1, callback.expired.getCount());
+        Assert.assertEquals(0, registry.size());
+    }
+
+    @Test
+    public void testExpire() throws InterruptedException {
+        UUID id = UUID.randomUUID();
+        RecordingCallback callback = new RecordingCallback();
+        registry.register(id, 50, TimeUnit.MILLISECONDS, callback);
+
+        Assert.assertTrue(callback.expired.await(2, TimeUnit.SECONDS));
+        Assert.assertEquals(0, registry.size());
+        Assert.assertFalse(registry.complete(id, new Socket()));
+        Assert.assertEquals(0, callback.bound.get());
+    }
+
+    @Test
+    public void testCancel() throws InterruptedException {
+        UUID id = UUID.randomUUID();
+        RecordingCallback callback = new RecordingCallback();
+        registry.register(id, 50, TimeUnit.MILLISECONDS, callback);
+
+        Assert.assertTrue(registry.cancel(id));
+        Assert.assertFalse(registry.cancel(id));
+        Assert.assertFalse(callback.expired.await(200, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(0, callback.bound.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDuplicateId() {
+        UUID id = UUID.randomUUID();
+        registry.register(id, 5, TimeUnit.SECONDS, new RecordingCallback());
+        registry.register(id, 5, TimeUnit.SECONDS, new RecordingCallback());
+    }
+
+    @Test
+    public void testDuplicateIdKeepsRecord() {
+        UUID id = UUID.randomUUID();
+        RecordingCallback callback = new RecordingCallback();
+        RecordingCallback duplicateCallback = new RecordingCallback();
+        registry.register(id, 5, TimeUnit.SECONDS, callback);
+        try {
+            registry.register(id, 5, TimeUnit.SECONDS, duplicateCallback);
+            Assert.fail("IllegalStateException expected");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        Socket socket = new Socket();
+        Assert.assertEquals(1, registry.size());
+        Assert.assertTrue(registry.complete(id, socket));
+        Assert.assertSame(socket, callback.socket);
+        Assert.assertEquals(0, duplicateCallback.bound.get());
+    }
+
+    private static final class RecordingCallback implements PendingBindRegistry.Callback {
+        private final AtomicInteger bound = new AtomicInteger();
+        private final CountDownLatch expired = new CountDownLatch(1);
+        private volatile Socket socket;
+
+        public void bound(Socket socket) {
+            this.socket = socket;
+            bound.incrementAndGet();
+        }
+
+        public void expired() {
+            expired.countDown();
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package de.htwg_konstanz.in.uce.socket.relay.server;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.htwg_konstanz.in.uce.socket.relay.messages.MultiplexedConnection;
+import de.htwg_konstanz.in.uce.socket.relay.messages.MultiplexedSocket;
+
+public class SelectorRelayEngineTest {
+
+    private SelectorRelayEngine engine;
+    private RelayBufferPool bufferPool;
+
+    @Before
+    public void setUp() throws IOException {
+        bufferPool = new RelayBufferPool(1024, 4);
+        engine = new SelectorRelayEngine(2, bufferPool);
+    }
+
+    @After
+    public void tearDown() {
+        engine.shutdown();
+    }
+
+    /**
+     * Returns two connected sockets. The first one is the relay side (with
+     * channel), the second one the remote side.
+     */
+    private static Socket[] connectedPair() throws IOException {
+        ServerSocketChannel ssc = ServerSocketChannel.open();
+        try {
+            ssc.socket().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            SocketChannel remote = SocketChannel.open(ssc.socket().getLocalSocketAddress());
+            SocketChannel local = ssc.accept();
+            return new Socket[] { local.socket(), remote.socket() };
+        } finally {
+            ssc.close();
+        }
+    }
+
+    @Test
+    public void testRelayBothDirections() throws IOException {
+        // prepare
+        Socket[] peer = connectedPair();
+        Socket[] client = connectedPair();
+        byte[] peerData = new byte[100000];
+        byte[] clientData = new byte[5000];
+        new Random(1).nextBytes(peerData);
+        new Random(2).nextBytes(clientData);
+
+        TrafficMeter peerToClientMeter = new TrafficMeter();
+        TrafficMeter clientToPeerMeter = new TrafficMeter();
+
+        // execute
+        engine.relay(peer[0], client[0], peerToClientMeter, clientToPeerMeter);
+        OutputStream peerOut = peer[1].getOutputStream();
+        peerOut.write(peerData);
+        peerOut.flush();
+        peer[1].shutdownOutput();
+        client[1].getOutputStream().write(clientData);
+        client[1].shutdownOutput();
+
+        // validate
+        byte[] receivedByClient = new byte[peerData.length];
+        new DataInputStream(client[1].getInputStream()).readFully(receivedByClient);
+        Assert.assertTrue(Arrays.equals(peerData, receivedByClient));
+        Assert.assertEquals(-1, client[1].getInputStream().read());
+
+        byte[] receivedByPeer = new byte[clientData.length];
+        new DataInputStream(peer[1].getInputStream()).readFully(receivedByPeer);
+        Assert.assertTrue(Arrays.equals(clientData, receivedByPeer));
+        Assert.assertEquals(-1, peer[1].getInputStream().read());
+        Assert.assertEquals(peerData.length, peerToClientMeter.getBytes());
+        Assert.assertEquals(clientData.length, clientToPeerMeter.getBytes());
+        Assert.assertTrue(peerToClientMeter.getPackets() > 0);
+
+        peer[1].close();
+        client[1].close();
+    }
+
+    @Test
+    public void testBandwidthLimit() throws IOException {
+        // prepare
+        Socket[] peer = connectedPair();
+        Socket[] client = connectedPair();
+        byte[] peerData = new byte[30000];
+        TrafficMeter limited = new TrafficMeter(new TokenBucket(50000, 1024));
+
+        // execute
+        long start = System.nanoTime();
+        engine.relay(peer[0], client[0], limited, new TrafficMeter());
+        peer[1].getOutputStream().write(peerData);
+        peer[1].shutdownOutput();
+        byte[] receivedByClient = new byte[peerData.length];
+        new DataInputStream(client[1].getInputStream()).readFully(receivedByClient);
+        long elapsed = System.nanoTime() - start;
+
+        // validate
+        // 29 KB above the burst size at 50 KB/s take at least about 0.5 s
+        Assert.assertTrue(elapsed >= 500L * 1000 * 1000);
+        Assert.assertEquals(peerData.length, limited.getBytes());
+
+        peer[1].close();
+        client[1].close();
+    }
+
+    @Test
+    public void testFallbackForSocketsWithoutChannel() throws IOException {
+        // prepare
+        ServerSocket ss = new ServerSocket(0, 2, InetAddress.getLoopbackAddress());
+        Socket peerRemote = new Socket(InetAddress.getLoopbackAddress(), ss.getLocalPort());
+        Socket peerLocal = ss.accept();
+        Socket clientRemote = new Socket(InetAddress.getLoopbackAddress(), ss.getLocalPort());
+        Socket clientLocal = ss.accept();
+        ss.close();
+
+        // execute
+        engine.relay(peerLocal, clientLocal, new TrafficMeter(), new TrafficMeter());
+        peerRemote.getOutputStream().write(42);
+        peerRemote.shutdownOutput();
+
+        // validate
+        InputStream in = clientRemote.getInputStream();
+        Assert.assertEquals(42, in.read());
+        Assert.assertEquals(-1, in.read());
+
+        peerRemote.close();
+        clientRemote.close();
+    }
+
+    @Test
+    public void testRelayMultiplexedStream() throws Exception {
+        // prepare
+        Socket[] peer = connectedPair();
+        Socket[] data = connectedPair();
+        MultiplexedConnection serverSide = new MultiplexedConnection(data[0], true);
+        MultiplexedConnection clientSide = new MultiplexedConnection(data[1], false);
+        serverSide.start();
+        clientSide.start();
+        MultiplexedSocket stream = serverSide.openStream();
+        MultiplexedSocket accepted = clientSide.acceptStream();
+        // more than the window of a stream in both directions
+        byte[] peerData = new byte[3 * MultiplexedConnection.INITIAL_WINDOW + 17];
+        byte[] clientData = new byte[2 * MultiplexedConnection.INITIAL_WINDOW + 5];
+        new Random(3).nextBytes(peerData);
+        new Random(4).nextBytes(clientData);
+        TrafficMeter peerToClientMeter = new TrafficMeter();
+        TrafficMeter clientToPeerMeter = new TrafficMeter();
+
+        // execute
+        engine.relay(peer[0], stream, peerToClientMeter, clientToPeerMeter);
+        OutputStream peerOut = peer[1].getOutputStream();
+        peerOut.write(peerData);
+        peerOut.flush();
+        peer[1].shutdownOutput();
+        byte[] receivedByClient = new byte[peerData.length];
+        new DataInputStream(accepted.getInputStream()).readFully(receivedByClient);
+        Assert.assertEquals(-1, accepted.getInputStream().read());
+        accepted.getOutputStream().write(clientData);
+        accepted.shutdownOutput();
+        byte[] receivedByPeer = new byte[clientData.length];
+        new DataInputStream(peer[1].getInputStream()).readFully(receivedByPeer);
+
+        // validate
+        Assert.assertTrue(Arrays.equals(peerData, receivedByClient));
+        Assert.assertTrue(Arrays.equals(clientData, receivedByPeer));
+        Assert.assertEquals(-1, peer[1].getInputStream().read());
+        Assert.assertEquals(peerData.length, peerToClientMeter.getBytes());
+        Assert.assertEquals(clientData.length, clientToPeerMeter.getBytes());
+        for (int i = 0; i < 50 && engine.getActiveRelays() > 0; i++) {
+            Thread.sleep(20);
+        }
+        Assert.assertEquals(0, engine.getActiveRelays());
+        Assert.assertEquals(0, bufferPool.getBuffersInUse());
+
+        peer[1].close();
+        serverSide.close();
+        clientSide.close();
+    }
+
+    @Test
+    public void testBuffersReleasedAfterRelayFinished() throws Exception {
+        // prepare
+        Socket[] peer = connectedPair();
+        Socket[] client = connectedPair();
+
+        // execute
+        engine.relay(peer[0], client[0], new TrafficMeter(), new TrafficMeter());
+        peer[1].getOutputStream().write(42);
+        peer[1].shutdownOutput();
+        client[1].shutdownOutput();
+        Assert.assertEquals(42, client[1].getInputStream().read());
+        Assert.assertEquals(-1, client[1].getInputStream().read());
+        Assert.assertEquals(-1, peer[1].getInputStream().read());
+
+        // validate
+        for (int i = 0; i < 50 && bufferPool.getBuffersInUse() > 0; i++) {
+            Thread.sleep(20);
+        }
+        Assert.assertEquals(0, bufferPool.getBuffersInUse());
+        Assert.assertEquals(2, bufferPool.getIdleBuffers());
+
+        peer[1].close();
+        client[1].close();
+    }
+}
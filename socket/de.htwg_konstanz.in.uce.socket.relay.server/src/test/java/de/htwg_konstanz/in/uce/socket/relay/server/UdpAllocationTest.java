@@ -0,0 +1,110 @@
+package de.htwg_konstanz.in.uce.socket.relay.server;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.htwg_konstanz.in.helper.sockets.PortAllocator;
+
+public class UdpAllocationTest {
+
+    private static final long BINDING_LIFETIME = 500;
+    private final InetSocketAddress peer = new InetSocketAddress(
+            InetAddress.getLoopbackAddress(), 5000);
+    private final InetSocketAddress otherPeer = new InetSocketAddress(
+            InetAddress.getLoopbackAddress(), 5001);
+    private DatagramRelayEngine engine;
+    private PortAllocator portAllocator;
+    private UdpAllocation udpAllocation;
+
+    @Before
+    public void setUp() throws IOException {
+        engine = new DatagramRelayEngine(0);
+        new Thread(engine).start();
+        portAllocator = new PortAllocator(45100, 45199);
+        udpAllocation = new UdpAllocation(new RelayAllocation(UUID.randomUUID()),
+                portAllocator.openDatagramChannel(), engine, portAllocator, BINDING_LIFETIME);
+    }
+
+    @After
+    public void tearDown() {
+        udpAllocation.close();
+        engine.shutdown();
+    }
+
+    @Test
+    public void testBindGrantsPermission() {
+        // execute
+        boolean bound = udpAllocation.bind(0x4000, peer);
+
+        // validate
+        Assert.assertTrue(bound);
+        Assert.assertEquals(peer, udpAllocation.getBinding(0x4000).getPeer());
+        Assert.assertEquals(0x4000, udpAllocation.getBinding(peer).getChannelNumber());
+        Assert.assertNull(udpAllocation.getBinding(otherPeer));
+        Assert.assertNull(udpAllocation.getBinding(0x4001));
+    }
+
+    @Test
+    public void testConflictingBindings() {
+        // prepare
+        Assert.assertTrue(udpAllocation.bind(0x4000, peer));
+
+        // execute and validate
+        Assert.assertTrue(udpAllocation.bind(0x4000, peer));
+        Assert.assertFalse(udpAllocation.bind(0x4000, otherPeer));
+        Assert.assertFalse(udpAllocation.bind(0x4001, peer));
+        Assert.assertEquals(peer, udpAllocation.getBinding(0x4000).getPeer());
+    }
+
+    @Test
+    public void testBindingExpires() throws InterruptedException {
+        // prepare
+        udpAllocation.bind(0x4000, peer);
+
+        // execute
+        Thread.sleep(BINDING_LIFETIME + 100);
+
+        // validate
+        Assert.assertNull(udpAllocation.getBinding(peer));
+        Assert.assertNull(udpAllocation.getBinding(0x4000));
+        // the channel number is free for another peer again
+        Assert.assertTrue(udpAllocation.bind(0x4000, otherPeer));
+    }
+
+    @Test
+    public void testRefreshExtendsBinding() throws InterruptedException {
+        // prepare
+        udpAllocation.bind(0x4000, peer);
+
+        // execute
+        Thread.sleep(BINDING_LIFETIME * 3 / 5);
+        Assert.assertTrue(udpAllocation.bind(0x4000, peer));
+        Thread.sleep(BINDING_LIFETIME * 3 / 5);
+
+        // validate
+        Assert.assertNotNull(udpAllocation.getBinding(peer));
+        Assert.assertNotNull(udpAllocation.getBinding(0x4000));
+    }
+
+    @Test
+    public void testCloseReleasesPort() {
+        // prepare
+        Assert.assertEquals(1, portAllocator.getReservedPorts());
+
+        // execute
+        udpAllocation.close();
+        udpAllocation.close();
+
+        // validate
+        Assert.assertTrue(udpAllocation.isClosed());
+        Assert.assertFalse(udpAllocation.getRelayChannel().isOpen());
+        Assert.assertEquals(0, portAllocator.getReservedPorts());
+    }
+}